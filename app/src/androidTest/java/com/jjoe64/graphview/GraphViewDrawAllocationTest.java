@@ -0,0 +1,87 @@
+package com.jjoe64.graphview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.View;
+
+import com.jjoe64.graphview.series.DataPoint;
+import com.jjoe64.graphview.series.LineGraphSeries;
+import com.jjoe64.graphview.series.PointsGraphSeries;
+
+/**
+ * Measures the bytes the process allocates while an already laid out and drawn graph is redrawn; the measurement is the ART
+ * runtime's process-wide allocated bytes, which is coarse and includes other threads, so this is a diagnostic that only fails
+ * when the steady-state draws allocate on the order of one object per data point; it is skipped where the runtime lacks the measurement
+ */
+public class GraphViewDrawAllocationTest extends AndroidTestCase {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 480;
+    private static final int QTY_POINTS = 500;
+    private static final int QTY_WARMUP_FRAMES = 5;
+    private static final int QTY_TRACKED_FRAMES = 200;     // many frames so that claims of thread-local allocation buffers average out
+    private static final long MAX_BYTES_PER_FRAME = QTY_POINTS * 8L;    // well below one object per data point
+
+    // build a graph with line and points series on a manual viewport and a visible legend, laid out at a fixed size
+    private GraphView buildGraph() {
+        GraphView graph = new GraphView(getContext());
+        graph.setTitle("Allocation test");
+
+        DataPoint[] linePoints = new DataPoint[QTY_POINTS];
+        DataPoint[] pointsPoints = new DataPoint[QTY_POINTS / 10];
+        for (int i = 0; i < QTY_POINTS; i++) {
+            linePoints[i] = new DataPoint(i, i, Math.sin(i / 20.0) * 10.0);
+            if (i % 10 == 0) { pointsPoints[i / 10] = new DataPoint(i / 10, i, Math.cos(i / 20.0) * 10.0); }
+        }
+        LineGraphSeries<DataPoint> lineSeries = new LineGraphSeries<DataPoint>(linePoints);
+        lineSeries.setTitle("Line");
+        PointsGraphSeries<DataPoint> pointsSeries = new PointsGraphSeries<DataPoint>(pointsPoints);
+        pointsSeries.setTitle("Points");
+        pointsSeries.setShape(PointsGraphSeries.Shape.TRIANGLE);
+        graph.addSeries(lineSeries);
+        graph.addSeries(pointsSeries);
+
+        graph.getViewport().setXAxisBoundsManual(true);
+        graph.getViewport().setMinX(0.0);
+        graph.getViewport().setMaxX(QTY_POINTS - 1);
+        graph.getViewport().setYAxisBoundsManual(true);
+        graph.getViewport().setMinY(-10.0);
+        graph.getViewport().setMaxY(10.0);
+        graph.getGridLabelRenderer().setLabelCacheEnabled(true);    // the default label formatter creates a new String per format
+        graph.getLegendRenderer().setVisible(true);
+
+        graph.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        graph.layout(0, 0, WIDTH, HEIGHT);
+        return graph;
+    }
+
+    public void testSteadyStateDrawAllocations() throws Exception {
+        if (GraphView.getProcessAllocatedBytes() < 0L) {
+            Log.w("GraphViewDrawAllocTest", "Skipped: the runtime does not report its allocated bytes");
+            return;
+        }
+        GraphView graph = buildGraph();
+        Bitmap theBitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas theCanvas = new Canvas(theBitmap);
+
+        // the first frames size the labels, adjust the steps and fill the caches
+        for (int i = 0; i < QTY_WARMUP_FRAMES; i++) { graph.doDraw(theCanvas); }
+
+        long totalBytes = 0L;
+        graph.setDrawAllocationTracking(true);
+        try {
+            for (int i = 0; i < QTY_TRACKED_FRAMES; i++) {
+                graph.doDraw(theCanvas);
+                assertTrue("allocations not measured for frame " + i, graph.getLastDrawAllocBytes() >= 0L);
+                totalBytes = totalBytes + graph.getLastDrawAllocBytes();
+            }
+            long perFrame = totalBytes / QTY_TRACKED_FRAMES;
+            Log.i("GraphViewDrawAllocTest", "Process allocated " + totalBytes + " bytes over " + QTY_TRACKED_FRAMES + " draws (" + perFrame + " per draw)");
+            assertTrue("process allocated " + perFrame + " bytes per draw", perFrame <= MAX_BYTES_PER_FRAME);
+        } finally {
+            graph.setDrawAllocationTracking(false);
+            theBitmap.recycle();
+        }
+    }
+}
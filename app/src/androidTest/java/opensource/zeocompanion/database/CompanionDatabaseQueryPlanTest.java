@@ -0,0 +1,136 @@
+package opensource.zeocompanion.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.util.ArrayList;
+
+/**
+ * Confirms via EXPLAIN QUERY PLAN that the history, date-range, hydrate and replication queries of CompanionDatabase
+ * are served by the secondary indexes (database version 6) or the rowid rather than by full table scans and temporary sorts;
+ * the statements are built by the same CompanionDatabase.Query factories the handler methods run, so the plans are those of the
+ * shipped queries; the database is created fresh under a renamed file so the App's own database is not touched
+ */
+public class CompanionDatabaseQueryPlanTest extends AndroidTestCase {
+    private static final String TEST_DB_PREFIX = "queryplantest_";
+    private static final String JOURNAL = CompanionDatabaseContract.CompanionSleepEpisodes.TABLE_NAME_INTERNAL;
+    private static final String JOURNAL_TS = CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP;
+    private static final String ZEO = CompanionDatabaseContract.ZeoSleepRecords.TABLE_NAME;
+    private static final long FROM_TIMESTAMP = 1450000000000L;
+    private static final long BEFORE_TIMESTAMP = 1460000000000L;
+
+    private RenamingDelegatingContext mContext = null;
+    private CompanionDatabase mDatabase = null;
+    private SQLiteDatabase mDB = null;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = new RenamingDelegatingContext(getContext(), TEST_DB_PREFIX);
+        mContext.deleteDatabase(CompanionDatabase.DATABASE_NAME);
+        mDatabase = new CompanionDatabase(mContext);
+        mDB = mDatabase.getWritableDatabase();
+        assertFalse("test database could not be created", mDatabase.mInvalidDB);
+        assertEquals("fresh database does not use the current journal table", JOURNAL, CompanionDatabase.CompanionSleepEpisodes_TABLE_NAME);
+        assertTrue("replicated sleep records table could not be created", mDatabase.createZeoTable(CompanionDatabaseContract.ZeoSleepRecords.SQL_DEFINITION));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDatabase.close();
+        mContext.deleteDatabase(CompanionDatabase.DATABASE_NAME);
+        super.tearDown();
+    }
+
+    // the detail lines of the query plan of the statement the query's run() compiles
+    private ArrayList<String> queryPlan(CompanionDatabase.Query query) {
+        ArrayList<String> details = new ArrayList<String>();
+        Cursor cursor = mDB.rawQuery("EXPLAIN QUERY PLAN " + query.toSQL(), query.mValues);
+        try {
+            int detailCol = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) { details.add(cursor.getString(detailCol)); }
+        } finally {
+            cursor.close();
+        }
+        assertFalse("no query plan for: " + query.toSQL(), details.isEmpty());
+        return details;
+    }
+
+    private void assertNoTemporarySort(String context, ArrayList<String> details) {
+        for (String detail: details) {
+            assertFalse(context + ": temporary sort: " + details, detail.contains("TEMP B-TREE"));
+        }
+    }
+
+    private void assertNoFullScan(String context, ArrayList<String> details) {
+        for (String detail: details) {
+            assertFalse(context + ": full table scan: " + details, (detail.startsWith("SCAN") && !detail.contains("INDEX")));
+        }
+    }
+
+    // every table access must go through an index, and the ordering must come from that index rather than a temporary sort
+    private void assertUsesIndex(String context, ArrayList<String> details, String expectedIndex) {
+        assertNoFullScan(context, details);
+        assertNoTemporarySort(context, details);
+        boolean usedExpected = false;
+        for (String detail: details) {
+            if (detail.contains("USING INDEX " + expectedIndex) || detail.contains("USING COVERING INDEX " + expectedIndex)) { usedExpected = true; }
+        }
+        assertTrue(context + ": does not use " + expectedIndex + ": " + details, usedExpected);
+    }
+
+    // the records must be located by rowid lookups rather than by a scan
+    private void assertUsesRowid(String context, ArrayList<String> details) {
+        assertNoFullScan(context, details);
+        boolean usedRowid = false;
+        for (String detail: details) {
+            if (detail.contains("USING INTEGER PRIMARY KEY")) { usedRowid = true; }
+        }
+        assertTrue(context + ": does not use the rowid: " + details, usedRowid);
+    }
+
+    public void testJournalHistoryQueriesUseTimestampIndex() throws Exception {
+        String index = "idx_" + JOURNAL + "_" + JOURNAL_TS;
+        assertUsesIndex("all journal records", queryPlan(CompanionDatabase.queryAllJournalSummaries()), index);
+        assertUsesIndex("journal records after date", queryPlan(CompanionDatabase.queryJournalAfterDate(FROM_TIMESTAMP)), index);
+    }
+
+    public void testJournalZSElookupUsesZSEindex() throws Exception {
+        String index = "idx_" + JOURNAL + "_" + CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ZEO_SLEEP_EPISODE_ID;
+        assertUsesIndex("journal records of ZSE ID", queryPlan(CompanionDatabase.queryJournalLinkedToZSEid(42L)), index);
+    }
+
+    public void testJournalIDqueriesUseRowid() throws Exception {
+        assertUsesRowid("journal record of ID", queryPlan(CompanionDatabase.queryJournalOfID(42L)));
+
+        // the hypnogram hydrate query as IntegratedHistoryCache and CompanionSleepEpisodesRec issue it: a full batch of IDs
+        long[] ids = new long[CompanionDatabase.MAX_BOUND_VARIABLES_PER_QUERY];
+        for (int i = 0; i < ids.length; i++) { ids[i] = 1000L + i * 3L; }
+        ArrayList<String> details = queryPlan(CompanionDatabase.queryJournalHypnogramsOfIDs(ids, 0, ids.length));
+        assertUsesRowid("journal hypnograms of IDs", details);
+        assertNoTemporarySort("journal hypnograms of IDs", details);
+        assertUsesRowid("journal hypnograms of an ID", queryPlan(CompanionDatabase.queryJournalHypnogramsOfIDs(ids, 7, 1)));
+    }
+
+    public void testReplicatedSleepRecordQueriesUseIndexes() throws Exception {
+        // the start-of-night queries are served by the index SQLite creates for the UNIQUE constraint
+        String uniqueIndex = "sqlite_autoindex_" + ZEO;
+        assertUsesIndex("all replicated records", queryPlan(CompanionDatabase.queryZeoSleepRecsAfterDate(0L)), uniqueIndex);
+        assertUsesIndex("replicated records after date", queryPlan(CompanionDatabase.queryZeoSleepRecsAfterDate(FROM_TIMESTAMP)), uniqueIndex);
+        assertUsesIndex("replicated summary records", queryPlan(CompanionDatabase.queryAllZeoSleepSummaries()), uniqueIndex);
+    }
+
+    public void testReplicationQueriesNeedNoTemporarySort() throws Exception {
+        // the full reconcile reads every replicated record's ID and updated_on, so a scan is expected; it must come out of the rowid in ID order
+        assertNoTemporarySort("replicated IDs and updateds", queryPlan(CompanionDatabase.queryZeoTableIDsAndUpdateds(ZEO)));
+
+        // the checkpoint delta is queried against the Zeo App's provider, whose tables share the replicated tables' schema; updated_on
+        // is not indexed there, so SQLite scans in rowid order; what must not happen is an additional sort of the result
+        CompanionDatabase.Query delta = new CompanionDatabase.Query(ZEO, CompanionDatabaseContract.ZeoSleepRecords.PROJECTION_FULL,
+                CompanionDatabase.ZEO_REPLICATION_DELTA_SELECTION, new String[] { "1234", String.valueOf(BEFORE_TIMESTAMP) },
+                CompanionDatabase.ZEO_REPLICATION_SORT_ORDER, null);
+        assertNoTemporarySort("replication checkpoint delta", queryPlan(delta));
+    }
+}
@@ -27,6 +27,8 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.PointF;
 import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Debug;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
@@ -55,6 +57,7 @@ import java.util.List;
  *      - optional ability to specify max and min scaling points during dynamic scaling
  *      - fixes for x-axis label placement
  *      - kludged ability to create a bitmap from the GraphView instance rather than a GUI view
+ *      - allocation-free drawing, with optional debug-mode tracking of the allocations of each draw
  */
 
 public class GraphView extends View {
@@ -178,6 +181,13 @@ public class GraphView extends View {
      */
     private Paint mPreviewPaint;
 
+    /**
+     * debug-mode measurement of the bytes allocated during each draw;
+     * the value is that of the most recent tracked draw, or -1 when it could not be measured
+     */
+    private boolean mDrawAllocTracking = false;     // CHANGE NOTICE: allocation tracking of onDraw
+    private long mLastDrawAllocBytes = -1L;
+
     /**
      * optional long for the calling App to utilize in callbacks
      */
@@ -233,6 +243,7 @@ public class GraphView extends View {
 
         mSeries = new ArrayList<Series>();
         mPaintTitle = new Paint();
+        mPaintTitle.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));  // CHANGE NOTICE: better titles; created once rather than per draw
 
         mTapDetector = new TapDetector();
 
@@ -330,21 +341,81 @@ public class GraphView extends View {
 
     // CHANGE NOTICE: create bitmaps
     public void doDraw(Canvas canvas) {
+        if (mDrawAllocTracking) {
+            // CHANGE NOTICE: allocation tracking of onDraw
+            long before = getProcessAllocatedBytes();
+            drawContent(canvas);
+            long after = getProcessAllocatedBytes();
+            mLastDrawAllocBytes = (before < 0L || after < 0L) ? -1L : after - before;
+            if (mLastDrawAllocBytes > 0L) {
+                Log.d("GraphView", "Process allocated " + mLastDrawAllocBytes + " bytes during draw");
+            }
+        } else {
+            drawContent(canvas);
+        }
+    }
+
+    /**
+     * draws all the parts of the graph; once the graph has been
+     * laid out and drawn, this does not allocate any objects
+     * (other than whatever the LabelFormatter creates)
+     *
+     * @param canvas Canvas
+     */
+    protected void drawContent(Canvas canvas) {       // CHANGE NOTICE: allocation-free drawing
         drawTitle(canvas);
         mViewport.drawFirst(canvas);
         mGridLabelRenderer.draw(canvas);
-        for (Series s : mSeries) {
-            s.draw(this, canvas, false);
+        for (int i = 0; i < mSeries.size(); i++) {
+            mSeries.get(i).draw(this, canvas, false);
         }
         if (mSecondScale != null) {
-            for (Series s : mSecondScale.getSeries()) {
-                s.draw(this, canvas, true);
+            List<Series> secondSeries = mSecondScale.getSeries();
+            for (int i = 0; i < secondSeries.size(); i++) {
+                secondSeries.get(i).draw(this, canvas, true);
             }
         }
         mViewport.draw(canvas);
         mLegendRenderer.draw(canvas);
     }
 
+    /**
+     * debug aid:  enable or disable measuring the bytes allocated during each draw
+     * of this graph (including those drawn into bitmaps); the measurement is the change
+     * of the ART runtime's process-wide allocated bytes, so it includes the allocations
+     * of any other thread and is coarse (thread-local allocation buffers are counted when claimed);
+     * it is only a diagnostic, and is unavailable before Android 6.0
+     *
+     * @param enabled true to measure the allocations of each draw
+     */
+    public void setDrawAllocationTracking(boolean enabled) {      // CHANGE NOTICE: allocation tracking of onDraw
+        mDrawAllocTracking = enabled;
+        mLastDrawAllocBytes = -1L;
+    }
+
+    /**
+     * @return whether the allocations of each draw are being measured
+     */
+    public boolean isDrawAllocationTracking() { return mDrawAllocTracking; }
+
+    /**
+     * @return bytes allocated by the whole process during the most recent tracked draw,
+     * or -1 if not tracked or the runtime does not provide the measurement
+     */
+    public long getLastDrawAllocBytes() { return mLastDrawAllocBytes; }
+
+    /**
+     * @return cumulative bytes allocated by the process as reported by the ART runtime,
+     * or -1 if the runtime does not provide it
+     */
+    public static long getProcessAllocatedBytes() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) { return -1L; }
+        String stat = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        if (stat == null) { return -1L; }
+        try { return Long.parseLong(stat); }
+        catch (NumberFormatException e) { return -1L; }
+    }
+
     /**
      * Draws the Graphs title that will be
      * shown above the viewport.
@@ -357,7 +428,6 @@ public class GraphView extends View {
             mPaintTitle.setColor(mStyles.titleColor);
             mPaintTitle.setTextSize(mStyles.titleTextSize);
             mPaintTitle.setTextAlign(Paint.Align.CENTER);
-            mPaintTitle.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));  // CHANGE NOTICE: better titles
             float x = canvas.getWidth()/2;
             float y = mPaintTitle.getTextSize();
             canvas.drawText(mTitle, x, y, mPaintTitle);
@@ -28,8 +28,8 @@ import android.support.v4.view.ViewCompat;
 import android.util.Log;
 import android.util.TypedValue;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Arrays;
+
 
 /**
  * The default renderer for the grid
@@ -220,7 +220,7 @@ public class GridLabelRenderer {
      * Key      = Pixel (y)
      * Value    = y-value
      */
-    private Map<Integer, Double> mStepsVertical;
+    private Steps mStepsVertical;      // CHANGE NOTICE: allocation-free drawing
 
     /**
      * cache of the vertical steps for the
@@ -229,7 +229,7 @@ public class GridLabelRenderer {
      * Key      = Pixel (y)
      * Value    = y-value
      */
-    private Map<Integer, Double> mStepsVerticalSecondScale;
+    private Steps mStepsVerticalSecondScale;
 
     /**
      * cache of the horizontal steps
@@ -237,7 +237,7 @@ public class GridLabelRenderer {
      * Key      = Pixel (x)
      * Value    = x-value
      */
-    private Map<Integer, Double> mStepsHorizontal;
+    private Steps mStepsHorizontal;
 
     /**
      * the paint to draw the grid lines
@@ -343,6 +343,57 @@ public class GridLabelRenderer {
     private Double mHorizontalLabelsStartX = null;
     private Double mHorizontalLabelsEndX = null;
 
+    /**
+     * caches of the formatted labels (see {@link #setLabelCacheEnabled(boolean)})
+     * and of the measured label sizes
+     */
+    private boolean mLabelCacheEnabled = false;     // CHANGE NOTICE: cached label layout and text metrics
+    private final LabelLayoutCache mLabelCache = new LabelLayoutCache();
+    private final LabelLayoutCache mLabelCacheSecondScale = new LabelLayoutCache();
+    private final TextMetricsCache mTextMetrics = new TextMetricsCache();
+    private final Rect mTextBounds = new Rect();
+
+    /**
+     * the pixel positions and values of the steps of one axis in the order added;
+     * adding an already present pixel position replaces its value (as a map would);
+     * the arrays are re-used so neither re-adjusting nor drawing creates objects
+     */
+    private static final class Steps {      // CHANGE NOTICE: allocation-free drawing
+        private int[] mPixels;
+        private double[] mValues;
+        private int mSize = 0;
+
+        Steps(int capacity) {
+            if (capacity < 1) capacity = 1;
+            mPixels = new int[capacity];
+            mValues = new double[capacity];
+        }
+
+        void put(int pixel, double value) {
+            for (int j = 0; j < mSize; j++) {
+                if (mPixels[j] == pixel) {
+                    mValues[j] = value;
+                    return;
+                }
+            }
+            if (mSize == mPixels.length) {
+                mPixels = Arrays.copyOf(mPixels, mSize << 1);
+                mValues = Arrays.copyOf(mValues, mSize << 1);
+            }
+            mPixels[mSize] = pixel;
+            mValues[mSize] = value;
+            mSize++;
+        }
+
+        void clear() { mSize = 0; }
+
+        int size() { return mSize; }
+
+        int getPixel(int j) { return mPixels[j]; }
+
+        double getValue(int j) { return mValues[j]; }
+    }
+
     /**
      * create the default grid label renderer.
      *
@@ -433,6 +484,8 @@ public class GridLabelRenderer {
         mPaintAxisTitle = new Paint();
         mPaintAxisTitle.setTextSize(getTextSize());
         mPaintAxisTitle.setTextAlign(Paint.Align.CENTER);
+
+        invalidateLabelCache();     // CHANGE NOTICE: cached label layout and text metrics
     }
 
     /**
@@ -492,10 +545,55 @@ public class GridLabelRenderer {
             mLabelVerticalHeight = null;
             mLabelVerticalSecondScaleWidth = null;
             mLabelVerticalSecondScaleHeight = null;
+            invalidateLabelCache();     // CHANGE NOTICE: cached label layout and text metrics
         }
         //reloadStyles();
     }
 
+    /**
+     * discard the cached formatted labels; call this when a label formatter's output
+     * has changed for reasons other than its arguments, such as a change of its own settings,
+     * without a call to {@link GraphView#onDataChanged(boolean, boolean)} with keepLabelsSize false
+     */
+    public void invalidateLabelCache() {        // CHANGE NOTICE: cached label layout and text metrics
+        mLabelCache.clear();
+        mLabelCacheSecondScale.clear();
+    }
+
+    /**
+     * @return whether the formatted labels are cached
+     */
+    public boolean isLabelCacheEnabled() {      // CHANGE NOTICE: cached label layout and text metrics
+        return mLabelCacheEnabled;
+    }
+
+    /**
+     * cache the formatted labels keyed by the arguments of {@link LabelFormatter#formatLabelEx},
+     * so that scrolling and scaling do not re-format the labels that stay on the graph.
+     * Only enable this when the label formatters' output depends solely upon those arguments
+     * between invalidations (see {@link #invalidateLabelCache()}); it is off by default
+     *
+     * @param enabled true to cache the formatted labels
+     */
+    public void setLabelCacheEnabled(boolean enabled) {     // CHANGE NOTICE: cached label layout and text metrics
+        mLabelCacheEnabled = enabled;
+        invalidateLabelCache();
+    }
+
+    /**
+     * get a label split into its lines, from the cache if enabled
+     */
+    private String[] getLabelLines(LabelLayoutCache cache, LabelFormatter formatter, LabelFormatterReason reason, int index, double value, boolean isValueX) {     // CHANGE NOTICE: cached label layout and text metrics
+        if (mLabelCacheEnabled) {
+            return cache.getLines(formatter, reason, index, value, isValueX);
+        }
+        String label = formatter.formatLabelEx(reason, index, value, isValueX);
+        if (label == null) {
+            label = "";
+        }
+        return label.split("\n");
+    }
+
     /**
      * calculates the vertical steps of
      * the second scale.
@@ -541,7 +639,7 @@ public class GridLabelRenderer {
         if (mStepsVerticalSecondScale != null) {
             mStepsVerticalSecondScale.clear();
         } else {
-            mStepsVerticalSecondScale = new LinkedHashMap<Integer, Double>(numVerticalLabels);
+            mStepsVerticalSecondScale = new Steps(numVerticalLabels);
         }
         int height = mGraphView.getGraphContentHeight();
         double v = newMaxY;
@@ -579,7 +677,7 @@ public class GridLabelRenderer {
             if (mStepsVertical != null) {
                 mStepsVertical.clear();
             } else {
-                mStepsVertical = new LinkedHashMap<Integer, Double>((int) mNumVerticalLabels);
+                mStepsVertical = new Steps((int) mNumVerticalLabels);
             }
 
             int top = mGraphView.getGraphContentTop();
@@ -665,7 +763,7 @@ public class GridLabelRenderer {
         if (mStepsVertical != null) {
             mStepsVertical.clear();
         } else {
-            mStepsVertical = new LinkedHashMap<Integer, Double>(numVerticalLabels);
+            mStepsVertical = new Steps(numVerticalLabels);
         }
         int height = mGraphView.getGraphContentHeight();
         int top = mGraphView.getGraphContentTop();                  // CHANGE NOTICE: explicit control of labeling
@@ -708,7 +806,7 @@ public class GridLabelRenderer {
             if (mStepsHorizontal != null) {
                 mStepsHorizontal.clear();
             } else {
-                mStepsHorizontal = new LinkedHashMap<Integer, Double>((int) mNumHorizontalLabels);
+                mStepsHorizontal = new Steps((int) mNumHorizontalLabels);
             }
 
             int left = mGraphView.getGraphContentLeft();
@@ -815,7 +913,7 @@ public class GridLabelRenderer {
         if (mStepsHorizontal != null) {
             mStepsHorizontal.clear();
         } else {
-            mStepsHorizontal = new LinkedHashMap<Integer, Double>((int) numHorizontalLabels);
+            mStepsHorizontal = new Steps((int) numHorizontalLabels);
         }
         int width = mGraphView.getGraphContentWidth();
         int left = mGraphView.getGraphContentLeft();        // CHANGE NOTICE: explicit control of labeling
@@ -895,8 +993,8 @@ public class GridLabelRenderer {
         String testLabel = mLabelFormatter.formatLabelEx(LabelFormatterReason.SIZING_MAX, 0, mGraphView.getViewport().getMaxY(false), false);   // CHANGE NOTICE: include reason of the data point in the callback (used only in callback Overrides)
         if (testLabel == null) testLabel = "";
 
-        Rect textBounds = new Rect();
-        mPaintLabel.getTextBounds(testLabel, 0, testLabel.length(), textBounds);
+        Rect textBounds = mTextBounds;     // CHANGE NOTICE: cached label layout and text metrics
+        mTextMetrics.getTextBounds(mPaintLabel, testLabel, textBounds);
         mLabelVerticalWidth = textBounds.width();
         mLabelVerticalHeight = textBounds.height();
 
@@ -904,7 +1002,7 @@ public class GridLabelRenderer {
         testLabel = mLabelFormatter.formatLabelEx(LabelFormatterReason.SIZING_MIN, 0, mGraphView.getViewport().getMinY(false), false);  // CHANGE NOTICE: include reason of the data point in the callback (used only in callback Overrides)
         if (testLabel == null) testLabel = "";
 
-        mPaintLabel.getTextBounds(testLabel, 0, testLabel.length(), textBounds);
+        mTextMetrics.getTextBounds(mPaintLabel, testLabel, textBounds);
         mLabelVerticalWidth = Math.max(mLabelVerticalWidth, textBounds.width());
 
         // add some pixel to get a margin
@@ -914,10 +1012,7 @@ public class GridLabelRenderer {
         mLabelVerticalWidth += mStyles.labelsSpace;
 
         // multiline
-        int lines = 1;
-        for (byte c : testLabel.getBytes()) {
-            if (c == '\n') lines++;
-        }
+        int lines = TextMetricsCache.countLines(testLabel);
         mLabelVerticalHeight *= lines;
     }
 
@@ -937,16 +1032,14 @@ public class GridLabelRenderer {
         double testY = ((mGraphView.mSecondScale.getMaxY() - mGraphView.mSecondScale.getMinY()) * 0.783) + mGraphView.mSecondScale.getMinY();
         //String testLabel = mGraphView.mSecondScale.getLabelFormatter().formatLabel(testY, false);
         String testLabel = mGraphView.mSecondScale.getLabelFormatter().formatLabelEx(LabelFormatterReason.SIZING, 0, testY, false);     // CHANGE NOTICE: include reason of the data point in the callback (used only in callback Overrides)
-        Rect textBounds = new Rect();
-        mPaintLabel.getTextBounds(testLabel, 0, testLabel.length(), textBounds);
+        if (testLabel == null) testLabel = "";
+        Rect textBounds = mTextBounds;     // CHANGE NOTICE: cached label layout and text metrics
+        mTextMetrics.getTextBounds(mPaintLabel, testLabel, textBounds);
         mLabelVerticalSecondScaleWidth = textBounds.width();
         mLabelVerticalSecondScaleHeight = textBounds.height();
 
         // multiline
-        int lines = 1;
-        for (byte c : testLabel.getBytes()) {
-            if (c == '\n') lines++;
-        }
+        int lines = TextMetricsCache.countLines(testLabel);
         mLabelVerticalSecondScaleHeight *= lines;
     }
 
@@ -962,18 +1055,15 @@ public class GridLabelRenderer {
         if (testLabel == null) {
             testLabel = "";
         }
-        Rect textBounds = new Rect();
-        mPaintLabel.getTextBounds(testLabel, 0, testLabel.length(), textBounds);
+        Rect textBounds = mTextBounds;     // CHANGE NOTICE: cached label layout and text metrics
+        mTextMetrics.getTextBounds(mPaintLabel, testLabel, textBounds);
         mLabelHorizontalWidth = textBounds.width();
 
         if (!mLabelHorizontalHeightFixed) {
             mLabelHorizontalHeight = textBounds.height();
 
             // multiline
-            int lines = 1;
-            for (byte c : testLabel.getBytes()) {
-                if (c == '\n') lines++;
-            }
+            int lines = TextMetricsCache.countLines(testLabel);
             mLabelHorizontalHeight *= lines;
 
             mLabelHorizontalHeight = (int) Math.max(mLabelHorizontalHeight, mStyles.textSize);
@@ -987,7 +1077,11 @@ public class GridLabelRenderer {
      * calculates a label size
      */
     public void computeTextBounds(String text, int start, int end, Rect bounds) {       // CHANGE NOTICE: variable length labels due to scaling
-        mPaintLabel.getTextBounds(text, start, end, bounds);
+        if (start == 0 && end == text.length()) {
+            mTextMetrics.getTextBounds(mPaintLabel, text, bounds);     // CHANGE NOTICE: cached label layout and text metrics
+        } else {
+            mPaintLabel.getTextBounds(text, start, end, bounds);
+        }
     }
 
     /**
@@ -1098,18 +1192,17 @@ public class GridLabelRenderer {
     protected void drawHorizontalSteps(Canvas canvas) {
         // draw horizontal steps (vertical lines and horizontal labels)
         mPaintLabel.setColor(getHorizontalLabelsColor());
-        int i = 0;
-        for (Map.Entry<Integer, Double> e : mStepsHorizontal.entrySet()) {
+        for (int i = 0; i < mStepsHorizontal.size(); i++) {     // CHANGE NOTICE: allocation-free drawing
             // draw line
             if (mStyles.highlightZeroLines) {
-                if (e.getValue() == 0d) {
+                if (mStepsHorizontal.getValue(i) == 0d) {
                     mPaintLine.setStrokeWidth(5);
                 } else {
                     mPaintLine.setStrokeWidth(0);
                 }
             }
             if (mStyles.gridStyle.drawVertical()) {
-                canvas.drawLine(e.getKey(), mGraphView.getGraphContentTop(), e.getKey(), mGraphView.getGraphContentTop() + mGraphView.getGraphContentHeight(), mPaintLine);
+                canvas.drawLine(mStepsHorizontal.getPixel(i), mGraphView.getGraphContentTop(), mStepsHorizontal.getPixel(i), mGraphView.getGraphContentTop() + mGraphView.getGraphContentHeight(), mPaintLine);
             }
 
             // draw label
@@ -1123,20 +1216,15 @@ public class GridLabelRenderer {
                 }
 
                 // multiline labels
-                // String label = mLabelFormatter.formatLabel(e.getValue(), true);
-                String label = mLabelFormatter.formatLabelEx(LabelFormatterReason.AXIS_STEP, i, e.getValue(), true);    // CHANGE NOTICE: include reason and index# in the callback
-                if (label == null) {
-                    label = "";
-                }
-                String[] lines = label.split("\n");
+                // String label = mLabelFormatter.formatLabel(mStepsHorizontal.getValue(i), true);
+                String[] lines = getLabelLines(mLabelCache, mLabelFormatter, LabelFormatterReason.AXIS_STEP, i, mStepsHorizontal.getValue(i), true);    // CHANGE NOTICE: include reason and index# in the callback; cached label layout
                 for (int li = 0; li < lines.length; li++) {
                     // for the last line y = height
                     //float y = (canvas.getHeight() - mStyles.padding - getHorizontalAxisTitleHeight()) - (lines.length - li - 1) * getTextSize() * 1.1f - mStyles.labelsSpace;
                     float y = (canvas.getHeight() - mStyles.padding - getHorizontalAxisTitleHeight()) - (lines.length - li - 1) * getTextSize() * 1.1f;
-                    canvas.drawText(lines[li], e.getKey(), y, mPaintLabel);
+                    canvas.drawText(lines[li], mStepsHorizontal.getPixel(i), y, mPaintLabel);
                 }
             }
-            i++;
         }
     }
 
@@ -1155,8 +1243,7 @@ public class GridLabelRenderer {
         float startLeft = mGraphView.getGraphContentLeft() + mGraphView.getGraphContentWidth();
         mPaintLabel.setColor(getVerticalLabelsSecondScaleColor());
         mPaintLabel.setTextAlign(getVerticalLabelsSecondScaleAlign());
-        int i = 0;
-        for (Map.Entry<Integer, Double> e : mStepsVerticalSecondScale.entrySet()) {
+        for (int i = 0; i < mStepsVerticalSecondScale.size(); i++) {     // CHANGE NOTICE: allocation-free drawing
             // draw label
             int labelsWidth = mLabelVerticalSecondScaleWidth;
             int labelsOffset = (int) startLeft;
@@ -1166,17 +1253,16 @@ public class GridLabelRenderer {
                 labelsOffset += labelsWidth / 2;
             }
 
-            float y = e.getKey();
+            float y = mStepsVerticalSecondScale.getPixel(i);
 
-            //String[] lines = mGraphView.mSecondScale.mLabelFormatter.formatLabel(e.getValue(), false).split("\n");
-            String[] lines = mGraphView.mSecondScale.mLabelFormatter.formatLabelEx(LabelFormatterReason.AXIS_STEP_SECONDSCALE, i, e.getValue(), false).split("\n");     // CHANGE NOTICE: include reason and index# in the callback
+            //String[] lines = mGraphView.mSecondScale.mLabelFormatter.formatLabel(mStepsVerticalSecondScale.getValue(i), false).split("\n");
+            String[] lines = getLabelLines(mLabelCacheSecondScale, mGraphView.mSecondScale.mLabelFormatter, LabelFormatterReason.AXIS_STEP_SECONDSCALE, i, mStepsVerticalSecondScale.getValue(i), false);     // CHANGE NOTICE: include reason and index# in the callback; cached label layout
             y += (lines.length * getTextSize() * 1.1f) / 2; // center text vertically
             for (int li = 0; li < lines.length; li++) {
                 // for the last line y = height
                 float y2 = y - (lines.length - li - 1) * getTextSize() * 1.1f;
                 canvas.drawText(lines[li], labelsOffset, y2, mPaintLabel);
             }
-            i++;
         }
     }
 
@@ -1191,18 +1277,17 @@ public class GridLabelRenderer {
         float startLeft = mGraphView.getGraphContentLeft();
         mPaintLabel.setColor(getVerticalLabelsColor());
         mPaintLabel.setTextAlign(getVerticalLabelsAlign());
-        int i = 0;
-        for (Map.Entry<Integer, Double> e : mStepsVertical.entrySet()) {
+        for (int i = 0; i < mStepsVertical.size(); i++) {     // CHANGE NOTICE: allocation-free drawing
             // draw line
             if (mStyles.highlightZeroLines) {
-                if (e.getValue() == 0d) {
+                if (mStepsVertical.getValue(i) == 0d) {
                     mPaintLine.setStrokeWidth(5);
                 } else {
                     mPaintLine.setStrokeWidth(0);
                 }
             }
             if (mStyles.gridStyle.drawHorizontal()) {
-                canvas.drawLine(startLeft, e.getKey(), startLeft + mGraphView.getGraphContentWidth(), e.getKey(), mPaintLine);
+                canvas.drawLine(startLeft, mStepsVertical.getPixel(i), startLeft + mGraphView.getGraphContentWidth(), mStepsVertical.getPixel(i), mPaintLine);
             }
 
             // draw label
@@ -1217,18 +1302,14 @@ public class GridLabelRenderer {
                 }
                 labelsOffset += mStyles.padding + getVerticalAxisTitleWidth();
 
-                float y = e.getKey();
+                float y = mStepsVertical.getPixel(i);
 
-                //String label = mLabelFormatter.formatLabel(e.getValue(), false);
-                String label = mLabelFormatter.formatLabelEx(LabelFormatterReason.AXIS_STEP, i, e.getValue(), false);       // CHANGE NOTICE: include reason and index# in the callback
-                if (label == null) {
-                    label = "";
-                }
+                //String label = mLabelFormatter.formatLabel(mStepsVertical.getValue(i), false);
+                String[] lines = getLabelLines(mLabelCache, mLabelFormatter, LabelFormatterReason.AXIS_STEP, i, mStepsVertical.getValue(i), false);       // CHANGE NOTICE: include reason and index# in the callback; cached label layout
                 if (mVerticalLabelsDependentColor != null) {        // UPDATE NOTICE:  pick text color per label
-                    mPaintLabel.setColor(mVerticalLabelsDependentColor.getColor(i, e.getValue(), false));
+                    mPaintLabel.setColor(mVerticalLabelsDependentColor.getColor(i, mStepsVertical.getValue(i), false));
                 }
 
-                String[] lines = label.split("\n");
                 y += (lines.length * getTextSize() * 1.1f) / 2; // center text vertically
                 for (int li = 0; li < lines.length; li++) {
                     // for the last line y = height
@@ -1236,7 +1317,6 @@ public class GridLabelRenderer {
                     canvas.drawText(lines[li], labelsOffset, y2, mPaintLabel);
                 }
             }
-            i++;
         }
     }
 
@@ -1428,6 +1508,7 @@ public class GridLabelRenderer {
     public void setLabelFormatter(LabelFormatter mLabelFormatter) {
         this.mLabelFormatter = mLabelFormatter;
         mLabelFormatter.setViewport(mGraphView.getViewport());
+        invalidateLabelCache();     // CHANGE NOTICE: cached label layout and text metrics
     }
 
     /**
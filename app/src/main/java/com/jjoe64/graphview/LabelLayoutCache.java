@@ -0,0 +1,122 @@
+/**
+ * GraphView
+ * Copyright (C) 2014  Jonas Gehring
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License,
+ * with the "Linking Exception", which can be found at the license.txt
+ * file in this program.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * with the "Linking Exception" along with this program; if not,
+ * write to the author Jonas Gehring <g.jjoe64@gmail.com>.
+ */
+package com.jjoe64.graphview;
+
+import java.util.HashMap;
+
+/**
+ * Cache of the formatted and line-split axis labels of one label formatter,
+ * keyed by the arguments of {@link LabelFormatter#formatLabelEx}.
+ *
+ * It is only valid for formatters whose output depends solely upon those arguments
+ * until the next {@link #clear()}; GridLabelRenderer clears it whenever the labels
+ * are invalidated with keepLabelsSize false, when the formatter or text size is changed,
+ * and when asked to via {@link GridLabelRenderer#invalidateLabelCache()}.
+ *
+ * A hit creates no objects; the lookup key is re-used.
+ *
+ * @author mmaschino
+ * * This particular source code file is licensed per overall GraphView's license
+ */
+class LabelLayoutCache {
+    /**
+     * the cache is simply emptied when it reaches this size (a label set is normally a few dozen entries)
+     */
+    private static final int MAX_ENTRIES = 512;
+
+    /**
+     * the formatter whose labels are held
+     */
+    private LabelFormatter mFormatter = null;
+
+    /**
+     * the cached labels split into their lines
+     */
+    private final HashMap<Key, String[]> mLines = new HashMap<Key, String[]>();
+
+    /**
+     * re-used key for lookups
+     */
+    private final Key mProbeKey = new Key();
+
+    /**
+     * the arguments of one formatLabelEx call
+     */
+    private static final class Key {
+        GridLabelRenderer.LabelFormatterReason reason;
+        int index;
+        long valueBits;
+        boolean isValueX;
+
+        void set(GridLabelRenderer.LabelFormatterReason reason, int index, double value, boolean isValueX) {
+            this.reason = reason;
+            this.index = index;
+            this.valueBits = Double.doubleToLongBits(value);
+            this.isValueX = isValueX;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return reason == k.reason && index == k.index && valueBits == k.valueBits && isValueX == k.isValueX;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = reason.ordinal();
+            h = h * 31 + index;
+            h = h * 31 + (int)(valueBits ^ (valueBits >>> 32));
+            return h * 2 + (isValueX ? 1 : 0);
+        }
+    }
+
+    /**
+     * get the label of a value split into its lines, formatting it only if not already cached
+     *
+     * @param formatter the label formatter; if it differs from the one last used the cache is emptied
+     * @return lines of the label; a null label is treated as empty
+     */
+    String[] getLines(LabelFormatter formatter, GridLabelRenderer.LabelFormatterReason reason, int index, double value, boolean isValueX) {
+        if (formatter != mFormatter) {
+            mLines.clear();
+            mFormatter = formatter;
+        }
+        mProbeKey.set(reason, index, value, isValueX);
+        String[] lines = mLines.get(mProbeKey);
+        if (lines == null) {
+            String label = formatter.formatLabelEx(reason, index, value, isValueX);
+            if (label == null) label = "";
+            lines = label.split("\n");
+            if (mLines.size() >= MAX_ENTRIES) mLines.clear();
+            Key key = new Key();
+            key.set(reason, index, value, isValueX);
+            mLines.put(key, lines);
+        }
+        return lines;
+    }
+
+    /**
+     * discard all the cached labels
+     */
+    void clear() {
+        mLines.clear();
+    }
+}
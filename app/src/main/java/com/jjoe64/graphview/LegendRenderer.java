@@ -103,6 +103,14 @@ public class LegendRenderer {
      */
     protected int cachedLegendWidth;        // CHANGE NOTICE: alternate LegendRenderer
 
+    /**
+     * drawing objects re-used by every draw so that drawing
+     * does not allocate
+     */
+    protected final List<Series> mAllSeries = new ArrayList<Series>();  // CHANGE NOTICE: allocation-free drawing
+    protected final Rect mTextBounds = new Rect();
+    protected final RectF mRectF = new RectF();
+
     /**
      * creates legend renderer
      *
@@ -164,11 +172,7 @@ public class LegendRenderer {
 
         int shapeSize = (int) (mStyles.textSize*0.8d);
 
-        List<Series> allSeries = new ArrayList<Series>();
-        allSeries.addAll(mGraphView.getSeries());
-        if (mGraphView.mSecondScale != null) {
-            allSeries.addAll(mGraphView.getSecondScale().getSeries());
-        }
+        List<Series> allSeries = gatherAllSeries();     // CHANGE NOTICE: allocation-free drawing
 
         // width
         int legendWidth = mStyles.width;
@@ -177,11 +181,11 @@ public class LegendRenderer {
             legendWidth = cachedLegendWidth;
 
             if (legendWidth == 0) {
-                Rect textBounds = new Rect();
-                for (Series s : allSeries) {
+                for (int j = 0; j < allSeries.size(); j++) {
+                    Series s = allSeries.get(j);
                     if (s.getTitle() != null) {
-                        mPaint.getTextBounds(s.getTitle(), 0, s.getTitle().length(), textBounds);
-                        legendWidth = Math.max(legendWidth, textBounds.width());
+                        mPaint.getTextBounds(s.getTitle(), 0, s.getTitle().length(), mTextBounds);
+                        legendWidth = Math.max(legendWidth, mTextBounds.width());
                     }
                 }
                 if (legendWidth == 0) legendWidth = 1;
@@ -216,20 +220,38 @@ public class LegendRenderer {
         float lRight = lLeft+legendWidth;
         float lBottom = lTop+legendHeight+2*mStyles.padding;
         mPaint.setColor(mStyles.backgroundColor);
-        canvas.drawRoundRect(new RectF(lLeft, lTop, lRight, lBottom), 8, 8, mPaint);
+        mRectF.set(lLeft, lTop, lRight, lBottom);
+        canvas.drawRoundRect(mRectF, 8, 8, mPaint);
 
-        int i=0;
-        for (Series series : allSeries) {
+        for (int i = 0; i < allSeries.size(); i++) {
+            Series series = allSeries.get(i);
             mPaint.setColor(series.getColor());
-            canvas.drawRect(new RectF(lLeft+mStyles.padding, lTop+mStyles.padding+(i*(mStyles.textSize+mStyles.spacing)), lLeft+mStyles.padding+shapeSize, lTop+mStyles.padding+(i*(mStyles.textSize+mStyles.spacing))+shapeSize), mPaint);
+            mRectF.set(lLeft+mStyles.padding, lTop+mStyles.padding+(i*(mStyles.textSize+mStyles.spacing)), lLeft+mStyles.padding+shapeSize, lTop+mStyles.padding+(i*(mStyles.textSize+mStyles.spacing))+shapeSize);
+            canvas.drawRect(mRectF, mPaint);
             if (series.getTitle() != null) {
                 mPaint.setColor(mStyles.textColor);
                 canvas.drawText(series.getTitle(), lLeft+mStyles.padding+shapeSize+mStyles.spacing, lTop+mStyles.padding+mStyles.textSize+(i*(mStyles.textSize+mStyles.spacing)), mPaint);
             }
-            i++;
         }
     }
 
+    /**
+     * gathers the series of both scales into the re-used list
+     * without creating any objects
+     *
+     * @return the series of the graph followed by those of the second scale
+     */
+    protected List<Series> gatherAllSeries() {        // CHANGE NOTICE: allocation-free drawing
+        mAllSeries.clear();
+        List<Series> series = mGraphView.getSeries();
+        for (int j = 0; j < series.size(); j++) { mAllSeries.add(series.get(j)); }
+        if (mGraphView.mSecondScale != null) {
+            series = mGraphView.getSecondScale().getSeries();
+            for (int j = 0; j < series.size(); j++) { mAllSeries.add(series.get(j)); }
+        }
+        return mAllSeries;
+    }
+
     /**
      * @return the flag whether the legend will be drawn
      */
@@ -0,0 +1,98 @@
+/**
+ * GraphView
+ * Copyright (C) 2014  Jonas Gehring
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License,
+ * with the "Linking Exception", which can be found at the license.txt
+ * file in this program.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * with the "Linking Exception" along with this program; if not,
+ * write to the author Jonas Gehring <g.jjoe64@gmail.com>.
+ */
+package com.jjoe64.graphview;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.util.HashMap;
+
+/**
+ * Cache of the measured text bounds of labels for one text size, so that
+ * unchanged labels are not re-measured with Paint.getTextBounds each time
+ * the label sizes are recalculated; a change of the paint's text size
+ * empties it.
+ *
+ * @author mmaschino
+ * * This particular source code file is licensed per overall GraphView's license
+ */
+class TextMetricsCache {
+    /**
+     * the cache is simply emptied when it reaches this size
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    /**
+     * text size the cached bounds were measured at
+     */
+    private float mTextSize = -1f;
+
+    /**
+     * cached bounds as left, top, right, bottom
+     */
+    private final HashMap<String, int[]> mBounds = new HashMap<String, int[]>();
+
+    /**
+     * work rect for measuring; re-used
+     */
+    private final Rect mWorkRect = new Rect();
+
+    /**
+     * get the bounds of the whole of a text, measuring it only if not already cached at the paint's text size
+     *
+     * @param paint paint whose text size and typeface to measure with
+     * @param text the text
+     * @param bounds receives the bounds
+     */
+    void getTextBounds(Paint paint, String text, Rect bounds) {
+        if (paint.getTextSize() != mTextSize) {
+            mBounds.clear();
+            mTextSize = paint.getTextSize();
+        }
+        int[] b = mBounds.get(text);
+        if (b == null) {
+            paint.getTextBounds(text, 0, text.length(), mWorkRect);
+            b = new int[] {mWorkRect.left, mWorkRect.top, mWorkRect.right, mWorkRect.bottom};
+            if (mBounds.size() >= MAX_ENTRIES) mBounds.clear();
+            mBounds.put(text, b);
+        }
+        bounds.set(b[0], b[1], b[2], b[3]);
+    }
+
+    /**
+     * discard all the cached bounds
+     */
+    void clear() {
+        mBounds.clear();
+    }
+
+    /**
+     * @return quantity of lines in the text
+     */
+    static int countLines(String text) {
+        int lines = 1;
+        int i = text.indexOf('\n');
+        while (i >= 0) {
+            lines++;
+            i = text.indexOf('\n', i + 1);
+        }
+        return lines;
+    }
+}
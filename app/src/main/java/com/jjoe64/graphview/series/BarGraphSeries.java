@@ -21,18 +21,12 @@ package com.jjoe64.graphview.series;
 
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.RectF;
-import android.util.Log;
 
 import com.jjoe64.graphview.GraphView;
 import com.jjoe64.graphview.GridLabelRenderer;
 import com.jjoe64.graphview.ValueDependentColor;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Arrays;
 
 /**
  * Series with Bars to visualize the data.
@@ -81,9 +75,17 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
 
     /**
      * stores the coordinates of the bars to
-     * trigger tap on series events.
+     * trigger tap on series events;
+     * left/top/right/bottom per bar => position of the data point
      */
-    private Map<RectF, E> mDataPoints = new HashMap<RectF, E>();
+    private float[] mTapRects = new float[64];      // CHANGE NOTICE: primitive-array series storage
+    private int[] mTapPos = new int[16];
+    private int mTapCount = 0;
+
+    /**
+     * work buffer for the X-values of all bar series in the viewport; re-used from draw to draw
+     */
+    private double[] mSlotXs = new double[64];      // CHANGE NOTICE: primitive-array series storage
 
     /**
      * creates bar series without any data
@@ -102,6 +104,16 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
         mPaint = new Paint();
     }
 
+    /**
+     * creates bar series with data held in primitive arrays
+     *
+     * @param data data storage; it is adopted (not copied)
+     */
+    public BarGraphSeries(DoubleArraySeries data) {     // CHANGE NOTICE: primitive-array series storage
+        super(data);
+        mPaint = new Paint();
+    }
+
     /**
      * @return  number of stored subseries; always returns -1 to indicate this series contains no subseries
      *
@@ -146,8 +158,8 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
         int numBarSeries = 0;
         int currentSeriesOrder = 0;
         int numValues = 0;
+        int numXs = 0;
         boolean isCurrentSeries;
-        SortedSet<Double> xVals = new TreeSet<Double>();
         for(Series inspectedSeries: graphView.getSeries()) {
             if(inspectedSeries instanceof BarGraphSeries) {
                 isCurrentSeries = (inspectedSeries == this);
@@ -160,35 +172,34 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
                 // x coordinates in the series.  This is divided into the range to find
                 // the placement and width of bar slots
                 // (sections of the x axis for each bar or set of bars)
-                // TODO: Move this somewhere more general and cache it, so we don't recalculate it for each series
-                Iterator<E> curValues = inspectedSeries.getValues(minX, maxX);
-                if (curValues.hasNext()) {
-                    xVals.add(curValues.next().getX());
-                    if(isCurrentSeries) { numValues++; }
-                    while (curValues.hasNext()) {
-                        xVals.add(curValues.next().getX());
-                        if(isCurrentSeries) { numValues++; }
-                    }
+                // CHANGE NOTICE: primitive-array series storage; the X-values are gathered by position into a re-used buffer
+                BarGraphSeries<?> barSeries = (BarGraphSeries<?>)inspectedSeries;
+                int fromPos = barSeries.getFromPos(minX);
+                int untilPos = barSeries.getUntilPos(maxX);
+                int qty = untilPos - fromPos + 1;
+                if (qty > 0) {
+                    if (numXs + qty > mSlotXs.length) { mSlotXs = Arrays.copyOf(mSlotXs, Math.max(mSlotXs.length << 1, numXs + qty)); }
+                    for (int pos = fromPos; pos <= untilPos; pos++) { mSlotXs[numXs++] = barSeries.getPosX(pos); }
+                    if(isCurrentSeries) { numValues = qty; }
                 }
             }
         }
         if (numValues == 0) { return; }
 
-        Double lastVal = null;
+        // the X-values of a single series are already in ascending order
+        if (numBarSeries > 1) { Arrays.sort(mSlotXs, 0, numXs); }
         double minGap = 0;
-        for(Double curVal: xVals) {
-            if(lastVal != null) {
-                double curGap = Math.abs(curVal - lastVal);
-                if (minGap == 0 || (curGap > 0 && curGap < minGap)) {
-                    minGap = curGap;
-                }
+        for (int j = 1; j < numXs; j++) {
+            double curGap = mSlotXs[j] - mSlotXs[j - 1];
+            if (minGap == 0 || (curGap > 0 && curGap < minGap)) {
+                minGap = curGap;
             }
-            lastVal = curVal;
         }
 
         int numBarSlots = (minGap == 0) ? 1 : (int)Math.round((maxX - minX)/minGap) + 1;
 
-        Iterator<E> values = getValues(minX, maxX);
+        int fromPos = getFromPos(minX);
+        int untilPos = getUntilPos(maxX);
 
         // Calculate the overall bar slot width - this includes all bars across
         // all series, and any spacing between sets of bars
@@ -212,11 +223,20 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
         float contentTop = graphView.getGraphContentTop();
 
         // draw data
-        int i=0;
-        while (values.hasNext()) {
-            E value = values.next();
-
-            double valY = value.getY() - minY;
+        // CHANGE NOTICE: level-of-detail decimation; value dependent colors and values on top are per bar
+        // so the decimation is only used without them;
+        // the off-graph data points at fromPos and untilPos are always drawn
+        int[] lodPositions = null;
+        int lodInx = 0;
+        int lodEnd = 0;
+        if (getValueDependentColor() == null && !mDrawValuesOnTop && isLodWorthwhile(fromPos, untilPos, contentWidth)) {
+            lodPositions = getLodPositions(diffX / contentWidth, minX, fromPos, untilPos);
+            lodInx = findLodIndexAfter(fromPos);
+            lodEnd = findLodIndexAfter(untilPos - 1);
+        }
+        int pos = fromPos;
+        while (pos <= untilPos) {
+            double valY = getPosY(pos) - minY;
             double ratY = valY / diffY;
             double y = contentHeight * ratY;
 
@@ -224,13 +244,13 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
             double ratY0 = valY0 / diffY;
             double y0 = contentHeight * ratY0;
 
-            double valX = value.getX() - minX;
+            double valX = getPosX(pos) - minX;
             double ratX = valX / diffX;
             double x = contentWidth * ratX;
 
             // hook for value dependent color
             if (getValueDependentColor() != null) {
-                mPaint.setColor(getValueDependentColor().get(value));
+                mPaint.setColor(getValueDependentColor().get(getPosTransientDataPoint(pos)));
             } else {
                 mPaint.setColor(getColor());
             }
@@ -253,7 +273,7 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
             bottom = Math.min(bottom, contentTop+contentHeight);
             top = Math.max(top, contentTop);
 
-            mDataPoints.put(new RectF(left, top, right, bottom), value);
+            registerBar(left, top, right, bottom, pos);
 
             canvas.drawRect(left, top, right, bottom, mPaint);
 
@@ -270,12 +290,30 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
                 mPaint.setColor(mValuesOnTopColor);
                 canvas.drawText(
                         //graphView.getGridLabelRenderer().getLabelFormatter().formatLabel(value.getY(), false)
-                        graphView.getGridLabelRenderer().getLabelFormatter().formatLabelEx(GridLabelRenderer.LabelFormatterReason.DATA_POINT, value.getIndex(), value.getY(), false)  // CHANGE NOTICE: include reason and index# in the callback
+                        graphView.getGridLabelRenderer().getLabelFormatter().formatLabelEx(GridLabelRenderer.LabelFormatterReason.DATA_POINT, getPosIndex(pos), getPosY(pos), false)  // CHANGE NOTICE: include reason and index# in the callback
                         , (left+right)/2, top, mPaint);
             }
+            if (lodPositions == null || pos == untilPos) { pos++; }
+            else if (lodInx < lodEnd) { pos = lodPositions[lodInx++]; }
+            else { pos = untilPos; }
+        }
+    }
 
-            i++;
+    /**
+     * register the coordinates of a drawn bar to find it at a tap
+     */
+    private void registerBar(float left, float top, float right, float bottom, int pos) {     // CHANGE NOTICE: primitive-array series storage
+        if (mTapCount == mTapPos.length) {
+            mTapPos = Arrays.copyOf(mTapPos, mTapPos.length << 1);
+            mTapRects = Arrays.copyOf(mTapRects, mTapPos.length << 2);
         }
+        int r = mTapCount << 2;
+        mTapRects[r] = left;
+        mTapRects[r + 1] = top;
+        mTapRects[r + 2] = right;
+        mTapRects[r + 3] = bottom;
+        mTapPos[mTapCount] = pos;
+        mTapCount++;
     }
 
     public float getDrawY(GraphView graphView, int position) {       // CHANGE NOTICE: alternate LegendRenderer
@@ -375,7 +413,7 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
      */
     @Override
     public void resetDataPoints() {     // CHANGE NOTICE: garbage collection
-        mDataPoints.clear();
+        mTapCount = 0;
     }
 
     /**
@@ -388,10 +426,11 @@ public class BarGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
      */
     @Override
     protected E findDataPoint(float x, float y) {
-        for (Map.Entry<RectF, E> entry : mDataPoints.entrySet()) {
-            if (x >= entry.getKey().left && x <= entry.getKey().right
-                && y >= entry.getKey().top && y <= entry.getKey().bottom) {
-                return entry.getValue();
+        for (int i = 0; i < mTapCount; i++) {
+            int r = i << 2;
+            if (x >= mTapRects[r] && x <= mTapRects[r + 2]
+                && y >= mTapRects[r + 1] && y <= mTapRects[r + 3]) {
+                return getPosDataPoint(mTapPos[i]);
             }
         }
         return null;
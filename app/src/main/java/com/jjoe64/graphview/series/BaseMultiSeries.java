@@ -19,15 +19,11 @@
  */
 package com.jjoe64.graphview.series;
 
-import android.graphics.PointF;
-
 import com.jjoe64.graphview.GraphView;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
 
 /**
@@ -38,8 +34,10 @@ import java.util.NoSuchElementException;
  * Extend this class to implement your own custom
  * graph type.
  *
- * This implementation uses a internal Array to store
- * the data. If you want to implement a custom data provider
+ * This implementation stores each subseries in a {@link DoubleArraySeries}
+ * so that no object exists per data point; data points are only created
+ * when handed out via {@link #getValues(double, double)}, {@link #toArray()}
+ * or to a tap listener. If you want to implement a custom data provider
  * you may want to implement {@link Series}.
  *
  * @author mmaschino
@@ -49,7 +47,7 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
     /**
      * holds the subseries of data; the first subseries holds the sum of Y-values and the X-values that will be used
      */
-    final private List mSubseries = new ArrayList<ArrayList<E>>();
+    final private List<DoubleArraySeries> mSubseries = new ArrayList<DoubleArraySeries>();
     final private ArrayList<String> mSubseriesTitle = new ArrayList<String>();
     final private ArrayList<Integer> mSubseriesColor = new ArrayList<Integer>();
 
@@ -57,12 +55,21 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      * stores the used coordinates to find the
      * corresponding data point on a tap
      *
-     * Key => x/y pixel
-     * Value => Plotted Datapoint
+     * x/y pixel => position of the plotted data point
      *
-     * will be filled while drawing via {@link #registerDataPoint(float, float, DataPointInterface)}
+     * will be filled while drawing via {@link #registerDataPoint(float, float, int)};
+     * the arrays are re-used from draw to draw
+     */
+    private float[] mTapX = new float[16];
+    private float[] mTapY = new float[16];
+    private int[] mTapPos = new int[16];
+    private int mTapCount = 0;
+
+    /**
+     * data point handed to callbacks during drawing;
+     * it is re-used for each data point so the callback must not retain it
      */
-    private Map<PointF, E> mDataPoints = new HashMap<PointF, E>();
+    private DataPoint mTransientDataPoint = null;
 
     /**
      * listener to handle tap events on a data point
@@ -93,6 +100,16 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
         addSubseries(data);
     }
 
+    /**
+     * creates series with one initial data subseries held in primitive arrays
+     *
+     * @param data  data storage; it is adopted (not copied) and is not altered
+     */
+    public BaseMultiSeries(DoubleArraySeries data) {
+        mGraphViews = new ArrayList<GraphView>();
+        addSubseries(data);
+    }
+
     /**
      * @param data another data subseries to add
      *
@@ -101,34 +118,30 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     @Override
     public void addSubseries(E[] data) {
+        addSubseries(new DoubleArraySeries(data));
+    }
+
+    /**
+     * @param data another data subseries to add held in primitive arrays; it is adopted (not copied) and is not altered
+     *
+     * see {@link #addSubseries(DataPointInterface[])} for the handling of the X-values and Y-values
+     */
+    public void addSubseries(DoubleArraySeries data) {
         // are there any subseries yet?
         if (mSubseries.size() == 0) {
             // nope, create the Sum-of-Y first subseries; this is also the X-values and index reference
-            ArrayList<E> sumSubseries = new ArrayList<E>();
-            int j = 0;
-            for (E d : data) {
-                E sumDP = (E)new DataPoint(d.getIndex(), d.getX(), 0.0d);
-                sumDP.setPositionInSeries(j);
-                sumSubseries.add(sumDP);
-                j++;
-            }
-            mSubseries.add(sumSubseries);
+            mSubseries.add(DoubleArraySeries.zeroedCopyOf(data));
             mSubseriesTitle.add(null);
             mSubseriesColor.add(new Integer(0xff0077cc));
         }
 
         // record the new subseries; including summing the new Y-values
-        ArrayList<E> subSeries0 = (ArrayList<E>)mSubseries.get(0);
-        ArrayList<E> newSubseries = new ArrayList<E>();
-        int j = 0;
-        for (E d : data) {
-            d.setPositionInSeries(j);
-            newSubseries.add(d);
-            E sd = subSeries0.get(j);
-            sd.addToY(d.getY());
-            j++;
+        DoubleArraySeries subSeries0 = mSubseries.get(0);
+        int qty = Math.min(subSeries0.size(), data.size());
+        for (int j = 0; j < qty; j++) {
+            subSeries0.addToY(j, data.getY(j));
         }
-        mSubseries.add(newSubseries);
+        mSubseries.add(data);
         mSubseriesTitle.add(null);
         mSubseriesColor.add(new Integer(0xff0077cc));
     }
@@ -157,8 +170,7 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
     @Override
     public int size() {
         if ( mSubseries.size() == 0) { return 0; }
-        ArrayList<E> subSeries0 = (ArrayList<E>)mSubseries.get(0);
-        return subSeries0.size();
+        return mSubseries.get(0).size();
     }
 
     /**
@@ -166,8 +178,7 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     public int size(int subseries) {
         if ( mSubseries.size() == 0) { return 0; }
-        ArrayList<E> oneSubSeries = (ArrayList<E>)mSubseries.get(subseries + 1);
-        return oneSubSeries.size();
+        return mSubseries.get(subseries + 1).size();
     }
 
     /**
@@ -175,10 +186,7 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     @Override
     public void clearAllSubseries() {
-        for (int i = 0; i < mSubseries.size(); i++) {
-            ArrayList<E> oneSubseries = (ArrayList<E>)mSubseries.get(i);
-            oneSubseries.clear();
-        }
+        // the added subseries are not cleared since they are owned by the caller
         mSubseries.clear();
     }
 
@@ -246,8 +254,8 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
         if (mSubseries.isEmpty()) return null;
         double[] yValues = new double[getQtySubseries()];
         for (int i = 1; i < mSubseries.size(); i++) {
-            ArrayList<E> oneSubseries = (ArrayList<E>)mSubseries.get(i);
-            if (position < oneSubseries.size()) { yValues[i - 1] = oneSubseries.get(position).getY(); }
+            DoubleArraySeries oneSubseries = mSubseries.get(i);
+            if (position < oneSubseries.size()) { yValues[i - 1] = oneSubseries.getY(position); }
             else {  yValues[i - 1] = 0.0; }
         }
         return yValues;
@@ -258,8 +266,9 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     public double getValueY(int subseries, int position) {
         if (mSubseries.isEmpty()) return 0d;
-        ArrayList<E> oneSubseries = (ArrayList<E>)mSubseries.get(subseries + 1);
-        return oneSubseries.get(position).getY();
+        DoubleArraySeries oneSubseries = mSubseries.get(subseries + 1);
+        if (position >= oneSubseries.size()) return 0d;
+        return oneSubseries.getY(position);
     }
 
 
@@ -275,8 +284,7 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     public double getValueY(int position) {
         if (mSubseries.isEmpty()) return 0d;
-        ArrayList<E> subseries0 = (ArrayList<E>)mSubseries.get(0);
-        return subseries0.get(position).getY();
+        return mSubseries.get(0).getY(position);
     }
 
     /**
@@ -284,8 +292,7 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     public double getLowestValueX() {
         if (mSubseries.isEmpty()) return 0d;
-        ArrayList<E> subseries0 = (ArrayList<E>)mSubseries.get(0);
-        return subseries0.get(0).getX();
+        return mSubseries.get(0).getLowestX();
     }
 
     /**
@@ -293,8 +300,7 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     public double getHighestValueX() {
         if (mSubseries.isEmpty()) return 0d;
-        ArrayList<E> subseries0 = (ArrayList<E>)mSubseries.get(0);
-        return subseries0.get(subseries0.size()-1).getX();
+        return mSubseries.get(0).getHighestX();
     }
 
     /**
@@ -302,13 +308,7 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     public double getLowestValueY() {
         if (mSubseries.isEmpty()) return 0d;
-        ArrayList<E> subseries0 = (ArrayList<E>)mSubseries.get(0);
-        double low = subseries0.get(0).getY();
-        for (int j = 1; j < subseries0.size(); j++) {
-            double ySum = subseries0.get(j).getY();
-            if (ySum < low) { low = ySum; }
-        }
-        return low;
+        return mSubseries.get(0).getLowestY();
     }
 
     /**
@@ -316,13 +316,7 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     public double getHighestValueY() {
         if (mSubseries.isEmpty()) return 0d;
-        ArrayList<E> subseries0 = (ArrayList<E>)mSubseries.get(0);
-        double high = subseries0.get(0).getY();
-        for (int j = 1; j < subseries0.size(); j++) {
-            double ySum = subseries0.get(j).getY();
-            if (ySum > high) { high = ySum; }
-        }
-        return high;
+        return mSubseries.get(0).getHighestY();
     }
 
     /**
@@ -330,9 +324,15 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     public DataPoint[] toArray() {
         if (mSubseries.isEmpty()) return null;
-        ArrayList<E> subseries0 = (ArrayList<E>)mSubseries.get(0);
-        DataPoint[] points = new DataPoint[subseries0.size()];
-        return (DataPoint[])subseries0.toArray(points);
+        return mSubseries.get(0).toArray();
+    }
+
+    /**
+     * @return the summed-Y subseries storage itself (not a copy), or null if there are no subseries
+     */
+    public DoubleArraySeries getSummedSubseries() {
+        if (mSubseries.isEmpty()) return null;
+        return mSubseries.get(0);
     }
 
     /**
@@ -348,72 +348,76 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
     @Override
     public Iterator<E> getValues(final double from, final double until) {
         if (mSubseries.isEmpty()) return null;
-        final ArrayList<E> subseries0 = (ArrayList<E>)mSubseries.get(0);
-        if (from <= getLowestValueX() && until >= getHighestValueX()) {
-            return subseries0.iterator();
-        } else {
-            return new Iterator<E>() {
-                Iterator<E> org = subseries0.iterator();
-                E nextValue = null;
-                E nextNextValue = null;
-                boolean plusOne = true;
-
-                {
-                    // go to first
-                    boolean found = false;
-                    E prevValue = null;
-                    if (org.hasNext()) {
-                        prevValue = org.next();
-                    }
-                    if (prevValue.getX() >= from) {
-                        nextValue = prevValue;
-                        found = true;
-                    } else {
-                        while (org.hasNext()) {
-                            nextValue = org.next();
-                            if (nextValue.getX() >= from) {
-                                found = true;
-                                nextNextValue = nextValue;
-                                nextValue = prevValue;
-                                break;
-                            }
-                            prevValue = nextValue;
-                        }
-                    }
-                    if (!found) {
-                        nextValue = null;
-                    }
-                }
-
-                @Override
-                public void remove() {
-                    throw new UnsupportedOperationException();
-                }
-
-                @Override
-                public E next() {
-                    if (hasNext()) {
-                        E r = nextValue;
-                        if (r.getX() > until) {
-                            plusOne = false;
-                        }
-                        if (nextNextValue != null) {
-                            nextValue = nextNextValue;
-                            nextNextValue = null;
-                        } else if (org.hasNext()) nextValue = org.next();
-                        else nextValue = null;
-                        return r;
-                    } else {
-                        throw new NoSuchElementException();
-                    }
-                }
-
-                @Override
-                public boolean hasNext() {
-                    return nextValue != null && (nextValue.getX() <= until || plusOne);
-                }
-            };
-        }
+        // each data point handed out is newly created; the draw path uses positional access instead
+        final DoubleArraySeries subseries0 = mSubseries.get(0);
+        final int fromPos = subseries0.findFromPos(from);
+        final int untilPos = subseries0.findUntilPos(until);
+        return new Iterator<E>() {
+            int pos = fromPos;
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return (E) subseries0.toDataPoint(pos++);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return pos <= untilPos;
+            }
+        };
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////
+    // positional access to the summed-Y subseries for use by the draw paths of the subclasses
+    /////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param from minimal x-value
+     * @return  position of the first data point to draw: one before the first data point at or above from;
+     *          size() if no data point reaches from
+     */
+    protected int getFromPos(double from) {
+        if (mSubseries.isEmpty()) return 0;
+        return mSubseries.get(0).findFromPos(from);
+    }
+
+    /**
+     * @param until maximal x-value
+     * @return  position of the last data point to draw: the first data point beyond until,
+     *          or the last data point if none are beyond it; -1 if there is no data
+     */
+    protected int getUntilPos(double until) {
+        if (mSubseries.isEmpty()) return -1;
+        return mSubseries.get(0).findUntilPos(until);
+    }
+
+    protected double getPosX(int pos) { return mSubseries.get(0).getX(pos); }
+
+    protected double getPosY(int pos) { return mSubseries.get(0).getY(pos); }
+
+    protected int getPosIndex(int pos) { return mSubseries.get(0).getIndex(pos); }
+
+    /**
+     * @return a newly created data point holding the summed-Y values at the position
+     */
+    protected E getPosDataPoint(int pos) { return (E) mSubseries.get(0).toDataPoint(pos); }
+
+    /**
+     * @return  the data point at the position for handing to a callback during drawing;
+     *          this is a single re-used DataPoint that the callback must not retain
+     */
+    protected E getPosTransientDataPoint(int pos) {
+        DoubleArraySeries subseries0 = mSubseries.get(0);
+        if (mTransientDataPoint == null) mTransientDataPoint = new DataPoint(0, 0d, 0d);
+        mTransientDataPoint.set(subseries0.getIndex(pos), subseries0.getX(pos), subseries0.getY(pos));
+        mTransientDataPoint.setPositionInSeries(pos);
+        return (E) mTransientDataPoint;
     }
 
     /**
@@ -486,22 +490,22 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      */
     protected E findDataPoint(float x, float y) {
         float shortestDistance = Float.NaN;
-        E shortest = null;
-        for (Map.Entry<PointF, E> entry : mDataPoints.entrySet()) {
-            float x1 = entry.getKey().x;
-            float y1 = entry.getKey().y;
+        int shortest = -1;
+        for (int i = 0; i < mTapCount; i++) {
+            float x1 = mTapX[i];
+            float y1 = mTapY[i];
             float x2 = x;
             float y2 = y;
 
             float distance = (float) Math.sqrt((x1-x2)*(x1-x2) + (y1-y2)*(y1-y2));
-            if (shortest == null || distance < shortestDistance) {
+            if (shortest < 0 || distance < shortestDistance) {
                 shortestDistance = distance;
-                shortest = entry.getValue();
+                shortest = mTapPos[i];
             }
         }
-        if (shortest != null) {
+        if (shortest >= 0) {
             if (shortestDistance < 120) {
-                return shortest;
+                return getPosDataPoint(shortest);
             }
         }
         return null;
@@ -512,17 +516,32 @@ public abstract class BaseMultiSeries<E extends DataPointInterface> implements M
      *
      * @param x pixel
      * @param y pixel
-     * @param dp the data point to save
-     */
-    protected void registerDataPoint(float x, float y, E dp) {
-        mDataPoints.put(new PointF(x, y), dp);
+     * @param pos position of the data point
+     */
+    protected void registerDataPoint(float x, float y, int pos) {
+        if (mTapCount == mTapPos.length) {
+            int capacity = mTapPos.length << 1;
+            float[] tapX = new float[capacity];
+            float[] tapY = new float[capacity];
+            int[] tapPos = new int[capacity];
+            System.arraycopy(mTapX, 0, tapX, 0, mTapCount);
+            System.arraycopy(mTapY, 0, tapY, 0, mTapCount);
+            System.arraycopy(mTapPos, 0, tapPos, 0, mTapCount);
+            mTapX = tapX;
+            mTapY = tapY;
+            mTapPos = tapPos;
+        }
+        mTapX[mTapCount] = x;
+        mTapY[mTapCount] = y;
+        mTapPos[mTapCount] = pos;
+        mTapCount++;
     }
 
     /**
      * clears the cached data point coordinates
      */
     public void resetDataPoints() {     // CHANGE NOTICE: garbage collection
-        mDataPoints.clear();
+        mTapCount = 0;
     }
 
 }
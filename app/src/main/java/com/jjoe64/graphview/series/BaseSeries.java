@@ -19,18 +19,12 @@
  */
 package com.jjoe64.graphview.series;
 
-import android.graphics.PointF;
-import android.util.Log;
-
 import com.jjoe64.graphview.GraphView;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 /**
  * Basis implementation for series.
@@ -41,9 +35,14 @@ import java.util.Set;
  * graph type.
  *
  * This implementation uses a internal Array to store
- * the data. If you want to implement a custom data provider
+ * the data, or alternatively a {@link DoubleArraySeries} which holds no
+ * object per data point. If you want to implement a custom data provider
  * you may want to implement {@link com.jjoe64.graphview.series.Series}.
  *
+ * Subclasses draw by position (see {@link #getFromPos(double)} and
+ * {@link #getPosX(int)}) so that either form of storage is drawn
+ * without creating objects per data point.
+ *
  * @author jjoe64
  */
 public abstract class BaseSeries<E extends DataPointInterface> implements Series<E> {
@@ -52,16 +51,55 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      */
     final private List<E> mData = new ArrayList<E>();
 
+    /**
+     * holds the data when the series was created from primitive arrays;
+     * when not null it is used instead of mData
+     */
+    private DoubleArraySeries mArrayData = null;       // CHANGE NOTICE: primitive-array series storage
+
     /**
      * stores the used coordinates to find the
      * corresponding data point on a tap
      *
-     * Key => x/y pixel
-     * Value => Plotted Datapoint
+     * x/y pixel => position of the plotted data point
      *
-     * will be filled while drawing via {@link #registerDataPoint(float, float, DataPointInterface)}
+     * will be filled while drawing via {@link #registerDataPoint(float, float, int)};
+     * the arrays are re-used from draw to draw
      */
-    private Map<PointF, E> mDataPoints = new HashMap<PointF, E>();
+    private float[] mTapX = new float[16];      // CHANGE NOTICE: primitive-array series storage
+    private float[] mTapY = new float[16];
+    private int[] mTapPos = new int[16];
+    private int mTapCount = 0;
+
+    /**
+     * level-of-detail decimation:  the positions retained when only the first, lowest, highest and last
+     * data points of each pixel column are drawn; computed for the visible positions of one viewport (its X-scale and
+     * X origin) and re-used by redraws of that same viewport; any change to the data bumps mDataVersion which invalidates them
+     */
+    private int mDataVersion = 0;      // CHANGE NOTICE: level-of-detail decimation
+    private int mLodDataVersion = -1;
+    private double mLodColumnWidth = 0d;
+    private double mLodOriginX = 0d;
+    private int mLodFromPos = -1;
+    private int mLodUntilPos = -1;
+    private int[] mLodPositions = null;
+    private int mLodCount = 0;
+
+    /**
+     * decimation is only worthwhile when there are more visible data points per pixel column than it retains
+     */
+    protected static final int LOD_DENSITY_THRESHOLD = 4;      // CHANGE NOTICE: level-of-detail decimation
+
+    /**
+     * relative change of the X-scale still treated as the same scale; the viewport's maxX-minX varies by rounding only
+     */
+    private static final double LOD_SCALE_TOLERANCE = 1e-9;
+
+    /**
+     * data point handed to callbacks during drawing when the data is held in primitive arrays;
+     * it is re-used for each data point so the callback must not retain it
+     */
+    private DataPoint mTransientDataPoint = null;
 
     /**
      * title for this series that can be displayed
@@ -106,16 +144,247 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
         }
     }
 
+    /**
+     * creates series with data held in primitive arrays;
+     * the data points handed to callbacks and tap listeners are then instances of {@link DataPoint},
+     * so E must be DataPoint or one of its interfaces
+     *
+     * @param data  data storage; it is adopted (not copied) and must not be altered while the series uses it
+     */
+    public BaseSeries(DoubleArraySeries data) {     // CHANGE NOTICE: primitive-array series storage
+        mGraphViews = new ArrayList<GraphView>();
+        mArrayData = data;
+    }
+
     public double getValueY(int position) {     // CHANGE NOTICE: alternate LegendRenderer
+        if (mArrayData != null) {
+            if (mArrayData.isEmpty()) return 0d;
+            return mArrayData.getY(position);
+        }
         if (mData.isEmpty()) return 0d;
         return mData.get(position).getY();
     }
 
+    /////////////////////////////////////////////////////////////////////////////////////
+    // CHANGE NOTICE: primitive-array series storage
+    // positional access to the data for use by the draw paths of the subclasses;
+    // these work the same regardless of which storage form holds the data
+    /////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param from minimal x-value
+     * @return  position of the first data point to draw: one before the first data point at or above from;
+     *          size() if no data point reaches from
+     */
+    protected int getFromPos(double from) {
+        if (mArrayData != null) return mArrayData.findFromPos(from);
+        int size = mData.size();
+        int pos = lowerBound(from);
+        if (pos >= size) return size;
+        if (pos > 0) pos--;
+        return pos;
+    }
+
+    /**
+     * @param until maximal x-value
+     * @return  position of the last data point to draw: the first data point beyond until,
+     *          or the last data point if none are beyond it; -1 if there is no data
+     */
+    protected int getUntilPos(double until) {
+        if (mArrayData != null) return mArrayData.findUntilPos(until);
+        int pos = upperBound(until);
+        if (pos >= mData.size()) pos = mData.size() - 1;
+        return pos;
+    }
+
+    /**
+     * binary search of the list storage; the X-values are ordered ascending
+     *
+     * @return position of the first data point whose X-value is not less than x; size if none
+     */
+    private int lowerBound(double x) {      // CHANGE NOTICE: binary-search viewport windowing
+        int low = 0;
+        int high = mData.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mData.get(mid).getX() < x) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * binary search of the list storage; the X-values are ordered ascending
+     *
+     * @return position of the first data point whose X-value is greater than x; size if none
+     */
+    private int upperBound(double x) {      // CHANGE NOTICE: binary-search viewport windowing
+        int low = 0;
+        int high = mData.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mData.get(mid).getX() <= x) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    protected double getPosX(int pos) {
+        if (mArrayData != null) return mArrayData.getX(pos);
+        return mData.get(pos).getX();
+    }
+
+    protected double getPosY(int pos) {
+        if (mArrayData != null) return mArrayData.getY(pos);
+        return mData.get(pos).getY();
+    }
+
+    protected int getPosIndex(int pos) {
+        if (mArrayData != null) return mArrayData.getIndex(pos);
+        return mData.get(pos).getIndex();
+    }
+
+    /**
+     * @return the data point at the position; for primitive-array storage this is a newly created DataPoint
+     */
+    protected E getPosDataPoint(int pos) {
+        if (mArrayData != null) return (E) mArrayData.toDataPoint(pos);
+        return mData.get(pos);
+    }
+
+    /**
+     * @return  the data point at the position for handing to a callback during drawing;
+     *          for primitive-array storage this is a single re-used DataPoint that the callback must not retain
+     */
+    protected E getPosTransientDataPoint(int pos) {
+        if (mArrayData == null) return mData.get(pos);
+        if (mTransientDataPoint == null) mTransientDataPoint = new DataPoint(0, 0d, 0d);
+        mTransientDataPoint.set(mArrayData.getIndex(pos), mArrayData.getX(pos), mArrayData.getY(pos));
+        mTransientDataPoint.setPositionInSeries(pos);
+        return (E) mTransientDataPoint;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////
+    // CHANGE NOTICE: level-of-detail decimation
+    // when far more data points are visible than there are pixel columns, the draw paths of the subclasses
+    // draw only the first, lowest, highest and last data point of each pixel column; the line or bars through
+    // those cover the same pixel columns and the same vertical extent within each column as those through all the
+    // data points, so the draw calls per frame are bounded by the view width rather than by the quantity of data;
+    // the columns are the viewport's own pixel columns, so they are recomputed (for the visible data only) when panning
+    /////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param fromPos first position to draw
+     * @param untilPos last position to draw
+     * @param graphWidth width of the graph content in pixels
+     * @return whether the visible data is dense enough for decimation to reduce the draw calls
+     */
+    protected boolean isLodWorthwhile(int fromPos, int untilPos, float graphWidth) {
+        return graphWidth >= 1f && (untilPos - fromPos + 1) > LOD_DENSITY_THRESHOLD * graphWidth;
+    }
+
+    /**
+     * get the positions retained by the decimation for the indicated viewport; the columns start at originX
+     * (the X-value drawn at the left edge of the graph content) so each column is exactly one drawn pixel column;
+     * the result is re-used while the viewport is unchanged and recomputed over the visible positions when it is panned or zoomed
+     *
+     * @param columnWidth X-value width of one pixel column
+     * @param originX X-value at the left edge of the graph content
+     * @param fromPos first position to draw
+     * @param untilPos last position to draw
+     * @return retained positions in ascending order; only the first {@link #getLodCount()} entries are valid
+     */
+    protected int[] getLodPositions(double columnWidth, double originX, int fromPos, int untilPos) {
+        if (mLodPositions == null || mLodDataVersion != mDataVersion
+                || originX != mLodOriginX || fromPos != mLodFromPos || untilPos != mLodUntilPos
+                || Math.abs(columnWidth - mLodColumnWidth) > mLodColumnWidth * LOD_SCALE_TOLERANCE) {
+            buildLodPositions(columnWidth, originX, fromPos, untilPos);
+        }
+        return mLodPositions;
+    }
+
+    /**
+     * @return quantity of valid entries returned by {@link #getLodPositions(double, double, int, int)}
+     */
+    protected int getLodCount() {
+        return mLodCount;
+    }
+
+    /**
+     * @return index of the first retained position that is greater than pos
+     */
+    protected int findLodIndexAfter(int pos) {
+        int low = 0;
+        int high = mLodCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mLodPositions[mid] <= pos) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * compute the retained positions for the visible positions in the pixel columns starting at originX
+     */
+    private void buildLodPositions(double columnWidth, double originX, int fromPos, int untilPos) {
+        int size = untilPos - fromPos + 1;
+        if (mLodPositions == null || mLodPositions.length < size) {
+            mLodPositions = new int[Math.max(16, size)];
+        }
+        mLodCount = 0;
+        if (size > 0) {
+            double column = Math.floor((getPosX(fromPos) - originX) / columnWidth);
+            int first = fromPos;
+            int last = fromPos;
+            int lowest = fromPos;
+            int highest = fromPos;
+            double lowestY = getPosY(fromPos);
+            double highestY = lowestY;
+            for (int pos = fromPos + 1; pos <= untilPos; pos++) {
+                double c = Math.floor((getPosX(pos) - originX) / columnWidth);
+                double y = getPosY(pos);
+                if (c != column) {
+                    addLodColumn(first, lowest, highest, last);
+                    column = c;
+                    first = pos;
+                    lowest = pos;
+                    highest = pos;
+                    lowestY = y;
+                    highestY = y;
+                } else {
+                    if (y < lowestY) { lowest = pos; lowestY = y; }
+                    if (y > highestY) { highest = pos; highestY = y; }
+                }
+                last = pos;
+            }
+            addLodColumn(first, lowest, highest, last);
+        }
+        mLodColumnWidth = columnWidth;
+        mLodOriginX = originX;
+        mLodFromPos = fromPos;
+        mLodUntilPos = untilPos;
+        mLodDataVersion = mDataVersion;
+    }
+
+    /**
+     * record the retained positions of one pixel column in ascending order without duplicates
+     */
+    private void addLodColumn(int first, int lowest, int highest, int last) {
+        int a = Math.min(lowest, highest);
+        int b = Math.max(lowest, highest);
+        mLodPositions[mLodCount++] = first;
+        if (a > first) mLodPositions[mLodCount++] = a;
+        if (b > a && b > first) mLodPositions[mLodCount++] = b;
+        if (last > b && last > first) mLodPositions[mLodCount++] = last;
+    }
+
 
     /**
      * @return the lowest x value, or 0 if there is no data
      */
     public double getLowestValueX() {
+        if (mArrayData != null) return mArrayData.getLowestX();
         if (mData.isEmpty()) return 0d;
         return mData.get(0).getX();
     }
@@ -124,6 +393,7 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      * @return the highest x value, or 0 if there is no data
      */
     public double getHighestValueX() {
+        if (mArrayData != null) return mArrayData.getHighestX();
         if (mData.isEmpty()) return 0d;
         return mData.get(mData.size()-1).getX();
     }
@@ -132,6 +402,7 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      * @return the lowest y value, or 0 if there is no data
      */
     public double getLowestValueY() {
+        if (mArrayData != null) return mArrayData.getLowestY();
         if (mData.isEmpty()) return 0d;
         double l = mData.get(0).getY();
         for (int i = 1; i < mData.size(); i++) {
@@ -147,6 +418,7 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      * @return the highest y value, or 0 if there is no data
      */
     public double getHighestValueY() {
+        if (mArrayData != null) return mArrayData.getHighestY();
         if (mData.isEmpty()) return 0d;
         double h = mData.get(0).getY();
         for (int i = 1; i < mData.size(); i++) {
@@ -170,73 +442,34 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      */
     @Override
     public Iterator<E> getValues(final double from, final double until) {
-        if (from <= getLowestValueX() && until >= getHighestValueX()) {
+        if (mArrayData == null && from <= getLowestValueX() && until >= getHighestValueX()) {
             return mData.iterator();
-        } else {
-            return new Iterator<E>() {
-                Iterator<E> org = mData.iterator();
-                E nextValue = null;
-                E nextNextValue = null;
-                boolean plusOne = true;
-
-                {
-                    // go to first
-                    boolean found = false;
-                    E prevValue = null;
-                    if (org.hasNext()) {
-                        prevValue = org.next();
-                    }
-                    if (prevValue != null) {            // CHANGE NOTICE: https://github.com/jjoe64/GraphView/pull/353/commits/59b7d958e947758a758a94c5d18eee2a4b490deb
-                        if (prevValue.getX() >= from) {
-                            nextValue = prevValue;
-                            found = true;
-                        } else {
-                            while (org.hasNext()) {
-                                nextValue = org.next();
-                                if (nextValue.getX() >= from) {
-                                    found = true;
-                                    nextNextValue = nextValue;
-                                    nextValue = prevValue;
-                                    break;
-                                }
-                                prevValue = nextValue;
-                            }
-                        }
-                    }
-                    if (!found) {
-                        nextValue = null;
-                    }
-                }
+        }
 
-                @Override
-                public void remove() {
-                    throw new UnsupportedOperationException();
-                }
+        // CHANGE NOTICE: binary-search viewport windowing; the visible window (plus one data point
+        // on either side) is located by binary search rather than by stepping from the first data point;
+        // for primitive-array storage each data point handed out is newly created (the draw paths use positional access instead)
+        final int fromPos = getFromPos(from);
+        final int untilPos = getUntilPos(until);
+        return new Iterator<E>() {
+            int pos = fromPos;
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
 
-                @Override
-                public E next() {
-                    if (hasNext()) {
-                        E r = nextValue;
-                        if (r.getX() > until) {
-                            plusOne = false;
-                        }
-                        if (nextNextValue != null) {
-                            nextValue = nextNextValue;
-                            nextNextValue = null;
-                        } else if (org.hasNext()) nextValue = org.next();
-                        else nextValue = null;
-                        return r;
-                    } else {
-                        throw new NoSuchElementException();
-                    }
-                }
+            @Override
+            public E next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return getPosDataPoint(pos++);
+            }
 
-                @Override
-                public boolean hasNext() {
-                    return nextValue != null && (nextValue.getX() <= until || plusOne);
-                }
-            };
-        }
+            @Override
+            public boolean hasNext() {
+                return pos <= untilPos;
+            }
+        };
     }
 
     /**
@@ -310,22 +543,22 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      */
     protected E findDataPoint(float x, float y) {
         float shortestDistance = Float.NaN;
-        E shortest = null;
-        for (Map.Entry<PointF, E> entry : mDataPoints.entrySet()) {
-            float x1 = entry.getKey().x;
-            float y1 = entry.getKey().y;
+        int shortest = -1;
+        for (int i = 0; i < mTapCount; i++) {
+            float x1 = mTapX[i];
+            float y1 = mTapY[i];
             float x2 = x;
             float y2 = y;
 
             float distance = (float) Math.sqrt((x1-x2)*(x1-x2) + (y1-y2)*(y1-y2));
-            if (shortest == null || distance < shortestDistance) {
+            if (shortest < 0 || distance < shortestDistance) {
                 shortestDistance = distance;
-                shortest = entry.getValue();
+                shortest = mTapPos[i];
             }
         }
-        if (shortest != null) {
+        if (shortest >= 0) {
             if (shortestDistance < 120) {
-                return shortest;
+                return getPosDataPoint(shortest);
             }
         }
         return null;
@@ -336,17 +569,32 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      *
      * @param x pixel
      * @param y pixel
-     * @param dp the data point to save
+     * @param pos position of the data point
      */
-    protected void registerDataPoint(float x, float y, E dp) {
-        mDataPoints.put(new PointF(x, y), dp);
+    protected void registerDataPoint(float x, float y, int pos) {      // CHANGE NOTICE: primitive-array series storage
+        if (mTapCount == mTapPos.length) {
+            int capacity = mTapPos.length << 1;
+            float[] tapX = new float[capacity];
+            float[] tapY = new float[capacity];
+            int[] tapPos = new int[capacity];
+            System.arraycopy(mTapX, 0, tapX, 0, mTapCount);
+            System.arraycopy(mTapY, 0, tapY, 0, mTapCount);
+            System.arraycopy(mTapPos, 0, tapPos, 0, mTapCount);
+            mTapX = tapX;
+            mTapY = tapY;
+            mTapPos = tapPos;
+        }
+        mTapX[mTapCount] = x;
+        mTapY[mTapCount] = y;
+        mTapPos[mTapCount] = pos;
+        mTapCount++;
     }
 
     /**
      * clears the cached data point coordinates
      */
     public void resetDataPoints() {     // CHANGE NOTICE: garbage collection
-        mDataPoints.clear();
+        mTapCount = 0;
     }
 
     /**
@@ -357,11 +605,30 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      *             x-value has to be ASC. First the lowest x value and at least the highest x value.
      */
     public void resetData(E[] data) {
+        mArrayData = null;
         mData.clear();
         for (E d : data) {
             mData.add(d);
         }
         checkValueOrder(null);
+        mDataVersion++;     // CHANGE NOTICE: level-of-detail decimation
+
+        // update graphview
+        for (GraphView gv : mGraphViews) {
+            gv.onDataChanged(true, false);
+        }
+    }
+
+    /**
+     * clears the data of this series and sets new data held in primitive arrays.
+     * will redraw the graph
+     *
+     * @param data  data storage; it is adopted (not copied) and must not be altered while the series uses it
+     */
+    public void resetData(DoubleArraySeries data) {     // CHANGE NOTICE: primitive-array series storage
+        mData.clear();
+        mArrayData = data;
+        mDataVersion++;
 
         // update graphview
         for (GraphView gv : mGraphViews) {
@@ -388,6 +655,10 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      *                      value will be lost to avoid memory leaks
      */
     public void appendData(E dataPoint, boolean scrollToEnd, int maxDataPoints) {
+        if (mArrayData != null) {       // CHANGE NOTICE: primitive-array series storage
+            appendData(dataPoint.getIndex(), dataPoint.getX(), dataPoint.getY(), scrollToEnd, maxDataPoints);
+            return;
+        }
         checkValueOrder(dataPoint);
 
         if (!mData.isEmpty() && dataPoint.getX() < mData.get(mData.size()-1).getX()) {
@@ -403,6 +674,7 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
                 mData.remove(0);
                 mData.add(dataPoint);
             }
+            mDataVersion++;     // CHANGE NOTICE: level-of-detail decimation
         }
 
         // recalc the labels when it was the first data
@@ -418,11 +690,48 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
         }
     }
 
+    /**
+     * append a data point to a series whose data is held in primitive arrays
+     *
+     * @param index the caller's index# of the data point
+     * @param x x-value; must not be less than the last x-value
+     * @param y y-value
+     * @param scrollToEnd true => graphview will scroll to the end (maxX)
+     * @param maxDataPoints if max data count is reached, the oldest data
+     *                      value will be lost to avoid memory leaks
+     */
+    public void appendData(int index, double x, double y, boolean scrollToEnd, int maxDataPoints) {     // CHANGE NOTICE: primitive-array series storage
+        if (mArrayData == null) {
+            appendData((E) new DataPoint(index, x, y), scrollToEnd, maxDataPoints);
+            return;
+        }
+        synchronized (mArrayData) {
+            if (mArrayData.size() >= maxDataPoints) {
+                // we have to trim one data
+                mArrayData.removeFirst();
+            }
+            mArrayData.append(index, x, y);
+            mDataVersion++;
+        }
+
+        // recalc the labels when it was the first data
+        boolean keepLabels = mArrayData.size() != 1;
+
+        // update linked graph views
+        for (GraphView gv : mGraphViews) {
+            gv.onDataChanged(keepLabels, scrollToEnd);
+            if (scrollToEnd) {
+                gv.getViewport().scrollToEnd();
+            }
+        }
+    }
+
     /**
      * @return whether there are data points
      */
     @Override
     public boolean isEmpty() {
+        if (mArrayData != null) return mArrayData.isEmpty();
         return mData.isEmpty();
     }
 
@@ -430,7 +739,10 @@ public abstract class BaseSeries<E extends DataPointInterface> implements Series
      * @return quantity of data points
      */
     @Override
-    public int size() { return mData.size(); }
+    public int size() {
+        if (mArrayData != null) return mArrayData.size();
+        return mData.size();
+    }
 
     /**
      * checks that the data is in the correct order
@@ -50,6 +50,12 @@ public class DataPoint implements DataPointInterface, Serializable {
         this.y = y;
     }
 
+    void set(int index, double x, double y) {                           // CHANGE NOTICE: primitive-array series storage
+        this.index = index;
+        this.x = x;
+        this.y = y;
+    }
+
     @Override
     public int getIndex() { return this.index; }                        // CHANGE NOTICE: include index# in the callback
 
@@ -0,0 +1,342 @@
+/**
+ * GraphView
+ * Copyright (C) 2014  Jonas Gehring
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License,
+ * with the "Linking Exception", which can be found at the license.txt
+ * file in this program.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * with the "Linking Exception" along with this program; if not,
+ * write to the author Jonas Gehring <g.jjoe64@gmail.com>.
+ */
+package com.jjoe64.graphview.series;
+
+/**
+ * Primitive-array storage for the data of a series.
+ * The X-values, Y-values and the caller's index# of each data point
+ * are held in parallel arrays so that no object exists per data point;
+ * the series draw paths read them by position and locate the visible
+ * window of the viewport by binary search.
+ *
+ * X-values have to be sorted from lowest to highest.
+ *
+ * The valid data points start at a head offset within the arrays, so
+ * removing the oldest data point (as a series capped at a maximum
+ * quantity of data points does upon every append) only advances the
+ * head; the arrays are compacted only once the tail reaches their end.
+ *
+ * A DataPointInterface is only materialized for a position when one
+ * must be handed to a callback (tap listener, value-dependent color,
+ * custom shape) or to a caller of Series.getValues().
+ *
+ * @author mmaschino
+ * * This particular source code file is licensed per overall GraphView's license
+ */
+public class DoubleArraySeries {
+    /**
+     * the data; only the mSize entries starting at mHead are valid
+     */
+    private double[] mX;
+    private double[] mY;
+    private int[] mIndex;       // null means the index# is mIndexBase plus the position
+    private int mIndexBase;
+    private int mHead;
+    private int mSize;
+
+    /**
+     * creates empty storage with the indicated initial capacity
+     *
+     * @param capacity initial quantity of data points that can be held without growing
+     */
+    public DoubleArraySeries(int capacity) {
+        if (capacity < 1) { capacity = 1; }
+        mX = new double[capacity];
+        mY = new double[capacity];
+        mIndex = new int[capacity];
+        mSize = 0;
+    }
+
+    /**
+     * creates storage that adopts (does not copy) the passed arrays
+     *
+     * @param x     X-values; must be sorted ascending
+     * @param y     Y-values
+     * @param index caller's index# of each data point; may be null if the index# is the position
+     * @param size  quantity of valid entries in the arrays
+     */
+    public DoubleArraySeries(double[] x, double[] y, int[] index, int size) {
+        mX = x;
+        mY = y;
+        mIndex = index;
+        mSize = size;
+        checkValueOrder();
+    }
+
+    /**
+     * creates storage holding a copy of the passed data points
+     *
+     * @param data data points; must be sorted ascending by X-value
+     */
+    public DoubleArraySeries(DataPointInterface[] data) {
+        this(data.length);
+        for (DataPointInterface d : data) {
+            append(d.getIndex(), d.getX(), d.getY());
+        }
+    }
+
+    /**
+     * creates storage with the same X-values and index#s as the source but with all Y-values zero;
+     * used for the summed-Y subseries of a MultiSeries
+     *
+     * @param source the storage to copy the X-values from
+     */
+    public static DoubleArraySeries zeroedCopyOf(DoubleArraySeries source) {
+        int capacity = Math.max(1, source.mSize);
+        double[] x = new double[capacity];
+        System.arraycopy(source.mX, source.mHead, x, 0, source.mSize);
+        int[] index = null;
+        if (source.mIndex != null) {
+            index = new int[capacity];
+            System.arraycopy(source.mIndex, source.mHead, index, 0, source.mSize);
+        }
+        DoubleArraySeries copy = new DoubleArraySeries(x, new double[capacity], index, source.mSize);
+        copy.mIndexBase = source.mIndexBase;
+        return copy;
+    }
+
+    /**
+     * @return quantity of data points
+     */
+    public int size() { return mSize; }
+
+    /**
+     * @return whether there are data points
+     */
+    public boolean isEmpty() { return mSize == 0; }
+
+    public double getX(int pos) { return mX[mHead + pos]; }
+
+    public double getY(int pos) { return mY[mHead + pos]; }
+
+    public int getIndex(int pos) {
+        if (mIndex == null) { return mIndexBase + pos; }
+        return mIndex[mHead + pos];
+    }
+
+    /**
+     * @param pos position to alter
+     * @param y value to add to the existing Y-value
+     */
+    public void addToY(int pos, double y) { mY[mHead + pos] += y; }
+
+    /**
+     * @return the lowest x value, or 0 if there is no data
+     */
+    public double getLowestX() {
+        if (mSize == 0) return 0d;
+        return mX[mHead];
+    }
+
+    /**
+     * @return the highest x value, or 0 if there is no data
+     */
+    public double getHighestX() {
+        if (mSize == 0) return 0d;
+        return mX[mHead + mSize - 1];
+    }
+
+    /**
+     * @return the lowest y value, or 0 if there is no data
+     */
+    public double getLowestY() {
+        if (mSize == 0) return 0d;
+        double l = mY[mHead];
+        for (int i = mHead + 1; i < mHead + mSize; i++) {
+            if (l > mY[i]) { l = mY[i]; }
+        }
+        return l;
+    }
+
+    /**
+     * @return the highest y value, or 0 if there is no data
+     */
+    public double getHighestY() {
+        if (mSize == 0) return 0d;
+        double h = mY[mHead];
+        for (int i = mHead + 1; i < mHead + mSize; i++) {
+            if (h < mY[i]) { h = mY[i]; }
+        }
+        return h;
+    }
+
+    /**
+     * append a data point; the X-value must not be less than the current highest X-value
+     */
+    public void append(int index, double x, double y) {
+        if (mSize > 0 && x < mX[mHead + mSize - 1]) {
+            throw new IllegalArgumentException("new x-value must be greater then the last value. x-values has to be ordered in ASC.");
+        }
+        if (mHead + mSize == mX.length) {
+            // the tail is at the end of the arrays; reclaim the space freed by removeFirst() if it is at least half, else grow
+            if (mSize <= (mX.length >> 1)) { compact(); }
+            else { grow(); }
+        }
+        int tail = mHead + mSize;
+        if (mIndex == null) {
+            if (index == mIndexBase + mSize) {
+                // index# still follows the position
+                mX[tail] = x;
+                mY[tail] = y;
+                mSize++;
+                return;
+            }
+            mIndex = new int[mX.length];
+            for (int i = 0; i < mSize; i++) { mIndex[mHead + i] = mIndexBase + i; }
+        }
+        mX[tail] = x;
+        mY[tail] = y;
+        mIndex[tail] = index;
+        mSize++;
+    }
+
+    /**
+     * remove the oldest (lowest X-value) data point; only the head is advanced
+     */
+    public void removeFirst() {
+        if (mSize == 0) { return; }
+        mHead++;
+        mSize--;
+        if (mIndex == null) { mIndexBase++; }   // the index#s still follow the positions, one further along
+        if (mSize == 0) { mHead = 0; }
+    }
+
+    /**
+     * remove all data points; the arrays are retained for re-use
+     */
+    public void clear() {
+        mSize = 0;
+        mHead = 0;
+        mIndexBase = 0;
+    }
+
+    /**
+     * @param from minimal x-value
+     * @return  position of the first data point to draw for a viewport starting at from:
+     *          one data point before the first with an X-value at or above from (for nice scrolling);
+     *          or mSize if no data point reaches from
+     */
+    public int findFromPos(double from) {
+        int pos = lowerBound(from);
+        if (pos >= mSize) { return mSize; }
+        if (pos > 0) { pos--; }
+        return pos;
+    }
+
+    /**
+     * @param until maximal x-value
+     * @return  position of the last data point to draw for a viewport ending at until:
+     *          the first data point with an X-value beyond until (for nice scrolling),
+     *          or the last data point if none are beyond until
+     */
+    public int findUntilPos(double until) {
+        int pos = upperBound(until);
+        if (pos >= mSize) { pos = mSize - 1; }
+        return pos;
+    }
+
+    /**
+     * @return position of the first data point whose X-value is not less than x; mSize if none
+     */
+    public int lowerBound(double x) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mX[mHead + mid] < x) { low = mid + 1; }
+            else { high = mid; }
+        }
+        return low;
+    }
+
+    /**
+     * @return position of the first data point whose X-value is greater than x; mSize if none
+     */
+    public int upperBound(double x) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mX[mHead + mid] <= x) { low = mid + 1; }
+            else { high = mid; }
+        }
+        return low;
+    }
+
+    /**
+     * @return a new data point holding the values at the indicated position
+     */
+    public DataPoint toDataPoint(int pos) {
+        DataPoint dp = new DataPoint(getIndex(pos), mX[mHead + pos], mY[mHead + pos]);
+        dp.setPositionInSeries(pos);
+        return dp;
+    }
+
+    /**
+     * @return array of new data points for all the positions
+     */
+    public DataPoint[] toArray() {
+        DataPoint[] points = new DataPoint[mSize];
+        for (int i = 0; i < mSize; i++) { points[i] = toDataPoint(i); }
+        return points;
+    }
+
+    /**
+     * double the capacity of the arrays; the data is moved to the start of the new arrays
+     */
+    private void grow() {
+        int capacity = mX.length << 1;
+        double[] x = new double[capacity];
+        double[] y = new double[capacity];
+        System.arraycopy(mX, mHead, x, 0, mSize);
+        System.arraycopy(mY, mHead, y, 0, mSize);
+        mX = x;
+        mY = y;
+        if (mIndex != null) {
+            int[] index = new int[capacity];
+            System.arraycopy(mIndex, mHead, index, 0, mSize);
+            mIndex = index;
+        }
+        mHead = 0;
+    }
+
+    /**
+     * move the data to the start of the arrays; only done once the head has advanced at least half the capacity,
+     * so the copying costs no more than one move per removed data point
+     */
+    private void compact() {
+        if (mHead == 0) { return; }
+        System.arraycopy(mX, mHead, mX, 0, mSize);
+        System.arraycopy(mY, mHead, mY, 0, mSize);
+        if (mIndex != null) { System.arraycopy(mIndex, mHead, mIndex, 0, mSize); }
+        mHead = 0;
+    }
+
+    /**
+     * checks that the data is in the correct order
+     */
+    private void checkValueOrder() {
+        for (int i = mHead + 1; i < mHead + mSize; i++) {
+            if (mX[i - 1] > mX[i]) {
+                throw new IllegalArgumentException("The order of the values is not correct. X-Values have to be ordered ASC. First the lowest x value and at least the highest x value.");
+            }
+        }
+    }
+}
@@ -27,7 +27,6 @@ import android.util.Log;
 
 import com.jjoe64.graphview.GraphView;
 
-import java.util.Iterator;
 
 /**
  * Series to plot the data as line.
@@ -128,6 +127,16 @@ public class LineGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
         init();
     }
 
+    /**
+     * creates a series with data held in primitive arrays
+     *
+     * @param data data storage; it is adopted (not copied)
+     */
+    public LineGraphSeries(DoubleArraySeries data) {     // CHANGE NOTICE: primitive-array series storage
+        super(data);
+        init();
+    }
+
     /**
      * do the initialization
      * creates internal objects
@@ -176,7 +185,8 @@ public class LineGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
             minY = graphView.getViewport().getMinY(false);
         }
 
-        Iterator<E> values = getValues(minX, maxX);
+        int fromPos = getFromPos(minX);       // CHANGE NOTICE: primitive-array series storage
+        int untilPos = getUntilPos(maxX);
 
         // draw background
         double lastEndY = 0;
@@ -211,14 +221,24 @@ public class LineGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
         double lastUsedEndX = 0;
         float firstX = 0;
         int i=0;
-        while (values.hasNext()) {
-            E value = values.next();
-
-            double valY = value.getY() - minY;
+        // CHANGE NOTICE: level-of-detail decimation; data point circles are drawn per data point
+        // so the decimation is only used without them;
+        // the off-graph data points at fromPos and untilPos are always drawn
+        int[] lodPositions = null;
+        int lodInx = 0;
+        int lodEnd = 0;
+        if (!mStyles.drawDataPoints && isLodWorthwhile(fromPos, untilPos, graphWidth)) {
+            lodPositions = getLodPositions(diffX / graphWidth, minX, fromPos, untilPos);
+            lodInx = findLodIndexAfter(fromPos);
+            lodEnd = findLodIndexAfter(untilPos - 1);
+        }
+        int pos = fromPos;
+        while (pos <= untilPos) {
+            double valY = getPosY(pos) - minY;
             double ratY = valY / diffY;
             double y = graphHeight * ratY;
 
-            double valX = value.getX() - minX;
+            double valX = getPosX(pos) - minX;
             double ratX = valX / diffX;
             double x = graphWidth * ratX;
 
@@ -270,7 +290,7 @@ public class LineGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
                         canvas.drawCircle(endX, endY, mStyles.dataPointsRadius, paint);
                     }
                 }
-                registerDataPoint(endX, endY, value);
+                registerDataPoint(endX, endY, pos);
 
                 //mPath.reset();                    // CHANGE NOTICE: https://github.com/jjoe64/GraphView/pull/366/commits/7d3029deb462bff5f04c9c04f9afb8162c63283c
                 //mPath.moveTo(startX, startY);
@@ -297,6 +317,9 @@ public class LineGraphSeries<E extends DataPointInterface> extends BaseSeries<E>
             lastEndY = orgY;
             lastEndX = orgX;
             i++;
+            if (lodPositions == null || pos == untilPos) { pos++; }
+            else if (lodInx < lodEnd) { pos = lodPositions[lodInx++]; }
+            else { pos = untilPos; }
         }
 
         if (mStyles.drawBackground) {
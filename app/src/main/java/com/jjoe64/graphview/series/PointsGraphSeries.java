@@ -23,11 +23,9 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.Point;
 
 import com.jjoe64.graphview.GraphView;
 
-import java.util.Iterator;
 
 /**
  * Series that plots the data as points.
@@ -111,6 +109,13 @@ public class PointsGraphSeries<E extends DataPointInterface> extends BaseSeries<
      */
     private CustomShape mCustomShape;
 
+    /**
+     * vertices and path of a triangle; re-used by every
+     * triangle drawn so that drawing does not allocate
+     */
+    private final float[] mTriangleVertices = new float[8];     // CHANGE NOTICE: allocation-free drawing
+    private final Path mTrianglePath = new Path();
+
     /**
      * creates the series without data
      */
@@ -128,6 +133,16 @@ public class PointsGraphSeries<E extends DataPointInterface> extends BaseSeries<
         init();
     }
 
+    /**
+     * creates a series with data held in primitive arrays
+     *
+     * @param data data storage; it is adopted (not copied)
+     */
+    public PointsGraphSeries(DoubleArraySeries data) {     // CHANGE NOTICE: primitive-array series storage
+        super(data);
+        init();
+    }
+
     /**
      * inits the internal objects
      * set the defaults
@@ -172,7 +187,8 @@ public class PointsGraphSeries<E extends DataPointInterface> extends BaseSeries<
             minY = graphView.getViewport().getMinY(false);
         }
 
-        Iterator<E> values = getValues(minX, maxX);
+        int fromPos = getFromPos(minX);       // CHANGE NOTICE: primitive-array series storage
+        int untilPos = getUntilPos(maxX);
 
         // draw background
         double lastEndY = 0;
@@ -193,14 +209,12 @@ public class PointsGraphSeries<E extends DataPointInterface> extends BaseSeries<
         lastEndX = 0;
         float firstX = 0;
         int i=0;
-        while (values.hasNext()) {
-            E value = values.next();
-
-            double valY = value.getY() - minY;
+        for (int pos = fromPos; pos <= untilPos; pos++) {
+            double valY = getPosY(pos) - minY;
             double ratY = valY / diffY;
             double y = graphHeight * ratY;
 
-            double valX = value.getX() - minX;
+            double valX = getPosX(pos) - minX;
             double ratX = valX / diffX;
             double x = graphWidth * ratX;
 
@@ -221,22 +235,20 @@ public class PointsGraphSeries<E extends DataPointInterface> extends BaseSeries<
 
             float endX = (float) x + (graphLeft + 1);
             float endY = (float) (graphTop - y) + graphHeight;
-            registerDataPoint(endX, endY, value);
+            registerDataPoint(endX, endY, pos);
 
             // draw data point
             if (!overdraw) {
                 if (mCustomShape != null) {
-                    mCustomShape.draw(canvas, mPaint, endX, endY, value);
+                    mCustomShape.draw(canvas, mPaint, endX, endY, getPosTransientDataPoint(pos));
                 } else if (mStyles.shape == Shape.POINT) {
                     canvas.drawCircle(endX, endY, mStyles.size, mPaint);
                 } else if (mStyles.shape == Shape.RECTANGLE) {
                     canvas.drawRect(endX-mStyles.size, endY-mStyles.size, endX+mStyles.size, endY+mStyles.size, mPaint);
                 } else if (mStyles.shape == Shape.TRIANGLE) {
-                    Point[] points = new Point[3];
-                    points[0] = new Point((int)endX, (int)(endY-getSize()));
-                    points[1] = new Point((int)(endX+getSize()), (int)(endY+getSize()*0.67));
-                    points[2] = new Point((int)(endX-getSize()), (int)(endY+getSize()*0.67));
-                    drawArrows(points, canvas, mPaint);
+                    drawArrows((int)endX, (int)(endY-getSize()),
+                            (int)(endX+getSize()), (int)(endY+getSize()*0.67),
+                            (int)(endX-getSize()), (int)(endY+getSize()*0.67), canvas, mPaint);     // CHANGE NOTICE: allocation-free drawing
                 }
             }
 
@@ -252,26 +264,32 @@ public class PointsGraphSeries<E extends DataPointInterface> extends BaseSeries<
     /**
      * helper to render triangle
      *
-     * @param point array with 3 coordinates
+     * @param x0 x-coordinate of the first corner
+     * @param y0 y-coordinate of the first corner
+     * @param x1 x-coordinate of the second corner
+     * @param y1 y-coordinate of the second corner
+     * @param x2 x-coordinate of the third corner
+     * @param y2 y-coordinate of the third corner
      * @param canvas canvas to draw on
      * @param paint paint object
      */
-    private void drawArrows(Point[] point, Canvas canvas, Paint paint) {
-        float [] points  = new float[8];
-        points[0] = point[0].x;
-        points[1] = point[0].y;
-        points[2] = point[1].x;
-        points[3] = point[1].y;
-        points[4] = point[2].x;
-        points[5] = point[2].y;
-        points[6] = point[0].x;
-        points[7] = point[0].y;
+    private void drawArrows(int x0, int y0, int x1, int y1, int x2, int y2, Canvas canvas, Paint paint) {     // CHANGE NOTICE: allocation-free drawing
+        float [] points  = mTriangleVertices;
+        points[0] = x0;
+        points[1] = y0;
+        points[2] = x1;
+        points[3] = y1;
+        points[4] = x2;
+        points[5] = y2;
+        points[6] = x0;
+        points[7] = y0;
 
         canvas.drawVertices(Canvas.VertexMode.TRIANGLES, 8, points, 0, null, 0, null, 0, null, 0, 0, paint);
-        Path path = new Path();
-        path.moveTo(point[0].x , point[0].y);
-        path.lineTo(point[1].x,point[1].y);
-        path.lineTo(point[2].x,point[2].y);
+        Path path = mTrianglePath;
+        path.reset();
+        path.moveTo(x0, y0);
+        path.lineTo(x1, y1);
+        path.lineTo(x2, y2);
         canvas.drawPath(path,paint);
     }
 
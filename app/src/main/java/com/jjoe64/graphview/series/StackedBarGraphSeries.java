@@ -21,18 +21,12 @@ package com.jjoe64.graphview.series;
 
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.RectF;
 
 import com.jjoe64.graphview.GraphView;
 import com.jjoe64.graphview.GridLabelRenderer;
 import com.jjoe64.graphview.ValueDependentColor;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Arrays;
 
 /**
  * Series with Stacked Bars to visualize multiple subseries of related Y-value data.
@@ -90,7 +84,14 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
      * stores the coordinates of the bars to
      * trigger tap on series events.
      */
-    private Map<RectF, E> mDataPoints = new HashMap<RectF, E>();
+    private float[] mTapRects = new float[64];
+    private int[] mTapPos = new int[16];
+    private int mTapCount = 0;
+
+    /**
+     * work buffer for the X-values of all stacked bar series in the viewport; re-used from draw to draw
+     */
+    private double[] mSlotXs = new double[64];
 
     /**
      * creates stackedBar series without any data subseries yet
@@ -109,6 +110,16 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
         mPaint = new Paint();
     }
 
+    /**
+     * creates bar series with one initial data subseries held in primitive arrays
+     *
+     * @param data data storage; it is adopted (not copied) and is not altered
+     */
+    public StackedBarGraphSeries(DoubleArraySeries data) {
+        super(data);
+        mPaint = new Paint();
+    }
+
     /**
      * draws the bars on the canvas
      *
@@ -124,6 +135,8 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
         }
         mPaint.setTextSize(mValuesOnTopSize);
 
+        resetDataPoints();
+
         // get data
         double maxX = graphView.getViewport().getMaxX(false);
         double minX = graphView.getViewport().getMinX(false);
@@ -144,8 +157,8 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
         int numBarSeries = 0;
         int currentSeriesOrder = 0;
         int numValues = 0;
+        int numXs = 0;
         boolean isCurrentSeries;
-        SortedSet<Double> xVals = new TreeSet<Double>();
         for(Series inspectedSeries: graphView.getSeries()) {
             if(inspectedSeries instanceof StackedBarGraphSeries) {
                 isCurrentSeries = (inspectedSeries == this);
@@ -157,36 +170,35 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
                 // calculate the number of slots for bars based on the minimum distance between
                 // x coordinates in the series.  This is divided into the range to find
                 // the placement and width of bar slots
-                // (sections of the x axis for each bar or set of bars)
-                // TODO: Move this somewhere more general and cache it, so we don't recalculate it for each series
-                Iterator<E> curValues = inspectedSeries.getValues(minX, maxX);
-                if (curValues.hasNext()) {
-                    xVals.add(curValues.next().getX());
-                    if(isCurrentSeries) { numValues++; }
-                    while (curValues.hasNext()) {
-                        xVals.add(curValues.next().getX());
-                        if(isCurrentSeries) { numValues++; }
-                    }
+                // (sections of the x axis for each bar or set of bars);
+                // the X-values are gathered by position into a re-used buffer
+                StackedBarGraphSeries<?> barSeries = (StackedBarGraphSeries<?>)inspectedSeries;
+                int fromPos = barSeries.getFromPos(minX);
+                int untilPos = barSeries.getUntilPos(maxX);
+                int qty = untilPos - fromPos + 1;
+                if (qty > 0) {
+                    if (numXs + qty > mSlotXs.length) { mSlotXs = Arrays.copyOf(mSlotXs, Math.max(mSlotXs.length << 1, numXs + qty)); }
+                    for (int pos = fromPos; pos <= untilPos; pos++) { mSlotXs[numXs++] = barSeries.getPosX(pos); }
+                    if(isCurrentSeries) { numValues = qty; }
                 }
             }
         }
         if (numValues == 0) { return; }
 
-        Double lastVal = null;
+        // the X-values of a single series are already in ascending order
+        if (numBarSeries > 1) { Arrays.sort(mSlotXs, 0, numXs); }
         double minGap = 0;
-        for(Double curVal: xVals) {
-            if(lastVal != null) {
-                double curGap = Math.abs(curVal - lastVal);
-                if (minGap == 0 || (curGap > 0 && curGap < minGap)) {
-                    minGap = curGap;
-                }
+        for (int j = 1; j < numXs; j++) {
+            double curGap = mSlotXs[j] - mSlotXs[j - 1];
+            if (minGap == 0 || (curGap > 0 && curGap < minGap)) {
+                minGap = curGap;
             }
-            lastVal = curVal;
         }
 
         int numBarSlots = (minGap == 0) ? 1 : (int)Math.round((maxX - minX)/minGap) + 1;
 
-        Iterator<E> values = getValues(minX, maxX);
+        int fromPos = getFromPos(minX);
+        int untilPos = getUntilPos(maxX);
 
         // Calculate the overall bar slot width - this includes all bars across
         // all series, and any spacing between sets of bars
@@ -211,12 +223,9 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
         float contentTop = graphView.getGraphContentTop();
 
         // draw data
-        int i=0;
-        while (values.hasNext()) {
-            E value = values.next();
-            int position = value.getPositionInSeries();
-
-            double valY = value.getY() - minY;
+        int qtySubseries = getQtySubseries();
+        for (int pos = fromPos; pos <= untilPos; pos++) {
+            double valY = getPosY(pos) - minY;
             double ratY = valY / diffY;
             double y = contentHeight * ratY;
 
@@ -224,13 +233,13 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
             double ratY0 = valY0 / diffY;
             double y0 = contentHeight * ratY0;
 
-            double valX = value.getX() - minX;
+            double valX = getPosX(pos) - minX;
             double ratX = valX / diffX;
             double x = contentWidth * ratX;
 
             // hook for value dependent color
             if (getValueDependentColor() != null) {
-                mPaint.setColor(getValueDependentColor().get(value));
+                mPaint.setColor(getValueDependentColor().get(getPosTransientDataPoint(pos)));
             } else {
                 mPaint.setColor(getColor());
             }
@@ -253,16 +262,15 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
             bottom = Math.min(bottom, contentTop+contentHeight);
             top = Math.max(top, contentTop);
 
-            mDataPoints.put(new RectF(left, top, right, bottom), value);
+            registerBar(left, top, right, bottom, pos);
 
             // draw the super bar; it should get completely overdrawn by the subseries
             canvas.drawRect(left, top, right, bottom, mPaint);
 
             // get the subseries Y values and draw the sub-bars in the correct colors
-            double[] yValues = getValueYs(position);
             double sumY = 0.0;
-            for (int j = 0; j < yValues.length; j++) {
-                sumY += yValues[j];
+            for (int j = 0; j < qtySubseries; j++) {
+                sumY += getValueY(j, pos);
                 valY = sumY - minY;
                 ratY = valY / diffY;
                 y = contentHeight * ratY;
@@ -285,12 +293,27 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
                 mPaint.setColor(mValuesOnTopColor);
                 canvas.drawText(
                         //graphView.getGridLabelRenderer().getLabelFormatter().formatLabel(value.getY(), false)
-                        graphView.getGridLabelRenderer().getLabelFormatter().formatLabelEx(GridLabelRenderer.LabelFormatterReason.DATA_POINT, value.getIndex(), value.getY(), false)  // CHANGE NOTICE: include reason and index# in the callback
+                        graphView.getGridLabelRenderer().getLabelFormatter().formatLabelEx(GridLabelRenderer.LabelFormatterReason.DATA_POINT, getPosIndex(pos), getPosY(pos), false)  // CHANGE NOTICE: include reason and index# in the callback
                         , (left+right)/2, top, mPaint);
             }
+        }
+    }
 
-            i++;
+    /**
+     * register the coordinates of a drawn bar to find it at a tap
+     */
+    private void registerBar(float left, float top, float right, float bottom, int pos) {
+        if (mTapCount == mTapPos.length) {
+            mTapPos = Arrays.copyOf(mTapPos, mTapPos.length << 1);
+            mTapRects = Arrays.copyOf(mTapRects, mTapPos.length << 2);
         }
+        int r = mTapCount << 2;
+        mTapRects[r] = left;
+        mTapRects[r + 1] = top;
+        mTapRects[r + 2] = right;
+        mTapRects[r + 3] = bottom;
+        mTapPos[mTapCount] = pos;
+        mTapCount++;
     }
 
     public float getDrawY(GraphView graphView, int subseries, int position) {       // CHANGE NOTICE: alternate LegendRenderer
@@ -419,7 +442,7 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
      */
     @Override
     public void resetDataPoints() {     // CHANGE NOTICE: garbage collection
-        mDataPoints.clear();
+        mTapCount = 0;
     }
 
     /**
@@ -432,10 +455,11 @@ public class StackedBarGraphSeries<E extends DataPointInterface> extends BaseMul
      */
     @Override
     protected E findDataPoint(float x, float y) {
-        for (Map.Entry<RectF, E> entry : mDataPoints.entrySet()) {
-            if (x >= entry.getKey().left && x <= entry.getKey().right
-                && y >= entry.getKey().top && y <= entry.getKey().bottom) {
-                return entry.getValue();
+        for (int i = 0; i < mTapCount; i++) {
+            int r = i << 2;
+            if (x >= mTapRects[r] && x <= mTapRects[r + 2]
+                && y >= mTapRects[r + 1] && y <= mTapRects[r + 3]) {
+                return getPosDataPoint(mTapPos[i]);
             }
         }
         return null;
@@ -123,7 +123,9 @@ public class ZeoCompanionApplication extends Application {
     public static final int MESSAGE_HEADBAND_RECV_HB_MSG = MESSAGE_HEADBAND_HBFRAG_LOW;
     public static final int MESSAGE_HEADBAND_BLUETOOTH_HNDLR_ERR = 9001;
     public static final int MESSAGE_HEADBAND_HB_CONNECT_OK = 9002;
-    public static final int MESSAGE_HEADBAND_HBFRAG_HIGH = MESSAGE_HEADBAND_HB_CONNECT_OK;
+    public static final int MESSAGE_HEADBAND_HB_SEND_FAILED = 9003;
+    public static final int MESSAGE_HEADBAND_REPLAY_DONE = 9004;
+    public static final int MESSAGE_HEADBAND_HBFRAG_HIGH = MESSAGE_HEADBAND_REPLAY_DONE;
     public static final int MESSAGE_APP_SEND_TOAST = 9100;
     public static final int MESSAGE_ZAH_ZEO_STATE_CHANGED = 9110;
     public static final int MESSAGE_ZAH_ZEO_PROBED_NO_CHANGE = 9111;
@@ -136,6 +138,8 @@ public class ZeoCompanionApplication extends Application {
     public static final int MESSAGE_SHARING_DIALOG_TERMINATED = 9130;
     public static final int MESSAGE_SETTINGS_EMAILTEST_RESULTS = 9140;
     public static final int MESSAGE_OUTBOX_EMAILRESEND_RESULTS = 9150;
+    public static final int MESSAGE_APP_REPLICATION_PROGRESS = 9160;
+    public static final int MESSAGE_APP_REPLICATION_DONE = 9161;
 
     // application-custom broadcast message actions
     public static final String ACTION_ALARMMGR_WAKEUP_RTC = "opensource.zeocompanion.intent.action.RTC_WAKEUP"; // this must match what is defined in the Manifest
@@ -149,6 +153,14 @@ public class ZeoCompanionApplication extends Application {
                 case ZeoCompanionApplication.MESSAGE_APP_SEND_TOAST:
                     Toast.makeText(getContext(), (String)msg.obj, Toast.LENGTH_LONG).show();
                     break;
+                case ZeoCompanionApplication.MESSAGE_APP_REPLICATION_PROGRESS:
+                    // arg1 = tables finished so far, arg2 = total tables, obj = ZeoAppHandler.ReplicationProgress of the table just finished
+                    Log.d(_CTAG+".appHandler", "Replication " + msg.arg1 + "/" + msg.arg2 + ": " + msg.obj);
+                    break;
+                case ZeoCompanionApplication.MESSAGE_APP_REPLICATION_DONE:
+                    // arg1 = tables completed, arg2 = total tables, obj = ZeoAppHandler.ReplicationProgress summarizing the whole replication
+                    Log.i(_CTAG+".appHandler", "Replication finished: " + msg.obj);
+                    break;
             }
         }
     };
@@ -289,6 +301,7 @@ public class ZeoCompanionApplication extends Application {
     // reopen the database; this is only performed for a reload database
     private static String reopenDatabase() {
         mDatabaseHandler = new CompanionDatabase(mOurContext);
+        if (mCoordinator != null) { mCoordinator.informDatabaseReplaced(); }
         return mDatabaseHandler.initialize();
     }
 
@@ -503,7 +516,8 @@ public class ZeoCompanionApplication extends Application {
         File dest = new File(backupsDir.getPath() + File.separator + includePrefix + newName);
         Log.d(_CTAG+".saveCopyOfDB","Dest="+dest.getAbsolutePath());
 
-        // perform the copy
+        // perform the copy; the database's CSV string columns are first written so an older App version can restore the copy
+        if (mDatabaseHandler.writeAllCSVstrings() < 0) { return new BackupReturnResults(null, "Failed to prepare the database for backup; see error.log"); }
         try {
             FileUtils.copyFile(source, dest);
             ZeoCompanionApplication.forceShowOnPC(dest);
@@ -564,7 +578,11 @@ public class ZeoCompanionApplication extends Application {
         File source = new File(backupsDir + File.separator + theSourceFile);
         File dest = getDatabasePath(CompanionDatabase.DATABASE_NAME);
 
-        // perform the copy
+        // perform the copy; any in-progress replication must be stopped since it is writing into the database being replaced;
+        // the stop is only signalled (the main thread is not blocked waiting for it), so the end-user must retry once it has stopped
+        if (mZeoAppHandler != null) {
+            if (mZeoAppHandler.cancelReplication()) { return "A Zeo App database replication was in-progress and is being stopped; please retry the restore in a few seconds"; }
+        }
         boolean okay = closeDatabase();
         if (!okay) { return "Could not close the current active database; see error.log"; }
         try {
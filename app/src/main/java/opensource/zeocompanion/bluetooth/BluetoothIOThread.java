@@ -15,8 +15,9 @@ public class BluetoothIOThread extends Thread {
     private BluetoothSocket mmSocket = null;
     public InputStream mmInStream = null;
     public OutputStream mmOutStream = null;
-    public boolean mThreadIsPreparing = true;
-    public boolean mThreadIsRunning = false;
+    private volatile BluetoothWriterThread mWriterThread = null;    // cleared by disconnect() while the IO thread may be acknowledging
+    public volatile boolean mThreadIsPreparing = true;
+    public volatile boolean mThreadIsRunning = false;
 
     // thread context:  HeadbandActivity
     public BluetoothIOThread(ZeoMobileHB_BluetoothHandler theHandler, BluetoothSocket theSocket) {
@@ -33,6 +34,10 @@ public class BluetoothIOThread extends Thread {
 
         mmInStream = tmpIn;
         mmOutStream = tmpOut;
+        if (mmOutStream != null) {
+            mWriterThread = new BluetoothWriterThread(mHandler, mmOutStream);
+            mWriterThread.setName("BluetoothWriterThread");
+        }
     }
 
     // thread context:  BluetoothIOThread
@@ -45,6 +50,8 @@ public class BluetoothIOThread extends Thread {
             mThreadIsRunning = false;
             return;
         }
+        BluetoothWriterThread writerThread = mWriterThread;
+        if (writerThread != null) { writerThread.start(); }
 
         byte[] buffer = new byte[1024];  // buffer store for the stream
         int len; // bytes returned from read()
@@ -64,20 +71,29 @@ public class BluetoothIOThread extends Thread {
         mThreadIsRunning = false;
     }
 
-    /* Call this from the main activity to send data to the remote device */
+    /* Call this from the main activity to send data to the remote device; never blocks; returns false if the send queue is full */
     // thread context:  HeadbandActivity
-    public void write(byte[] bytes) {
-        if (mmOutStream != null) {
-            try {
-                mmOutStream.write(bytes);
-            } catch (IOException e) {}
-        }
+    public boolean write(ZeoMobileHB_Msg theMsg) {
+        BluetoothWriterThread writerThread = mWriterThread;
+        if (writerThread == null) { return false; }
+        return writerThread.enqueue(theMsg);
+    }
+
+    // the headband acknowledged a sent message; returns that message or null if it was not awaiting acknowledgement
+    // thread context:  BluetoothIOThread
+    public ZeoMobileHB_Msg acknowledged(int theSeqNo) {
+        BluetoothWriterThread writerThread = mWriterThread;
+        if (writerThread == null) { return null; }
+        return writerThread.acknowledged(theSeqNo);
     }
 
     /* Call this from the main activity to shutdown the connection */
     // thread context:  HeadbandActivity
     public void disconnect() {
-        // must disconnect the IO streams first
+        // stop the writer first, then must disconnect the IO streams
+        BluetoothWriterThread writerThread = mWriterThread;
+        mWriterThread = null;
+        if (writerThread != null) { writerThread.shutdown(); }
         if (mmInStream != null) {
             try { mmInStream.close(); } catch (IOException e) {}
             mmInStream = null;
@@ -0,0 +1,150 @@
+package opensource.zeocompanion.bluetooth;
+
+import android.util.Log;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import opensource.zeocompanion.ZeoCompanionApplication;
+
+// performs all writes to the headband's RFCOMM socket so that the HeadbandActivity never blocks upon a slow socket;
+// messages are placed into a bounded queue (a full queue is refused rather than waited upon); whatever is queued at the moment the
+// writer wakes is coalesced into a single socket write; messages sent with an acknowledgement request are remembered by their
+// sequence number until the headband's acknowledgement arrives, and are automatically re-sent should it not arrive in time
+public class BluetoothWriterThread extends Thread {
+    // member variables
+    private ZeoMobileHB_BluetoothHandler mHandler = null;
+    private OutputStream mmOutStream = null;
+    private final ArrayBlockingQueue<ZeoMobileHB_Msg> mQueue = new ArrayBlockingQueue<ZeoMobileHB_Msg>(QUEUE_CAPACITY);
+    private final ZeoMobileHB_Msg[] mAwaitingAck = new ZeoMobileHB_Msg[256];  // indexed by sequence number; guarded by itself
+    private final byte[] mCoalesceBuffer = new byte[COALESCE_BUFFER_SIZE];
+    private int mCoalesceLen = 0;
+    private volatile boolean mStopping = false;
+    public volatile long mSentCnt = 0;      // the counters each have a single writing thread but are read from other threads
+    public volatile long mRetryCnt = 0;
+    public volatile long mAckedCnt = 0;
+    public volatile long mFailedCnt = 0;
+
+    // member constants and other static content
+    private static final String _CTAG = "BWT";
+    public static final int QUEUE_CAPACITY = 32;
+    private static final int COALESCE_BUFFER_SIZE = 1024;
+    public static final long ACK_TIMEOUT_MS = 1500L;
+    public static final int MAX_SEND_ATTEMPTS = 3;
+    private static final long RETRY_CHECK_MS = 250L;
+
+    // thread context:  HeadbandActivity
+    public BluetoothWriterThread(ZeoMobileHB_BluetoothHandler theHandler, OutputStream theOutStream) {
+        mHandler = theHandler;
+        mmOutStream = theOutStream;
+    }
+
+    // queue a completed message (sequence number and CRC already set) for sending; returns false if the queue is full
+    // thread context:  HeadbandActivity
+    public boolean enqueue(ZeoMobileHB_Msg theMsg) {
+        if (mStopping) { return false; }
+        theMsg.mQueued_Timestamp = System.currentTimeMillis();
+        return mQueue.offer(theMsg);
+    }
+
+    // the headband has acknowledged the message of the indicated sequence number; returns that message or null if it was not awaited
+    // thread context:  BluetoothIOThread
+    public ZeoMobileHB_Msg acknowledged(int theSeqNo) {
+        ZeoMobileHB_Msg theMsg;
+        synchronized (mAwaitingAck) {
+            theMsg = mAwaitingAck[theSeqNo & 0xFF];
+            mAwaitingAck[theSeqNo & 0xFF] = null;
+        }
+        if (theMsg == null) { return null; }
+        theMsg.mAcked_Timestamp = System.currentTimeMillis();
+        mAckedCnt++;
+        Log.d(_CTAG+".ack", "Seq#=" + theSeqNo + " acknowledged; round-trip " + (theMsg.mAcked_Timestamp - theMsg.mSent_Timestamp) + " ms after " + theMsg.mSendAttempts + " attempt(s)");
+        return theMsg;
+    }
+
+    // stop the thread; any queued or unacknowledged messages are abandoned
+    // thread context:  HeadbandActivity
+    public void shutdown() {
+        mStopping = true;
+        interrupt();
+    }
+
+    // thread context:  BluetoothWriterThread
+    public void run() {
+        Thread.setDefaultUncaughtExceptionHandler(ZeoCompanionApplication.mMasterAbortHandler); // set the master abort handler for this thread
+        try {
+            while (!mStopping) {
+                ZeoMobileHB_Msg theMsg = mQueue.poll(RETRY_CHECK_MS, TimeUnit.MILLISECONDS);
+                while (theMsg != null) {
+                    append(theMsg);
+                    theMsg = mQueue.poll();
+                }
+                checkRetries();
+                flush();
+            }
+        } catch (InterruptedException e) {
+            // shutdown was requested
+        } catch (IOException e) {
+            if (!mStopping) {
+                Log.e(_CTAG+".run", "Write to headband failed: " + e.toString());
+                mHandler.manageConnectedSocketError(ZeoMobileHB_BluetoothHandler.THREAD_WRITER, ZeoMobileHB_BluetoothHandler.ERROR_SOCKET_WRITE_FAILED);
+            }
+        }
+        mQueue.clear();
+        synchronized (mAwaitingAck) {
+            for (int i = 0; i < mAwaitingAck.length; i++) { mAwaitingAck[i] = null; }
+        }
+    }
+
+    // add a message's bytes to the pending socket write
+    // thread context:  BluetoothWriterThread
+    private void append(ZeoMobileHB_Msg theMsg) throws IOException {
+        if (mCoalesceLen + theMsg.mRecLen > mCoalesceBuffer.length) { flush(); }
+        if (theMsg.mRecLen > mCoalesceBuffer.length) {
+            mmOutStream.write(theMsg.rBytes, 0, theMsg.mRecLen);
+        } else {
+            System.arraycopy(theMsg.rBytes, 0, mCoalesceBuffer, mCoalesceLen, theMsg.mRecLen);
+            mCoalesceLen = mCoalesceLen + theMsg.mRecLen;
+        }
+
+        theMsg.mSent_Timestamp = System.currentTimeMillis();
+        theMsg.mSendAttempts++;
+        mSentCnt++;
+        if (theMsg.rActReq != 0) {
+            synchronized (mAwaitingAck) { mAwaitingAck[theMsg.rSeqNo & 0xFF] = theMsg; }
+        }
+    }
+
+    // perform the coalesced socket write
+    // thread context:  BluetoothWriterThread
+    private void flush() throws IOException {
+        if (mCoalesceLen == 0) { return; }
+        mmOutStream.write(mCoalesceBuffer, 0, mCoalesceLen);
+        mmOutStream.flush();
+        mCoalesceLen = 0;
+    }
+
+    // re-send any messages whose acknowledgement is overdue, or give up on them after too many attempts
+    // thread context:  BluetoothWriterThread
+    private void checkRetries() throws IOException {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < mAwaitingAck.length; i++) {
+            ZeoMobileHB_Msg theMsg;
+            synchronized (mAwaitingAck) {
+                theMsg = mAwaitingAck[i];
+                if (theMsg == null || now - theMsg.mSent_Timestamp < ACK_TIMEOUT_MS) { continue; }
+                mAwaitingAck[i] = null;
+            }
+            if (theMsg.mSendAttempts >= MAX_SEND_ATTEMPTS) {
+                mFailedCnt++;
+                Log.w(_CTAG+".retry", "Seq#=" + theMsg.rSeqNo + " was never acknowledged after " + theMsg.mSendAttempts + " attempts");
+                mHandler.message_send_failed(theMsg);
+            } else {
+                mRetryCnt++;
+                Log.d(_CTAG+".retry", "Seq#=" + theMsg.rSeqNo + " not acknowledged within " + ACK_TIMEOUT_MS + " ms; re-sending");
+                append(theMsg);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package opensource.zeocompanion.bluetooth;
+
+import android.util.Log;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import opensource.zeocompanion.ZeoCompanionApplication;
+
+// captures the raw Bluetooth RFCOMM packets received from the Zeo Headband into a compact binary log in the exports directory,
+// so that the reassembly and decode paths can later be replayed (see HeadbandStreamReplayer) without the headband hardware;
+// file layout:  "ZHBC", version byte, 8-byte big-endian start time (ms since 1/1/1970),
+// then per packet:  unsigned varint milliseconds since the prior packet, unsigned varint packet length, the packet bytes
+public class HeadbandStreamRecorder {
+    // member variables
+    private File mFile = null;
+    private OutputStream mOut = null;
+    private long mPriorTimestamp = 0L;
+    private final byte[] mVarintBuffer = new byte[10];
+    public long mPacketsCnt = 0;
+    public long mBytesCnt = 0;
+
+    // member constants and other static content
+    private static final String _CTAG = "HSR";
+    public static final byte[] FILE_MAGIC = { 0x5A, 0x48, 0x42, 0x43 };   // "ZHBC"
+    public static final int FILE_VERSION = 1;
+    public static final String FILE_PREFIX = "ZeoCompanion_HBcapture_";
+    public static final String FILE_EXTENSION = ".zhbc";
+    private static final int WRITER_BUFFER_SIZE = 65536;
+
+    // constructor; use open()
+    private HeadbandStreamRecorder() {}
+
+    // create a new capture file in the exports directory; returns null if it could not be created
+    // thread context:  any
+    public static HeadbandStreamRecorder open() {
+        File exportsDir = getCaptureDirectory();
+        exportsDir.mkdirs();
+        SimpleDateFormat df = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US);
+        long now = System.currentTimeMillis();
+        File theFile = new File(exportsDir.getAbsolutePath() + File.separator + FILE_PREFIX + df.format(new Date(now)) + FILE_EXTENSION);
+
+        HeadbandStreamRecorder recorder = new HeadbandStreamRecorder();
+        try {
+            recorder.mOut = new BufferedOutputStream(new FileOutputStream(theFile), WRITER_BUFFER_SIZE);
+            recorder.mOut.write(FILE_MAGIC);
+            recorder.mOut.write(FILE_VERSION);
+            for (int shift = 56; shift >= 0; shift -= 8) { recorder.mOut.write((int)(now >>> shift) & 0xFF); }
+        } catch (IOException e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".open", e, "Failed to create headband capture file " + theFile.getAbsolutePath());
+            if (recorder.mOut != null) { try { recorder.mOut.close(); } catch (IOException e2) {} }
+            return null;
+        }
+        recorder.mFile = theFile;
+        recorder.mPriorTimestamp = now;
+        Log.i(_CTAG + ".open", "Capturing headband stream to " + theFile.getAbsolutePath());
+        return recorder;
+    }
+
+    // the directory into which captures are written
+    public static File getCaptureDirectory() {
+        return new File(ZeoCompanionApplication.mBaseExtStorageDir + File.separator + "exports");
+    }
+
+    // the capture file
+    public File getFile() { return mFile; }
+
+    // append one received packet; the packet buffer is not retained
+    // thread context:  BluetoothIOThread
+    public synchronized void record(int theLen, byte[] theBytes) {
+        if (mOut == null || theLen <= 0) { return; }
+        long now = System.currentTimeMillis();
+        long delta = now - mPriorTimestamp;
+        if (delta < 0) { delta = 0; }   // wall-clock was set backwards
+        mPriorTimestamp = now;
+        try {
+            writeVarint(delta);
+            writeVarint(theLen);
+            mOut.write(theBytes, 0, theLen);
+            mPacketsCnt++;
+            mBytesCnt = mBytesCnt + theLen;
+        } catch (IOException e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".record", e, "Headband capture stopped", null, true);
+            closeQuietly();
+        }
+    }
+
+    // finish the capture file
+    // thread context:  HeadbandActivity
+    public synchronized void close() {
+        if (mOut == null) { return; }
+        try {
+            mOut.flush();
+            ZeoCompanionApplication.forceShowOnPC(mFile);
+        } catch (IOException e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".close", e, "Failed to finish headband capture file", null, true);
+        }
+        closeQuietly();
+        Log.i(_CTAG + ".close", "Captured " + mPacketsCnt + " packets (" + mBytesCnt + " bytes) to " + mFile.getAbsolutePath());
+    }
+
+    // close the file ignoring any further errors
+    private void closeQuietly() {
+        try { mOut.close(); } catch (IOException e) {}
+        mOut = null;
+    }
+
+    // write an unsigned LEB128 varint
+    private void writeVarint(long value) throws IOException {
+        int len = 0;
+        while ((value & ~0x7FL) != 0) {
+            mVarintBuffer[len++] = (byte)((value & 0x7F) | 0x80);
+            value = value >>> 7;
+        }
+        mVarintBuffer[len++] = (byte)value;
+        mOut.write(mVarintBuffer, 0, len);
+    }
+}
@@ -0,0 +1,147 @@
+package opensource.zeocompanion.bluetooth;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+// feeds a headband capture file (written by HeadbandStreamRecorder) back into a packet consumer exactly as BluetoothIOThread would,
+// either at the originally captured pace, some multiple thereof, or as fast as possible; this permits the reassembly and decode
+// paths to be exercised and profiled without the headband hardware, including on the plain JVM; the results report the PDU rate
+// and, if the caller supplies an allocation counter, the bytes it reports as allocated during the replay
+public class HeadbandStreamReplayer {
+    // member constants and other static content
+    public static final double SPEED_MAX = 0.0;
+    public static final double SPEED_REALTIME = 1.0;
+    private static final int READER_BUFFER_SIZE = 65536;
+
+    // the consumer of the replayed packets; ZeoMobileHB_Receiver is the normal consumer
+    public interface PacketSink {
+        void message_received(int theLen, byte[] theBytes);
+        long getPduCount();
+    }
+
+    // a source of a cumulative count of allocated bytes; returns a negative value if the count is not available
+    public interface AllocationCounter {
+        long getAllocatedBytes();
+    }
+
+    // the results of one replay
+    public static class ReplayResults {
+        public File rFile = null;
+        public double rSpeed = SPEED_MAX;
+        public long rPackets = 0;
+        public long rBytes = 0;
+        public long rPdus = 0;
+        public long rCaptured_ms = 0;       // duration of the original capture
+        public long rElapsed_ns = 0;        // duration of the replay
+        public long rAllocBytes = -1L;      // bytes allocated while feeding packets as seen by the allocation counter; negative if not measured
+
+        public double getPdusPerSecond() {
+            if (rElapsed_ns <= 0) { return 0.0; }
+            return (double)rPdus * 1000000000.0 / (double)rElapsed_ns;
+        }
+
+        public String toString() {
+            String speedStr = "max";
+            if (rSpeed > 0.0) { speedStr = rSpeed + "x"; }
+            return "Replayed " + rPackets + " packets (" + rBytes + " bytes) at " + speedStr + ": " + rPdus + " PDUs in " + (rElapsed_ns / 1000000L) + " ms (" +
+                    String.format("%.1f", getPdusPerSecond()) + " PDUs/sec; captured over " + rCaptured_ms + " ms); " +
+                    (rAllocBytes < 0 ? "allocations not measured" : "process allocated " + rAllocBytes + " bytes");
+        }
+    }
+
+    // not instantiable
+    private HeadbandStreamReplayer() {}
+
+    // locate the most recent capture file; returns null if there are none
+    public static File findLatestCapture() {
+        File[] files = HeadbandStreamRecorder.getCaptureDirectory().listFiles();
+        if (files == null) { return null; }
+        File latest = null;
+        for (File f: files) {
+            String name = f.getName();
+            if (!name.startsWith(HeadbandStreamRecorder.FILE_PREFIX) || !name.endsWith(HeadbandStreamRecorder.FILE_EXTENSION)) { continue; }
+            if (latest == null || f.lastModified() > latest.lastModified()) { latest = f; }
+        }
+        return latest;
+    }
+
+    // replay the capture file into the sink; speed is a multiple of the captured pace, or SPEED_MAX for no pacing;
+    // theCounter may be null if allocations are not to be measured
+    // thread context:  any non-UI thread
+    public static ReplayResults replay(File theFile, PacketSink theSink, double speed, AllocationCounter theCounter) throws IOException {
+        ReplayResults results = new ReplayResults();
+        results.rFile = theFile;
+        results.rSpeed = speed;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(theFile), READER_BUFFER_SIZE));
+        try {
+            byte[] magic = new byte[HeadbandStreamRecorder.FILE_MAGIC.length];
+            in.readFully(magic);
+            for (int i = 0; i < magic.length; i++) {
+                if (magic[i] != HeadbandStreamRecorder.FILE_MAGIC[i]) { throw new IOException("Not a headband capture file: " + theFile.getName()); }
+            }
+            int version = in.readUnsignedByte();
+            if (version != HeadbandStreamRecorder.FILE_VERSION) { throw new IOException("Unsupported headband capture version " + version); }
+            in.readLong();  // start time of the capture; not needed for replay
+
+            byte[] buffer = new byte[1024];     // same size as BluetoothIOThread uses; grown only if a larger packet was captured
+            long startPdus = theSink.getPduCount();
+            long capturedOffset_ms = 0;
+            long startAlloc = -1L;
+            if (theCounter != null) { startAlloc = theCounter.getAllocatedBytes(); }
+            long start_ns = System.nanoTime();
+            while (true) {
+                long delta;
+                int len;
+                try {
+                    delta = readVarint(in);
+                    len = (int)readVarint(in);
+                    if (len > buffer.length) { buffer = new byte[len]; }
+                    in.readFully(buffer, 0, len);
+                } catch (EOFException e) {
+                    break;  // end of the capture; a partial final packet (capture was not closed) is ignored
+                }
+                capturedOffset_ms = capturedOffset_ms + delta;
+
+                if (speed > 0.0) {
+                    // pace the packet to its captured time divided by the speed
+                    long due_ns = start_ns + (long)((double)capturedOffset_ms * 1000000.0 / speed);
+                    long wait_ns = due_ns - System.nanoTime();
+                    if (wait_ns > 1000000L) {
+                        try { Thread.sleep(wait_ns / 1000000L); } catch (InterruptedException e) { break; }
+                    }
+                }
+
+                theSink.message_received(len, buffer);
+                results.rPackets++;
+                results.rBytes = results.rBytes + len;
+            }
+            results.rElapsed_ns = System.nanoTime() - start_ns;
+            if (startAlloc >= 0) {
+                long endAlloc = theCounter.getAllocatedBytes();
+                if (endAlloc >= startAlloc) { results.rAllocBytes = endAlloc - startAlloc; }
+            }
+            results.rCaptured_ms = capturedOffset_ms;
+            results.rPdus = theSink.getPduCount() - startPdus;
+        } finally {
+            in.close();
+        }
+        return results;
+    }
+
+    // read an unsigned LEB128 varint
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value = value | ((long)(b & 0x7F) << shift);
+            if ((b & 0x80) == 0) { return value; }
+            shift = shift + 7;
+            if (shift > 63) { throw new IOException("Corrupt headband capture file"); }
+        }
+    }
+}
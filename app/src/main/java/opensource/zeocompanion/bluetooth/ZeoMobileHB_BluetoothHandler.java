@@ -5,18 +5,20 @@ import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothSocket;
 import android.content.Intent;
+import android.os.Debug;
 import android.util.Log;
 
 import opensource.zeocompanion.ZeoCompanionApplication;
 import opensource.zeocompanion.activities.HeadbandActivity;
-import opensource.zeocompanion.utility.Utilities;
 import opensource.zeocompanion.zeo.ZAH_HeadbandRecord;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 
-public class ZeoMobileHB_BluetoothHandler {
+public class ZeoMobileHB_BluetoothHandler implements ZeoMobileHB_Receiver.MsgSink {
     private static final String _CTAG = "ZHH";
     public static final int STATE_ADAPT_DISABLED = 0;
     public static final int STATE_ADAPT_PENDING = 1;
@@ -35,10 +37,13 @@ public class ZeoMobileHB_BluetoothHandler {
     public static final int ERROR_SOCKET_CONNECT_FAILED = 7;
     public static final int ERROR_SOCKET_INSTREAM_NULL = 8;
     public static final int ERROR_SOCKET_OUTSTREAM_NULL = 9;
+    public static final int ERROR_SOCKET_WRITE_FAILED = 10;
+    public static final int ERROR_REPLAY_ACTIVE = 11;
 
     public static final int THREAD_SERVER = 1;
     public static final int THREAD_CLIENT = 2;
     public static final int THREAD_IO = 3;
+    public static final int THREAD_WRITER = 4;
 
     public static final UUID ZEO_BT_ANDROID_UUID        = UUID.fromString("56b32a76-479b-43d4-99ff-42d79823d0a5");
     public static final UUID ZEO_BT_HEADBAND_UUID       = UUID.fromString("56b32a76-479b-43d4-99ff-42d79823d0a6");
@@ -49,12 +54,14 @@ public class ZeoMobileHB_BluetoothHandler {
     public BluetoothAdapter mBluetoothAdapter = null;
     //private BluetoothClientThread mClientThread = null;
     private BluetoothServerThread mServerThread = null;
-    private BluetoothIOThread mIOThread = null;
+    private volatile BluetoothIOThread mIOThread = null;         // assigned by the connecting thread but read by the IO thread and the HeadbandActivity
+    private volatile BluetoothIOThread mPriorIOThread = null;    // a disconnected IO thread may still be delivering its final packets
     private short mNextSendSeqNo = 0;
     private boolean mAdaptPending = false;
-    private int mReassembly_state = 0;
-    private int mReassembly_currLen = 0;
-    private byte[] mReassembly_bytes = null;
+    private final ZeoMobileHB_Receiver mReceiver = new ZeoMobileHB_Receiver(this);
+    private boolean mCaptureEnabled = false;
+    private volatile HeadbandStreamRecorder mRecorder = null;
+    private volatile Thread mReplayThread = null;
 
     // thread context:  MainActivity
     public ZeoMobileHB_BluetoothHandler(Activity activity)
@@ -108,9 +115,8 @@ public class ZeoMobileHB_BluetoothHandler {
     public int connectToHeadband() {
         if (mBluetoothAdapter == null) { return ERROR_NO_BT_ADAPTOR; }
         if (!mBluetoothAdapter.isEnabled()) { return ERROR_BT_NOT_ENABLED; }
-        mReassembly_state = 0;
-        mReassembly_currLen = 0;
-        mReassembly_bytes = null;
+        if (mReplayThread != null && mReplayThread.isAlive()) { return ERROR_REPLAY_ACTIVE; }
+        mReceiver.reset();
 
         // obtain the ZeoApp's information about the headband
         ZAH_HeadbandRecord hdRec = mActivity.getActiveHeadbandRecord();
@@ -204,17 +210,69 @@ public class ZeoMobileHB_BluetoothHandler {
     // thread context:  HeadbandActivity
     public void disconnectHeadband() {
         // disconnect the IO then disconnect any pending connect attempts
-        if (mIOThread != null) { mIOThread.disconnect(); mIOThread = null; }
+        if (mIOThread != null) { mIOThread.disconnect(); mPriorIOThread = mIOThread; mIOThread = null; }
         if (mServerThread != null) { mServerThread.disconnect(); mServerThread = null; }
+        HeadbandStreamRecorder recorder = mRecorder;
+        mRecorder = null;
+        if (recorder != null) { recorder.close(); }
     }
 
+    // capture the raw packets of subsequent connections into the exports directory
+    // thread context:  HeadbandActivity
+    public void setCaptureEnabled(boolean enabled) {
+        mCaptureEnabled = enabled;
+    }
+    public boolean isCaptureEnabled() { return mCaptureEnabled; }
+
+    // replay a capture file through the same reassembly and decode path as a live connection; not permitted while connected
+    // or connecting, nor until a disconnected IO thread has actually ended (else both threads would feed the one receiver);
+    // the results are sent to the HeadbandActivity when done; returns false if a replay could not be started
+    // thread context:  HeadbandActivity
+    public boolean startReplay(final File theFile, final double speed) {
+        if (theFile == null || mIOThread != null || mServerThread != null) { return false; }
+        if (mPriorIOThread != null) {
+            if (mPriorIOThread.isAlive()) { return false; }
+            mPriorIOThread = null;
+        }
+        if (mReplayThread != null && mReplayThread.isAlive()) { return false; }
+        mReceiver.reset();
+        mReplayThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Thread.setDefaultUncaughtExceptionHandler(ZeoCompanionApplication.mMasterAbortHandler); // set the master abort handler for this thread
+                HeadbandStreamReplayer.ReplayResults results = null;
+                try {
+                    results = HeadbandStreamReplayer.replay(theFile, mReceiver, speed, new ArtAllocationCounter());
+                    Log.i(_CTAG+".replay", results.toString());
+                } catch (IOException e) {
+                    ZeoCompanionApplication.postToErrorLog(_CTAG + ".replay", e, "Replay of " + theFile.getAbsolutePath(), null, true);
+                }
+                mActivity.mHandler.obtainMessage(ZeoCompanionApplication.MESSAGE_HEADBAND_REPLAY_DONE, 0, 0, results).sendToTarget();
+            }
+        });
+        mReplayThread.setName("HeadbandReplayThread");
+        mReplayThread.start();
+        return true;
+    }
+
+    // quantity of PDUs that have been successfully decoded
+    // thread context:  BluetoothIOThread, HeadbandReplayThread
+    public long getPduCount() { return mReceiver.getPduCount(); }
+
+    // quantities of PDUs that failed their CRC (posted only for diagnostic display) and that were structurally invalid (dropped)
+    // thread context:  BluetoothIOThread, HeadbandReplayThread
+    public long getBadCRCPduCount() { return mReceiver.getBadCRCPduCount(); }
+    public long getInvalidPduCount() { return mReceiver.getInvalidPduCount(); }
+
     public String getHeadbandName() {
-        if (mIOThread == null) return "*none*";
-        return mIOThread.getDeviceName();
+        BluetoothIOThread ioThread = mIOThread;
+        if (ioThread == null) return "*none*";
+        return ioThread.getDeviceName();
     }
     public String getHeadbandMACString() {
-        if (mIOThread == null) return "*none*";
-        return mIOThread.getDeviceMAC();
+        BluetoothIOThread ioThread = mIOThread;
+        if (ioThread == null) return "*none*";
+        return ioThread.getDeviceMAC();
     }
 
     // thread context:  BluetoothServerThread, BluetoothClientThread
@@ -224,7 +282,7 @@ public class ZeoMobileHB_BluetoothHandler {
 
         // connection attempt was successful;
         // cancel any existing IO thread, then allocate a new one
-        if (mIOThread != null) { mIOThread.disconnect(); mIOThread = null; }
+        if (mIOThread != null) { mIOThread.disconnect(); mPriorIOThread = mIOThread; mIOThread = null; }
         mIOThread = new BluetoothIOThread(this, theSocket);
         mIOThread.setName("BluetoothIOThread");
 
@@ -237,8 +295,9 @@ public class ZeoMobileHB_BluetoothHandler {
             err = ERROR_SOCKET_OUTSTREAM_NULL;
             msg = ZeoCompanionApplication.MESSAGE_HEADBAND_BLUETOOTH_HNDLR_ERR;
         } else {
-            // no errors, so start the IO thread
+            // no errors, so start the IO thread (and a capture of its raw packets if requested)
             msg = ZeoCompanionApplication.MESSAGE_HEADBAND_HB_CONNECT_OK;
+            if (mCaptureEnabled && mRecorder == null) { mRecorder = HeadbandStreamRecorder.open(); }
             mIOThread.start();
         }
 
@@ -254,126 +313,36 @@ public class ZeoMobileHB_BluetoothHandler {
 
     // thread context:  BluetoothIOThread
     public void message_received(int theLen, byte[] theBytes) {
-        // Bluetooth RFCOMM message packets will have to be re-combined into PDUs;
-        // it is possble that more than one PDU could be in a packet, or a packet can end a PDU then start a next;
-        // remember the buffer from BluetoothIOThread is re-used, always 1024 bytes, and so must always System.arraycopy for the msg.obj
-        if (theLen == 0) { return; }    // ignore zero-length packets
-
-        switch (mReassembly_state) {
-            case 0:
-                // first attempt at reassembly; ignore everything until a message header is found
-                if (theLen >= 4) {
-                    if (theBytes[0] == 0x48 && theBytes[1] == 0x4d && theBytes[2] == 0x53 && theBytes[3] == 0x47) {
-                        // simple case achieved; the packet is starting a PDU
-                        Log.d(_CTAG+".msgrcv", mReassembly_state + ": Packet (" + theLen + ") is start of 1st PDU: " + Utilities.bytesToHex(theBytes, 0, 12));
-                        mReassembly_state = 1;
-                    }
-                }
-                if (mReassembly_state == 0) {
-                    int m = theLen - 3;
-                    int i = 1;
-                    while (i < m) {
-                        if (theBytes[i] == 0x48 && theBytes[i + 1] == 0x4d && theBytes[i + 2] == 0x53 && theBytes[i + 3] == 0x47) {
-                            // found a PDU header in the packet after byte 0
-                            Log.d(_CTAG+".msgrcv", mReassembly_state + ": Packet (" + theLen + ") is start of 1st PDU at " + i + ": " + Utilities.bytesToHex(theBytes, i, 12));
-                            mReassembly_state = 1;
-                        }
-                        i++;
-                    }
-                }
-                if (mReassembly_state == 0) {
-                    return;  // ignore initial mid-split packets
-                }
-                // deliberately allow flow to pass to the next case
-
-            case 1:
-                // reassembly is synced and in-progress;
-                // move or merge the new packet bytes into the stream buffer
-                if (mReassembly_currLen == 0) {
-                    byte[] newBytes1 = new byte[theLen];
-                    System.arraycopy(theBytes, 0, newBytes1, 0, theLen);
-                    mReassembly_bytes = null;   // help garbage collection
-                    mReassembly_bytes = newBytes1;
-                    mReassembly_currLen = theLen;
-                    Log.d(_CTAG+".msgrcv", mReassembly_state + ": Packet (" + theLen + ") placed into buffer (" + mReassembly_currLen + "): " + Utilities.bytesToHex(theBytes, 0, 12));
-
-                } else {
-                    byte[] newBytes2 = new byte[mReassembly_currLen + theLen];
-                    System.arraycopy(mReassembly_bytes, 0, newBytes2, 0, mReassembly_currLen);
-                    System.arraycopy(theBytes, 0, newBytes2, mReassembly_currLen, theLen);
-                    mReassembly_bytes = null;   // help garbage collection
-                    mReassembly_bytes = newBytes2;
-                    mReassembly_currLen = mReassembly_currLen + theLen;
-                    Log.d(_CTAG+".msgrcv", mReassembly_state + ": Packet (" + theLen + ") merged into buffer(" + mReassembly_currLen + "): " + Utilities.bytesToHex(theBytes, 0, 12));
-                }
+        // capture the raw packet if requested, then pass it to the receiver for reassembly and decoding
+        if (theLen <= 0) { return; }    // ignore zero-length packets
+        HeadbandStreamRecorder recorder = mRecorder;
+        if (recorder != null) { recorder.record(theLen, theBytes); }
+        mReceiver.message_received(theLen, theBytes);
+    }
 
-                int msgHdrAt = 0;
-                int someFoundAt = -1;
-                while (msgHdrAt < mReassembly_currLen) {
-                    if (mReassembly_bytes[msgHdrAt] == 0x48) {
-                        // possibility of a message header
-                        int remainingLen = mReassembly_currLen - msgHdrAt;
-                        if (remainingLen >= 4) {
-                            if (mReassembly_bytes[msgHdrAt + 1] == 0x4d && mReassembly_bytes[msgHdrAt + 2] == 0x53 && mReassembly_bytes[msgHdrAt + 3] == 0x47) {
-                                // found a message header
-                                someFoundAt = msgHdrAt;
-                                if (remainingLen >= 12) {
-                                    // and it has a complete base PDU
-                                    int neededLen = 12 + (mReassembly_bytes[msgHdrAt + 11] << 8 | mReassembly_bytes[msgHdrAt + 10]);
-                                    if (neededLen <= remainingLen) {
-                                        // complete PDU is present; send the PDU to the MainActivity
-                                        byte[] newBytes3 = new byte[neededLen];
-                                        System.arraycopy(mReassembly_bytes, msgHdrAt, newBytes3, 0, neededLen);
-                                        Log.d(_CTAG+".msgrcv", mReassembly_state + ": Found complete PDU (" + neededLen + ") at " + msgHdrAt + ": " + Utilities.bytesToHex(newBytes3, 0, 12));
-                                        mActivity.mHandler.obtainMessage(ZeoCompanionApplication.MESSAGE_HEADBAND_RECV_HB_MSG, neededLen, 0, newBytes3).sendToTarget();
-
-                                        // and remove the PDU from the reassembly buffer
-                                        int newLen = mReassembly_currLen - neededLen;
-                                        if (newLen <= 0) {
-                                            // buffer is completely empty; reset and wait for more packets
-                                            mReassembly_bytes = null;   // help garbage collection
-                                            mReassembly_currLen = 0;
-                                            Log.d(_CTAG+".msgrcv", mReassembly_state + ": Buffer now empty; waiting");
-                                            return;
-                                        } else {
-                                            // there is residual data in the reassembly buffer; shrink the buffer;
-                                            // then reset the main loop to search this smaller reassembly buffer from the start
-                                            byte[] newBytes4 = new byte[newLen];
-                                            System.arraycopy(mReassembly_bytes, msgHdrAt + neededLen, newBytes4, 0, newLen);
-                                            mReassembly_bytes = null;   // help garbage collection
-                                            mReassembly_bytes = newBytes4;
-                                            mReassembly_currLen = newLen;
-                                            msgHdrAt = -1;
-                                        }
-                                    } else {
-                                        // base PDU is present but data is incomplete; wait for more packets
-                                        Log.d(_CTAG+".msgrcv", mReassembly_state + ": Found incomplete PDU (" + remainingLen + " of " + neededLen + ") at " + msgHdrAt + "; waiting: " + Utilities.bytesToHex(mReassembly_bytes, msgHdrAt, 12));
-                                        return;
-                                    }
-                                } else {
-                                    // base PDU is incomplete; wait for more packets
-                                    Log.d(_CTAG+".msgrcv", mReassembly_state + ": Found incomplete base PDU (" + remainingLen + " of unknown) at " + msgHdrAt + "; waiting: " + Utilities.bytesToHex(mReassembly_bytes, msgHdrAt, 12));
-                                    return;
-                                }
-                            }
-                        }
-                    }
-                    msgHdrAt++; // continue looking for a message header
-                }
-                // no further message headers were found in the reassembly buffer
-                if (someFoundAt < 0) {
-                    // entire reassembly buffer has no possible message header;
-                    // flush out all but the last 3 bytes
-                    if (mReassembly_currLen > 3) {
-                        int flushLen = mReassembly_currLen - 3;
-                        Log.d(_CTAG+".msgrcv", mReassembly_state + ": Residual in buffer flushed of "+flushLen+" bytes; waiting");
-                        byte[] newBytes5 = new byte[3];
-                        System.arraycopy(mReassembly_bytes, mReassembly_currLen - 3, newBytes5, 0, 3);
-                        mReassembly_bytes = null;   // help garbage collection
-                        mReassembly_bytes = newBytes5;
-                        mReassembly_currLen = 3;
-                    }
-                }
+    // thread context:  BluetoothIOThread, HeadbandReplayThread
+    public void msg_received(ZeoMobileHB_Msg theMsg) {
+        // messages of a replay are marked so the recipients do not treat them as the live headband's;
+        // mReplayThread is assigned before that thread is started so the replay thread always sees itself there
+        if (Thread.currentThread() == mReplayThread) { theMsg.markReplayed(); }
+
+        // only a CRC-valid acknowledgement that actually contains the acknowledged sequence number is acted upon
+        BluetoothIOThread ioThread = mIOThread;
+        if (theMsg.mCRCvalid && theMsg.rMsgType == ZeoMobileHB_Msg.ZEOMOB_HB_MSG_ACKNOWLEDGE && theMsg.rBytes.length >= 13 && ioThread != null) {
+            ioThread.acknowledged(theMsg.getUInt8(theMsg.rBytes, 12));
+        }
+        mActivity.mHandler.obtainMessage(ZeoCompanionApplication.MESSAGE_HEADBAND_RECV_HB_MSG, theMsg.rMsgType, theMsg.mRecLen, theMsg).sendToTarget();
+    }
+
+    // measures the bytes allocated by the whole process via ART's runtime statistics (API 23 and later); it cannot separate the
+    // replay thread's allocations from those of the UI and other threads, so the replay results present it as process-wide
+    private static class ArtAllocationCounter implements HeadbandStreamReplayer.AllocationCounter {
+        public long getAllocatedBytes() {
+            if (android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.M) { return -1L; }
+            String stat = Debug.getRuntimeStat("art.gc.bytes-allocated");
+            if (stat == null) { return -1L; }
+            try { return Long.parseLong(stat); }
+            catch (NumberFormatException e) { return -1L; }
         }
     }
 
@@ -400,24 +369,32 @@ public class ZeoMobileHB_BluetoothHandler {
                 return "Zeo Headband is not currently paired";
             case ERROR_SOCKET_OUTSTREAM_NULL:
                 return "Zeo Headband is not currently paired";
+            case ERROR_SOCKET_WRITE_FAILED:
+                return "Sending to the Zeo Headband failed";
+            case ERROR_REPLAY_ACTIVE:
+                return "A headband capture is being replayed";
             default:
                 return "LOGIC-ERROR: Unknown ZeoMobileHB_BluetoothHandler Error";
         }
     }
 
     // thread context:  HeadbandActivity
-    public void send_message_to_HB(ZeoMobileHB_Msg theMsg) {
+    public boolean send_message_to_HB(ZeoMobileHB_Msg theMsg) {
+        // the message is only queued here; BluetoothWriterThread performs the actual socket write, and any re-sends if acknowledgement was requested
+        BluetoothIOThread ioThread = mIOThread;
+        if (ioThread == null) return false;
         theMsg.setSeqNo(mNextSendSeqNo);
         mNextSendSeqNo++;
         if (mNextSendSeqNo >= 256) { mNextSendSeqNo = 0; }
         if (theMsg.rMsgType == ZeoMobileHB_Msg.ZEOMOB_HB_MSG_TIME_QUERY)  { theMsg.setTimeQuery(); };
 
         theMsg.addCRC();
+        return ioThread.write(theMsg);
+    }
 
-        if (mIOThread == null) return;
-        mIOThread.write(theMsg.rBytes);
-        int showLen = theMsg.mRecLen;
-        if (showLen > 40) showLen = 40;
-        Log.d(_CTAG+".sendMsg", "Sent Message (" + theMsg.mRecLen + ") to headband: " + Utilities.bytesToHex(theMsg.rBytes, 0, showLen));
+    // thread context:  BluetoothWriterThread
+    public void message_send_failed(ZeoMobileHB_Msg theMsg) {
+        // a sent message was never acknowledged by the headband despite retries; inform the MainActivity
+        mActivity.mHandler.obtainMessage(ZeoCompanionApplication.MESSAGE_HEADBAND_HB_SEND_FAILED, theMsg.rSeqNo, theMsg.mSendAttempts, theMsg).sendToTarget();
     }
-}
\ No newline at end of file
+}
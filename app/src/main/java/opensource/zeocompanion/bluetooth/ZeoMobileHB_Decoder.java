@@ -0,0 +1,157 @@
+package opensource.zeocompanion.bluetooth;
+
+import android.util.Log;
+
+import opensource.zeocompanion.utility.CRC16;
+
+// converts the raw PDUs re-assembled from the Zeo Headband into typed and already-validated message objects;
+// this runs on the Bluetooth side so the UI thread only ever receives finished events and never parses or CRC-checks a burst of PDUs;
+// PDUs that are structurally invalid are counted and dropped here rather than being posted; PDUs that fail their CRC are counted,
+// logged and returned only as an untyped message marked mCRCvalid=false (for diagnostic display) and must never be acted upon;
+// the CRC is verified directly upon the caller's view so a valid PDU is only ever copied once
+public class ZeoMobileHB_Decoder {
+    // member variables
+    public long mDecodedCnt = 0;
+    public long mInvalidCnt = 0;
+    public long mBadCRCCnt = 0;
+
+    // member constants and other static content
+    private static final String _CTAG = "ZHD";
+
+    // constructor
+    public ZeoMobileHB_Decoder() {}
+
+    // decode one PDU presented as a view (which will be re-used by the caller); returns null if the PDU was dropped;
+    // the caller must check mCRCvalid of the returned message before acting upon it
+    // thread context:  BluetoothIOThread, HeadbandReplayThread
+    public ZeoMobileHB_Msg decode(byte[] theBuffer, int theOffset, int theLen) {
+        if (theLen < 12) { mInvalidCnt++; return null; }
+
+        // the first 6 bytes (header and CRC fields) are not included in the CRC calculation
+        int sentCRC = (theBuffer[theOffset + 4] & 0xFF) | ((theBuffer[theOffset + 5] & 0xFF) << 8);
+        int calcCRC = CRC16.compute(theBuffer, theOffset + 6, theLen - 6);
+
+        // the resulting message object retains its bytes, so it needs its own exact-length copy of the view
+        byte[] theBytes = new byte[theLen];
+        System.arraycopy(theBuffer, theOffset, theBytes, 0, theLen);
+
+        if (calcCRC != sentCRC) {
+            // its contents cannot be trusted so it is not decoded into a typed event; it is kept only for diagnostic display
+            mBadCRCCnt++;
+            Log.w(_CTAG+".decode", "PDU (" + theLen + ") MsgType=" + (theBuffer[theOffset + 7] & 0xFF) + " Seq#=" + (theBuffer[theOffset + 9] & 0xFF) + " has a CRC mismatch: sent=" + sentCRC + " calc=" + calcCRC);
+            ZeoMobileHB_Msg theBadMsg = new ZeoMobileHB_Msg(theLen, theBytes, true);
+            theBadMsg.mCRCvalid = false;
+            if (!theBadMsg.mIsValid) {
+                mInvalidCnt++;
+                return null;
+            }
+            theBadMsg.getDisplayString();
+            return theBadMsg;
+        }
+
+        ZeoMobileHB_Msg theMsg;
+        switch (theBytes[7] & 0xFF) {
+            case ZeoMobileHB_Msg.ZEOMOB_HB_MSG_STATE_CHANGE_REPORT:
+                theMsg = new StateChangeEvent(theLen, theBytes);
+                break;
+            case ZeoMobileHB_Msg.ZEOMOB_HB_MSG_REPORT_SLEEP:
+                theMsg = new SleepReportEvent(theLen, theBytes);
+                break;
+            case ZeoMobileHB_Msg.ZEOMOB_HB_MSG_REPORT_ACCELEROMETER:
+            case ZeoMobileHB_Msg.ZEOMOB_HB_MSG_TEST_ACCEL_REPORT:
+                theMsg = new AccelerometerEvent(theLen, theBytes);
+                break;
+            case ZeoMobileHB_Msg.ZEOMOB_HB_MSG_TIME_REPORT:
+                theMsg = new TimeReportEvent(theLen, theBytes);
+                break;
+            default:
+                theMsg = new ZeoMobileHB_Msg(theLen, theBytes, true);
+                break;
+        }
+
+        if (!theMsg.mIsValid) {
+            mInvalidCnt++;
+            Log.w(_CTAG+".decode", "Dropped invalid PDU (" + theLen + "): " + theMsg.getInvalidReason());
+            return null;
+        }
+
+        // pre-build the display string so the UI thread's list adapter need not parse the PDU either
+        theMsg.getDisplayString();
+        mDecodedCnt++;
+        return theMsg;
+    }
+
+    // get a little-endian unsigned 32-bit value
+    private static long getUInt32(byte[] buffer, int pos) {
+        return ((long)(buffer[pos] & 0xFF)) | ((long)(buffer[pos+1] & 0xFF) << 8) | ((long)(buffer[pos+2] & 0xFF) << 16) | ((long)(buffer[pos+3] & 0xFF) << 24);
+    }
+
+    // the headband's state has changed (on-head, docked, sleep onset, etc)
+    public static class StateChangeEvent extends ZeoMobileHB_Msg {
+        public short rStateChange = ZEOMOB_HB_STCHG_NONE;
+
+        public StateChangeEvent(int theLen, byte[] theBytes) {
+            super(theLen, theBytes, true);
+            if (!mIsValid) { return; }
+            if (mRecLen != 16) { mIsValid = false; return; }
+            rStateChange = getUInt8(rBytes, 12);
+        }
+    }
+
+    // the headband's report of the current or most recent sleep night; times are in milliseconds since 1/1/1970, durations in epochs
+    public static class SleepReportEvent extends ZeoMobileHB_Msg {
+        public long rRecord_Timestamp = 0L;
+        public long rStartOfNight_Timestamp = 0L;
+        public long rEndOfNight_Timestamp = 0L;
+        public int rTimeInDeep = 0;
+        public int rTimeInLight = 0;
+        public int rTimeInREM = 0;
+        public int rTimeInWake = 0;
+        public int rTimeToZ = 0;
+        public int rTotalSleep = 0;
+        public int rZQ_Score = 0;
+
+        public SleepReportEvent(int theLen, byte[] theBytes) {
+            super(theLen, theBytes, true);
+            if (!mIsValid) { return; }
+            if (mRecLen != 1156) { mIsValid = false; return; }
+            rRecord_Timestamp = getUInt32(rBytes, 12) * 1000L;
+            rStartOfNight_Timestamp = getUInt32(rBytes, 184) * 1000L;
+            rEndOfNight_Timestamp = getUInt32(rBytes, 60) * 1000L;
+            rTimeInDeep = getUInt16(rBytes, 18);
+            rTimeInLight = getUInt16(rBytes, 20);
+            rTimeInREM = getUInt16(rBytes, 22);
+            rTimeInWake = getUInt16(rBytes, 24);
+            rTimeToZ = getUInt16(rBytes, 26);
+            rTotalSleep = getUInt16(rBytes, 28);
+            rZQ_Score = getUInt16(rBytes, 30);
+        }
+    }
+
+    // accelerometer samples; the sample layout is not yet known so the payload is exposed as-is (it begins at byte 12 of rBytes)
+    public static class AccelerometerEvent extends ZeoMobileHB_Msg {
+        public static final int DATA_OFFSET = 12;
+
+        public AccelerometerEvent(int theLen, byte[] theBytes) {
+            super(theLen, theBytes, true);
+        }
+    }
+
+    // the headband's clock, in reply to a time query
+    public static class TimeReportEvent extends ZeoMobileHB_Msg {
+        public long rHeadband_Timestamp = 0L;
+        public boolean rOffset = false;
+        public boolean rNegative = false;
+        public short rQuerySeqNo = 0;
+
+        public TimeReportEvent(int theLen, byte[] theBytes) {
+            super(theLen, theBytes, true);
+            if (!mIsValid) { return; }
+            if (mRecLen != 24) { mIsValid = false; return; }
+            rHeadband_Timestamp = getUInt32(rBytes, 12) * 1000L + getUInt32(rBytes, 16);
+            rOffset = (rBytes[20] != 0);
+            rNegative = (rBytes[21] != 0);
+            rQuerySeqNo = getUInt8(rBytes, 22);
+        }
+    }
+}
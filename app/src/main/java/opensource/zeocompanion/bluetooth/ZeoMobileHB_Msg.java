@@ -4,6 +4,7 @@ import android.util.Log;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import opensource.zeocompanion.utility.CRC16;
 import opensource.zeocompanion.utility.Utilities;
 
 public class ZeoMobileHB_Msg {
@@ -110,11 +111,22 @@ public class ZeoMobileHB_Msg {
     public boolean mWasSent = false;
     public boolean mIsValid = false;
     public boolean mCRCvalid = false;
+    public boolean mWasReplayed = false;    // received from a capture replay rather than from a live headband
+    private String mDisplayString = null;
+    public long mQueued_Timestamp = 0L;
+    public long mSent_Timestamp = 0L;
+    public long mAcked_Timestamp = 0L;
+    public int mSendAttempts = 0;
 
     public ZeoMobileHB_Msg() {
     }
 
     public ZeoMobileHB_Msg(int theLen, byte[] theBytes) {
+        this(theLen, theBytes, false);
+    }
+
+    // the CRC can be pre-verified by the caller directly upon its receive buffer (see ZeoMobileHB_Decoder)
+    public ZeoMobileHB_Msg(int theLen, byte[] theBytes, boolean crcAlreadyVerified) {
         rBytes = theBytes;
         mRecLen = theLen;
         mIsValid = false;
@@ -136,7 +148,8 @@ public class ZeoMobileHB_Msg {
         if (rDataLen + 12 != mRecLen) { return; }
 
         mIsValid = true;
-        mCRCvalid = verifyCRC();
+        if (crcAlreadyVerified) { mCRCvalid = true; }
+        else { mCRCvalid = verifyCRC(); }
     }
 
     public String getInvalidReason() {
@@ -219,7 +232,7 @@ public class ZeoMobileHB_Msg {
         // ZeoMobile headband uses 16-bit CRC
         // initial state of the CRC is all ones (65535)
         // the first 6 bytes (header and CRC fields) are not included in the CRC calculation
-        rCRC = crc16(CRC16_INIT_CCIT, rBytes, 6, mRecLen);
+        rCRC = CRC16.compute(rBytes, 6, mRecLen - 6);
         setUInt16(rBytes, 4, rCRC);
         Log.d("ZeoMsg.addCRC", "CRC calc=" + rCRC);
     }
@@ -229,24 +242,17 @@ public class ZeoMobileHB_Msg {
         // initial state of the CRC is all ones (65535)
         // the first 6 bytes (header and CRC fields) are not included in the CRC calculation
 
-        int newCRC1 = crc16(CRC16_INIT_CCIT, rBytes, 6, mRecLen);
+        int newCRC1 = CRC16.compute(rBytes, 6, mRecLen - 6);
         if (newCRC1 != rCRC) { Log.d("ZeoMsg.verifyCRC", "CRC mismatch: orig="+rCRC+" != calc="+newCRC1); }
         if (newCRC1 != rCRC) { return false; }
         return true;
     }
 
-    public static final int CRC16_INIT_CCIT = 65535;
-    private static final int[] CRC16_TABLE = { 0, 4129, 8258, 12387, 16516, 20645, 24774, 28903, 33032, 37161, 41290, 45419, 49548, 53677, 57806, 61935, 4657, 528, 12915, 8786, 21173, 17044, 29431, 25302, 37689, 33560, 45947, 41818, 54205, 50076, 62463, 58334, 9314, 13379, 1056, 5121, 25830, 29895, 17572, 21637, 42346, 46411, 34088, 38153, 58862, 62927, 50604, 54669, 13907, 9842, 5649, 1584, 30423, 26358, 22165, 18100, 46939, 42874, 38681, 34616, 63455, 59390, 55197, 51132, 18628, 22757, 26758, 30887, 2112, 6241, 10242, 14371, 51660, 55789, 59790, 63919, 35144, 39273, 43274, 47403, 23285, 19156, 31415, 27286, 6769, 2640, 14899, 10770, 56317, 52188, 64447, 60318, 39801, 35672, 47931, 43802, 27814, 31879, 19684, 23749, 11298, 15363, 3168, 7233, 60846, 64911, 52716, 56781, 44330, 48395, 36200, 40265, 32407, 28342, 24277, 20212, 15891, 11826, 7761, 3696, 65439, 61374, 57309, 53244, 48923, 44858, 40793, 36728, 37256, 33193, 45514, 41451, 53516, 49453, 61774, 57711, 4224, 161, 12482, 8419, 20484, 16421, 28742, 24679, 33721, 37784, 41979, 46042, 49981, 54044, 58239, 62302, 689, 4752, 8947, 13010, 16949, 21012, 25207, 29270, 46570, 42443, 38312, 34185, 62830, 58703, 54572, 50445, 13538, 9411, 5280, 1153, 29798, 25671, 21540, 17413, 42971, 47098, 34713, 38840, 59231, 63358, 50973, 55100, 9939, 14066, 1681, 5808, 26199, 30326, 17941, 22068, 55628, 51565, 63758, 59695, 39368, 35305, 47498, 43435, 22596, 18533, 30726, 26663, 6336, 2273, 14466, 10403, 52093, 56156, 60223, 64286, 35833, 39896, 43963, 48026, 19061, 23124, 27191, 31254, 2801, 6864, 10931, 14994, 64814, 60687, 56684, 52557, 48554, 44427, 40424, 36297, 31782, 27655, 23652, 19525, 15522, 11395, 7392, 3265, 61215, 65342, 53085, 57212, 44955, 49082, 36825, 40952, 28183, 32310, 20053, 24180, 11923, 16050, 3793, 7920 };
+    public static final int CRC16_INIT_CCIT = CRC16.INIT_CCITT;
 
     public int crc16(int seed, byte[] buffer, int startByte, int endByte)
     {
-        int i = seed;
-        for (int pos = startByte; pos < endByte; pos++)
-        {
-            int k = buffer[pos];
-            i = i << 8 & 0xFFFF ^ CRC16_TABLE[(i >> 8 ^ k & 0xFF)];
-        }
-        return i;
+        return CRC16.update(seed, buffer, startByte, endByte - startByte);
     }
 
     public void makeCommand(short command) {
@@ -432,6 +438,23 @@ public class ZeoMobileHB_Msg {
         }
     }
 
+    // the list display string; built once (received messages are pre-built by ZeoMobileHB_Decoder on the Bluetooth side);
+    // a received message that failed its CRC is marked as such
+    // mark as received from a capture replay; the display string may already have been built by the decoder so it is rebuilt
+    public void markReplayed() {
+        mWasReplayed = true;
+        mDisplayString = null;
+    }
+
+    public String getDisplayString() {
+        if (mDisplayString == null) {
+            mDisplayString = "#"+rSeqNo+": "+getMessageTypeString()+": "+getDataString();
+            if (!mWasSent && !mCRCvalid) { mDisplayString = "*BAD CRC* " + mDisplayString; }
+            if (mWasReplayed) { mDisplayString = "*REPLAY* " + mDisplayString; }
+        }
+        return mDisplayString;
+    }
+
     public String getDataString() {
         if (!mIsValid) { return getInvalidReason(); }
         switch (rMsgType) {
@@ -0,0 +1,139 @@
+package opensource.zeocompanion.bluetooth;
+
+// re-combines the Bluetooth RFCOMM packets received from the Zeo Headband into complete PDUs;
+// a packet may contain a partial PDU, several PDUs, or end one PDU and start the next; there may also be garbage before the first header;
+// all bytes are held in a fixed-capacity circular buffer so that no allocations occur once constructed;
+// the header scan resumes where it left off, and scanned-over garbage is discarded as it is passed;
+// a completed PDU is handed out as a view (getPduBuffer/getPduOffset/getPduLength) that is valid only until the next append() or nextPdu();
+// normally the view is directly into the circular buffer; a PDU that wraps around the end of the circular buffer is first copied into a
+// pre-allocated contiguous scratch buffer
+public class ZeoMobileHB_Reassembler {
+    // member variables
+    private byte[] mRing = null;
+    private int mMask = 0;
+    private int mHead = 0;          // position within mRing of the oldest unconsumed byte
+    private int mCount = 0;         // quantity of unconsumed bytes
+    private byte[] mScratch = null;
+    private byte[] mPduBuffer = null;
+    private int mPduOffset = 0;
+    private int mPduLength = 0;
+    public long mPdusFound = 0;
+    public long mGarbageBytes = 0;  // bytes discarded while searching for a header
+    public long mOverflowBytes = 0; // bytes discarded because the circular buffer was full
+
+    // member constants and other static content
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int MAX_PDU_LEN = 4096;     // a header claiming a longer PDU is presumed to be garbage that happened to match "HMSG"
+    public static final int BASE_PDU_LEN = 12;
+
+    // constructors; capacity is rounded up to a power of two, and must be able to hold at least two maximum-length PDUs
+    public ZeoMobileHB_Reassembler() {
+        this(DEFAULT_CAPACITY);
+    }
+    public ZeoMobileHB_Reassembler(int capacity) {
+        int size = 16;
+        while (size < capacity || size < MAX_PDU_LEN * 2) { size = size << 1; }
+        mRing = new byte[size];
+        mMask = size - 1;
+        mScratch = new byte[MAX_PDU_LEN];
+    }
+
+    // discard all buffered bytes; used when a new connection is started
+    public void reset() {
+        mHead = 0;
+        mCount = 0;
+        mPduBuffer = null;
+        mPduOffset = 0;
+        mPduLength = 0;
+    }
+
+    // quantity of bytes awaiting reassembly
+    public int available() { return mCount; }
+
+    // accessors for the view of the most recent PDU returned by nextPdu()
+    public byte[] getPduBuffer() { return mPduBuffer; }
+    public int getPduOffset() { return mPduOffset; }
+    public int getPduLength() { return mPduLength; }
+
+    // append the received packet bytes; if the circular buffer would overflow then the oldest bytes are discarded;
+    // returns the quantity of bytes that were discarded
+    public int append(byte[] theBytes, int theOffset, int theLen) {
+        if (theLen <= 0) { return 0; }
+        int capacity = mRing.length;
+        int dropped = 0;
+        if (theLen > capacity) {
+            // only the newest portion of the packet can be kept
+            dropped = mCount + (theLen - capacity);
+            theOffset = theOffset + (theLen - capacity);
+            theLen = capacity;
+            mHead = 0;
+            mCount = 0;
+        } else if (mCount + theLen > capacity) {
+            dropped = mCount + theLen - capacity;
+            mHead = (mHead + dropped) & mMask;
+            mCount = mCount - dropped;
+        }
+        mOverflowBytes = mOverflowBytes + dropped;
+
+        int tail = (mHead + mCount) & mMask;
+        int firstLen = Math.min(theLen, capacity - tail);
+        System.arraycopy(theBytes, theOffset, mRing, tail, firstLen);
+        if (firstLen < theLen) { System.arraycopy(theBytes, theOffset + firstLen, mRing, 0, theLen - firstLen); }
+        mCount = mCount + theLen;
+        return dropped;
+    }
+
+    // locate the next complete PDU; returns true if one is available via the view accessors, or false if more bytes are needed
+    public boolean nextPdu() {
+        mPduBuffer = null;
+        mPduLength = 0;
+        while (mCount >= 4) {
+            // resumable header scan; the head is always the scan cursor, so bytes already rejected are never re-examined
+            if (byteAt(0) != 0x48 || byteAt(1) != 0x4d || byteAt(2) != 0x53 || byteAt(3) != 0x47) {
+                consume(1);
+                mGarbageBytes++;
+                continue;
+            }
+
+            // found a message header; need a complete base PDU to know the full length
+            if (mCount < BASE_PDU_LEN) { return false; }
+            int neededLen = BASE_PDU_LEN + ((byteAt(10) & 0xFF) | ((byteAt(11) & 0xFF) << 8));
+            if (neededLen > MAX_PDU_LEN) {
+                // not a believable PDU; skip past the false header and keep scanning
+                consume(1);
+                mGarbageBytes++;
+                continue;
+            }
+            if (mCount < neededLen) { return false; }   // PDU is incomplete; wait for more packets
+
+            // complete PDU is present; expose it as a view
+            if (mHead + neededLen <= mRing.length) {
+                mPduBuffer = mRing;
+                mPduOffset = mHead;
+            } else {
+                int firstLen = mRing.length - mHead;
+                System.arraycopy(mRing, mHead, mScratch, 0, firstLen);
+                System.arraycopy(mRing, 0, mScratch, firstLen, neededLen - firstLen);
+                mPduBuffer = mScratch;
+                mPduOffset = 0;
+            }
+            mPduLength = neededLen;
+            consume(neededLen);
+            mPdusFound++;
+            return true;
+        }
+        return false;   // fewer than 4 bytes remain; they may be the start of a header
+    }
+
+    // get a byte relative to the head
+    private byte byteAt(int index) {
+        return mRing[(mHead + index) & mMask];
+    }
+
+    // discard bytes from the head
+    private void consume(int theLen) {
+        mHead = (mHead + theLen) & mMask;
+        mCount = mCount - theLen;
+        if (mCount == 0) { mHead = 0; }
+    }
+}
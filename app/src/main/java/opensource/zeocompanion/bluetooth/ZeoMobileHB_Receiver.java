@@ -0,0 +1,63 @@
+package opensource.zeocompanion.bluetooth;
+
+import android.util.Log;
+
+// the receive path of the Zeo Headband protocol:  re-combines the received Bluetooth RFCOMM packets into PDUs, decodes and validates
+// each PDU, and passes each resulting message object to its sink; it has no dependencies upon the Bluetooth stack or the Activity,
+// so that a live connection (BluetoothIOThread), a replay of a capture (HeadbandStreamReplayer), and the JVM unit tests all
+// exercise the identical path; not thread-safe, so it must only be fed by one thread at a time
+public class ZeoMobileHB_Receiver implements HeadbandStreamReplayer.PacketSink {
+    // member variables
+    private final ZeoMobileHB_Reassembler mReassembler = new ZeoMobileHB_Reassembler();
+    private final ZeoMobileHB_Decoder mDecoder = new ZeoMobileHB_Decoder();
+    private MsgSink mSink = null;
+
+    // member constants and other static content
+    private static final String _CTAG = "ZHR";
+
+    // the consumer of the decoded messages; ZeoMobileHB_BluetoothHandler is the normal consumer
+    public interface MsgSink {
+        void msg_received(ZeoMobileHB_Msg theMsg);
+    }
+
+    // constructor
+    public ZeoMobileHB_Receiver(MsgSink theSink) {
+        mSink = theSink;
+    }
+
+    // discard any partial PDU; the decode counters are retained
+    // thread context:  HeadbandActivity (while nothing is feeding packets)
+    public void reset() {
+        mReassembler.reset();
+    }
+
+    // thread context:  BluetoothIOThread, HeadbandReplayThread
+    public void message_received(int theLen, byte[] theBytes) {
+        // Bluetooth RFCOMM message packets will have to be re-combined into PDUs;
+        // it is possble that more than one PDU could be in a packet, or a packet can end a PDU then start a next;
+        // remember the buffer from BluetoothIOThread is re-used, always 1024 bytes; the reassembler copies the packet into its circular buffer
+        if (theLen <= 0) { return; }    // ignore zero-length packets
+        int dropped = mReassembler.append(theBytes, 0, theLen);
+        if (dropped > 0) { Log.w(_CTAG+".msgrcv", "Reassembly buffer overflowed; discarded "+dropped+" bytes"); }
+
+        while (mReassembler.nextPdu()) {
+            // complete PDU is present; decode and validate it here, then pass only the resulting message object to the sink
+            ZeoMobileHB_Msg theMsg = mDecoder.decode(mReassembler.getPduBuffer(), mReassembler.getPduOffset(), mReassembler.getPduLength());
+            if (theMsg != null) { mSink.msg_received(theMsg); }
+        }
+    }
+
+    // quantity of PDUs that have been successfully decoded
+    // thread context:  any
+    public long getPduCount() { return mDecoder.mDecodedCnt; }
+
+    // quantities of PDUs that failed their CRC (passed to the sink only for diagnostic display) and that were structurally invalid (dropped)
+    // thread context:  any
+    public long getBadCRCPduCount() { return mDecoder.mBadCRCCnt; }
+    public long getInvalidPduCount() { return mDecoder.mInvalidCnt; }
+
+    // quantities of bytes skipped while searching for a PDU header, and discarded when the reassembly buffer overflowed
+    // thread context:  any
+    public long getGarbageByteCount() { return mReassembler.mGarbageBytes; }
+    public long getOverflowByteCount() { return mReassembler.mOverflowBytes; }
+}
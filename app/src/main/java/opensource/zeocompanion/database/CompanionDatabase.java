@@ -8,12 +8,15 @@ import android.database.DatabaseErrorHandler;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.preference.PreferenceManager;
 import android.provider.BaseColumns;
 import android.util.Log;
 import com.myzeo.android.api.data.MyZeoExportDataContract;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import opensource.zeocompanion.BuildConfig;
 import opensource.zeocompanion.ZeoCompanionApplication;
 import opensource.zeocompanion.zeo.ZAH_SleepRecord;
@@ -32,11 +35,18 @@ public class CompanionDatabase extends SQLiteOpenHelper {
     // member constants and other static content
     private static final String _CTAG = "DBH";
     public static final String DATABASE_NAME = "ZeoCompanionDatabase.db";
-    private static final int DATABASE_VERSION = 5;  // WARNING: changing this value will cause invocation of onUpdate for existing databases in existing Devices
+    private static final int DATABASE_VERSION = 7;  // WARNING: changing this value will cause invocation of onUpdate for existing databases in existing Devices
 
     public static final int DBH_ERROR_NONE = 0;
     public static final int DBH_ERROR_SQL_ERROR = -100;
 
+    // queries that bind a list of record IDs do so in batches of at most this many; stays well below SQLite's default limit of 999 bound variables
+    public static final int MAX_BOUND_VARIABLES_PER_QUERY = 500;
+
+    // the Zeo App replication queries each table in ascending record ID order; a delta replication only queries the records beyond the table's checkpoint
+    public static final String ZEO_REPLICATION_SORT_ORDER = BaseColumns._ID + " ASC";
+    public static final String ZEO_REPLICATION_DELTA_SELECTION = BaseColumns._ID + ">? OR updated_on>?";
+
     /////////////////////////////////////////////////////////////
     // The following methods are used at startup or Factory Reset
     /////////////////////////////////////////////////////////////
@@ -62,6 +72,7 @@ public class CompanionDatabase extends SQLiteOpenHelper {
             db.execSQL("CREATE TABLE IF NOT EXISTS " + CompanionDatabaseContract.CompanionSystem.SQL_DEFINITION);
             db.execSQL("CREATE TABLE IF NOT EXISTS " + CompanionDatabaseContract.CompanionAlerts.SQL_DEFINITION);
             db.execSQL("CREATE TABLE IF NOT EXISTS " + CompanionDatabaseContract.CompanionSleepEpisodes.SQL_DEFINITION);
+            for (String index: CompanionDatabaseContract.CompanionSleepEpisodes.SQL_INDEXES) { db.execSQL("CREATE INDEX IF NOT EXISTS " + index); }
             db.execSQL("INSERT OR REPLACE INTO " + CompanionDatabaseContract.CompanionSystem.TABLE_NAME + " VALUES (1,NULL,0,'"+ BuildConfig.VERSION_NAME+"',"+DATABASE_VERSION+",NULL)");
         } catch (Exception e) {
             ZeoCompanionApplication.postToErrorLog(_CTAG + ".onCreate", e, "Failed to create the App database");    // automatically posts a Log.e
@@ -206,6 +217,47 @@ public class CompanionDatabase extends SQLiteOpenHelper {
             Log.i(_CTAG + ".onUpgrade", "Database successfully upgraded to version "+mVersion);
         }
 
+        if (oldVersion <= 5) {
+            // upgrade version 5 database to version 6
+            // add secondary indexes to the sleep_journal_records table
+            try {
+                for (String index: CompanionDatabaseContract.CompanionSleepEpisodes.SQL_INDEXES) { db.execSQL("CREATE INDEX IF NOT EXISTS " + index); }
+            } catch (Exception e) {
+                ZeoCompanionApplication.postToErrorLog(_CTAG + ".onUpgrade", e, "Upgrade to 6: failed adding indexes to sleep_journal_records table");    // automatically posts a Log.e
+                db.setVersion(mVersion);
+                return;
+            }
+
+            // add secondary indexes to the replicated sleep_records table if replication has ever been performed
+            createZeoTableIndexes(db, CompanionDatabaseContract.ZeoSleepRecords.SQL_INDEXES);
+
+            mVersion = 6;
+            Log.i(_CTAG + ".onUpgrade", "Database successfully upgraded to version "+mVersion);
+        }
+
+        if (oldVersion <= 6) {
+            // upgrade version 6 database to version 7
+            // alter the sleep_journal_records table with the packed events and attributes columns
+            try {
+                db.execSQL("ALTER TABLE "+CompanionDatabaseContract.CompanionSleepEpisodes.TABLE_NAME_INTERNAL+" ADD COLUMN "+CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_PACKED+" BLOB");
+                db.execSQL("ALTER TABLE "+CompanionDatabaseContract.CompanionSleepEpisodes.TABLE_NAME_INTERNAL+" ADD COLUMN "+CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_PACKED+" BLOB");
+                db.execSQL("ALTER TABLE "+CompanionDatabaseContract.CompanionSleepEpisodes.TABLE_NAME_INTERNAL+" ADD COLUMN "+CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_PACKED+" BLOB");
+            } catch (Exception e) {
+                ZeoCompanionApplication.postToErrorLog(_CTAG + ".onUpgrade", e, "Upgrade to 7: failed adding new columns to sleep_journal_records table");    // automatically posts a Log.e
+                db.setVersion(mVersion);
+                return;
+            }
+
+            // convert every record's CSV strings into the packed columns
+            if (convertAllCSVstringsToPacked(db) < 0) {
+                db.setVersion(mVersion);
+                return;
+            }
+
+            mVersion = 7;
+            Log.i(_CTAG + ".onUpgrade", "Database successfully upgraded to version "+mVersion);
+        }
+
         // reset the values in the System Record to reflect the successful upgrade(s)
         if (mVersion >= 3) {
             CompanionSystemRec sr = getSystemRec_internal(db);
@@ -476,6 +528,27 @@ public class CompanionDatabase extends SQLiteOpenHelper {
         return rowID;
     }
 
+    // perform an update of the one record of the indicated _ID; works for all database tables having an _ID column; only the columns
+    // present in the values are changed; returns the _ID, or DBH_ERROR_SQL_ERROR if the update failed or the record no longer exists
+    public long updateRecByID(String table, ContentValues values, long id) {
+        if (mInvalidDB) { return -1; }
+        SQLiteDatabase db = getWritableDatabase();
+        return updateRecByID(db, table, values, id, false);
+    }
+    public long updateRecByID(SQLiteDatabase db, String table, ContentValues values, long id, boolean noAlert) {
+        try {
+            int rows = db.update(table, values, BaseColumns._ID + "=?", new String[] { String.valueOf(id) });
+            if (rows != 1) {
+                ZeoCompanionApplication.postToErrorLog(_CTAG + ".updateRecByID", "Records updated: " + rows, "For DB Table " + table + " ID=" + id, noAlert); // automatically posts a Log.e
+                return DBH_ERROR_SQL_ERROR;
+            }
+        } catch (SQLException e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".updateRecByID", e, "For DB Table " + table + " ID=" + id, null, noAlert);    // automatically posts a Log.e
+            return DBH_ERROR_SQL_ERROR;
+        }
+        return id;
+    }
+
     // perform a delete of a record or records; works for all database tables;
     public void deleteRecs(String table, String where, String[] values) {
         if (mInvalidDB) { return; }
@@ -592,21 +665,97 @@ public class CompanionDatabase extends SQLiteOpenHelper {
         return qty;
     }
 
-    // get all existing sleep episode records, sorted in descending timestamp order (newest to oldest)
+    // one query as issued by the query methods below; the hot queries are only built through the static factory methods that follow
+    // so that CompanionDatabaseQueryPlanTest can EXPLAIN QUERY PLAN exactly the statements the handler runs
+    static final class Query {
+        final String mTable;
+        final String[] mColumns;
+        final String mWhere;
+        final String[] mValues;
+        final String mSortOrder;
+        final String mLimit;
+
+        // constructor
+        Query(String table, String[] columns, String where, String[] values, String sortOrder, String limit) {
+            mTable = table;
+            mColumns = columns;
+            mWhere = where;
+            mValues = values;
+            mSortOrder = sortOrder;
+            mLimit = limit;
+        }
+
+        // run the query; the caller must close the cursor
+        Cursor run(SQLiteDatabase db) {
+            return db.query(mTable, mColumns, mWhere, mValues, null, null, mSortOrder, mLimit);
+        }
+
+        // the SQL statement that run() causes SQLiteDatabase to compile
+        String toSQL() {
+            return SQLiteQueryBuilder.buildQueryString(false, mTable, mColumns, mWhere, null, null, mSortOrder, mLimit);
+        }
+    }
+
+    private static final String JOURNAL_SORT_ORDER = CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP + " DESC";
+    private static final String ZEO_SLEEPREC_SORT_ORDER = CompanionDatabaseContract.ZeoSleepRecords.COLUMN_START_OF_NIGHT + " DESC";
+
+    static Query queryAllJournalSummaries() {
+        return new Query(CompanionSleepEpisodes_TABLE_NAME, CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION_SUMMARY,
+                null, null, JOURNAL_SORT_ORDER, null);
+    }
+    static Query queryJournalAfterDate(long fromTimestamp) {
+        return new Query(CompanionSleepEpisodes_TABLE_NAME, CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION,
+                CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP + ">=?",
+                new String[] { String.valueOf(fromTimestamp) }, JOURNAL_SORT_ORDER, null);
+    }
+    static Query queryJournalLinkedToZSEid(long ZSE_id) {
+        return new Query(CompanionSleepEpisodes_TABLE_NAME, CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION,
+                CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ZEO_SLEEP_EPISODE_ID + "=?",
+                new String[] { String.valueOf(ZSE_id) }, JOURNAL_SORT_ORDER, null);
+    }
+    static Query queryJournalOfID(long id) {
+        return new Query(CompanionSleepEpisodes_TABLE_NAME, CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION,
+                CompanionDatabaseContract.CompanionSleepEpisodes._ID + "=?",
+                new String[] { String.valueOf(id) }, JOURNAL_SORT_ORDER, null);
+    }
+    static Query queryJournalHypnogramsOfIDs(long[] ids, int fromInx, int qty) {
+        StringBuilder where = new StringBuilder(CompanionDatabaseContract.CompanionSleepEpisodes._ID + " IN (");
+        String[] values = new String[qty];
+        for (int i = 0; i < qty; i++) {
+            if (i > 0) { where.append(','); }
+            where.append('?');
+            values[i] = String.valueOf(ids[fromInx + i]);
+        }
+        where.append(')');
+        return new Query(CompanionSleepEpisodes_TABLE_NAME, CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION_AMENDED_HYPNOGRAMS,
+                where.toString(), values, null, null);
+    }
+    static Query queryZeoSleepRecsAfterDate(long fromTimestamp) {
+        String where = null;
+        String[] values = null;
+        if (fromTimestamp > 0L) {
+            where = CompanionDatabaseContract.ZeoSleepRecords.COLUMN_START_OF_NIGHT + ">=?";
+            values = new String[] { String.valueOf(fromTimestamp) };
+        }
+        return new Query(CompanionDatabaseContract.ZeoSleepRecords.TABLE_NAME, CompanionDatabaseContract.ZeoSleepRecords.PROJECTION_AVAILABLE,
+                where, values, ZEO_SLEEPREC_SORT_ORDER, null);
+    }
+    static Query queryAllZeoSleepSummaries() {
+        return new Query(CompanionDatabaseContract.ZeoSleepRecords.TABLE_NAME, ZAH_SleepRecord.ZAH_SLEEPREC_SUMMARY_COLS,
+                null, null, ZEO_SLEEPREC_SORT_ORDER, null);
+    }
+    static Query queryZeoTableIDsAndUpdateds(String theTable) {
+        return new Query(theTable, new String[] { BaseColumns._ID, "updated_on" }, null, null, ZEO_REPLICATION_SORT_ORDER, null);  // the replication diff depends upon the sort order
+    }
+
+    // get all existing sleep episode records, sorted in descending timestamp order (newest to oldest);
+    // the amended hypnograms are not included; the resulting records load them on demand
     public Cursor getAllCompanionSleepEpisodesRecs() {
         if (mInvalidDB) { return null; }
         SQLiteDatabase db = getReadableDatabase();
-        String sortOrder = CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP + " DESC";
         Cursor cursor = null;
         try {
-            cursor = db.query(
-                    CompanionSleepEpisodes_TABLE_NAME,   // table name
-                    CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION,   // columns to get
-                    null,   // columns for optional WHERE clause
-                    null,   // values for optional WHERE clause
-                    null,   // optional row groups
-                    null,   // filter by row groups
-                    sortOrder);    // sort order
+            cursor = queryAllJournalSummaries().run(db);
         } catch (SQLException e) {
             ZeoCompanionApplication.postToErrorLog(_CTAG + ".getAllCompanionSleepEpisodesRecs", e, "For DB Table " + CompanionSleepEpisodes_TABLE_NAME);
             if (cursor != null) { cursor.close(); cursor = null; }
@@ -614,56 +763,134 @@ public class CompanionDatabase extends SQLiteOpenHelper {
         return cursor;
     }
 
-    // reset all amended flags
+    // reset all amended flags; done directly in SQL rather than through CompanionSleepEpisodesRec since this is invoked part-way through
+    // onUpgrade when the table does not yet have all the columns of the current PROJECTION
     private boolean resetAllAmendedFlags(SQLiteDatabase db) {
-        String sortOrder = CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP + " DESC";
+        try {
+            ContentValues values = new ContentValues();
+            values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMENDED, 0);
+            db.update(CompanionSleepEpisodes_TABLE_NAME, values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMENDED + "!=0", null);
+            return true;
+        } catch (SQLException e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".resetAllAmendedFlags", e, "For DB Table " + CompanionSleepEpisodes_TABLE_NAME);
+        }
+        return false;
+    }
+
+    // one-time conversion of all sleep episode records' CSV strings for events and attributes into their packed form (database version 7);
+    // runs within onUpgrade's transaction; the CSV strings are left in-place until the record is next saved (see writeAllCSVstrings for
+    // the copies made for backups); records whose strings cannot be converted are counted as failures and get converted when read
+    private int convertAllCSVstringsToPacked(SQLiteDatabase db) {
+        final String[] projection = {
+                CompanionDatabaseContract.CompanionSleepEpisodes._ID,
+                CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_CSV_STRING,
+                CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_CSV_STRING,
+                CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_CSV_STRING
+        };
+        int converted = 0;
+        int failed = 0;
         Cursor cursor = null;
         try {
-            cursor = db.query(
-                    CompanionSleepEpisodes_TABLE_NAME,   // table name
-                    CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION,   // columns to get
-                    null,   // columns for optional WHERE clause
-                    null,   // values for optional WHERE clause
-                    null,   // optional row groups
-                    null,   // filter by row groups
-                    sortOrder);    // sort order
+            cursor = db.query(CompanionSleepEpisodes_TABLE_NAME, projection, null, null, null, null, null);
             if (cursor == null) {
-                ZeoCompanionApplication.postToErrorLog(_CTAG + ".resetAllAmendedFlags", "Cursor==null", "For DB Table " + CompanionSleepEpisodes_TABLE_NAME);
-                return false;
+                ZeoCompanionApplication.postToErrorLog(_CTAG + ".convertAllCSVstringsToPacked", "Cursor==null", "For DB Table " + CompanionSleepEpisodes_TABLE_NAME);
+                return -1;
             }
-            if (cursor.moveToFirst()) {
-                do {
-                    CompanionSleepEpisodesRec rec = new CompanionSleepEpisodesRec(cursor);
-                    if (rec.rAmendedFlags != 0) {
-                        rec.rAmendedFlags = 0;
-                        rec.saveToDB(db, true);
-                    }
-                } while (cursor.moveToNext());
-                cursor.close();
-                return true;
+            String where = CompanionDatabaseContract.CompanionSleepEpisodes._ID + "=?";
+            String[] whereValues = new String[1];
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                try {
+                    ContentValues values = new ContentValues();
+                    putPackedOrNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_PACKED,
+                            CompanionSleepEpisodePackedCodec.encodeEventsFromCSV(cursor.isNull(1) ? null : cursor.getString(1)));
+                    putPackedOrNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_PACKED,
+                            CompanionSleepEpisodePackedCodec.encodeFixedAttribsFromCSV(cursor.isNull(2) ? null : cursor.getString(2)));
+                    putPackedOrNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_PACKED,
+                            CompanionSleepEpisodePackedCodec.encodeVariAttribsFromCSV(cursor.isNull(3) ? null : cursor.getString(3)));
+                    whereValues[0] = String.valueOf(id);
+                    db.update(CompanionSleepEpisodes_TABLE_NAME, values, where, whereValues);
+                    converted++;
+                } catch (RuntimeException e) {
+                    // a damaged CSV string; leave the record's strings in-place
+                    ZeoCompanionApplication.postToErrorLog(_CTAG + ".convertAllCSVstringsToPacked", e, "CSE ID=" + id);
+                    failed++;
+                }
             }
+            cursor.close();
         } catch (SQLException e) {
-            ZeoCompanionApplication.postToErrorLog(_CTAG + ".resetAllAmendedFlags", e, "For DB Table " + CompanionSleepEpisodes_TABLE_NAME);
-            if (cursor != null) { cursor.close(); cursor = null; }
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".convertAllCSVstringsToPacked", e, "For DB Table " + CompanionSleepEpisodes_TABLE_NAME);
+            if (cursor != null) { cursor.close(); }
+            return -1;
         }
-        return false;
+        Log.i(_CTAG + ".onUpgrade", "Converted " + converted + " sleep journal records to packed events and attributes; " + failed + " failed");
+        return converted;
+    }
+    private static void putPackedOrNull(ContentValues values, String column, byte[] packed) {
+        if (packed == null) { values.putNull(column); }
+        else { values.put(column, packed); }
+    }
+
+    // Thread context: main thread
+    // write all sleep episode records' CSV strings for events and attributes from their packed form; saves only store the packed form,
+    // so this is done just before a backup copy of the database is made, letting an older App version (before database version 7)
+    // that restores the backup still read the events and attributes; returns the quantity of records written or -1 upon error
+    public int writeAllCSVstrings() {
+        if (mInvalidDB) { return -1; }
+        if (mVersion < 7) { return 0; }     // the CSV strings are still the only storage form
+        final String[] projection = {
+                CompanionDatabaseContract.CompanionSleepEpisodes._ID,
+                CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_PACKED,
+                CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_PACKED,
+                CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_PACKED
+        };
+        SQLiteDatabase db = getWritableDatabase();
+        int written = 0;
+        Cursor cursor = null;
+        db.beginTransaction();
+        try {
+            cursor = db.query(CompanionSleepEpisodes_TABLE_NAME, projection, null, null, null, null, null);
+            if (cursor == null) {
+                ZeoCompanionApplication.postToErrorLog(_CTAG + ".writeAllCSVstrings", "Cursor==null", "For DB Table " + CompanionSleepEpisodes_TABLE_NAME);
+                return -1;
+            }
+            String where = CompanionDatabaseContract.CompanionSleepEpisodes._ID + "=?";
+            String[] whereValues = new String[1];
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                values.clear();
+                putCSVorNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_CSV_STRING,
+                        CompanionSleepEpisodePackedCodec.toEventsCSV(cursor.isNull(1) ? null : cursor.getBlob(1)));
+                putCSVorNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_CSV_STRING,
+                        CompanionSleepEpisodePackedCodec.toFixedAttribsCSV(cursor.isNull(2) ? null : cursor.getBlob(2)));
+                putCSVorNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_CSV_STRING,
+                        CompanionSleepEpisodePackedCodec.toVariAttribsCSV(cursor.isNull(3) ? null : cursor.getBlob(3)));
+                whereValues[0] = String.valueOf(cursor.getLong(0));
+                db.update(CompanionSleepEpisodes_TABLE_NAME, values, where, whereValues);
+                written++;
+            }
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".writeAllCSVstrings", e, "For DB Table " + CompanionSleepEpisodes_TABLE_NAME);
+            written = -1;
+        } finally {
+            if (cursor != null) { cursor.close(); }
+            db.endTransaction();
+        }
+        return written;
+    }
+    private static void putCSVorNull(ContentValues values, String column, String csvStr) {
+        if (csvStr == null) { values.putNull(column); }
+        else { values.put(column, csvStr); }
     }
 
     // get existing sleep episode records that are later than the specified timestamp, sorted in descending timestamp order
     public Cursor getAllCompanionSleepEpisodesRecsAfterDate(long fromTimestamp) {
         if (mInvalidDB) { return null; }
         SQLiteDatabase db = getReadableDatabase();
-        String sortOrder = CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP + " DESC";
         Cursor cursor = null;
         try {
-            cursor = db.query(
-                    CompanionSleepEpisodes_TABLE_NAME,   // table name
-                    CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION,   // columns to get
-                    CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP + ">=?",  // columns for optional WHERE clause
-                    new String[]{String.valueOf(fromTimestamp)},                                                // values for optional WHERE clause
-                    null,   // optional row groups
-                    null,   // filter by row groups
-                    sortOrder);    // sort order
+            cursor = queryJournalAfterDate(fromTimestamp).run(db);
         } catch (SQLException e) {
             ZeoCompanionApplication.postToErrorLog(_CTAG + ".getAllCompanionSleepEpisodesRecsAfterDate", e, "For DB Table " + CompanionSleepEpisodes_TABLE_NAME + " Timestamp=" + fromTimestamp);
             if (cursor != null) { cursor.close(); cursor = null; }
@@ -675,17 +902,9 @@ public class CompanionDatabase extends SQLiteOpenHelper {
     public Cursor getAllCompanionSleepEpisodesRecsLinkedToZSEid(long ZSE_id) {
         if (mInvalidDB) { return null; }
         SQLiteDatabase db = getReadableDatabase();
-        String sortOrder = CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP + " DESC";
         Cursor cursor = null;
         try {
-            cursor = db.query(
-                    CompanionSleepEpisodes_TABLE_NAME,   // table name
-                    CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION,   // columns to get
-                    CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ZEO_SLEEP_EPISODE_ID + "=?",  // columns for optional WHERE clause
-                    new String[]{String.valueOf(ZSE_id)},                                                // values for optional WHERE clause
-                    null,   // optional row groups
-                    null,   // filter by row groups
-                    sortOrder);    // sort order
+            cursor = queryJournalLinkedToZSEid(ZSE_id).run(db);
         } catch (SQLException e) {
             ZeoCompanionApplication.postToErrorLog(_CTAG + ".getAllCompanionSleepEpisodesRecsLinkedToZSEid", e, "For DB Table " + CompanionSleepEpisodes_TABLE_NAME + " ZSE ID=" + ZSE_id);
             if (cursor != null) { cursor.close(); cursor = null; }
@@ -697,17 +916,9 @@ public class CompanionDatabase extends SQLiteOpenHelper {
     public CompanionSleepEpisodesRec getSpecifiedCompanionSleepEpisodeRecOfID(long id) {
         if (mInvalidDB) { return null; }
         SQLiteDatabase db = getReadableDatabase();
-        String sortOrder = CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP + " DESC";
         Cursor cursor = null;
         try {
-            cursor =  db.query(
-                    CompanionSleepEpisodes_TABLE_NAME,    // data manager, database and table name
-                    CompanionDatabaseContract.CompanionSleepEpisodes.PROJECTION,          // columns to get
-                    CompanionDatabaseContract.CompanionSleepEpisodes._ID + "=?",       // columns for optional WHERE clause
-                    new String[]{String.valueOf(id)},       // values for optional WHERE clause
-                    null,
-                    null,
-                    sortOrder); // sort order
+            cursor = queryJournalOfID(id).run(db);
             if (cursor == null) { return null; }
             if (!cursor.moveToFirst()) { cursor.close(); return null; }
             CompanionSleepEpisodesRec newRec = new CompanionSleepEpisodesRec(cursor);
@@ -720,6 +931,22 @@ public class CompanionDatabase extends SQLiteOpenHelper {
         return null;
     }
 
+    // get the amended hypnograms of the specified sleep episode records in one query; the caller must close the cursor;
+    // the quantity of IDs per call must stay below SQLite's limit on bound parameters
+    public Cursor getSpecifiedCompanionSleepEpisodesHypnograms(long[] ids, int fromInx, int qty) {
+        if (mInvalidDB) { return null; }
+        if (qty <= 0) { return null; }
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = queryJournalHypnogramsOfIDs(ids, fromInx, qty).run(db);
+        } catch (SQLException e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".getSpecifiedCompanionSleepEpisodesHypnograms", e, "For DB Table " + CompanionSleepEpisodes_TABLE_NAME + " IDs qty=" + qty);
+            if (cursor != null) { cursor.close(); cursor = null; }
+        }
+        return cursor;
+    }
+
     // get all Attribute definition records; sorted in ascending display order
     public Cursor getAllAttributeRecsSortedInvSleepStageDisplayOrder() {
         if (mInvalidDB) { return null; }
@@ -965,23 +1192,9 @@ public class CompanionDatabase extends SQLiteOpenHelper {
     public Cursor getAllZeoSleepRecsAfterDate(long fromTimestamp) {
         if (mInvalidDB) { return null; }
         SQLiteDatabase db = getReadableDatabase();
-        String sortOrder = CompanionDatabaseContract.ZeoSleepRecords.COLUMN_START_OF_NIGHT + " DESC";
-        String where = null;
-        String[] values = null;
-        if (fromTimestamp > 0L) {
-            where = CompanionDatabaseContract.ZeoSleepRecords.COLUMN_START_OF_NIGHT + ">=?";
-            values = new String[] { String.valueOf(fromTimestamp) };
-        }
         Cursor cursor = null;
         try {
-            cursor = db.query(
-                    CompanionDatabaseContract.ZeoSleepRecords.TABLE_NAME,   // table name
-                    CompanionDatabaseContract.ZeoSleepRecords.PROJECTION_AVAILABLE,   // columns to get
-                    where,  // columns for optional WHERE clause
-                    values, // values for optional WHERE clause
-                    null,   // optional row groups
-                    null,   // filter by row groups
-                    sortOrder);    // sort order
+            cursor = queryZeoSleepRecsAfterDate(fromTimestamp).run(db);
         } catch (SQLException e) {
             String msg = e.getMessage();
             if (!msg.contains("no such table")) {   // a "no such table" exception is expected here if no replication has been performed
@@ -993,6 +1206,26 @@ public class CompanionDatabase extends SQLiteOpenHelper {
         return cursor;
     }
 
+    // Thread context: main thread
+    // get the summary-only columns (ZAH_SLEEPREC_SUMMARY_COLS) of all the Zeo Sleep records, sorted newest to oldest; the hypnogram BLOBs are not read;
+    // remember the table may not exist so need to detect that
+    public Cursor getAllZeoSleepSummaryRecs() {
+        if (mInvalidDB) { return null; }
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = queryAllZeoSleepSummaries().run(db);
+        } catch (SQLException e) {
+            String msg = e.getMessage();
+            if (!msg.contains("no such table")) {   // a "no such table" exception is expected here if no replication has been performed
+                ZeoCompanionApplication.mZeoAppHandler.disableReplication();
+                ZeoCompanionApplication.postToErrorLog(_CTAG + ".getAllZeoSleepSummaryRecs", e); // automatically posts a Log.e
+            }
+            if (cursor != null) { cursor.close(); cursor = null;}
+        }
+        return cursor;
+    }
+
     // Thread context: main thread
     // purge all Zeo App replication tables
     public void purgeAllZeoTables() {
@@ -1007,6 +1240,7 @@ public class CompanionDatabase extends SQLiteOpenHelper {
         db.execSQL("DROP TABLE IF EXISTS " + CompanionDatabaseContract.ZeoAlarms.TABLE_NAME);
         db.execSQL("DROP TABLE IF EXISTS " + CompanionDatabaseContract.ZeoHeadbandAsserts.TABLE_NAME);
         db.execSQL("DROP TABLE IF EXISTS " + CompanionDatabaseContract.ZeoHeadbandResets.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + CompanionDatabaseContract.ZeoReplicationCheckpoints.TABLE_NAME);
     }
 
     // Thread context: ReplicateZeoDatabase thread
@@ -1046,49 +1280,125 @@ public class CompanionDatabase extends SQLiteOpenHelper {
         SQLiteDatabase db = getWritableDatabase();
         try {
             db.execSQL("CREATE TABLE IF NOT EXISTS  " + sqlDefinition);
-            return true;
         } catch (SQLException e) {
             ZeoCompanionApplication.mZeoAppHandler.disableReplication();
             ZeoCompanionApplication.postToErrorLog( _CTAG + ".createZeoTable", e);   // automatically posts a Log.e
+            return false;
+        }
+        if (sqlDefinition.equals(CompanionDatabaseContract.ZeoSleepRecords.SQL_DEFINITION)) {
+            createZeoTableIndexes(db, CompanionDatabaseContract.ZeoSleepRecords.SQL_INDEXES);
+        }
+        return true;
+    }
+
+    // Thread context: ReplicateZeoDatabase thread or main thread (during upgrade)
+    // create the secondary indexes of a Zeo App replication table; remember the table may not exist so need to detect that;
+    // a failure is not fatal since the indexes only improve performance
+    private void createZeoTableIndexes(SQLiteDatabase db, String[] sqlIndexes) {
+        for (String index: sqlIndexes) {
+            try {
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + index);
+            } catch (SQLException e) {
+                String msg = e.getMessage();
+                if (!msg.contains("no such table")) {   // a "no such table" exception is expected here if no replication has been performed
+                    ZeoCompanionApplication.postToErrorLog(_CTAG + ".createZeoTableIndexes", e, "Index " + index);   // automatically posts a Log.e
+                }
+            }
         }
-        return false;
     }
 
     // Thread context: ReplicateZeoDatabase thread
-    // get the record ID's of all records in the indicated table from the ZeoCompanion database
-    public class IDandUpdated {
-        public long rID = -1L;
-        public long rUpdatedOn = 0L;
+    // get the replication checkpoint of the indicated Zeo App replication table; returns null if there is none
+    public class ZeoReplicationCheckpoint {
+        public long rMaxID = 0L;
+        public long rMaxUpdatedOn = 0L;
+        public long rLastFullReconcile = 0L;
     }
-    public IDandUpdated[] getAllRecIDsZeoTable(String theTable, String sortOrder) {
+    public ZeoReplicationCheckpoint getZeoReplicationCheckpoint(String theTable) {
         if (mInvalidDB) { return null; }
         SQLiteDatabase db = getReadableDatabase();
-        String[] columns = { BaseColumns._ID + ",updated_on" };
         Cursor cursor = null;
+        ZeoReplicationCheckpoint checkpoint = null;
         try {
             cursor = db.query(
-                    theTable,   // table name
-                    columns,   // columns to get
-                    null,   // columns for optional WHERE clause
-                    null,   // values for optional WHERE clause
+                    CompanionDatabaseContract.ZeoReplicationCheckpoints.TABLE_NAME,   // table name
+                    CompanionDatabaseContract.ZeoReplicationCheckpoints.PROJECTION,   // columns to get
+                    CompanionDatabaseContract.ZeoReplicationCheckpoints.COLUMN_TABLE_NAME + "=?",   // columns for optional WHERE clause
+                    new String[] { theTable },   // values for optional WHERE clause
                     null,   // optional row groups
                     null,   // filter by row groups
-                    sortOrder);    // sort order
+                    null);    // sort order
+            if (cursor != null) {
+                if (cursor.moveToFirst()) {
+                    checkpoint = new ZeoReplicationCheckpoint();
+                    checkpoint.rMaxID = cursor.getLong(cursor.getColumnIndex(CompanionDatabaseContract.ZeoReplicationCheckpoints.COLUMN_MAX_ID));
+                    checkpoint.rMaxUpdatedOn = cursor.getLong(cursor.getColumnIndex(CompanionDatabaseContract.ZeoReplicationCheckpoints.COLUMN_MAX_UPDATED_ON));
+                    checkpoint.rLastFullReconcile = cursor.getLong(cursor.getColumnIndex(CompanionDatabaseContract.ZeoReplicationCheckpoints.COLUMN_LAST_FULL_RECONCILE));
+                }
+                cursor.close();
+            }
+        } catch (SQLException e) {
+            String msg = e.getMessage();
+            if (!msg.contains("no such table")) {   // a "no such table" exception is expected here if no replication has been performed
+                ZeoCompanionApplication.postToErrorLog(_CTAG + ".getZeoReplicationCheckpoint", e, "For DB Table: " + theTable);  // automatically posts a Log.e
+            }
+            if (cursor != null) { cursor.close(); }
+            return null;
+        }
+        return checkpoint;
+    }
+
+    // Thread context: ReplicateZeoDatabase thread
+    // save the replication checkpoint of the indicated Zeo App replication table; the checkpoints table is created if needed;
+    // a failure is not fatal since the next replication will then just perform a full reconcile of the table
+    public void saveZeoReplicationCheckpoint(String theTable, long maxID, long maxUpdatedOn, long lastFullReconcile) {
+        if (mInvalidDB) { return; }
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(CompanionDatabaseContract.ZeoReplicationCheckpoints.COLUMN_TABLE_NAME, theTable);
+        values.put(CompanionDatabaseContract.ZeoReplicationCheckpoints.COLUMN_MAX_ID, maxID);
+        values.put(CompanionDatabaseContract.ZeoReplicationCheckpoints.COLUMN_MAX_UPDATED_ON, maxUpdatedOn);
+        values.put(CompanionDatabaseContract.ZeoReplicationCheckpoints.COLUMN_LAST_FULL_RECONCILE, lastFullReconcile);
+        try {
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + CompanionDatabaseContract.ZeoReplicationCheckpoints.SQL_DEFINITION);
+            db.replaceOrThrow(CompanionDatabaseContract.ZeoReplicationCheckpoints.TABLE_NAME, "", values);
+        } catch (SQLException e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".saveZeoReplicationCheckpoint", e, "For DB Table: " + theTable);  // automatically posts a Log.e
+        }
+    }
+
+    // Thread context: ReplicateZeoDatabase thread
+    // get the record ID's and updated_on timestamps of all records in the indicated table from the ZeoCompanion database;
+    // these are returned as parallel primitive arrays always sorted by ascending record ID so the replication diff can merge against them
+    public class IDsAndUpdateds {
+        public long[] rIDs = null;
+        public long[] rUpdatedOns = null;
+        public int rQty = 0;
+    }
+    public IDsAndUpdateds getAllRecIDsZeoTable(String theTable) {
+        if (mInvalidDB) { return null; }
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = queryZeoTableIDsAndUpdateds(theTable).run(db);
             if (cursor != null) {
                 if (cursor.moveToFirst()) {
                     // there is one or more existing records
-                    IDandUpdated[] retArray = new IDandUpdated[cursor.getCount()];
+                    IDsAndUpdateds ret = new IDsAndUpdateds();
+                    int qty = cursor.getCount();
+                    ret.rIDs = new long[qty];
+                    ret.rUpdatedOns = new long[qty];
                     int colID = cursor.getColumnIndex(BaseColumns._ID);
                     int colUpdatedOn = cursor.getColumnIndex("updated_on");
                     int p = 0;
                     do {
-                        retArray[p] = new IDandUpdated();
-                        retArray[p].rID = cursor.getLong(colID);
-                        retArray[p].rUpdatedOn = cursor.getLong(colUpdatedOn);
+                        ret.rIDs[p] = cursor.getLong(colID);
+                        ret.rUpdatedOns[p] = cursor.getLong(colUpdatedOn);
                         p++;
-                    } while (cursor.moveToNext());
+                    } while (p < qty && cursor.moveToNext());
+                    ret.rQty = p;
                     cursor.close();
-                    return retArray;
+                    return ret;
                 }
             }
         } catch (SQLException e) {
@@ -1099,34 +1409,158 @@ public class CompanionDatabase extends SQLiteOpenHelper {
         return null;
     }
 
-    // Thread context: ReplicateZeoDatabase thread
-    // copy the ZeoCursor's current record content into the ZeoCompanion database
-    public void putRecIntoZeoTable(String theTable, Cursor cursorZeo) {
-        ContentValues values = new ContentValues();
-        try {
-            for (int i = 0; i < cursorZeo.getColumnCount(); i++) {
-                switch(cursorZeo.getType(i)) {
-                    case Cursor.FIELD_TYPE_NULL:
-                        values.putNull(cursorZeo.getColumnName(i));
+    // Thread context: ReplicateZeoDatabase executor threads
+    // a batch of up to ZEO_REPLICATION_BATCH_SIZE rows copied out of a Zeo App cursor; the rows are read into the batch without holding
+    // the replication's write lock, so the Zeo App queries of the other tables continue while this batch is being written;
+    // the cells are kept per-column in the source cursor's column order with their types preserved:  integers and floats (as their raw bits)
+    // in a primitive long array, strings and blobs in an object array, so no cell is boxed; the arrays are allocated once and reused by clear()
+    public static final int ZEO_REPLICATION_BATCH_SIZE = 500;
+    public static class ZeoRowBatch {
+        public String[] mColumnNames = null;
+        private int[][] mTypes = null;      // [column][row] Cursor.FIELD_TYPE_*
+        private long[][] mNumbers = null;   // [column][row] FIELD_TYPE_INTEGER values, or Double.doubleToRawLongBits of FIELD_TYPE_FLOAT values
+        private Object[][] mObjects = null; // [column][row] FIELD_TYPE_STRING or FIELD_TYPE_BLOB values
+        private int mSize = 0;
+
+        public ZeoRowBatch(Cursor sourceCursor) {
+            mColumnNames = sourceCursor.getColumnNames();
+            mTypes = new int[mColumnNames.length][ZEO_REPLICATION_BATCH_SIZE];
+            mNumbers = new long[mColumnNames.length][ZEO_REPLICATION_BATCH_SIZE];
+            mObjects = new Object[mColumnNames.length][ZEO_REPLICATION_BATCH_SIZE];
+        }
+
+        // copy the current row of the source cursor into the batch; the cursor must have the same columns in the same order as when this batch was created
+        public void add(Cursor sourceCursor) {
+            int row = mSize;
+            for (int i = 0; i < mColumnNames.length; i++) {
+                int type = sourceCursor.getType(i);
+                mTypes[i][row] = type;
+                switch(type) {
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        mNumbers[i][row] = sourceCursor.getLong(i);
+                        break;
+                    case Cursor.FIELD_TYPE_FLOAT:
+                        mNumbers[i][row] = Double.doubleToRawLongBits(sourceCursor.getDouble(i));
                         break;
+                    case Cursor.FIELD_TYPE_STRING:
+                        mObjects[i][row] = sourceCursor.getString(i);
+                        break;
+                    case Cursor.FIELD_TYPE_BLOB:
+                        mObjects[i][row] = sourceCursor.getBlob(i);
+                        break;
+                }
+            }
+            mSize++;
+        }
+
+        // bind all the cells of the row to the statement's parameters, in column order
+        private void bindRow(SQLiteStatement statement, int row) {
+            for (int i = 0; i < mColumnNames.length; i++) {
+                switch(mTypes[i][row]) {
                     case Cursor.FIELD_TYPE_INTEGER:
-                        values.put(cursorZeo.getColumnName(i), cursorZeo.getLong(i));
+                        statement.bindLong(i + 1, mNumbers[i][row]);
                         break;
                     case Cursor.FIELD_TYPE_FLOAT:
-                        values.put(cursorZeo.getColumnName(i), cursorZeo.getDouble(i));
+                        statement.bindDouble(i + 1, Double.longBitsToDouble(mNumbers[i][row]));
                         break;
                     case Cursor.FIELD_TYPE_STRING:
-                        values.put(cursorZeo.getColumnName(i), cursorZeo.getString(i));
+                        statement.bindString(i + 1, (String)mObjects[i][row]);
                         break;
                     case Cursor.FIELD_TYPE_BLOB:
-                        values.put(cursorZeo.getColumnName(i), cursorZeo.getBlob(i));
+                        statement.bindBlob(i + 1, (byte[])mObjects[i][row]);
+                        break;
+                    default:
+                        statement.bindNull(i + 1);
                         break;
                 }
             }
-            insertOrReplaceRecs(theTable, values);
-        } catch (SQLException e) {
-            ZeoCompanionApplication.mZeoAppHandler.disableReplication();
-            ZeoCompanionApplication.postToErrorLog(_CTAG + ".putRecIntoZeoTable", e, "For DB Table: " + theTable);  // automatically posts a Log.e
         }
+
+        public boolean isFull() { return (mSize >= ZEO_REPLICATION_BATCH_SIZE); }
+        public int size() { return mSize; }
+
+        // empty the batch for reuse; the strings and blobs are released
+        public void clear() {
+            for (int i = 0; i < mColumnNames.length; i++) { Arrays.fill(mObjects[i], 0, mSize, null); }
+            mSize = 0;
+        }
+    }
+
+    // Thread context: ReplicateZeoDatabase executor threads
+    // batched writer of replicated Zeo App records into one Zeo App replication table; the rows are written with one precompiled
+    // INSERT OR REPLACE statement whose parameters are bound positionally in the source cursor's column order, and each ZeoRowBatch
+    // is committed in its own transaction rather than in an implicit transaction per row; the caller holds the replication's write lock
+    // only while writing a batch;
+    // usage: obtain via startZeoTableWriter(), writeBatch() each filled batch, then finish() (or abort() upon any exception)
+    public class ZeoTableWriter {
+        private String mTable = null;
+        private SQLiteDatabase mDB = null;
+        private SQLiteStatement mStatement = null;
+        public int mRowsWritten = 0;
+        public long mStartTime = 0L;
+        public long mElapsedMs = 0L;
+
+        private ZeoTableWriter(String theTable, String[] columnNames) {
+            mTable = theTable;
+            StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO " + theTable + " (");
+            for (int i = 0; i < columnNames.length; i++) {
+                if (i > 0) { sql.append(','); }
+                sql.append(columnNames[i]);
+            }
+            sql.append(") VALUES (");
+            for (int i = 0; i < columnNames.length; i++) {
+                if (i > 0) { sql.append(','); }
+                sql.append('?');
+            }
+            sql.append(')');
+            mDB = getWritableDatabase();
+            mStatement = mDB.compileStatement(sql.toString());
+            mStartTime = System.currentTimeMillis();
+        }
+
+        // write all the rows of the batch in one transaction; if any row fails the entire batch is rolled back and the exception is thrown
+        public void writeBatch(ZeoRowBatch batch) {
+            if (batch.mSize == 0) { return; }
+            mDB.beginTransaction();
+            try {
+                for (int row = 0; row < batch.mSize; row++) {
+                    batch.bindRow(mStatement, row);
+                    mStatement.executeInsert();
+                }
+                mDB.setTransactionSuccessful();
+            } finally {
+                mDB.endTransaction();
+            }
+            mRowsWritten = mRowsWritten + batch.mSize;
+        }
+
+        // release the statement
+        public void finish() {
+            mStatement.close();
+            mElapsedMs = System.currentTimeMillis() - mStartTime;
+        }
+
+        // release the statement; previously committed batches remain
+        public void abort() {
+            try {
+                mStatement.close();
+            } catch (Exception e) {
+                Log.e(_CTAG + ".ZeoTableWriter.abort", "For DB Table " + mTable + ": " + e.getMessage());
+            }
+            mElapsedMs = System.currentTimeMillis() - mStartTime;
+        }
+
+        // the achieved write rate
+        public long getRowsPerSecond() {
+            if (mElapsedMs <= 0L) { return mRowsWritten * 1000L; }
+            return (mRowsWritten * 1000L) / mElapsedMs;
+        }
+    }
+
+    // Thread context: ReplicateZeoDatabase executor threads
+    // start a batched writer for replicating the rows of the batches into the indicated Zeo App replication table
+    public ZeoTableWriter startZeoTableWriter(String theTable, ZeoRowBatch batch) {
+        if (mInvalidDB) { return null; }
+        return new ZeoTableWriter(theTable, batch.mColumnNames);
     }
 }
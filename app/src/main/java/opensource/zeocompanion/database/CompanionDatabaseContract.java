@@ -89,6 +89,9 @@ public final class CompanionDatabaseContract {
         public static final String COLUMN_EVENTS_CSV_STRING = "evt_csv_str";  // string
         public static final String COLUMN_ATTRIBS_FIXED_CSV_STRING = "att_fixed_csv_str";  // string
         public static final String COLUMN_ATTRIBS_VARI_CSV_STRING = "att_vari_csv_str";  // string
+        public static final String COLUMN_EVENTS_PACKED = "evt_packed";  // blob   // all the COLUMN_*_PACKED fields added in database Version 7; they supersede the *_CSV_STRING fields
+        public static final String COLUMN_ATTRIBS_FIXED_PACKED = "att_fixed_packed";  // blob
+        public static final String COLUMN_ATTRIBS_VARI_PACKED = "att_vari_packed";  // blob
         public static final String COLUMN_AMENDED = "amended";  // boolean      // all the COLUMN_AMEND* fields below added in database Version 2
         public static final String COLUMN_AMEND_START_OF_NIGHT = "amend_start_of_night";    // long integer
         public static final String COLUMN_AMEND_END_OF_NIGHT = "amend_end_of_night";    // long integer
@@ -106,12 +109,14 @@ public final class CompanionDatabaseContract {
         public static final String COLUMN_AMEND_DISPLAY_HYPNOGRAM = "amend_display_hypnogram";  // blob
         public static final String COLUMN_AMEND_BASE_HYPNOGRAM = "amend_base_hypnogram";    // blob
 
-        // Note: COLUMN_EVENTS_CSV_STRING field layout:
+        // Note: COLUMN_EVENTS_CSV_STRING field layout (the storage form through database Version 6; from Version 7 it is still written
+        //      alongside the packed form as a fallback copy until a later database version confirms the migration):
         //      sleepStage;timestamp;event#;info
-        // Note: COLUMN_ATTRIBS_FIXED_CSV_STRING field layouts:
+        // Note: COLUMN_ATTRIBS_FIXED_CSV_STRING field layouts (likewise):
         //      likert;value
-        // Note: COLUMN_ATTRIBS_VARI_CSV_STRING field layouts:
+        // Note: COLUMN_ATTRIBS_VARI_CSV_STRING field layouts (likewise):
         //      sleepStage;attribute;likert;value
+        // Note: the COLUMN_*_PACKED field layouts are documented in CompanionSleepEpisodePackedCodec
 
         public static final String SQL_DEFINITION = TABLE_NAME_INTERNAL + " (" +
                 _ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
@@ -146,9 +151,19 @@ public final class CompanionDatabaseContract {
                 COLUMN_AMEND_LIGHT_CHANGED_TO_DEEP + " INTEGER, " +
                 COLUMN_AMEND_DEEP_SUM + " INTEGER, " +
                 COLUMN_AMEND_DISPLAY_HYPNOGRAM + " BLOB, " +
-                COLUMN_AMEND_BASE_HYPNOGRAM + " BLOB" +
+                COLUMN_AMEND_BASE_HYPNOGRAM + " BLOB, " +
+                COLUMN_EVENTS_PACKED + " BLOB, " +
+                COLUMN_ATTRIBS_FIXED_PACKED + " BLOB, " +
+                COLUMN_ATTRIBS_VARI_PACKED + " BLOB" +
                 ")";
 
+        // secondary indexes (database version 6); for the timestamp-ordered and windowed queries, and the lookups by Zeo Sleep Episode ID
+        // (which also include the timestamp so their results need no separate sort)
+        public static final String[] SQL_INDEXES = {
+                "idx_" + TABLE_NAME_INTERNAL + "_" + COLUMN_START_OF_RECORD_TIMESTAMP + " ON " + TABLE_NAME_INTERNAL + " (" + COLUMN_START_OF_RECORD_TIMESTAMP + ")",
+                "idx_" + TABLE_NAME_INTERNAL + "_" + COLUMN_ZEO_SLEEP_EPISODE_ID + " ON " + TABLE_NAME_INTERNAL + " (" + COLUMN_ZEO_SLEEP_EPISODE_ID + "," + COLUMN_START_OF_RECORD_TIMESTAMP + ")"
+        };
+
         public static final String[] PROJECTION = {
                 _ID,
                 COLUMN_START_OF_RECORD_TIMESTAMP,
@@ -182,6 +197,55 @@ public final class CompanionDatabaseContract {
                 COLUMN_AMEND_LIGHT_CHANGED_TO_DEEP,
                 COLUMN_AMEND_DEEP_SUM,
                 COLUMN_AMEND_DISPLAY_HYPNOGRAM,
+                COLUMN_AMEND_BASE_HYPNOGRAM,
+                COLUMN_EVENTS_PACKED,
+                COLUMN_ATTRIBS_FIXED_PACKED,
+                COLUMN_ATTRIBS_VARI_PACKED
+        };
+
+        // the projection used for bulk scans of the table; it omits the two amended hypnogram BLOBs which are by far the largest columns;
+        // records built from it load those columns on demand (see CompanionSleepEpisodesRec.hydrate)
+        public static final String[] PROJECTION_SUMMARY = {
+                _ID,
+                COLUMN_START_OF_RECORD_TIMESTAMP,
+                COLUMN_END_OF_RECORD_TIMESTAMP,
+                COLUMN_STATES_FLAG,
+                COLUMN_ZEO_SLEEP_EPISODE_ID,
+                COLUMN_EVENT_ZEO_STARTING_TIMESTAMP,
+                COLUMN_EVENT_ZEO_RECORDING_TIMESTAMP,
+                COLUMN_EVENT_ZEO_ENDING_TIMESTAMP,
+                COLUMN_HEADBAND_BATTERY_HIGH,
+                COLUMN_HEADBAND_BATTERY_LOW,
+                COLUMN_CNT_AWAKENINGS,
+                COLUMN_EVENT_GOT_INTO_BED_TIMESTAMP,
+                COLUMN_EVENT_TRYING_TO_SLEEP_TIMESTAMP,
+                COLUMN_EVENT_OUT_OF_BED_DONE_SLEEPING_TIMESTAMP,
+                COLUMN_EVENTS_CSV_STRING,
+                COLUMN_ATTRIBS_FIXED_CSV_STRING,
+                COLUMN_ATTRIBS_VARI_CSV_STRING,
+                COLUMN_AMENDED,
+                COLUMN_AMEND_AWAKENINGS,
+                COLUMN_AMEND_START_OF_NIGHT,
+                COLUMN_AMEND_END_OF_NIGHT,
+                COLUMN_AMEND_DISPLAY_HYPNOGRAM_STARTTIME,
+                COLUMN_AMEND_TIME_TO_Z,
+                COLUMN_AMEND_TOTAL_Z,
+                COLUMN_AMEND_TIME_IN_WAKE,
+                COLUMN_AMEND_TIME_IN_REM,
+                COLUMN_AMEND_TIME_IN_LIGHT,
+                COLUMN_AMEND_TIME_IN_DEEP,
+                COLUMN_AMEND_ZQ_SCORE,
+                COLUMN_AMEND_LIGHT_CHANGED_TO_DEEP,
+                COLUMN_AMEND_DEEP_SUM,
+                COLUMN_EVENTS_PACKED,
+                COLUMN_ATTRIBS_FIXED_PACKED,
+                COLUMN_ATTRIBS_VARI_PACKED
+        };
+
+        // the columns that a summary record loads on demand
+        public static final String[] PROJECTION_AMENDED_HYPNOGRAMS = {
+                _ID,
+                COLUMN_AMEND_DISPLAY_HYPNOGRAM,
                 COLUMN_AMEND_BASE_HYPNOGRAM
         };
 
@@ -722,6 +786,11 @@ public final class CompanionDatabaseContract {
                 "UNIQUE ("+COLUMN_START_OF_NIGHT+"))";
                 // ,FOREIGN KEY(sleep_event_id) REFERENCES sleep_events(_id) ON DELETE CASCADE ON UPDATE CASCADE)
 
+        // secondary indexes (database version 6); the start-of-night queries are already served by the index of the UNIQUE constraint
+        public static final String[] SQL_INDEXES = {
+                "idx_" + TABLE_NAME + "_" + COLUMN_SLEEP_EVENT_ID + " ON " + TABLE_NAME + " (" + COLUMN_SLEEP_EVENT_ID + ")"
+        };
+
         public static final String[] PROJECTION_FULL = {
                 _ID,
                 COLUMN_HEADBAND_ID,
@@ -1145,4 +1214,31 @@ public final class CompanionDatabaseContract {
         public static final int ZEOHEADBAND_RESET_CAUSE_WATCHDOG = 6;
         public static final int ZEOHEADBAND_RESET_CAUSE_MAX = 7;
     }
+
+    // the replication checkpoints of each Zeo App replication table; this table is created upon first need (like the replication tables themselves)
+    // and is dropped whenever the replication tables are purged; it is not itself a replica of any Zeo App table
+    public static abstract class ZeoReplicationCheckpoints implements BaseColumns {
+        // _ID long integer
+        public static final String TABLE_NAME = "zeo_replication_checkpoints";
+        public static final String COLUMN_TABLE_NAME = "table_name";    // string
+        public static final String COLUMN_MAX_ID = "max_id";    // long integer
+        public static final String COLUMN_MAX_UPDATED_ON = "max_updated_on";   // long integer
+        public static final String COLUMN_LAST_FULL_RECONCILE = "last_full_reconcile";  // long integer timestamp
+
+        public static final String SQL_DEFINITION = TABLE_NAME + " (" +
+                _ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_TABLE_NAME + " TEXT UNIQUE, " +
+                COLUMN_MAX_ID + " INTEGER DEFAULT 0, " +
+                COLUMN_MAX_UPDATED_ON + " INTEGER DEFAULT 0, " +
+                COLUMN_LAST_FULL_RECONCILE + " INTEGER DEFAULT 0" +
+                ")";
+
+        public static final String[] PROJECTION = {
+                _ID,
+                COLUMN_TABLE_NAME,
+                COLUMN_MAX_ID,
+                COLUMN_MAX_UPDATED_ON,
+                COLUMN_LAST_FULL_RECONCILE
+        };
+    }
 }
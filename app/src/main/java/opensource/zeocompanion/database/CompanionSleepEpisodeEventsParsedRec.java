@@ -4,7 +4,7 @@ import android.util.Log;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
-// a parsed record of Event that is normally stored in string format
+// a parsed record of Event that is normally stored in packed format (see CompanionSleepEpisodePackedCodec)
 public class CompanionSleepEpisodeEventsParsedRec {
     // record fields
     public int rSleepStage = 0;
@@ -15,17 +15,18 @@ public class CompanionSleepEpisodeEventsParsedRec {
     // optional non-record fields
     public static final String _CTAG = "SER";
 
-    // constructor #1:  defined values usually by being set by end-user choice
+    // constructor #1:  defined values usually by being set by end-user choice;
+    // an eventInfo with a comma or semicolon in it, or exceeding CompanionSleepEpisodePackedCodec.MAX_STRING_BYTES, is not kept
     public CompanionSleepEpisodeEventsParsedRec(int sleepStage, long timestamp, int eventNo, String eventInfo) {
         rSleepStage = sleepStage;
         rTimestamp = timestamp;
         rEventNo = eventNo;
         if (eventInfo == null) { rEventInfo = null; }
         else if (eventInfo.isEmpty()) { rEventInfo = null; }
-        else if (!eventInfo.contains(",") && !eventInfo.contains(";")) { rEventInfo = eventInfo; }
+        else if (!eventInfo.contains(",") && !eventInfo.contains(";") && CompanionSleepEpisodePackedCodec.isStringStorable(eventInfo)) { rEventInfo = eventInfo; }
     }
 
-    // constructor #2:  parse a string field from the database
+    // constructor #2:  parse a string field from the old-style CSV database storage form (now used only during the database upgrade)
     public CompanionSleepEpisodeEventsParsedRec(String fieldStr) {
         String[] splitString = fieldStr.split(";", -1);
         if (splitString.length >= 1) { rSleepStage = Integer.parseInt(splitString[0]); }
@@ -39,7 +40,7 @@ public class CompanionSleepEpisodeEventsParsedRec {
         else { rEventInfo = null; }
     }
 
-    // build the field storage string for this record entry
+    // build the old-style CSV field storage string for this record entry
     public String getStorageString() {
         String str = rSleepStage + ";" + rTimestamp + ";" + rEventNo + ";";
         if (rEventInfo != null) {
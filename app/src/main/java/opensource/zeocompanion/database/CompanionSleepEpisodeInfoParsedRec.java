@@ -1,6 +1,6 @@
 package opensource.zeocompanion.database;
 
-// a parsed record of Info (Attribute=Value) that is normally stored in string format
+// a parsed record of Info (Attribute=Value) that is normally stored in packed format (see CompanionSleepEpisodePackedCodec)
 public class CompanionSleepEpisodeInfoParsedRec {
     // record fields
     public int rSleepStage = 0;
@@ -13,16 +13,17 @@ public class CompanionSleepEpisodeInfoParsedRec {
     public static final String _CTAG = "SIR";
 
     // constructor #1:  defined values usually by being set by end-user choice
-    // note that attributeExportName and value cannot have a comma or semicolon in them, and will result in a partially empty record
+    // note that attributeExportName and value cannot have a comma or semicolon in them, nor exceed the packed storage limit on a string's
+    // length (CompanionSleepEpisodePackedCodec.MAX_STRING_BYTES), and will result in a partially empty record
     public CompanionSleepEpisodeInfoParsedRec(int slot, int sleepStage, String attributeExportName, String value, float likert) {
         rSleepStage = sleepStage;
-        if (!attributeExportName.contains(",") && !attributeExportName.contains(";")) { rAttributeExportName = attributeExportName; }
-        if (!value.contains(",") && !value.contains(";")) { rValue = value; }
+        if (!attributeExportName.contains(",") && !attributeExportName.contains(";") && CompanionSleepEpisodePackedCodec.isStringStorable(attributeExportName)) { rAttributeExportName = attributeExportName; }
+        if (!value.contains(",") && !value.contains(";") && CompanionSleepEpisodePackedCodec.isStringStorable(value)) { rValue = value; }
         rLikert = likert;
         mExportSlot = slot;
     }
 
-    // constructor #2:  parse a string field from the database
+    // constructor #2:  parse a string field from the old-style CSV database storage form (now used only during the database upgrade)
     // note if a damaged fieldStr is passed in, the constructor will build a partially empty record
     public CompanionSleepEpisodeInfoParsedRec(int slot, String fieldStr) {
         mExportSlot = slot;
@@ -69,7 +70,17 @@ public class CompanionSleepEpisodeInfoParsedRec {
         }
     }
 
-    // build the field storage string for this record entry
+    // constructor #3:  values decoded from the packed database storage form; these were already validated when first stored so may be used as-is;
+    // unlike constructor #1 the value may be null
+    public CompanionSleepEpisodeInfoParsedRec(int slot, int sleepStage, String attributeExportName, String value, float likert, boolean alreadyValidated) {
+        rSleepStage = sleepStage;
+        rAttributeExportName = attributeExportName;
+        rValue = value;
+        rLikert = likert;
+        mExportSlot = slot;
+    }
+
+    // build the old-style CSV field storage string for this record entry
     public String getStorageString() {
         String str = "";
         if (mExportSlot < 0) {
@@ -0,0 +1,448 @@
+package opensource.zeocompanion.database;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+import com.myzeo.android.api.data.MyZeoExportDataContract;
+
+// encodes and decodes the compact binary (BLOB) storage form of a CSE record's Events and Attributes (database version 7 onward);
+// the fixed-size entry tables permit the timestamps, event codes, sleep stages and likerts to be read directly out of the BLOB
+// without parsing or creating any objects; only the optional strings are variable-length and are decoded only when asked for;
+// all multi-byte values are big-endian; a string offset of zero means "none" (null); strings are a 2-byte length followed by UTF-8 bytes,
+// so an empty string is stored and reads back as empty rather than null; a string of more than MAX_STRING_BYTES is rejected by the encoders;
+// the old CSV string form is still produced here for exports, and for the CSV columns of a pre-version-7 database and of the backup copies
+//
+// Events BLOB:            version(1), reserved(1), count(2), then count entries of 16 bytes:
+//                             timestamp(8), event#(2), sleepStage(1), reserved(1), infoOffset(4)
+// Fixed Attributes BLOB:  version(1), reserved(1), slotCount(2), then slotCount entries of 8 bytes:
+//                             likert(4 as float bits), valueOffset(4); a slot with zero likert and no value is empty
+// Vari Attributes BLOB:   version(1), reserved(1), count(2), then count entries of 16 bytes:
+//                             sleepStage(1), reserved(3), nameOffset(4), likert(4 as float bits), valueOffset(4)
+public final class CompanionSleepEpisodePackedCodec {
+    // member constants and other static content
+    public static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4;
+    private static final int EVENT_ENTRY_SIZE = 16;
+    private static final int FIXED_ENTRY_SIZE = 8;
+    private static final int VARI_ENTRY_SIZE = 16;
+    public static final int MAX_STRING_BYTES = 0xFFFF;    // the limit of a string's 2-byte length
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // not instantiable
+    private CompanionSleepEpisodePackedCodec() {}
+
+    ////////////////////////////////////////////////////////////////////////////
+    // zero-parse accessors common to all three BLOBs
+    ////////////////////////////////////////////////////////////////////////////
+
+    // quantity of entries in the BLOB; zero if there is no BLOB or it is of an unknown version
+    public static int getCount(byte[] blob) {
+        if (blob == null) { return 0; }
+        if (blob.length < HEADER_SIZE) { return 0; }
+        if ((blob[0] & 0xFF) != FORMAT_VERSION) { return 0; }
+        return getUInt16(blob, 2);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Events:  zero-parse accessors
+    ////////////////////////////////////////////////////////////////////////////
+
+    public static long getEventTimestamp(byte[] blob, int index) {
+        return getInt64(blob, HEADER_SIZE + index * EVENT_ENTRY_SIZE);
+    }
+
+    public static int getEventNo(byte[] blob, int index) {
+        return (short)getUInt16(blob, HEADER_SIZE + index * EVENT_ENTRY_SIZE + 8);
+    }
+
+    public static int getEventSleepStage(byte[] blob, int index) {
+        return blob[HEADER_SIZE + index * EVENT_ENTRY_SIZE + 10];
+    }
+
+    // the optional event info string; this is the only Events accessor that allocates
+    public static String getEventInfo(byte[] blob, int index) {
+        return getString(blob, getInt32(blob, HEADER_SIZE + index * EVENT_ENTRY_SIZE + 12));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Events:  conversions
+    ////////////////////////////////////////////////////////////////////////////
+
+    // encode the events which the caller has not otherwise handled; the caller is expected to have already sorted them by timestamp;
+    // returns null if there are no such events
+    public static byte[] encodeEvents(ArrayList<CompanionSleepEpisodeEventsParsedRec> theEvents) {
+        if (theEvents == null) { return null; }
+        int count = 0;
+        int stringsSize = 0;
+        for (CompanionSleepEpisodeEventsParsedRec eRec: theEvents) {
+            if (eRec.rEventNo == CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_NONEVENT_HANDLED) { continue; }
+            count++;
+            stringsSize = stringsSize + getStringSize(eRec.rEventInfo);
+        }
+        if (count == 0) { return null; }
+
+        byte[] blob = new byte[HEADER_SIZE + count * EVENT_ENTRY_SIZE + stringsSize];
+        putHeader(blob, count);
+        int entry = HEADER_SIZE;
+        int strings = HEADER_SIZE + count * EVENT_ENTRY_SIZE;
+        for (CompanionSleepEpisodeEventsParsedRec eRec: theEvents) {
+            if (eRec.rEventNo == CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_NONEVENT_HANDLED) { continue; }
+            putInt64(blob, entry, eRec.rTimestamp);
+            putUInt16(blob, entry + 8, eRec.rEventNo);
+            blob[entry + 10] = (byte)eRec.rSleepStage;
+            putInt32(blob, entry + 12, 0);
+            if (eRec.rEventInfo != null) {
+                putInt32(blob, entry + 12, strings);
+                strings = putString(blob, strings, eRec.rEventInfo);
+            }
+            entry = entry + EVENT_ENTRY_SIZE;
+        }
+        return blob;
+    }
+
+    // decode all the events in the BLOB into the end of the array
+    public static void decodeEvents(byte[] blob, ArrayList<CompanionSleepEpisodeEventsParsedRec> theEvents) {
+        int count = getCount(blob);
+        for (int i = 0; i < count; i++) {
+            theEvents.add(new CompanionSleepEpisodeEventsParsedRec(getEventSleepStage(blob, i), getEventTimestamp(blob, i), getEventNo(blob, i), getEventInfo(blob, i)));
+        }
+    }
+
+    // encode an old-style events CSV string; used only by the database upgrade; returns null if it has no events
+    public static byte[] encodeEventsFromCSV(String csvStr) {
+        if (csvStr == null) { return null; }
+        ArrayList<CompanionSleepEpisodeEventsParsedRec> theEvents = new ArrayList<CompanionSleepEpisodeEventsParsedRec>();
+        for (String field: csvStr.split(",", -1)) {
+            if (!field.isEmpty()) { theEvents.add(new CompanionSleepEpisodeEventsParsedRec(field)); }
+        }
+        return encodeEvents(theEvents);
+    }
+
+    // produce the old-style events CSV string for the CSV column; returns null if there are no events
+    public static String toEventsCSV(byte[] blob) {
+        int count = getCount(blob);
+        if (count == 0) { return null; }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) { sb.append(','); }
+            sb.append(getEventSleepStage(blob, i)).append(';').append(getEventTimestamp(blob, i)).append(';').append(getEventNo(blob, i)).append(';');
+            String info = getEventInfo(blob, i);
+            if (info != null) { sb.append(info); }
+        }
+        return sb.toString();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Fixed (slotted) Attributes:  zero-parse accessors
+    ////////////////////////////////////////////////////////////////////////////
+
+    // does the slot hold an attribute; a slot beyond those stored is empty
+    public static boolean isFixedSlotPresent(byte[] blob, int slot) {
+        if (slot < 0 || slot >= getCount(blob)) { return false; }
+        int entry = HEADER_SIZE + slot * FIXED_ENTRY_SIZE;
+        return (getInt32(blob, entry) != 0 || getInt32(blob, entry + 4) != 0);
+    }
+
+    // does any slot hold an attribute
+    public static boolean isAnyFixedSlotPresent(byte[] blob) {
+        int count = getCount(blob);
+        for (int slot = 0; slot < count; slot++) {
+            if (isFixedSlotPresent(blob, slot)) { return true; }
+        }
+        return false;
+    }
+
+    public static float getFixedLikert(byte[] blob, int slot) {
+        return Float.intBitsToFloat(getInt32(blob, HEADER_SIZE + slot * FIXED_ENTRY_SIZE));
+    }
+
+    // the slot's value; null if the slot is empty or has no value
+    public static String getFixedValue(byte[] blob, int slot) {
+        if (slot < 0 || slot >= getCount(blob)) { return null; }
+        return getString(blob, getInt32(blob, HEADER_SIZE + slot * FIXED_ENTRY_SIZE + 4));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Fixed (slotted) Attributes:  conversions
+    ////////////////////////////////////////////////////////////////////////////
+
+    // encode the slotted array (which contains nulls for empty slots); returns null if all the slots are empty
+    public static byte[] encodeFixedAttribs(ArrayList<CompanionSleepEpisodeInfoParsedRec> theSlots) {
+        if (theSlots == null) { return null; }
+        int count = 0;
+        int stringsSize = 0;
+        for (int slot = 0; slot < theSlots.size(); slot++) {
+            CompanionSleepEpisodeInfoParsedRec aRec = theSlots.get(slot);
+            if (aRec == null) { continue; }
+            if (aRec.rLikert == 0.0 && aRec.rValue == null) { continue; }
+            count = slot + 1;
+            stringsSize = stringsSize + getStringSize(aRec.rValue);
+        }
+        if (count == 0) { return null; }
+
+        byte[] blob = new byte[HEADER_SIZE + count * FIXED_ENTRY_SIZE + stringsSize];
+        putHeader(blob, count);
+        int strings = HEADER_SIZE + count * FIXED_ENTRY_SIZE;
+        for (int slot = 0; slot < count; slot++) {
+            CompanionSleepEpisodeInfoParsedRec aRec = theSlots.get(slot);
+            if (aRec == null) { continue; }     // entry remains all zeros
+            if (aRec.rLikert == 0.0 && aRec.rValue == null) { continue; }
+            int entry = HEADER_SIZE + slot * FIXED_ENTRY_SIZE;
+            putInt32(blob, entry, Float.floatToIntBits(aRec.rLikert));
+            if (aRec.rValue != null) {
+                putInt32(blob, entry + 4, strings);
+                strings = putString(blob, strings, aRec.rValue);
+            }
+        }
+        return blob;
+    }
+
+    // decode the BLOB into a full-sized slotted array containing nulls for the empty slots
+    public static ArrayList<CompanionSleepEpisodeInfoParsedRec> decodeFixedAttribs(byte[] blob) {
+        ArrayList<CompanionSleepEpisodeInfoParsedRec> theSlots = new ArrayList<CompanionSleepEpisodeInfoParsedRec>(MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL);
+        for (int slot = 0; slot < MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL; slot++) {
+            if (isFixedSlotPresent(blob, slot)) {
+                theSlots.add(new CompanionSleepEpisodeInfoParsedRec(slot, CompanionDatabase.mSlot_SleepStages[slot], CompanionDatabase.mSlot_ExportNames[slot],
+                        getFixedValue(blob, slot), getFixedLikert(blob, slot), true));
+            } else {
+                theSlots.add(null);
+            }
+        }
+        return theSlots;
+    }
+
+    // encode an old-style fixed attributes CSV string; used only by the database upgrade; returns null if it has no attributes
+    public static byte[] encodeFixedAttribsFromCSV(String csvStr) {
+        if (csvStr == null) { return null; }
+        ArrayList<CompanionSleepEpisodeInfoParsedRec> theSlots = new ArrayList<CompanionSleepEpisodeInfoParsedRec>();
+        String parsedStrings[] = csvStr.split(",", -1);
+        for (int slot = 0; slot < MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL; slot++) {
+            if (slot >= parsedStrings.length) { theSlots.add(null); }
+            else if (parsedStrings[slot].isEmpty()) { theSlots.add(null); }
+            else { theSlots.add(new CompanionSleepEpisodeInfoParsedRec(slot, parsedStrings[slot])); }
+        }
+        return encodeFixedAttribs(theSlots);
+    }
+
+    // append the export CSV form of all the slots (each followed by a comma); the values are optional
+    public static void appendFixedAttribsCSV(StringBuilder sb, byte[] blob, boolean includeValueText) {
+        for (int slot = 0; slot < MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL; slot++) {
+            if (isFixedSlotPresent(blob, slot)) {
+                sb.append(getFixedLikert(blob, slot));
+                if (includeValueText) {
+                    String value = getFixedValue(blob, slot);
+                    if (value != null) { sb.append(';').append(value); }
+                }
+            }
+            sb.append(',');
+        }
+    }
+
+    // produce the old-style fixed attributes CSV string (likert;value per slot) for the CSV column; returns null if all the slots are empty
+    public static String toFixedAttribsCSV(byte[] blob) {
+        if (!isAnyFixedSlotPresent(blob)) { return null; }
+        StringBuilder sb = new StringBuilder();
+        for (int slot = 0; slot < MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL; slot++) {
+            if (slot > 0) { sb.append(','); }
+            if (isFixedSlotPresent(blob, slot)) {
+                sb.append(getFixedLikert(blob, slot)).append(';');
+                String value = getFixedValue(blob, slot);
+                if (value != null) { sb.append(value); }
+            }
+        }
+        return sb.toString();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Vari (custom non-slotted) Attributes:  zero-parse accessors
+    ////////////////////////////////////////////////////////////////////////////
+
+    public static int getVariSleepStage(byte[] blob, int index) {
+        return blob[HEADER_SIZE + index * VARI_ENTRY_SIZE];
+    }
+
+    public static String getVariExportName(byte[] blob, int index) {
+        return getString(blob, getInt32(blob, HEADER_SIZE + index * VARI_ENTRY_SIZE + 4));
+    }
+
+    public static float getVariLikert(byte[] blob, int index) {
+        return Float.intBitsToFloat(getInt32(blob, HEADER_SIZE + index * VARI_ENTRY_SIZE + 8));
+    }
+
+    public static String getVariValue(byte[] blob, int index) {
+        return getString(blob, getInt32(blob, HEADER_SIZE + index * VARI_ENTRY_SIZE + 12));
+    }
+
+    // locate the first entry of the attribute export name by comparing its stored bytes in-place; returns -1 if not present
+    public static int findVari(byte[] blob, String exportName) {
+        if (exportName == null) { return -1; }
+        byte[] nameBytes = exportName.getBytes(UTF8);
+        int count = getCount(blob);
+        for (int i = 0; i < count; i++) {
+            int offset = getInt32(blob, HEADER_SIZE + i * VARI_ENTRY_SIZE + 4);
+            if (offset == 0) { continue; }
+            if (getUInt16(blob, offset) != nameBytes.length) { continue; }
+            int p = 0;
+            while (p < nameBytes.length && blob[offset + 2 + p] == nameBytes[p]) { p++; }
+            if (p == nameBytes.length) { return i; }
+        }
+        return -1;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Vari (custom non-slotted) Attributes:  conversions
+    ////////////////////////////////////////////////////////////////////////////
+
+    // encode the array; every entry is kept, including those lacking an export name or any content, just as the old CSV strings
+    // kept them (decodeVariAttribs skips such entries as the old unpacking did); returns null if there are none
+    public static byte[] encodeVariAttribs(ArrayList<CompanionSleepEpisodeInfoParsedRec> theAttribs) {
+        if (theAttribs == null) { return null; }
+        int count = 0;
+        int stringsSize = 0;
+        for (CompanionSleepEpisodeInfoParsedRec aRec: theAttribs) {
+            if (!isVariStorable(aRec)) { continue; }
+            count++;
+            stringsSize = stringsSize + getStringSize(aRec.rAttributeExportName) + getStringSize(aRec.rValue);
+        }
+        if (count == 0) { return null; }
+
+        byte[] blob = new byte[HEADER_SIZE + count * VARI_ENTRY_SIZE + stringsSize];
+        putHeader(blob, count);
+        int entry = HEADER_SIZE;
+        int strings = HEADER_SIZE + count * VARI_ENTRY_SIZE;
+        for (CompanionSleepEpisodeInfoParsedRec aRec: theAttribs) {
+            if (!isVariStorable(aRec)) { continue; }
+            blob[entry] = (byte)aRec.rSleepStage;
+            if (aRec.rAttributeExportName != null) {
+                putInt32(blob, entry + 4, strings);
+                strings = putString(blob, strings, aRec.rAttributeExportName);
+            }
+            putInt32(blob, entry + 8, Float.floatToIntBits(aRec.rLikert));
+            if (aRec.rValue != null) {
+                putInt32(blob, entry + 12, strings);
+                strings = putString(blob, strings, aRec.rValue);
+            }
+            entry = entry + VARI_ENTRY_SIZE;
+        }
+        return blob;
+    }
+
+    // decode the BLOB into a new array; entries lacking an export name (null or empty) or any content are not included
+    public static ArrayList<CompanionSleepEpisodeInfoParsedRec> decodeVariAttribs(byte[] blob) {
+        int count = getCount(blob);
+        ArrayList<CompanionSleepEpisodeInfoParsedRec> theAttribs = new ArrayList<CompanionSleepEpisodeInfoParsedRec>(count);
+        for (int i = 0; i < count; i++) {
+            int nameOffset = getInt32(blob, HEADER_SIZE + i * VARI_ENTRY_SIZE + 4);
+            if (nameOffset == 0) { continue; }
+            if (getUInt16(blob, nameOffset) == 0) { continue; }
+            if (getVariLikert(blob, i) == 0.0 && getVariValue(blob, i) == null) { continue; }
+            theAttribs.add(new CompanionSleepEpisodeInfoParsedRec(-1, getVariSleepStage(blob, i), getVariExportName(blob, i), getVariValue(blob, i), getVariLikert(blob, i), true));
+        }
+        return theAttribs;
+    }
+
+    // encode an old-style vari attributes CSV string; used only by the database upgrade; returns null if it has no attributes
+    public static byte[] encodeVariAttribsFromCSV(String csvStr) {
+        if (csvStr == null) { return null; }
+        ArrayList<CompanionSleepEpisodeInfoParsedRec> theAttribs = new ArrayList<CompanionSleepEpisodeInfoParsedRec>();
+        for (String field: csvStr.split(",", -1)) {
+            if (!field.isEmpty()) { theAttribs.add(new CompanionSleepEpisodeInfoParsedRec(-1, field)); }
+        }
+        return encodeVariAttribs(theAttribs);
+    }
+
+    // append the export CSV form of all the entries (sleepStage;attribute;likert;value) each followed by a comma; an absent export name is left empty
+    public static void appendVariAttribsCSV(StringBuilder sb, byte[] blob) {
+        int count = getCount(blob);
+        for (int i = 0; i < count; i++) {
+            sb.append(getVariSleepStage(blob, i)).append(';');
+            String name = getVariExportName(blob, i);
+            if (name != null) { sb.append(name); }
+            sb.append(';').append(getVariLikert(blob, i)).append(';');
+            String value = getVariValue(blob, i);
+            if (value != null) { sb.append(value); }
+            sb.append(',');
+        }
+    }
+
+    // produce the old-style vari attributes CSV string for the CSV column; returns null if there are none
+    public static String toVariAttribsCSV(byte[] blob) {
+        if (getCount(blob) == 0) { return null; }
+        StringBuilder sb = new StringBuilder();
+        appendVariAttribsCSV(sb, blob);
+        sb.setLength(sb.length() - 1);  // no final trailing comma
+        return sb.toString();
+    }
+
+    private static boolean isVariStorable(CompanionSleepEpisodeInfoParsedRec aRec) {
+        return (aRec != null);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // byte-level helpers
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static void putHeader(byte[] blob, int count) {
+        blob[0] = (byte)FORMAT_VERSION;
+        blob[1] = 0;
+        putUInt16(blob, 2, count);
+    }
+
+    // can the string be stored; a null string is stored as "none"
+    public static boolean isStringStorable(String str) {
+        if (str == null) { return true; }
+        if (str.length() <= MAX_STRING_BYTES / 3) { return true; }   // no char encodes to more than 3 UTF-8 bytes
+        return (str.getBytes(UTF8).length <= MAX_STRING_BYTES);
+    }
+
+    // bytes a string will occupy in the strings area; null strings are not stored; a string too long for its 2-byte length is rejected
+    // here, before the BLOB is allocated, rather than being written with a wrapped-around length that would corrupt the rest of the BLOB
+    private static int getStringSize(String str) {
+        if (str == null) { return 0; }
+        int len = str.getBytes(UTF8).length;
+        if (len > MAX_STRING_BYTES) { throw new IllegalArgumentException("String of " + len + " UTF-8 bytes exceeds the packed limit of " + MAX_STRING_BYTES); }
+        return 2 + len;
+    }
+
+    // store a string at the offset; returns the offset just past it
+    private static int putString(byte[] blob, int offset, String str) {
+        byte[] strBytes = str.getBytes(UTF8);
+        putUInt16(blob, offset, strBytes.length);
+        System.arraycopy(strBytes, 0, blob, offset + 2, strBytes.length);
+        return offset + 2 + strBytes.length;
+    }
+
+    private static String getString(byte[] blob, int offset) {
+        if (offset == 0) { return null; }
+        return new String(blob, offset + 2, getUInt16(blob, offset), UTF8);
+    }
+
+    private static int getUInt16(byte[] blob, int pos) {
+        return ((blob[pos] & 0xFF) << 8) | (blob[pos + 1] & 0xFF);
+    }
+
+    private static void putUInt16(byte[] blob, int pos, int value) {
+        blob[pos] = (byte)(value >>> 8);
+        blob[pos + 1] = (byte)value;
+    }
+
+    private static int getInt32(byte[] blob, int pos) {
+        return ((blob[pos] & 0xFF) << 24) | ((blob[pos + 1] & 0xFF) << 16) | ((blob[pos + 2] & 0xFF) << 8) | (blob[pos + 3] & 0xFF);
+    }
+
+    private static void putInt32(byte[] blob, int pos, int value) {
+        blob[pos] = (byte)(value >>> 24);
+        blob[pos + 1] = (byte)(value >>> 16);
+        blob[pos + 2] = (byte)(value >>> 8);
+        blob[pos + 3] = (byte)value;
+    }
+
+    private static long getInt64(byte[] blob, int pos) {
+        return ((long)getInt32(blob, pos) << 32) | ((long)getInt32(blob, pos + 4) & 0xFFFFFFFFL);
+    }
+
+    private static void putInt64(byte[] blob, int pos, long value) {
+        putInt32(blob, pos, (int)(value >>> 32));
+        putInt32(blob, pos + 4, (int)value);
+    }
+}
@@ -7,6 +7,7 @@ import android.util.Log;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 
 import opensource.zeocompanion.ZeoCompanionApplication;
 import opensource.zeocompanion.utility.JournalDataCoordinator;
@@ -32,9 +33,9 @@ public class CompanionSleepEpisodesRec {
     public long rEvent_GotIntoBed_Timestamp = 0;
     public long rEvent_TryingToSleep_Timestamp = 0;
     public long rEvent_OutOfBedDoneSleeping_Timestamp = 0;
-    public String rEvents_CSV_string = null;            // may be null if none entered, or if unpacked
-    public String rAttributes_Fixed_CSV_string = null;  // may be null if none entered, or if unpacked
-    public String rAttributes_Vari_CSV_string = null;   // may be null if none entered, or if unpacked
+    public byte[] rEvents_packed = null;            // see CompanionSleepEpisodePackedCodec; may be null if none entered, or if unpacked
+    public byte[] rAttributes_Fixed_packed = null;  // see CompanionSleepEpisodePackedCodec; may be null if none entered, or if unpacked
+    public byte[] rAttributes_Vari_packed = null;   // see CompanionSleepEpisodePackedCodec; may be null if none entered, or if unpacked
     public int rAmendedFlags = 0;
     public long rAmend_StartOfNight = 0;
     public long rAmend_EndOfNight = 0;
@@ -52,11 +53,15 @@ public class CompanionSleepEpisodesRec {
     public byte[] rAmend_Display_Hypnogram = null;  // may be null if none amended
     public byte[] rAmend_Base_Hypnogram = null;     // may be null if none amended
 
-    // unpacked contents of the CSV strings; may be null if not yet unpacked
+    // unpacked contents of the packed fields; may be null if not yet unpacked
     public ArrayList<CompanionSleepEpisodeEventsParsedRec> mEvents_array = null;
     public ArrayList<CompanionSleepEpisodeInfoParsedRec> mAttribs_Fixed_array = null;
     public ArrayList<CompanionSleepEpisodeInfoParsedRec> mAttribs_Vari_array = null;
 
+    // columns that were not included in the query that built this record (see PROJECTION_SUMMARY); they are loaded on demand by hydrate()
+    public int mUnloadedColumns = 0;
+    public static final int CSE_COLUMNS_AMENDED_HYPNOGRAMS = 0x0001;
+
     // constructor #1:  create a sparsely populated initial record
     public CompanionSleepEpisodesRec(long startOfRecord) {
         rID = 0;
@@ -73,9 +78,9 @@ public class CompanionSleepEpisodesRec {
         rEvent_GotIntoBed_Timestamp = 0;
         rEvent_TryingToSleep_Timestamp = 0;
         rEvent_OutOfBedDoneSleeping_Timestamp = 0;
-        rEvents_CSV_string = null;
-        rAttributes_Fixed_CSV_string = null;
-        rAttributes_Vari_CSV_string = null;
+        rEvents_packed = null;
+        rAttributes_Fixed_packed = null;
+        rAttributes_Vari_packed = null;
         mEvents_array = null;
         mAttribs_Fixed_array = null;
         mAttribs_Vari_array = null;
@@ -114,12 +119,16 @@ public class CompanionSleepEpisodesRec {
             rEvent_TryingToSleep_Timestamp = cursor.getLong(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENT_TRYING_TO_SLEEP_TIMESTAMP));
             rEvent_OutOfBedDoneSleeping_Timestamp = cursor.getLong(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENT_OUT_OF_BED_DONE_SLEEPING_TIMESTAMP));
 
-            if (cursor.isNull(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_CSV_STRING))) { rEvents_CSV_string = null; }
-            else { rEvents_CSV_string = cursor.getString(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_CSV_STRING)); }
-            if (cursor.isNull(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_CSV_STRING))) { rAttributes_Fixed_CSV_string = null; }
-            else { rAttributes_Fixed_CSV_string = cursor.getString(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_CSV_STRING)); }
-            if (cursor.isNull(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_CSV_STRING))) { rAttributes_Vari_CSV_string = null; }
-            else { rAttributes_Vari_CSV_string = cursor.getString(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_CSV_STRING)); }
+            // events and attributes; the packed columns are the storage form from database version 7 onward;
+            // a record still holding the older CSV strings (upgrade did not complete, or the record could not be converted) gets converted when read
+            if (ZeoCompanionApplication.mDatabaseHandler.mVersion >= 7) {
+                rEvents_packed = getBlobOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_PACKED);
+                rAttributes_Fixed_packed = getBlobOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_PACKED);
+                rAttributes_Vari_packed = getBlobOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_PACKED);
+            }
+            if (rEvents_packed == null) { rEvents_packed = CompanionSleepEpisodePackedCodec.encodeEventsFromCSV(getStringOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_CSV_STRING)); }
+            if (rAttributes_Fixed_packed == null) { rAttributes_Fixed_packed = CompanionSleepEpisodePackedCodec.encodeFixedAttribsFromCSV(getStringOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_CSV_STRING)); }
+            if (rAttributes_Vari_packed == null) { rAttributes_Vari_packed = CompanionSleepEpisodePackedCodec.encodeVariAttribsFromCSV(getStringOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_CSV_STRING)); }
 
             mEvents_array = null;
             mAttribs_Fixed_array = null;
@@ -140,10 +149,12 @@ public class CompanionSleepEpisodesRec {
                 rAmend_LightChangedToDeep_min = ((double)cursor.getInt(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_LIGHT_CHANGED_TO_DEEP))) / 2.0;
                 rAmend_DeepSum = cursor.getLong(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DEEP_SUM));
 
-                if (cursor.isNull(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DISPLAY_HYPNOGRAM))) { rAmend_Display_Hypnogram = null; }
-                else { rAmend_Display_Hypnogram = cursor.getBlob(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DISPLAY_HYPNOGRAM)); }
-                if (cursor.isNull(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_BASE_HYPNOGRAM))) { rAmend_Base_Hypnogram = null; }
-                else { rAmend_Base_Hypnogram = cursor.getBlob(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_BASE_HYPNOGRAM)); }
+                // the hypnograms are absent when the cursor was built from PROJECTION_SUMMARY
+                if (cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DISPLAY_HYPNOGRAM) < 0) { mUnloadedColumns = mUnloadedColumns | CSE_COLUMNS_AMENDED_HYPNOGRAMS; }
+                else {
+                    rAmend_Display_Hypnogram = getBlobOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DISPLAY_HYPNOGRAM);
+                    rAmend_Base_Hypnogram = getBlobOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_BASE_HYPNOGRAM);
+                }
             }
             if (ZeoCompanionApplication.mDatabaseHandler.mVersion >= 4) {
                 rZeoHeadbandBattery_High = cursor.getInt(cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_HEADBAND_BATTERY_HIGH));
@@ -155,6 +166,53 @@ public class CompanionSleepEpisodesRec {
         }
     }
 
+    // constructor #3:  copy the record fields of another record; the unpacked arrays are not copied (they will be re-unpacked on demand);
+    // the packed fields and hypnogram arrays are duplicated so that nothing the receiver does to them can reach the source record;
+    // used by the history cache to hand out records that the receiver is free to alter, save, or destroy()
+    public CompanionSleepEpisodesRec(CompanionSleepEpisodesRec source) {
+        rID = source.rID;
+        rStartOfRecord_Timestamp = source.rStartOfRecord_Timestamp;
+        rEndOfRecord_Timestamp = source.rEndOfRecord_Timestamp;
+        rStatesFlag = source.rStatesFlag;
+        rZeoSleepEpisode_ID = source.rZeoSleepEpisode_ID;
+        rZeoEventStarting_Timestamp = source.rZeoEventStarting_Timestamp;
+        rZeoEventRecording_Timestamp = source.rZeoEventRecording_Timestamp;
+        rZeoEventEnding_Timestamp = source.rZeoEventEnding_Timestamp;
+        rZeoHeadbandBattery_High = source.rZeoHeadbandBattery_High;
+        rZeoHeadbandBattery_Low = source.rZeoHeadbandBattery_Low;
+        rEvent_GotIntoBed_Timestamp = source.rEvent_GotIntoBed_Timestamp;
+        rEvent_TryingToSleep_Timestamp = source.rEvent_TryingToSleep_Timestamp;
+        rEvent_OutOfBedDoneSleeping_Timestamp = source.rEvent_OutOfBedDoneSleeping_Timestamp;
+        rEvents_packed = copyOrNull(source.rEvents_packed);
+        rAttributes_Fixed_packed = copyOrNull(source.rAttributes_Fixed_packed);
+        rAttributes_Vari_packed = copyOrNull(source.rAttributes_Vari_packed);
+        mEvents_array = null;
+        mAttribs_Fixed_array = null;
+        mAttribs_Vari_array = null;
+        rAmendedFlags = source.rAmendedFlags;
+        rAmend_StartOfNight = source.rAmend_StartOfNight;
+        rAmend_EndOfNight = source.rAmend_EndOfNight;
+        rAmend_Display_Hypnogram_Starttime = source.rAmend_Display_Hypnogram_Starttime;
+        rAmend_CountAwakenings = source.rAmend_CountAwakenings;
+        rAmend_Time_to_Z_min = source.rAmend_Time_to_Z_min;
+        rAmend_Time_Total_Z_min = source.rAmend_Time_Total_Z_min;
+        rAmend_Time_Awake_min = source.rAmend_Time_Awake_min;
+        rAmend_Time_REM_min = source.rAmend_Time_REM_min;
+        rAmend_Time_Light_min = source.rAmend_Time_Light_min;
+        rAmend_Time_Deep_min = source.rAmend_Time_Deep_min;
+        rAmend_ZQ_Score = source.rAmend_ZQ_Score;
+        rAmend_LightChangedToDeep_min = source.rAmend_LightChangedToDeep_min;
+        rAmend_DeepSum = source.rAmend_DeepSum;
+        rAmend_Display_Hypnogram = copyOrNull(source.rAmend_Display_Hypnogram);
+        rAmend_Base_Hypnogram = copyOrNull(source.rAmend_Base_Hypnogram);
+        mUnloadedColumns = source.mUnloadedColumns;
+    }
+
+    private static byte[] copyOrNull(byte[] theBytes) {
+        if (theBytes == null) { return null; }
+        return theBytes.clone();
+    }
+
     // destroy the contents of this record;
     // although highly disputed: assist garbage collection since this class contains large strings and arrays;
     // running memory profiles of the App clearly demonstrates the need and advantage of doing this
@@ -175,41 +233,54 @@ public class CompanionSleepEpisodesRec {
                 mAttribs_Vari_array.clear();
                 mAttribs_Vari_array = null;
             }
-            rEvents_CSV_string = null;
-            rAttributes_Fixed_CSV_string = null;
-            rAttributes_Vari_CSV_string = null;
+            rEvents_packed = null;
+            rAttributes_Fixed_packed = null;
+            rAttributes_Vari_packed = null;
             rAmend_Display_Hypnogram = null;
             rAmend_Base_Hypnogram = null;
+            mUnloadedColumns = 0;
         } catch (Exception e) {
             ZeoCompanionApplication.postToErrorLog(_CTAG+".destroy", e, "CSE ID="+rID); // automatically posts a Log.e
         }
     }
 
     // save the record to the database; if not already existing it will be added; if already existing it will be updated;
-    // if the CSV strings have been unpacked, they will be automatically repacked
+    // if the packed fields have been unpacked, they will be automatically repacked
     public void saveToDB() {
         ContentValues values = saveToDB_build();
-        long result = ZeoCompanionApplication.mDatabaseHandler.insertOrReplaceRecs(CompanionDatabase.CompanionSleepEpisodes_TABLE_NAME, values);
+        long result;
+        if (isMissingUnloadedColumns()) { result = ZeoCompanionApplication.mDatabaseHandler.updateRecByID(CompanionDatabase.CompanionSleepEpisodes_TABLE_NAME, values, rID); }
+        else { result = ZeoCompanionApplication.mDatabaseHandler.insertOrReplaceRecs(CompanionDatabase.CompanionSleepEpisodes_TABLE_NAME, values); }
         if (result > 0) {   // errors are already handled by insertOrReplaceRecs
             rID = result;
+            if (ZeoCompanionApplication.mCoordinator != null) { ZeoCompanionApplication.mCoordinator.informCSEchanged(rID); }
             Log.d(_CTAG + ".saveToDB", "ID=" + rID + ", ZeoID=" + rZeoSleepEpisode_ID);
-            Log.d(_CTAG + ".saveToDB", "Events Zs="+rZeoEventStarting_Timestamp+"; In="+rEvent_GotIntoBed_Timestamp+"; Zr="+rZeoEventRecording_Timestamp+"; Go="+rEvent_GotIntoBed_Timestamp+"; Ze="+rZeoEventEnding_Timestamp+"; Do="+rEvent_OutOfBedDoneSleeping_Timestamp+"; String=" + rEvents_CSV_string);
-            Log.d(_CTAG + ".saveToDB", "FixedAttrStr=" + rAttributes_Fixed_CSV_string);
+            Log.d(_CTAG + ".saveToDB", "Events Zs="+rZeoEventStarting_Timestamp+"; In="+rEvent_GotIntoBed_Timestamp+"; Zr="+rZeoEventRecording_Timestamp+"; Go="+rEvent_GotIntoBed_Timestamp+"; Ze="+rZeoEventEnding_Timestamp+"; Do="+rEvent_OutOfBedDoneSleeping_Timestamp+"; Others=" + CompanionSleepEpisodePackedCodec.getCount(rEvents_packed));
+            Log.d(_CTAG + ".saveToDB", "FixedAttrs=" + CompanionSleepEpisodePackedCodec.getCount(rAttributes_Fixed_packed) + "; VariAttrs=" + CompanionSleepEpisodePackedCodec.getCount(rAttributes_Vari_packed));
         }
     }
     public void saveToDB(SQLiteDatabase db, boolean noAlert) {
         ContentValues values = saveToDB_build();
-        long result = ZeoCompanionApplication.mDatabaseHandler.insertOrReplaceRecs(db, CompanionDatabase.CompanionSleepEpisodes_TABLE_NAME, values, noAlert);
+        long result;
+        if (isMissingUnloadedColumns()) { result = ZeoCompanionApplication.mDatabaseHandler.updateRecByID(db, CompanionDatabase.CompanionSleepEpisodes_TABLE_NAME, values, rID, noAlert); }
+        else { result = ZeoCompanionApplication.mDatabaseHandler.insertOrReplaceRecs(db, CompanionDatabase.CompanionSleepEpisodes_TABLE_NAME, values, noAlert); }
         if (result > 0) {   // errors are already handled by insertOrReplaceRecs
             rID = result;
+            if (ZeoCompanionApplication.mCoordinator != null) { ZeoCompanionApplication.mCoordinator.informCSEchanged(rID); }
             Log.d(_CTAG + ".saveToDB_db", "ID=" + rID + ", ZeoID=" + rZeoSleepEpisode_ID);
-            Log.d(_CTAG + ".saveToDB_db", "Events Zs="+rZeoEventStarting_Timestamp+"; In="+rEvent_GotIntoBed_Timestamp+"; Zr="+rZeoEventRecording_Timestamp+"; Go="+rEvent_GotIntoBed_Timestamp+"; Ze="+rZeoEventEnding_Timestamp+"; Do="+rEvent_OutOfBedDoneSleeping_Timestamp+"; String=" + rEvents_CSV_string);
-            Log.d(_CTAG + ".saveToDB_db", "FixedAttrStr=" + rAttributes_Fixed_CSV_string);
+            Log.d(_CTAG + ".saveToDB_db", "Events Zs="+rZeoEventStarting_Timestamp+"; In="+rEvent_GotIntoBed_Timestamp+"; Zr="+rZeoEventRecording_Timestamp+"; Go="+rEvent_GotIntoBed_Timestamp+"; Ze="+rZeoEventEnding_Timestamp+"; Do="+rEvent_OutOfBedDoneSleeping_Timestamp+"; Others=" + CompanionSleepEpisodePackedCodec.getCount(rEvents_packed));
+            Log.d(_CTAG + ".saveToDB_db", "FixedAttrs=" + CompanionSleepEpisodePackedCodec.getCount(rAttributes_Fixed_packed) + "; VariAttrs=" + CompanionSleepEpisodePackedCodec.getCount(rAttributes_Vari_packed));
         }
     }
+    // the save replaces the entire row so the unloaded columns must first be loaded; if that fails (the columns remain unloaded),
+    // the stored row is instead updated without those columns, since replacing it would wipe out their stored contents
+    private boolean isMissingUnloadedColumns() {
+        return (mUnloadedColumns != 0 && rID > 0);
+    }
     private ContentValues saveToDB_build() {
-        if (mEvents_array != null) { packEventCSVstring(); }
-        if (mAttribs_Fixed_array != null || mAttribs_Vari_array != null) { packInfoCSVstrings(); }
+        if (mUnloadedColumns != 0) { hydrate(mUnloadedColumns); }
+        if (mEvents_array != null) { packEvents(); }
+        if (mAttribs_Fixed_array != null || mAttribs_Vari_array != null) { packInfos(); }
         ContentValues values = new ContentValues();
         if (rID != 0)  values.put(CompanionDatabaseContract.CompanionSleepEpisodes._ID, rID);
         values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_START_OF_RECORD_TIMESTAMP, rStartOfRecord_Timestamp);
@@ -224,12 +295,21 @@ public class CompanionSleepEpisodesRec {
         values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENT_TRYING_TO_SLEEP_TIMESTAMP, rEvent_TryingToSleep_Timestamp);
         values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENT_OUT_OF_BED_DONE_SLEEPING_TIMESTAMP, rEvent_OutOfBedDoneSleeping_Timestamp);
 
-        if (rEvents_CSV_string == null) { values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_CSV_STRING); }
-        else { values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_CSV_STRING, rEvents_CSV_string); }
-        if (rAttributes_Fixed_CSV_string == null) { values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_CSV_STRING); }
-        else { values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_CSV_STRING, rAttributes_Fixed_CSV_string); }
-        if (rAttributes_Vari_CSV_string == null) { values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_CSV_STRING); }
-        else { values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_CSV_STRING, rAttributes_Vari_CSV_string); }
+        // before the database upgrade to version 7 the older CSV strings are the only storage form; afterwards only the packed form is stored
+        // and the CSV columns are emptied, so that a stale CSV copy can never be read back in place of a packed column that is now null;
+        // the CSV strings for an older App version are instead produced when a backup copy is made (see CompanionDatabase.writeAllCSVstrings)
+        if (ZeoCompanionApplication.mDatabaseHandler.mVersion >= 7) {
+            putBlobOrNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_PACKED, rEvents_packed);
+            putBlobOrNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_PACKED, rAttributes_Fixed_packed);
+            putBlobOrNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_PACKED, rAttributes_Vari_packed);
+            values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_CSV_STRING);
+            values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_CSV_STRING);
+            values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_CSV_STRING);
+        } else {
+            putStringOrNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_EVENTS_CSV_STRING, CompanionSleepEpisodePackedCodec.toEventsCSV(rEvents_packed));
+            putStringOrNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_FIXED_CSV_STRING, CompanionSleepEpisodePackedCodec.toFixedAttribsCSV(rAttributes_Fixed_packed));
+            putStringOrNull(values, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_ATTRIBS_VARI_CSV_STRING, CompanionSleepEpisodePackedCodec.toVariAttribsCSV(rAttributes_Vari_packed));
+        }
 
         if (ZeoCompanionApplication.mDatabaseHandler.mVersion > 1) {
             values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMENDED, rAmendedFlags);
@@ -246,10 +326,12 @@ public class CompanionSleepEpisodesRec {
             values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_LIGHT_CHANGED_TO_DEEP, (int)(rAmend_LightChangedToDeep_min * 2.0));
             values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DEEP_SUM, rAmend_DeepSum);
 
-            if (rAmend_Display_Hypnogram == null) { values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DISPLAY_HYPNOGRAM);
-            } else { values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DISPLAY_HYPNOGRAM, rAmend_Display_Hypnogram); }
-            if (rAmend_Base_Hypnogram == null) { values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_BASE_HYPNOGRAM); }
-            else { values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_BASE_HYPNOGRAM, rAmend_Base_Hypnogram); }
+            if ((mUnloadedColumns & CSE_COLUMNS_AMENDED_HYPNOGRAMS) == 0) {
+                if (rAmend_Display_Hypnogram == null) { values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DISPLAY_HYPNOGRAM);
+                } else { values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DISPLAY_HYPNOGRAM, rAmend_Display_Hypnogram); }
+                if (rAmend_Base_Hypnogram == null) { values.putNull(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_BASE_HYPNOGRAM); }
+                else { values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_BASE_HYPNOGRAM, rAmend_Base_Hypnogram); }
+            }
         }
         if (ZeoCompanionApplication.mDatabaseHandler.mVersion >= 4) {
             values.put(CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_HEADBAND_BATTERY_HIGH, rZeoHeadbandBattery_High);
@@ -258,12 +340,104 @@ public class CompanionSleepEpisodesRec {
         }
         return values;
     }
+    private static byte[] getBlobOrNull(Cursor cursor, String column) {
+        int inx = cursor.getColumnIndex(column);
+        if (cursor.isNull(inx)) { return null; }
+        return cursor.getBlob(inx);
+    }
+    private static String getStringOrNull(Cursor cursor, String column) {
+        int inx = cursor.getColumnIndex(column);
+        if (cursor.isNull(inx)) { return null; }
+        return cursor.getString(inx);
+    }
+    private static void putBlobOrNull(ContentValues values, String column, byte[] blob) {
+        if (blob == null) { values.putNull(column); }
+        else { values.put(column, blob); }
+    }
+    private static void putStringOrNull(ContentValues values, String column, String str) {
+        if (str == null) { values.putNull(column); }
+        else { values.put(column, str); }
+    }
+
+    // get the amended hypnograms; these are loaded from the database upon first need if the record was built from a summary query;
+    // the History page loader pre-loads them on its own thread (see JournalDataCoordinator.hydrateIntegratedHistoryRecs) so the UI thread normally does not query here
+    public byte[] getAmendDisplayHypnogram() {
+        if ((mUnloadedColumns & CSE_COLUMNS_AMENDED_HYPNOGRAMS) != 0) { hydrate(CSE_COLUMNS_AMENDED_HYPNOGRAMS); }
+        return rAmend_Display_Hypnogram;
+    }
+    public byte[] getAmendBaseHypnogram() {
+        if ((mUnloadedColumns & CSE_COLUMNS_AMENDED_HYPNOGRAMS) != 0) { hydrate(CSE_COLUMNS_AMENDED_HYPNOGRAMS); }
+        return rAmend_Base_Hypnogram;
+    }
+
+    // replace the amended hypnograms; any still-unloaded prior hypnograms are no longer of interest
+    public void setAmendHypnograms(byte[] displayHypnogram, byte[] baseHypnogram) {
+        rAmend_Display_Hypnogram = displayHypnogram;
+        rAmend_Base_Hypnogram = baseHypnogram;
+        mUnloadedColumns = mUnloadedColumns & ~CSE_COLUMNS_AMENDED_HYPNOGRAMS;
+    }
+
+    // take copies of the amended hypnograms of another instance of this same record, if that instance has them loaded
+    public void takeAmendHypnogramsFrom(CompanionSleepEpisodesRec source) {
+        if ((source.mUnloadedColumns & CSE_COLUMNS_AMENDED_HYPNOGRAMS) != 0) { return; }
+        setAmendHypnograms(copyOrNull(source.rAmend_Display_Hypnogram), copyOrNull(source.rAmend_Base_Hypnogram));
+    }
+
+    // load the indicated unloaded columns of this record
+    public void hydrate(int columnsMask) {
+        ArrayList<CompanionSleepEpisodesRec> theRecs = new ArrayList<CompanionSleepEpisodesRec>(1);
+        theRecs.add(this);
+        hydrateAll(theRecs, columnsMask);
+    }
+
+    // load the indicated unloaded columns of all the records in the list using as few queries as possible;
+    // records obtained via the JournalDataCoordinator should instead be loaded via its hydrateJournalRecs() so its cache retains the columns
+    public static void hydrateAll(ArrayList<CompanionSleepEpisodesRec> theRecs, int columnsMask) {
+        if ((columnsMask & CSE_COLUMNS_AMENDED_HYPNOGRAMS) == 0) { return; }
+        HashMap<Long, CompanionSleepEpisodesRec> needed = new HashMap<Long, CompanionSleepEpisodesRec>();
+        for (CompanionSleepEpisodesRec rec: theRecs) {
+            if (rec == null) { continue; }
+            if ((rec.mUnloadedColumns & CSE_COLUMNS_AMENDED_HYPNOGRAMS) == 0) { continue; }
+            if (rec.rID <= 0) { rec.mUnloadedColumns = rec.mUnloadedColumns & ~CSE_COLUMNS_AMENDED_HYPNOGRAMS; continue; }  // never stored so nothing to load
+            needed.put(rec.rID, rec);
+        }
+        if (needed.isEmpty()) { return; }
+
+        long[] ids = new long[needed.size()];
+        int n = 0;
+        for (Long id: needed.keySet()) { ids[n++] = id; }
+        for (int from = 0; from < ids.length; from = from + CompanionDatabase.MAX_BOUND_VARIABLES_PER_QUERY) {
+            int qty = Math.min(CompanionDatabase.MAX_BOUND_VARIABLES_PER_QUERY, ids.length - from);
+            Cursor cursor = ZeoCompanionApplication.mDatabaseHandler.getSpecifiedCompanionSleepEpisodesHypnograms(ids, from, qty);
+            if (cursor == null) { continue; }   // errors are already handled; the records remain unloaded and will be retried upon next need
+            try {   // master Exception catcher
+                if (cursor.moveToFirst()) {
+                    int idInx = cursor.getColumnIndex(CompanionDatabaseContract.CompanionSleepEpisodes._ID);
+                    do {
+                        CompanionSleepEpisodesRec rec = needed.get(cursor.getLong(idInx));
+                        if (rec == null) { continue; }
+                        rec.rAmend_Display_Hypnogram = getBlobOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_DISPLAY_HYPNOGRAM);
+                        rec.rAmend_Base_Hypnogram = getBlobOrNull(cursor, CompanionDatabaseContract.CompanionSleepEpisodes.COLUMN_AMEND_BASE_HYPNOGRAM);
+                    } while (cursor.moveToNext());
+                }
+                // any records of the batch not found in the database have been deleted; they have no hypnograms
+                for (int i = from; i < from + qty; i++) {
+                    CompanionSleepEpisodesRec rec = needed.get(ids[i]);
+                    rec.mUnloadedColumns = rec.mUnloadedColumns & ~CSE_COLUMNS_AMENDED_HYPNOGRAMS;
+                }
+            } catch (Exception e) {
+                ZeoCompanionApplication.postToErrorLog(_CTAG+".hydrateAll", e, "IDs qty=" + qty); // automatically posts a Log.e
+            }
+            cursor.close();
+        }
+    }
 
     // remove the indicated SleepEpisode record from the database
     public static void removeFromDB(CompanionDatabase dbh, long id) {
         String where = CompanionDatabaseContract.CompanionSleepEpisodes._ID + "=?";
         String values[] = { String.valueOf(id) };
         dbh.deleteRecs(CompanionDatabase.CompanionSleepEpisodes_TABLE_NAME, where, values);
+        if (ZeoCompanionApplication.mCoordinator != null) { ZeoCompanionApplication.mCoordinator.informCSEchanged(id); }
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -304,9 +478,7 @@ public class CompanionSleepEpisodesRec {
         if (rZeoEventRecording_Timestamp > 0L) { bits = (bits | 0x00002000); }
         if (rZeoEventEnding_Timestamp > 0L) { bits = (bits | 0x00004000); }
         if (rEvent_GotIntoBed_Timestamp > 0L || rEvent_TryingToSleep_Timestamp > 0L || rEvent_OutOfBedDoneSleeping_Timestamp > 0L ) { bits = (bits | 0x00010000); checkDeeper = false; }
-        if (rEvents_CSV_string != null) {
-            if (!rEvents_CSV_string.isEmpty()) { bits = (bits | 0x00010000); checkDeeper = false; }
-        }
+        if (CompanionSleepEpisodePackedCodec.getCount(rEvents_packed) > 0) { bits = (bits | 0x00010000); checkDeeper = false; }
         if (mEvents_array != null && checkDeeper) {
            for ( CompanionSleepEpisodeEventsParsedRec eRec: mEvents_array) {
                if (eRec.rEventNo != CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_EVENT_ZEO_STARTING &&
@@ -360,9 +532,10 @@ public class CompanionSleepEpisodesRec {
     // Events management methods
     ////////////////////////////////////////////////////////////////////////////
 
-    // unpack the Events from String to ArrayList; events are automatically added for those that just recorded into the record proper;
-    // note that if there are no events, the unpack process will still leave a non-null yet empty mEvents_array to signal an unpack was performed
-    public  void unpackEventCSVstring() {
+    // unpack the Events from their packed form to ArrayList; events are automatically added for those that just recorded into the record proper;
+    // note that if there are no events, the unpack process will still leave a non-null yet empty mEvents_array to signal an unpack was performed;
+    // callers that only need to inspect the events should prefer the methods below which read the packed form directly
+    public  void unpackEvents() {
         try {   // master Exception catcher
             if (mEvents_array != null) { return; }  // already unpacked
 
@@ -380,15 +553,9 @@ public class CompanionSleepEpisodesRec {
             if (rZeoEventEnding_Timestamp != 0) { mEvents_array.add(new CompanionSleepEpisodeEventsParsedRec(CompanionDatabaseContract.SLEEP_EPISODE_STAGE_AFTER, rZeoEventEnding_Timestamp,
                                                                     CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_EVENT_ZEO_ENDING, "")); }
 
-            if (rEvents_CSV_string != null) {
-                String parsedStrings[] = rEvents_CSV_string.split(",", -1);
-                for (String field : parsedStrings) {
-                    if (!field.isEmpty()) {
-                        CompanionSleepEpisodeEventsParsedRec newRec = new CompanionSleepEpisodeEventsParsedRec(field);
-                        mEvents_array.add(newRec);
-                    }
-                }
-                rEvents_CSV_string = null;
+            if (rEvents_packed != null) {
+                CompanionSleepEpisodePackedCodec.decodeEvents(rEvents_packed, mEvents_array);
+                rEvents_packed = null;
             }
 
             // sort the events array in ascending timestamp order (oldest to newest)
@@ -407,13 +574,13 @@ public class CompanionSleepEpisodesRec {
                 });
             }
         } catch (Exception e) {
-                ZeoCompanionApplication.postToErrorLog(_CTAG+".unpackEventCSVstring", e, "CSE ID=" + rID);  // automatically posts a Log.e
+                ZeoCompanionApplication.postToErrorLog(_CTAG+".unpackEvents", e, "CSE ID=" + rID);  // automatically posts a Log.e
         }
     }
 
-    // repack the Events from ArrayList into String; this is normally called only by saveToDB();
-    // selected events that are only allowed to occur once are stored in the main record rather than the CSV string
-    private void packEventCSVstring() {
+    // repack the Events from ArrayList into their packed form; this is normally called only by saveToDB();
+    // selected events that are only allowed to occur once are stored in the main record rather than the packed form
+    private void packEvents() {
         try {   // master Exception catcher
             if (mEvents_array == null) { return; }  // no prior unpack has been performed
 
@@ -443,7 +610,7 @@ public class CompanionSleepEpisodesRec {
 
             // are there actually no events?
             if (mEvents_array.isEmpty()) {
-                rEvents_CSV_string = null;
+                rEvents_packed = null;
                 mEvents_array = null;
                 return;
             }
@@ -498,27 +665,18 @@ public class CompanionSleepEpisodesRec {
                 }
             }
 
-            // process all the remaining
-            String str = "";
-            for (int pos = 0; pos < mEvents_array.size(); pos++) {
-                CompanionSleepEpisodeEventsParsedRec existing = mEvents_array.get(pos);
-                if (existing.rEventNo != CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_NONEVENT_HANDLED) {
-                    if (!str.isEmpty()) { str = str + ","; }
-                    str = str + existing.getStorageString();
-                }
-            }
-            if (str.isEmpty()) { rEvents_CSV_string = null; }
-            else { rEvents_CSV_string = str;  }
+            // pack all the remaining (already in timestamp order)
+            rEvents_packed = CompanionSleepEpisodePackedCodec.encodeEvents(mEvents_array);
             mEvents_array = null;
         } catch (Exception e) {
-            ZeoCompanionApplication.postToErrorLog(_CTAG+".packEventCSVstring", e, "CSE ID=" + rID);    // automatically posts a Log.e
+            ZeoCompanionApplication.postToErrorLog(_CTAG+".packEvents", e, "CSE ID=" + rID);    // automatically posts a Log.e
         }
     }
 
     // store a new event; this is normally called by the JournalDataCoordinator
     public void storeEvent(CompanionSleepEpisodeEventsParsedRec newRec) {
         try {   // master Exception catcher
-            if (mEvents_array == null) { unpackEventCSVstring(); }
+            if (mEvents_array == null) { unpackEvents(); }
             mEvents_array.add(newRec);
         } catch (Exception e) {
             ZeoCompanionApplication.postToErrorLog(_CTAG+".storeEvent", e, "CSE ID=" + rID + " new Event#=" + newRec.rEventNo); // automatically posts a Log.e
@@ -529,7 +687,7 @@ public class CompanionSleepEpisodesRec {
     // this is normally called by the JournalDataCoordinator
     public boolean isNearDuplicateBeforeStoring(CompanionSleepEpisodeEventsParsedRec recToCheck) {
         try {   // master Exception catcher
-            if (mEvents_array == null) { unpackEventCSVstring(); }
+            if (mEvents_array == null) { unpackEvents(); }
             for (CompanionSleepEpisodeEventsParsedRec existing: mEvents_array) {
                 if (existing.rEventNo == recToCheck.rEventNo) {
                     if (existing.rEventInfo == null) {
@@ -554,10 +712,26 @@ public class CompanionSleepEpisodesRec {
     public long getSleepStageLastEventTimestamp(int sleepStage) {
         long ts = 0;
         try {   // master Exception catcher
-            if (mEvents_array == null) { unpackEventCSVstring(); }
-            for (CompanionSleepEpisodeEventsParsedRec existing: mEvents_array) {
-                if (existing.rSleepStage == sleepStage) {
-                    if (existing.rTimestamp > ts) { ts = existing.rTimestamp; }
+            if (mEvents_array != null) {
+                for (CompanionSleepEpisodeEventsParsedRec existing: mEvents_array) {
+                    if (existing.rSleepStage == sleepStage) {
+                        if (existing.rTimestamp > ts) { ts = existing.rTimestamp; }
+                    }
+                }
+                return ts;
+            }
+
+            // not unpacked; read the fixed timestamps and the packed form directly
+            if (sleepStage == CompanionDatabaseContract.SLEEP_EPISODE_STAGE_INBED) {
+                ts = Math.max(Math.max(rZeoEventStarting_Timestamp, rEvent_GotIntoBed_Timestamp), Math.max(rZeoEventRecording_Timestamp, rEvent_TryingToSleep_Timestamp));
+            } else if (sleepStage == CompanionDatabaseContract.SLEEP_EPISODE_STAGE_AFTER) {
+                ts = Math.max(rEvent_OutOfBedDoneSleeping_Timestamp, rZeoEventEnding_Timestamp);
+            }
+            int count = CompanionSleepEpisodePackedCodec.getCount(rEvents_packed);
+            for (int i = 0; i < count; i++) {
+                if (CompanionSleepEpisodePackedCodec.getEventSleepStage(rEvents_packed, i) == sleepStage) {
+                    long evtTs = CompanionSleepEpisodePackedCodec.getEventTimestamp(rEvents_packed, i);
+                    if (evtTs > ts) { ts = evtTs; }
                 }
             }
         } catch (Exception e) {
@@ -566,28 +740,63 @@ public class CompanionSleepEpisodesRec {
         return ts;
     }
 
-    // get the indicated (oldest) event if present
+    // get the indicated (oldest) event if present; if the events are not unpacked then the returned record is a detached copy
     public CompanionSleepEpisodeEventsParsedRec getEventOldest(int sleepStage, int eventNo) {
-        long ts = 0;
         try {   // master Exception catcher
-            if (mEvents_array == null) { unpackEventCSVstring(); }
-            for (CompanionSleepEpisodeEventsParsedRec existing: mEvents_array) {
-                if (existing.rSleepStage == sleepStage && existing.rEventNo == eventNo) {
-                    return existing;
+            if (mEvents_array != null) {
+                for (CompanionSleepEpisodeEventsParsedRec existing: mEvents_array) {
+                    if (existing.rSleepStage == sleepStage && existing.rEventNo == eventNo) {
+                        return existing;
+                    }
                 }
+                return null;
             }
+
+            // not unpacked; the fixed timestamp (if any) for this event competes with the oldest matching packed event (they are in timestamp order)
+            long ts = getFixedEventTimestamp(sleepStage, eventNo);
+            int count = CompanionSleepEpisodePackedCodec.getCount(rEvents_packed);
+            for (int i = 0; i < count; i++) {
+                if (CompanionSleepEpisodePackedCodec.getEventSleepStage(rEvents_packed, i) == sleepStage && CompanionSleepEpisodePackedCodec.getEventNo(rEvents_packed, i) == eventNo) {
+                    long evtTs = CompanionSleepEpisodePackedCodec.getEventTimestamp(rEvents_packed, i);
+                    if (ts != 0 && ts <= evtTs) { break; }
+                    return new CompanionSleepEpisodeEventsParsedRec(sleepStage, evtTs, eventNo, CompanionSleepEpisodePackedCodec.getEventInfo(rEvents_packed, i));
+                }
+            }
+            if (ts != 0) { return new CompanionSleepEpisodeEventsParsedRec(sleepStage, ts, eventNo, null); }
         } catch (Exception e) {
             ZeoCompanionApplication.postToErrorLog(_CTAG+".getEventFirst", e, "CSE ID=" + rID + " & sleepStage=" + sleepStage+" & event=" + eventNo); // automatically posts a Log.e
         }
         return null;
     }
 
+    // the timestamp of an event that is stored in the record proper rather than the packed form; zero if none
+    private long getFixedEventTimestamp(int sleepStage, int eventNo) {
+        if (sleepStage == CompanionDatabaseContract.SLEEP_EPISODE_STAGE_INBED) {
+            switch (eventNo) {
+                case CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_EVENT_ZEO_STARTING:
+                    return rZeoEventStarting_Timestamp;
+                case CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_EVENT_GOT_INTO_BED:
+                    return rEvent_GotIntoBed_Timestamp;
+                case CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_EVENT_ZEO_RECORDING:
+                    return rZeoEventRecording_Timestamp;
+                case CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_EVENT_GOING_TO_SLEEP:
+                    return rEvent_TryingToSleep_Timestamp;
+            }
+        } else if (sleepStage == CompanionDatabaseContract.SLEEP_EPISODE_STAGE_AFTER) {
+            switch (eventNo) {
+                case CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_EVENT_DONE_SLEEPING:
+                    return rEvent_OutOfBedDoneSleeping_Timestamp;
+                case CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_EPISODE_EVENT_ZEO_ENDING:
+                    return rZeoEventEnding_Timestamp;
+            }
+        }
+        return 0;
+    }
+
     // determine whether the record contains any event information in its various formats
     public boolean doEventsExist() {
         try {   // master Exception catcher
-            if (rEvents_CSV_string != null) {
-                if (!rEvents_CSV_string.isEmpty()) { return true; }
-            }
+            if (CompanionSleepEpisodePackedCodec.getCount(rEvents_packed) > 0) { return true; }
             if (mEvents_array != null) {
                 if (!mEvents_array.isEmpty()) { return true; }
             }
@@ -604,104 +813,38 @@ public class CompanionSleepEpisodesRec {
     // Attributes management methods
     ////////////////////////////////////////////////////////////////////////////
 
-    // unpack the two Info CSV Strings to ArrayLists; for Fixed (slotted) attributes the missing AttributeExportName is automatically inserted
-    public void unpackInfoCSVstrings() {
+    // unpack the two packed Infos to ArrayLists; for Fixed (slotted) attributes the missing AttributeExportName is automatically inserted;
+    // callers that only need to inspect the attributes should prefer the methods below which read the packed form directly
+    public void unpackInfos() {
         try {   // master Exception catcher
-            if (rAttributes_Fixed_CSV_string == null) {
-                // either the info string has already been unpacked, or there are no fixed-slot attributes
-                if (mAttribs_Fixed_array == null) {
-                    // not yet unpacked and therefore there are no fixed-slot attributes; create an all-null array
-                    mAttribs_Fixed_array = new ArrayList<CompanionSleepEpisodeInfoParsedRec>();
-                    for (int slot = 0; slot < MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL; slot++) { mAttribs_Fixed_array.add(null); }
-                }
-            } else {
-                // add attribute records or nulls into the array from the parsed string; add content they contain proper content; add null if not
-                mAttribs_Fixed_array = new ArrayList<CompanionSleepEpisodeInfoParsedRec>();
-                String parsedStrings[] = rAttributes_Fixed_CSV_string.split(",", -1);
-                for (int slot = 0; slot < MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL; slot++) {
-                    if (slot >= parsedStrings.length) {
-                        mAttribs_Fixed_array.add(null);
-                    } else if (parsedStrings[slot] == null) {
-                        mAttribs_Fixed_array.add(null);
-                    } else if (parsedStrings[slot].isEmpty()) {
-                        mAttribs_Fixed_array.add(null);
-                    } else {
-                        CompanionSleepEpisodeInfoParsedRec newRec = new CompanionSleepEpisodeInfoParsedRec(slot, parsedStrings[slot]);
-                        if (newRec.rLikert != 0.0 || newRec.rValue != null) { mAttribs_Fixed_array.add(newRec); }
-                        else { mAttribs_Fixed_array.add(null); }
-                    }
-                }
-               rAttributes_Fixed_CSV_string = null;
+            if (mAttribs_Fixed_array == null) {
+                // not yet unpacked; if there are no fixed-slot attributes then this creates an all-null array
+                mAttribs_Fixed_array = CompanionSleepEpisodePackedCodec.decodeFixedAttribs(rAttributes_Fixed_packed);
+                rAttributes_Fixed_packed = null;
             }
-
-            if (rAttributes_Vari_CSV_string == null) {
-                // either the info string has already been unpacked, or there are no custom non-fixed-slot attributes
-                if (mAttribs_Vari_array == null) {
-                    // not yet unpacked and therefore there are no custom non-fixed-slot attributes; create an empty array
-                    mAttribs_Vari_array = new ArrayList<CompanionSleepEpisodeInfoParsedRec>();
-                }
-            } else {
-                // there are custom non-slot attributes that have not yet been unpacked; create the empty array and parse the string
-                mAttribs_Vari_array = new ArrayList<CompanionSleepEpisodeInfoParsedRec>();
-                String parsedStrings[] = rAttributes_Vari_CSV_string.split(",", -1);
-
-                // add attribute records into the array from the parsed string if they contain proper content
-                for (String field: parsedStrings) {
-                    if (field != null) {
-                        if (!field.isEmpty()) {
-                            CompanionSleepEpisodeInfoParsedRec newRec = new CompanionSleepEpisodeInfoParsedRec(-1, field);
-                            if (newRec.rAttributeExportName != null && (newRec.rLikert != 0.0 || newRec.rValue != null)) { mAttribs_Vari_array.add(newRec); }
-                        }
-                    }
-                }
-                rAttributes_Vari_CSV_string = null;
+            if (mAttribs_Vari_array == null) {
+                // not yet unpacked; if there are no custom non-fixed-slot attributes then this creates an empty array
+                mAttribs_Vari_array = CompanionSleepEpisodePackedCodec.decodeVariAttribs(rAttributes_Vari_packed);
+                rAttributes_Vari_packed = null;
             }
         } catch (Exception e) {
-            ZeoCompanionApplication.postToErrorLog(_CTAG+".unpackInfoCSVstrings", e, "CSE ID=" + rID);  // automatically posts a Log.e
+            ZeoCompanionApplication.postToErrorLog(_CTAG+".unpackInfos", e, "CSE ID=" + rID);  // automatically posts a Log.e
         }
     }
 
-    // repack the Infos from their ArrayLists into Strings; this is normally called only by saveToDB();
-    // need to make sure to not include a final trailing comma
-    public void packInfoCSVstrings() {
+    // repack the Infos from their ArrayLists into their packed forms; this is normally called only by saveToDB()
+    public void packInfos() {
         try {   // master Exception catcher
             if (mAttribs_Fixed_array != null) {
-                String str = "";
-                int m = mAttribs_Fixed_array.size();
-                int n = MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL - 1;
-                for (int slot = 0; slot < MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL; slot++) {
-                    if (slot >= m) {
-                        if (slot <  n) { str = str + ","; }
-                    } else {
-                        CompanionSleepEpisodeInfoParsedRec existing = mAttribs_Fixed_array.get(slot);
-                        if (existing == null) {
-                            if (slot <  n) { str = str + ","; }
-                        } else {
-                            str = str + existing.getStorageString();
-                            if (slot <  n) { str = str + ","; }
-                        }
-                    }
-                }
-                if (str.isEmpty()) { rAttributes_Fixed_CSV_string = null; }
-                else {rAttributes_Fixed_CSV_string = str;  }
+                rAttributes_Fixed_packed = CompanionSleepEpisodePackedCodec.encodeFixedAttribs(mAttribs_Fixed_array);
                 mAttribs_Fixed_array = null;
             }
-
             if (mAttribs_Vari_array != null) {
-                String str = "";
-                for (int pos = 0; pos < mAttribs_Vari_array.size(); pos++) {
-                    CompanionSleepEpisodeInfoParsedRec existing = mAttribs_Vari_array.get(pos);
-                    if (existing != null) {
-                        if (!str.isEmpty()) { str = str + ","; }
-                        str = str + existing.getStorageString();
-                    }
-                }
-                if (str.isEmpty()) { rAttributes_Vari_CSV_string = null; }
-                else {rAttributes_Vari_CSV_string = str;  }
+                rAttributes_Vari_packed = CompanionSleepEpisodePackedCodec.encodeVariAttribs(mAttribs_Vari_array);
                 mAttribs_Vari_array = null;
             }
         } catch (Exception e) {
-            ZeoCompanionApplication.postToErrorLog(_CTAG+".packInfoCSVstrings", e, "CSE ID=" + rID);    // automatically posts a Log.e
+            ZeoCompanionApplication.postToErrorLog(_CTAG+".packInfos", e, "CSE ID=" + rID);    // automatically posts a Log.e
         }
     }
 
@@ -711,9 +854,7 @@ public class CompanionSleepEpisodesRec {
             if (mAttribs_Vari_array != null) {
                 if (!mAttribs_Vari_array.isEmpty()) { return true; }
             }
-            if (rAttributes_Vari_CSV_string != null) {
-                if (!rAttributes_Vari_CSV_string.isEmpty()) { return true; }
-            }
+            if (CompanionSleepEpisodePackedCodec.getCount(rAttributes_Vari_packed) > 0) { return true; }
 
             if (mAttribs_Fixed_array != null) {
                 if (!mAttribs_Fixed_array.isEmpty()) {
@@ -722,18 +863,7 @@ public class CompanionSleepEpisodesRec {
                     }
                 }
             }
-            if (rAttributes_Fixed_CSV_string != null) {
-                if (!rAttributes_Fixed_CSV_string.isEmpty()) {
-                    String splitStr[] = rAttributes_Fixed_CSV_string.split(",");
-                    if (splitStr.length > 0) {
-                        for (String str: splitStr) {
-                            if (str != null) {
-                                if (!str.isEmpty()) { return true; }
-                            }
-                        }
-                    }
-                }
-            }
+            if (CompanionSleepEpisodePackedCodec.isAnyFixedSlotPresent(rAttributes_Fixed_packed)) { return true; }
         } catch (Exception e) {
             ZeoCompanionApplication.postToErrorLog(_CTAG+".doAttributesExist", e, "CSE ID=" + rID); // automatically posts a Log.e
         }
@@ -744,7 +874,7 @@ public class CompanionSleepEpisodesRec {
     public ArrayList<String> getAttribsSummaryStrings(int sleepStage) {
         ArrayList<String> theList = new ArrayList<String>();
         try {   // master Exception catcher
-            if (mAttribs_Fixed_array == null || mAttribs_Vari_array == null ) { unpackInfoCSVstrings(); }
+            if (mAttribs_Fixed_array == null || mAttribs_Vari_array == null ) { unpackInfos(); }
             if (mAttribs_Fixed_array != null) {
                 for (CompanionSleepEpisodeInfoParsedRec infoRec: mAttribs_Fixed_array) {
                     if (infoRec != null) {
@@ -782,17 +912,9 @@ public class CompanionSleepEpisodesRec {
                     if (infoRec.rValue == null) { return ""; }
                     return infoRec.rValue;
                 } else {
-                    if (rAttributes_Fixed_CSV_string != null) {
-                        if (!rAttributes_Fixed_CSV_string.isEmpty()) {
-                            String splitString[] = rAttributes_Fixed_CSV_string.split(",", -1);
-                            if (splitString.length < typeRec.rExportSlot) { return ""; }
-                            if (splitString[typeRec.rExportSlot] == null) { return ""; }
-                            if (splitString[typeRec.rExportSlot].isEmpty()) { return ""; }
-                            CompanionSleepEpisodeInfoParsedRec newRec = new CompanionSleepEpisodeInfoParsedRec(0, splitString[typeRec.rExportSlot]);
-                            if (newRec.rValue == null) { return ""; }
-                            return newRec.rValue;
-                        }
-                    }
+                    String value = CompanionSleepEpisodePackedCodec.getFixedValue(rAttributes_Fixed_packed, typeRec.rExportSlot);
+                    if (value == null) { return ""; }
+                    return value;
                 }
             } else {
                 // look in custom non-fixed-slot attributes area
@@ -804,18 +926,11 @@ public class CompanionSleepEpisodesRec {
                         }
                     }
                 } else {
-                    if (rAttributes_Vari_CSV_string != null) {
-                        if (!rAttributes_Vari_CSV_string.isEmpty()) {
-                            int pos = rAttributes_Vari_CSV_string.indexOf(";"+typeRec.rExportSlotName+";", 0);
-                            if (pos > 0) {
-                                pos = pos + typeRec.rExportSlotName.length() + 2;
-                                int end = rAttributes_Vari_CSV_string.indexOf(";", pos);
-                                if (end < 0) { return  rAttributes_Vari_CSV_string.substring(pos); }
-                                if (end == 0) { return ""; }
-                                return  rAttributes_Vari_CSV_string.substring(pos, end);   // remember 'end' is really 'end-1'
-                            }
-                        }
-                    }
+                    int inx = CompanionSleepEpisodePackedCodec.findVari(rAttributes_Vari_packed, typeRec.rExportSlotName);
+                    if (inx < 0) { return ""; }
+                    String value = CompanionSleepEpisodePackedCodec.getVariValue(rAttributes_Vari_packed, inx);
+                    if (value == null) { return ""; }
+                    return value;
                 }
             }
         } catch (Exception e) {
@@ -829,7 +944,7 @@ public class CompanionSleepEpisodesRec {
     public void storeAttributeValue(int sleepStage, CompanionAttributesRec typeRec, String value, float likert) {
         try {   // master Exception catcher
             if ((typeRec.rFlags & CompanionDatabaseContract.CompanionAttributes.COMPANION_ATTRIBUTES_FLAG_FACTORY_DISABLED) != 0) { return; }
-            if (mAttribs_Fixed_array == null || mAttribs_Vari_array == null ) { unpackInfoCSVstrings(); }
+            if (mAttribs_Fixed_array == null || mAttribs_Vari_array == null ) { unpackInfos(); }
 
             if ((typeRec.rFlags & CompanionDatabaseContract.CompanionAttributes.COMPANION_ATTRIBUTES_FLAG_FIXED_SLOT) != 0) {
                 // fixed-slot attribute
@@ -859,7 +974,7 @@ public class CompanionSleepEpisodesRec {
     // remove an attribute
     public void removeAttribute(int sleepStage, CompanionAttributesRec typeRec) {
         try {   // master Exception catcher
-            if (mAttribs_Fixed_array == null || mAttribs_Vari_array == null ) { unpackInfoCSVstrings(); }
+            if (mAttribs_Fixed_array == null || mAttribs_Vari_array == null ) { unpackInfos(); }
             if ((typeRec.rFlags & CompanionDatabaseContract.CompanionAttributes.COMPANION_ATTRIBUTES_FLAG_FIXED_SLOT) != 0) {
                 // fixed-slot attribute
                 mAttribs_Fixed_array.set(typeRec.rExportSlot, null);
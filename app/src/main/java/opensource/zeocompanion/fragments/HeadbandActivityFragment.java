@@ -13,16 +13,19 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
+import java.io.File;
 import java.util.ArrayList;
 import opensource.zeocompanion.R;
 import opensource.zeocompanion.ZeoCompanionApplication;
 import opensource.zeocompanion.activities.HeadbandActivity;
+import opensource.zeocompanion.bluetooth.HeadbandStreamReplayer;
 import opensource.zeocompanion.bluetooth.ZeoMobileHB_BluetoothHandler;
+import opensource.zeocompanion.bluetooth.ZeoMobileHB_Decoder;
 import opensource.zeocompanion.bluetooth.ZeoMobileHB_Msg;
-import opensource.zeocompanion.utility.Utilities;
 
 public class HeadbandActivityFragment extends Fragment {
     // note: the Headband Activity and its Fragments will not be destroyed/recreated upon rotation
@@ -34,6 +37,8 @@ public class HeadbandActivityFragment extends Fragment {
     private ArrayList<ZeoMobileHB_Msg> mListView_List = null;
     private ZeoMobileHB_BluetoothHandler mBluetoothHandler = null;
     private HeadbandSendDialogFragment mHBsendFrag = null;
+    private boolean mReplayActive = false;
+    private static final double REPLAY_SPEED = 10.0;
 
     public HeadbandActivityFragment() {}
 
@@ -77,6 +82,32 @@ public class HeadbandActivityFragment extends Fragment {
             }
         });
 
+        mRootView.findViewById(R.id.checkBox_capture).setOnClickListener(new View.OnClickListener() {
+            public void onClick(View v) {
+                // capture takes effect upon the next connection to the headband
+                mBluetoothHandler.setCaptureEnabled(((CheckBox)v).isChecked());
+            }
+        });
+
+        mRootView.findViewById(R.id.button_replay).setOnClickListener(new View.OnClickListener() {
+            public void onClick(View v) {
+                // replay the most recent capture at ten times its captured pace
+                File theFile = HeadbandStreamReplayer.findLatestCapture();
+                if (theFile == null) {
+                    Toast.makeText(getContext().getApplicationContext(), "No headband captures are present", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                if (!mBluetoothHandler.startReplay(theFile, REPLAY_SPEED)) {
+                    Toast.makeText(getContext().getApplicationContext(), "Cannot replay while connected or already replaying", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                mReplayActive = true;
+                configureUI();
+                TextView tv = (TextView)mRootView.findViewById(R.id.textView_headband);
+                tv.setText("Replaying " + theFile.getName() + "...");
+            }
+        });
+
         mRootView.findViewById(R.id.button_send).setOnClickListener(new View.OnClickListener() {
             public void onClick(View v) {
                 // popup a send message dialog;
@@ -132,6 +163,11 @@ public class HeadbandActivityFragment extends Fragment {
                 tv.setText("Disconnecting from headband...");
                 break;
         }
+
+        // a capture can only be replayed while not connected; and no connection may be started during a replay
+        Button butReplay = (Button) mRootView.findViewById(R.id.button_replay);
+        butReplay.setEnabled(state == ZeoMobileHB_BluetoothHandler.STATE_DISCONNECTED && !mReplayActive);
+        if (mReplayActive) { butConnect.setEnabled(false); }
     }
 
     // callback from any sub-Activity invoked using startActivityForResult()
@@ -142,7 +178,10 @@ public class HeadbandActivityFragment extends Fragment {
 
     public void handleMsgReadyToSend(ZeoMobileHB_Msg theMsgBuf) {
         // a ZeoMobile Headband Message is composed and nearly ready to send
-        mBluetoothHandler.send_message_to_HB(theMsgBuf);
+        if (!mBluetoothHandler.send_message_to_HB(theMsgBuf)) {
+            Toast.makeText(getContext().getApplicationContext(), "ERROR: Headband is not connected or is not keeping up; message not sent", Toast.LENGTH_SHORT).show();
+            return;
+        }
         theMsgBuf.mWasSent = true;
         mListView_List.add(0, theMsgBuf);
         mListView_Adapter.notifyDataSetChanged();
@@ -165,12 +204,24 @@ public class HeadbandActivityFragment extends Fragment {
                 tv.setText("Name="+mBluetoothHandler.getHeadbandName()+"\nMac="+mBluetoothHandler.getHeadbandMACString());
                 break;
             case ZeoCompanionApplication.MESSAGE_HEADBAND_RECV_HB_MSG:
-                byte[] theBytes = (byte[])msg.obj;
-                int showLen = msg.arg1;
-                if (showLen > 40) { showLen = 40; }
-                Log.d("HBFrag.rcvThreadMsg", "HB Message received (" + msg.arg1 + "): " + Utilities.bytesToHex(theBytes, 0, showLen));
-                ZeoMobileHB_Msg theMsg = new ZeoMobileHB_Msg(msg.arg1, theBytes);
-                if (theMsg.mIsValid) { mListView_List.add(0, theMsg); mListView_Adapter.notifyDataSetChanged(); }
+                // the message has already been decoded and validated on the Bluetooth side;
+                // a replayed capture is of some other night, so it must never alter the live night's hypnogram
+                ZeoMobileHB_Msg theMsg = (ZeoMobileHB_Msg)msg.obj;
+                if (theMsg instanceof ZeoMobileHB_Decoder.SleepReportEvent && !theMsg.mWasReplayed && !mReplayActive) {
+                    ZeoCompanionApplication.mZeoAppHandler.mLiveHypnogram.updateFromHeadbandSleepReport(((ZeoMobileHB_Decoder.SleepReportEvent)theMsg).rStartOfNight_Timestamp);
+                }
+                mListView_List.add(0, theMsg);
+                mListView_Adapter.notifyDataSetChanged();
+                break;
+            case ZeoCompanionApplication.MESSAGE_HEADBAND_REPLAY_DONE:
+                mReplayActive = false;
+                configureUI();
+                TextView tv2 = (TextView)mRootView.findViewById(R.id.textView_headband);
+                if (msg.obj == null) { tv2.setText("Replay failed"); }
+                else { tv2.setText(msg.obj.toString()); }
+                break;
+            case ZeoCompanionApplication.MESSAGE_HEADBAND_HB_SEND_FAILED:
+                Toast.makeText(getContext().getApplicationContext(), "ERROR: Headband never acknowledged message #"+msg.arg1+" after "+msg.arg2+" attempts", Toast.LENGTH_SHORT).show();
                 break;
             default:
                 break;
@@ -207,7 +258,7 @@ class ZeoMobHBMsgAdapter extends ArrayAdapter<ZeoMobileHB_Msg> {
 
         // now properly configure the row's data and attributes
         ZeoMobileHB_Msg theMsg = mArrayList.get(position);
-        String theMsgString = "#"+theMsg.rSeqNo+": "+theMsg.getMessageTypeString()+": "+theMsg.getDataString();
+        String theMsgString = theMsg.getDisplayString();
         TextView tr = (TextView)rowView.findViewById(R.id.rowTextViewRight);
         TextView tl = (TextView)rowView.findViewById(R.id.rowTextViewLeft);
         if (theMsg.mWasSent) {
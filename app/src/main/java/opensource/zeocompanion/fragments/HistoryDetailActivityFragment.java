@@ -143,8 +143,8 @@ public class HistoryDetailActivityFragment extends Fragment {
             mIsAmended = false;
             if (ZeoCompanionApplication.mIrec_HDAonly != null) {
                 if (ZeoCompanionApplication.mIrec_HDAonly.theCSErecord != null) {
-                    ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.unpackEventCSVstring();
-                    ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.unpackInfoCSVstrings();
+                    ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.unpackEvents();
+                    ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.unpackInfos();
                     mIsAmended = ((ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmendedFlags & CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_AMENDED_FLAGS_AMENDED) != 0);
                 }
             }
@@ -199,6 +199,8 @@ public class HistoryDetailActivityFragment extends Fragment {
     @Override
     public void onDestroyView () {
         mBigHypnoFrag = null;
+        HypnogramView theHypno2_graph = (HypnogramView)mRootView.findViewById(R.id.graph_hypnogram_detailed);
+        if (theHypno2_graph != null) { theHypno2_graph.detachLiveHypnogram(); }
         //Log.d(_CTAG + ".onDestroyView", "==========FRAG ON-DESTROYVIEW=====");
         super.onDestroyView();
     }
@@ -377,6 +379,13 @@ public class HistoryDetailActivityFragment extends Fragment {
                         }
                         theHypno2_graph.setOnClickListener(m30SecHypnoClickListener);
                     }
+
+                    // if this is the night still in-progress in the Zeo App, keep its detailed hypnogram growing as new epochs arrive
+                    if (ZeoCompanionApplication.mZeoAppHandler != null && ZeoCompanionApplication.mIrec_HDAonly.theZAH_SleepRecord.rSleepEpisodeID == ZeoCompanionApplication.mZeoAppHandler.mLiveHypnogram.getSleepEpisodeID()) {
+                        theHypno2_graph.attachLiveHypnogram(ZeoCompanionApplication.mZeoAppHandler.mLiveHypnogram, showAsEpoch);
+                    } else {
+                        theHypno2_graph.detachLiveHypnogram();
+                    }
                     break;
                 case 2:
                     // CSE record
@@ -388,12 +397,14 @@ public class HistoryDetailActivityFragment extends Fragment {
                     if (ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmend_Display_Hypnogram_Starttime > 0) {
                         displayStart2 = ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmend_Display_Hypnogram_Starttime;
                     }
-                    if (ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmend_Display_Hypnogram.length > 1) {
-                        theHypno1_graph.setDataset(displayStart2, 300, 300, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmend_Display_Hypnogram, true, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.mEvents_array);
+                    byte[] amendedDisplay = ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.getAmendDisplayHypnogram();
+                    byte[] amendedBase = ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.getAmendBaseHypnogram();
+                    if (amendedDisplay != null && amendedDisplay.length > 1) {
+                        theHypno1_graph.setDataset(displayStart2, 300, 300, amendedDisplay, true, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.mEvents_array);
                     }
                     theHypno2_graph.showAsDetailed();
-                    if (ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmend_Base_Hypnogram.length > 1) {
-                        theHypno2_graph.setDataset(displayStart2, 30, showAsEpoch, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmend_Base_Hypnogram, true, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.mEvents_array);
+                    if (amendedBase != null && amendedBase.length > 1) {
+                        theHypno2_graph.setDataset(displayStart2, 30, showAsEpoch, amendedBase, true, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.mEvents_array);
                         theHypno2_graph.setOnClickListener(m30SecHypnoClickListener);
                     }
                     break;
@@ -455,8 +466,8 @@ public class HistoryDetailActivityFragment extends Fragment {
                 tvc23.setVisibility(View.VISIBLE);
                 tvc33.setVisibility(View.VISIBLE);
 
-                ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.unpackEventCSVstring();
-                ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.unpackInfoCSVstrings();
+                ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.unpackEvents();
+                ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.unpackInfos();
 
                 double totalDurMin = 0.0;
                 double recDurMin = 0.0;
@@ -126,7 +126,7 @@ public class HistoryDetailScrollHypnoDialogFragment extends DialogFragment {
         }
         if (mIsAmended && ZeoCompanionApplication.mIrec_HDAonly.theCSErecord != null) {
             mGraph_Hypno2.showAsExpanded();
-            mGraph_Hypno2.setDataset(ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmend_Display_Hypnogram_Starttime, 30, 30, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmend_Base_Hypnogram, false, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.mEvents_array);
+            mGraph_Hypno2.setDataset(ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.rAmend_Display_Hypnogram_Starttime, 30, 30, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.getAmendBaseHypnogram(), false, ZeoCompanionApplication.mIrec_HDAonly.theCSErecord.mEvents_array);
             mHas_hypno2 = true;
         } else {
             mHas_hypno2 = false;
@@ -398,7 +398,7 @@ public class MainDashboardFragment extends MainFragmentWrapper {
         else { mAttrValsData = new ArrayList<AttrValsSleepDatasetRec>(); }
 
         // obtain all integrated sleep data
-        ZeoCompanionApplication.mCoordinator.getAllIntegratedHistoryRecs(theIrecs); // sorted newest to oldest
+        ZeoCompanionApplication.mCoordinator.getAllIntegratedHistorySummaryRecs(theIrecs); // sorted newest to oldest; only the sleep totals are needed
 
         // parse through the entire integrated database
         for (JournalDataCoordinator.IntegratedHistoryRec iRec: theIrecs) {
@@ -419,7 +419,7 @@ public class MainDashboardFragment extends MainFragmentWrapper {
                     if (journal_enabled && iRec.theCSErecord != null) {
                         if (iRec.theCSErecord.doAttributesExist()) {
                             // have an iRec that also has ZeoCompanion sleep data, which contains attributes, and the Sleep Journal is enabled
-                            iRec.theCSErecord.unpackInfoCSVstrings();
+                            iRec.theCSErecord.unpackInfos();
                             // compose dataset for the various attribute-based graphs
                             for (CompanionSleepEpisodeInfoParsedRec avr: iRec.theCSErecord.mAttribs_Fixed_array) {
                                 if (avr != null) {
@@ -9,6 +9,8 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Point;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.preference.PreferenceManager;
 import android.text.Spannable;
 import android.text.SpannableString;
@@ -20,6 +22,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.CheckBox;
@@ -30,10 +33,14 @@ import android.widget.TextView;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import opensource.zeocompanion.R;
 import opensource.zeocompanion.ZeoCompanionApplication;
 import opensource.zeocompanion.activities.HistoryDetailActivity;
 import opensource.zeocompanion.database.CompanionDatabaseContract;
+import opensource.zeocompanion.database.CompanionSleepEpisodesRec;
 import opensource.zeocompanion.utility.JournalDataCoordinator;
 import opensource.zeocompanion.views.HypnogramView;
 import opensource.zeocompanion.utility.Utilities;
@@ -54,9 +61,17 @@ public class MainHistoryFragment extends MainFragmentWrapper {
     private ListView mListView = null;
     private ZAHSR_Adapter mListView_Adapter = null;
     private ArrayList<JournalDataCoordinator.IntegratedHistoryRec> mListView_List = null;
+    private long mNextPageTimestamp = 0;
+    private boolean mMorePages = false;
+    private boolean mPageLoading = false;   // a page is being loaded by a background thread
+    private int mLoadGeneration = 0;        // incremented whenever the list is reset so that stale pages are discarded
+    private ExecutorService mPageLoader = null;     // the one background thread upon which all pages are loaded; exists while the view exists
+    private Handler mMainHandler = new Handler(Looper.getMainLooper());
 
     // member constants and other static content
     private static final String _CTAG = "MHF";
+    private static final int HISTORY_PAGE_SIZE = 30;
+    private static final int HISTORY_PAGE_PRELOAD_ROWS = 5;    // load the next page when the end-user scrolls within this many rows of the end of the list
 
     // listener for preference changes
     private SharedPreferences.OnSharedPreferenceChangeListener mPrefsListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
@@ -92,6 +107,14 @@ public class MainHistoryFragment extends MainFragmentWrapper {
         display.getSize(mScreenSize);
 
         mListView_List = new ArrayList<JournalDataCoordinator.IntegratedHistoryRec>();
+        mPageLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thrd = new Thread(r);
+                thrd.setName("HistoryPageLoader via " + _CTAG + ".onCreateView");
+                return thrd;
+            }
+        });
         loadListViewList();
 
         mListView = (ListView) mRootView.findViewById(R.id.listView_history);
@@ -110,6 +133,20 @@ public class MainHistoryFragment extends MainFragmentWrapper {
             }
         });
 
+        // the history is loaded a page at a time as the end-user scrolls towards the end of the list
+        mListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {}
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (!mMorePages || mListView_Adapter == null) { return; }
+                if (firstVisibleItem + visibleItemCount >= totalItemCount - HISTORY_PAGE_PRELOAD_ROWS) {
+                    loadNextPage();     // the adapter is notified once the page arrives
+                }
+            }
+        });
+
         final ImageView imgView = (ImageView) mRootView.findViewById(R.id.hiderowImageView_hypnogram);
         imgView.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
             @Override
@@ -131,22 +168,19 @@ public class MainHistoryFragment extends MainFragmentWrapper {
 
         // setup the checkbox to show amended
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(getContext());
+        // (amended records may only appear in later pages, so the checkbox is always prepared and just shown when needed)
         CheckBox cb = (CheckBox) mRootView.findViewById(R.id.checkBox_showAmended);
-        if (mAnyAmended) {
-            cb.setVisibility(View.VISIBLE);
-            mShowAmended = prefs.getBoolean("main_history_amended_showFirst", false);    // this preference does not need to be reloaded upon change
-            cb.setChecked(mShowAmended);
-            cb.setOnCheckedChangeListener(new CheckBox.OnCheckedChangeListener() {
-                @Override
-                public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-                    mShowAmended = isChecked;
-                    mListView_Adapter.clearAllBitmaps();
-                    mListView_Adapter.notifyDataSetChanged();
-                }
-            });
-        } else {
-            cb.setVisibility(View.GONE);
-        }
+        mShowAmended = prefs.getBoolean("main_history_amended_showFirst", false);    // this preference does not need to be reloaded upon change
+        cb.setChecked(mShowAmended);
+        cb.setOnCheckedChangeListener(new CheckBox.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                mShowAmended = isChecked;
+                mListView_Adapter.clearAllBitmaps();
+                mListView_Adapter.notifyDataSetChanged();
+            }
+        });
+        showAmendedCheckbox();
 
         // listen for changes in the preferences applicable to this tab
         prefs.registerOnSharedPreferenceChangeListener(mPrefsListener);
@@ -161,6 +195,10 @@ public class MainHistoryFragment extends MainFragmentWrapper {
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(getContext());
         prefs.unregisterOnSharedPreferenceChangeListener(mPrefsListener);
 
+        mLoadGeneration++;      // discard any page still being loaded
+        mPageLoading = false;
+        mPageLoader.shutdown(); // no further pages; its thread exits once any still-loading page finishes
+        mPageLoader = null;
         for (JournalDataCoordinator.IntegratedHistoryRec iRec : mListView_List) { iRec.destroy(); }
         mListView_Adapter.clear();
         mListView_List.clear();
@@ -208,8 +246,9 @@ public class MainHistoryFragment extends MainFragmentWrapper {
                 if (iRec.theCSErecord.rAmend_Display_Hypnogram_Starttime > 0) {
                     displayStart2 = iRec.theCSErecord.rAmend_Display_Hypnogram_Starttime;
                 }
-                if (iRec.theCSErecord.rAmend_Display_Hypnogram.length > 1) {
-                    theHypno.setDataset(displayStart2, 300, 300, iRec.theCSErecord.rAmend_Display_Hypnogram, true, null);
+                byte[] amendedDisplay = iRec.theCSErecord.getAmendDisplayHypnogram();
+                if (amendedDisplay != null && amendedDisplay.length > 1) {
+                    theHypno.setDataset(displayStart2, 300, 300, amendedDisplay, true, null);
                 }
                 break;
         }
@@ -251,22 +290,85 @@ public class MainHistoryFragment extends MainFragmentWrapper {
         loadListViewList();
         mListView_Adapter.clearAllBitmaps();
         mListView_Adapter.notifyDataSetChanged();
+        showAmendedCheckbox();
+    }
+
+    // show the amended checkbox only if any of the loaded IntegratedHistoryRecs have been amended
+    private void showAmendedCheckbox() {
         CheckBox cb = (CheckBox) mRootView.findViewById(R.id.checkBox_showAmended);
         if (mAnyAmended) { cb.setVisibility(View.VISIBLE); }
         else { cb.setVisibility(View.GONE); }
     }
 
-    // load all the to-be-shown IntegratedHistoryRecs then check the results
+    // load the first page of to-be-shown IntegratedHistoryRecs; further pages are loaded as the end-user scrolls
     private void loadListViewList() {
-        ZeoCompanionApplication.mCoordinator.getAllIntegratedHistoryRecs(mListView_List);
-
+        mLoadGeneration++;      // discard any page still being loaded for the prior list
+        mPageLoading = false;
         mAnyAmended = false;
-        for (JournalDataCoordinator.IntegratedHistoryRec iRec: mListView_List) {
-            if (iRec.theCSErecord != null) {
-                boolean needSave = ZeoCompanionApplication.mCoordinator.amendTheSleepRecord(iRec, false);
-                if (needSave) { iRec.theCSErecord.saveToDB(); }
-                if ((iRec.theCSErecord.rAmendedFlags & CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_AMENDED_FLAGS_AMENDED) != 0) { mAnyAmended = true; }
+        mNextPageTimestamp = 0;
+        mMorePages = true;
+        loadNextPage();
+    }
+
+    // Thread context: main thread
+    // start loading the next page of to-be-shown IntegratedHistoryRecs; the page is obtained and amended upon the page loader's thread
+    // and is then appended to the end of the list back on the main thread
+    private void loadNextPage() {
+        if (!mMorePages || mPageLoading || mPageLoader == null) { return; }
+        mPageLoading = true;
+        final int generation = mLoadGeneration;
+        final long beforeTimestamp = mNextPageTimestamp;
+        mPageLoader.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Thread context: HistoryPageLoader thread
+                final ArrayList<JournalDataCoordinator.IntegratedHistoryRec> thePage = new ArrayList<JournalDataCoordinator.IntegratedHistoryRec>();
+                long nextPageTimestamp = 0;
+                boolean anyAmended = false;
+                try {
+                    nextPageTimestamp = ZeoCompanionApplication.mCoordinator.getIntegratedHistoryPage(thePage, beforeTimestamp, HISTORY_PAGE_SIZE);
+
+                    // load the page's amended hypnograms here in one query, rather than one query per record upon the main thread
+                    // when the list rows, History Detail, or any saves below first need them
+                    ZeoCompanionApplication.mCoordinator.hydrateIntegratedHistoryRecs(thePage, CompanionSleepEpisodesRec.CSE_COLUMNS_AMENDED_HYPNOGRAMS);
+
+                    for (JournalDataCoordinator.IntegratedHistoryRec iRec: thePage) {
+                        if (iRec.theCSErecord != null) {
+                            boolean needSave = ZeoCompanionApplication.mCoordinator.amendTheSleepRecord(iRec, false);
+                            if (needSave) { iRec.theCSErecord.saveToDB(); }
+                            if ((iRec.theCSErecord.rAmendedFlags & CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_AMENDED_FLAGS_AMENDED) != 0) { anyAmended = true; }
+                        }
+                    }
+                } catch (Exception e) {
+                    ZeoCompanionApplication.postToErrorLog(_CTAG + ".loadNextPage", e, "Before timestamp=" + beforeTimestamp, "HistoryPageLoader");   // automatically posts a Log.e
+                }
+                final long theNextPageTimestamp = nextPageTimestamp;
+                final boolean theAnyAmended = anyAmended;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        pageLoaded(generation, thePage, theNextPageTimestamp, theAnyAmended);
+                    }
+                });
             }
+        });
+    }
+
+    // Thread context: main thread
+    // append a loaded page to the end of the list then check the results; pages loaded for a list that has since been reset or destroyed are discarded
+    private void pageLoaded(int generation, ArrayList<JournalDataCoordinator.IntegratedHistoryRec> thePage, long nextPageTimestamp, boolean anyAmended) {
+        if (generation != mLoadGeneration || mListView_List == null) {
+            for (JournalDataCoordinator.IntegratedHistoryRec iRec: thePage) { iRec.destroy(); }
+            return;
+        }
+        mPageLoading = false;
+        mNextPageTimestamp = nextPageTimestamp;
+        if (mNextPageTimestamp == 0) { mMorePages = false; }
+        if (anyAmended) { mAnyAmended = true; }
+        mListView_List.addAll(thePage);
+        if (mListView_Adapter != null) {
+            mListView_Adapter.notifyDataSetChanged();
+            showAmendedCheckbox();
         }
     }
 
@@ -178,7 +178,7 @@ public class StatsActivityTrendsFragment extends Fragment {
 
         ArrayList<JournalDataCoordinator.IntegratedHistoryRec> theIrecs = new ArrayList<JournalDataCoordinator.IntegratedHistoryRec>();
         ArrayList<SleepDatasetRec> theData = new ArrayList<SleepDatasetRec>();
-        ZeoCompanionApplication.mCoordinator.getAllIntegratedHistoryRecs(theIrecs); // sorted newest to oldest
+        ZeoCompanionApplication.mCoordinator.getAllIntegratedHistorySummaryRecs(theIrecs); // sorted newest to oldest; only the sleep totals are needed
         for (JournalDataCoordinator.IntegratedHistoryRec iRec: theIrecs) {
             if (iRec.theZAH_SleepRecord != null) {
                 int excluded = 0;
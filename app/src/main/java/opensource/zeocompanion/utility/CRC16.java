@@ -0,0 +1,80 @@
+package opensource.zeocompanion.utility;
+
+// stateless CRC-16/CCITT (polynomial 0x1021, most-significant bit first, no reflection, no final XOR) as used by the Zeo Headband;
+// computes directly over an (array, offset, length) window so callers never need to copy a PDU out of a larger buffer;
+// uses a slice-by-8 table method (eight bytes per step) for the bulk of the window and the classic byte-at-a-time table for the remainder
+public final class CRC16 {
+    // member constants and other static content
+    public static final int INIT_CCITT = 0xFFFF;
+    private static final int POLYNOMIAL = 0x1021;
+    private static final int[][] TABLES = buildTables(8);
+    private static final int[] T0 = TABLES[0];
+    private static final int[] T1 = TABLES[1];
+    private static final int[] T2 = TABLES[2];
+    private static final int[] T3 = TABLES[3];
+    private static final int[] T4 = TABLES[4];
+    private static final int[] T5 = TABLES[5];
+    private static final int[] T6 = TABLES[6];
+    private static final int[] T7 = TABLES[7];
+
+    // not instantiable
+    private CRC16() {}
+
+    // compute the CRC of the window using the standard initial value
+    public static int compute(byte[] buffer, int offset, int length) {
+        return update(INIT_CCITT, buffer, offset, length);
+    }
+
+    // continue a CRC computation over the window; the seed is a prior CRC (or INIT_CCITT)
+    public static int update(int seed, byte[] buffer, int offset, int length) {
+        int crc = seed & 0xFFFF;
+        int pos = offset;
+        int end = offset + length;
+
+        // eight bytes at a time; only the first two bytes of each slice are combined with the running CRC
+        int end8 = end - 7;
+        while (pos < end8) {
+            int x = crc ^ (((buffer[pos] & 0xFF) << 8) | (buffer[pos + 1] & 0xFF));
+            crc = T7[x >> 8] ^ T6[x & 0xFF] ^ T5[buffer[pos + 2] & 0xFF] ^ T4[buffer[pos + 3] & 0xFF]
+                    ^ T3[buffer[pos + 4] & 0xFF] ^ T2[buffer[pos + 5] & 0xFF] ^ T1[buffer[pos + 6] & 0xFF] ^ T0[buffer[pos + 7] & 0xFF];
+            pos = pos + 8;
+        }
+
+        // remaining bytes one at a time
+        while (pos < end) {
+            crc = ((crc << 8) & 0xFFFF) ^ T0[(crc >> 8) ^ (buffer[pos] & 0xFF)];
+            pos++;
+        }
+        return crc;
+    }
+
+    // reference byte-at-a-time computation; retained for verifying the sliced computation
+    public static int updateBytewise(int seed, byte[] buffer, int offset, int length) {
+        int crc = seed & 0xFFFF;
+        int end = offset + length;
+        for (int pos = offset; pos < end; pos++) {
+            crc = ((crc << 8) & 0xFFFF) ^ T0[(crc >> 8) ^ (buffer[pos] & 0xFF)];
+        }
+        return crc;
+    }
+
+    // table n holds the CRC contribution of a byte value followed by n zero bytes
+    private static int[][] buildTables(int qty) {
+        int[][] tables = new int[qty][256];
+        for (int b = 0; b < 256; b++) {
+            int crc = b << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                if ((crc & 0x8000) != 0) { crc = (crc << 1) ^ POLYNOMIAL; }
+                else { crc = crc << 1; }
+            }
+            tables[0][b] = crc & 0xFFFF;
+        }
+        for (int n = 1; n < qty; n++) {
+            for (int b = 0; b < 256; b++) {
+                int prior = tables[n - 1][b];
+                tables[n][b] = ((prior << 8) & 0xFFFF) ^ tables[0][prior >> 8];
+            }
+        }
+        return tables;
+    }
+}
@@ -6,13 +6,17 @@ import android.os.Environment;
 import android.preference.PreferenceManager;
 import android.util.Log;
 import com.myzeo.android.api.data.MyZeoExportDataContract;
-import com.myzeo.android.api.data.ZeoDataContract;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import opensource.zeocompanion.BuildConfig;
 import opensource.zeocompanion.ZeoCompanionApplication;
 import opensource.zeocompanion.activities.SharingActivity;
@@ -20,6 +24,8 @@ import opensource.zeocompanion.database.CompanionDatabase;
 import opensource.zeocompanion.database.CompanionDatabaseContract;
 import opensource.zeocompanion.database.CompanionSleepEpisodeEventsParsedRec;
 import opensource.zeocompanion.database.CompanionSleepEpisodeInfoParsedRec;
+import opensource.zeocompanion.database.CompanionSleepEpisodePackedCodec;
+import opensource.zeocompanion.database.CompanionSleepEpisodesRec;
 import opensource.zeocompanion.zeo.ZAH_SleepRecord;
 
 // utility class that performs CSV file creation, selection of data, and formatting of data
@@ -33,9 +39,15 @@ public class CSVexporter {
     private String mCSVdirectory = null;
     private String mName = null;
     private long mSequenceNumber = 0;
+    private StringBuilder mLine = new StringBuilder(LINE_INITIAL_CAPACITY);    // re-used for every exported line
+    private char[] mLineChars = new char[LINE_INITIAL_CAPACITY];
+    private CSVfieldFormatter mFormatter = new CSVfieldFormatter();
 
     // member constants and other static content
     private static final String _CTAG = "CEU";
+    private static final int WRITER_BUFFER_SIZE = 65536;
+    private static final int LINE_INITIAL_CAPACITY = 4096;  // a line with both hypnograms is typically 2-3K characters
+    private static final int EXPORT_PAGE_SIZE = 100;
 
     public static final int SHARE_WHAT_CSV_EXCEL = 1;
     public static final int SHARE_WHAT_CSV_ZEOVIEWER = 2;
@@ -85,72 +97,41 @@ public class CSVexporter {
     };
 
     // constructor; the Activity or ZeoApp context is needed for some methods
-    public CSVexporter(Context context) { mContext = context; }
+    public CSVexporter(Context context) {
+        mContext = context;
+    }
 
-    // create the contents in the export; this method performs a query on the database for all records that match fromWhen and other criteria
+    // create the contents in the export; this method performs queries on the databases for all records that match fromWhen and other criteria;
+    // every export (integrated or zeo-only, with or without fromWhen) is streamed a page at a time so the history is never materialized at once
     public ReturnResults createFile(int shareWhat, Date fromWhen) {
-        File theExportFile = null;
-        ArrayList<JournalDataCoordinator.IntegratedHistoryRec> selectedIrecs = new ArrayList<JournalDataCoordinator.IntegratedHistoryRec>();
+        ReturnResults prepResults = prepAndCreateFile(shareWhat);
+        if (prepResults.rTheExportFile == null || !prepResults.rAnErrorMessage.isEmpty()) { return prepResults; }
+
+        boolean zeoOnly = false;
+        boolean includeZeoDead = false;
         if (shareWhat == SHARE_WHAT_CSV_ZEORAW || shareWhat == SHARE_WHAT_CSV_ZEORAW_DEAD) {
-            boolean includeZeoDead = false;
+            zeoOnly = true;
             if (shareWhat == SHARE_WHAT_CSV_ZEORAW_DEAD) { includeZeoDead = true; }
-            ZeoCompanionApplication.mCoordinator.getAllZeoRecsFromDate(selectedIrecs, fromWhen, includeZeoDead);
-            //Log.d(_CTAG + ".createFile", "Selected " + selectedIrecs.size() + " zeo-only records for export from date " + fromWhen);
-        } else {
-            ZeoCompanionApplication.mCoordinator.getAllIntegratedHistoryRecsFromDate(selectedIrecs, fromWhen);
-            //Log.d(_CTAG + ".createFile", "Selected " + selectedIrecs.size() + " integrated records for export from date " + fromWhen);
         }
+        long afterTimestamp = 0L;
+        if (fromWhen != null) { afterTimestamp = fromWhen.getTime(); }
+        Iterator<JournalDataCoordinator.IntegratedHistoryRec> theIRecs = new HistoryPageIterator(afterTimestamp, zeoOnly, includeZeoDead);
 
-        // generate the proper file
-        ReturnResults createResults = createFileFromData(selectedIrecs, shareWhat);
-
-        // though disputed, assist garbage collection by explicitly and entirely destroying the contents and subcontents of each selected IntegratedHistoryRec
-        for (JournalDataCoordinator.IntegratedHistoryRec iRec: selectedIrecs) { iRec.destroy(); }
-        selectedIrecs.clear();
-        return createResults;
+        // generate the proper file; each IntegratedHistoryRec is destroyed as soon as it has been written
+        String errString = writeFile(prepResults.rTheExportFile, theIRecs, shareWhat, true);
+        return new ReturnResults(prepResults.rTheExportFile, errString);
     }
 
     // create the contents in the export based upon the passed set of IntegratedHistoryRecs
     public ReturnResults createFileFromData(ArrayList<JournalDataCoordinator.IntegratedHistoryRec> theIRecs, int shareWhat) {
-        String errString = "";
         if (theIRecs.isEmpty()) { new ReturnResults(null, "No records were selected to export"); }
 
         ReturnResults prepResults = prepAndCreateFile(shareWhat);
         if (prepResults.rTheExportFile == null || !prepResults.rAnErrorMessage.isEmpty()) { return prepResults; }
 
-        if (shareWhat == SHARE_WHAT_CSV_ZEORAW || shareWhat == SHARE_WHAT_CSV_ZEORAW_DEAD) {
-            // the end-user wants a limited zeoMobile Raw formatted export
-            try {
-                FileOutputStream f = new FileOutputStream(prepResults.rTheExportFile);
-                OutputStreamWriter wrt = new OutputStreamWriter(f);
-                wrt.append(buildZeoRawHeaderLine() + "\r\n");
-                for (JournalDataCoordinator.IntegratedHistoryRec iRec : theIRecs) {
-                    wrt.append(buildOneZeoRawLine(iRec.theZAH_SleepRecord) + "\r\n");
-                }
-                wrt.flush();
-                wrt.close();
-                f.close();
-            } catch (Exception e) {
-                errString = "File IO error: zeoDB export file ("+prepResults.rTheExportFile.getAbsoluteFile()+"): " + e.getMessage();
-                Log.e(_CTAG+".createFileFromData", "File IO error: zeoDB export file ("+prepResults.rTheExportFile.getAbsoluteFile()+"): " + e.toString());
-            }
-        } else {
-            // the end-user wants a fully integrated myZeo formatted export
-            try {
-                FileOutputStream f = new FileOutputStream(prepResults.rTheExportFile);
-                OutputStreamWriter wrt = new OutputStreamWriter(f);
-                wrt.append(buildHeaderLine(shareWhat) + "\r\n");
-                for (JournalDataCoordinator.IntegratedHistoryRec iRec : theIRecs) {
-                    wrt.append(buildOneLine(iRec, shareWhat) + "\r\n");
-                }
-                wrt.flush();
-                wrt.close();
-                f.close();
-            } catch (Exception e) {
-                errString = "File IO error: myZeo+ export file ("+prepResults.rTheExportFile.getAbsoluteFile()+"): " + e.getMessage();
-                Log.e(_CTAG+".createFileFromData", "File IO error: myZeo+ export file ("+prepResults.rTheExportFile.getAbsoluteFile()+"): " + e.toString());
-            }
-        }
+        // the passed IntegratedHistoryRecs remain owned by the caller so are not destroyed
+        if (mIncludeAmended) { hydrateAmendedHypnograms(theIRecs); }
+        String errString = writeFile(prepResults.rTheExportFile, theIRecs.iterator(), shareWhat, false);
         return new ReturnResults(prepResults.rTheExportFile, errString);
     }
 
@@ -164,22 +145,28 @@ public class CSVexporter {
         if (prepResults.rTheExportFile == null || !prepResults.rAnErrorMessage.isEmpty()) { return prepResults; }
 
         try {
-            FileOutputStream f = new FileOutputStream(prepResults.rTheExportFile);
-            OutputStreamWriter wrt = new OutputStreamWriter(f);
-            if (zeoRaw) {
-                wrt.append(buildZeoRawHeaderLine() + "\r\n");
-                if (iRec.theZAH_SleepRecord != null) {
-                    wrt.append(buildOneZeoRawLine(iRec.theZAH_SleepRecord)+"\r\n");
-                }
-            } else {
-                wrt.append(buildHeaderLine(shareWhat) + "\r\n");
-                if (iRec.theZAH_SleepRecord != null || iRec.theCSErecord != null) {
-                    wrt.append(buildOneLine(iRec, shareWhat) + "\r\n");
+            Writer wrt = openWriter(prepResults.rTheExportFile);
+            try {
+                if (zeoRaw) {
+                    wrt.write(buildZeoRawHeaderLine());
+                    wrt.write("\r\n");
+                    if (iRec.theZAH_SleepRecord != null) {
+                        mLine.setLength(0);
+                        appendOneZeoRawLine(mLine, iRec.theZAH_SleepRecord);
+                        writeLine(wrt);
+                    }
+                } else {
+                    wrt.write(buildHeaderLine(shareWhat));
+                    wrt.write("\r\n");
+                    if (iRec.theZAH_SleepRecord != null || iRec.theCSErecord != null) {
+                        mLine.setLength(0);
+                        appendOneLine(mLine, iRec, shareWhat);
+                        writeLine(wrt);
+                    }
                 }
+            } finally {
+                wrt.close();
             }
-            wrt.flush();
-            wrt.close();
-            f.close();
         } catch (Exception e) {
             errString = "File IO error: myZeo+ export file ("+prepResults.rTheExportFile.getAbsoluteFile()+"): " + e.getMessage();
             Log.e(_CTAG+".createFileOneRec", "File IO error: myZeo+ export file ("+prepResults.rTheExportFile.getAbsoluteFile()+"): " + e.toString());
@@ -188,6 +175,103 @@ public class CSVexporter {
         return new ReturnResults(prepResults.rTheExportFile, errString);
     }
 
+    // write the header line and then one line per IntegratedHistoryRec into the export file; returns an error message or an empty string;
+    // the lines are composed in one reusable StringBuilder and written through a large buffered UTF-8 writer
+    private String writeFile(File theExportFile, Iterator<JournalDataCoordinator.IntegratedHistoryRec> theIRecs, int shareWhat, boolean destroyAfterWrite) {
+        boolean zeoRaw = (shareWhat == SHARE_WHAT_CSV_ZEORAW || shareWhat == SHARE_WHAT_CSV_ZEORAW_DEAD);
+        String errString = "";
+        try {
+            Writer wrt = openWriter(theExportFile);
+            try {
+                if (zeoRaw) { wrt.write(buildZeoRawHeaderLine()); }
+                else { wrt.write(buildHeaderLine(shareWhat)); }
+                wrt.write("\r\n");
+                while (theIRecs.hasNext()) {
+                    JournalDataCoordinator.IntegratedHistoryRec iRec = theIRecs.next();
+                    mLine.setLength(0);
+                    if (zeoRaw) { appendOneZeoRawLine(mLine, iRec.theZAH_SleepRecord); }
+                    else { appendOneLine(mLine, iRec, shareWhat); }
+                    writeLine(wrt);
+                    // though disputed, assist garbage collection by explicitly and entirely destroying the contents and subcontents of each written IntegratedHistoryRec
+                    if (destroyAfterWrite) { iRec.destroy(); }
+                }
+            } finally {
+                wrt.close();
+            }
+        } catch (Exception e) {
+            if (zeoRaw) {
+                errString = "File IO error: zeoDB export file ("+theExportFile.getAbsoluteFile()+"): " + e.getMessage();
+                Log.e(_CTAG+".createFileFromData", "File IO error: zeoDB export file ("+theExportFile.getAbsoluteFile()+"): " + e.toString());
+            } else {
+                errString = "File IO error: myZeo+ export file ("+theExportFile.getAbsoluteFile()+"): " + e.getMessage();
+                Log.e(_CTAG+".createFileFromData", "File IO error: myZeo+ export file ("+theExportFile.getAbsoluteFile()+"): " + e.toString());
+            }
+        }
+        return errString;
+    }
+
+    // open the export file for writing through a large buffer and an explicit UTF-8 encoding (which is also the Android default charset)
+    private Writer openWriter(File theExportFile) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(theExportFile), "UTF-8"), WRITER_BUFFER_SIZE);
+    }
+
+    // write the composed line plus its line ending; the characters are copied out of the StringBuilder without creating a String
+    private void writeLine(Writer wrt) throws IOException {
+        mLine.append("\r\n");
+        int len = mLine.length();
+        if (mLineChars.length < len) { mLineChars = new char[len + (len >> 1)]; }
+        mLine.getChars(0, len, mLineChars, 0);
+        wrt.write(mLineChars, 0, len);
+    }
+
+    // the journal records arrive without their amended hypnograms; load those of a whole batch of records in as few queries as possible
+    // rather than one query per record as each is written
+    private static void hydrateAmendedHypnograms(ArrayList<JournalDataCoordinator.IntegratedHistoryRec> theIRecs) {
+        ZeoCompanionApplication.mCoordinator.hydrateIntegratedHistoryRecs(theIRecs, CompanionSleepEpisodesRec.CSE_COLUMNS_AMENDED_HYPNOGRAMS);
+    }
+
+    // iterator that obtains the integrated (or zeo-only) history at or after afterTimestamp a page at a time from the JournalDataCoordinator
+    private class HistoryPageIterator implements Iterator<JournalDataCoordinator.IntegratedHistoryRec> {
+        private ArrayList<JournalDataCoordinator.IntegratedHistoryRec> mPage = new ArrayList<JournalDataCoordinator.IntegratedHistoryRec>();
+        private int mPos = 0;
+        private long mNextPageTimestamp = 0L;
+        private boolean mMorePages = true;
+        private long mAfterTimestamp = 0L;
+        private boolean mZeoOnly = false;
+        private boolean mIncludeZeoDead = false;
+
+        public HistoryPageIterator(long afterTimestamp, boolean zeoOnly, boolean includeZeoDead) {
+            mAfterTimestamp = afterTimestamp;
+            mZeoOnly = zeoOnly;
+            mIncludeZeoDead = includeZeoDead;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (mPos >= mPage.size()) {
+                if (!mMorePages) { return false; }
+                mPage.clear();
+                mPos = 0;
+                mNextPageTimestamp = ZeoCompanionApplication.mCoordinator.getIntegratedHistoryPage(mPage, mNextPageTimestamp, EXPORT_PAGE_SIZE, mAfterTimestamp, mZeoOnly, mIncludeZeoDead);
+                if (mNextPageTimestamp == 0L) { mMorePages = false; }
+                if (mIncludeAmended && !mZeoOnly) { hydrateAmendedHypnograms(mPage); }
+            }
+            return true;
+        }
+
+        @Override
+        public JournalDataCoordinator.IntegratedHistoryRec next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            JournalDataCoordinator.IntegratedHistoryRec iRec = mPage.get(mPos);
+            mPage.set(mPos, null);
+            mPos++;
+            return iRec;
+        }
+
+        @Override
+        public void remove() { throw new UnsupportedOperationException(); }
+    }
+
     // ensure external storage is available and R/W, create the new export file, and do other preparations
     // returns NULL if preparations failed, otherwise returns a FILE object for the created file
     private ReturnResults prepAndCreateFile(int shareWhat) {
@@ -271,31 +355,30 @@ public class CSVexporter {
     }
 
     // build one export data line for one ZeoMobile Sleep Record during a ZeoMobile Raw formatted export
-    private String buildOneZeoRawLine(ZAH_SleepRecord zRec) {
-        String str = zRec.rSleepEpisodeID + "," + zRec.rLocalizedStartOfNight + "," + zRec.rStartOfNight + "," + zRec.rEndOfNight + "," + zRec.rTimezone + ",";
-        str = str + zRec.rZQ_Score + "," + zRec.rCountAwakenings + ",";
-        str = str + String.format("%.0f", zRec.rTime_Deep_min * 2) + "," + String.format("%.0f", zRec.rTime_Light_min * 2) + "," + String.format("%.0f", zRec.rTime_REM_min * 2) + ",";
-        str = str + String.format("%.0f", zRec.rTime_Awake_min * 2) + "," + String.format("%.0f", zRec.rTime_to_Z_min * 2) + "," + String.format("%.0f", zRec.rTime_Total_Z_min * 2) + ",";
-        str = str + zRec.rDataSource + "," + zRec.rEndReason + "," + zRec.rDisplay_Hypnogram_Count + "," + zRec.rBase_Hypnogram_Count + ",";
+    private void appendOneZeoRawLine(StringBuilder sb, ZAH_SleepRecord zRec) {
+        sb.append(zRec.rSleepEpisodeID).append(',').append(zRec.rLocalizedStartOfNight).append(',').append(zRec.rStartOfNight).append(',').append(zRec.rEndOfNight).append(',').append(zRec.rTimezone).append(',');
+        sb.append(zRec.rZQ_Score).append(',').append(zRec.rCountAwakenings).append(',');
+        appendFixed(sb, zRec.rTime_Deep_min * 2, 0); sb.append(','); appendFixed(sb, zRec.rTime_Light_min * 2, 0); sb.append(','); appendFixed(sb, zRec.rTime_REM_min * 2, 0); sb.append(',');
+        appendFixed(sb, zRec.rTime_Awake_min * 2, 0); sb.append(','); appendFixed(sb, zRec.rTime_to_Z_min * 2, 0); sb.append(','); appendFixed(sb, zRec.rTime_Total_Z_min * 2, 0); sb.append(',');
+        sb.append(zRec.rDataSource).append(',').append(zRec.rEndReason).append(',').append(zRec.rDisplay_Hypnogram_Count).append(',').append(zRec.rBase_Hypnogram_Count).append(',');
 
         for (int i = 0; i < zRec.rDisplay_Hypnogram.length; i++) {
-            str = str + Byte.toString(zRec.rDisplay_Hypnogram[i]);
+            sb.append((int)zRec.rDisplay_Hypnogram[i]);
         }
-        str = str + ",";
+        sb.append(',');
 
         for (int i = 0; i < zRec.rBase_Hypnogram.length; i++) {
-            str = str + Byte.toString(zRec.rBase_Hypnogram[i]);
+            sb.append((int)zRec.rBase_Hypnogram[i]);
         }
-        str = str + "," + zRec.rHeadbandID;
+        sb.append(',').append(zRec.rHeadbandID);
 
         if (zRec.mHasExtended) {
-            str = str + "," + zRec.rVoltageBattery + "," + zRec.rSleepValid + "," + zRec.rValid + "," + zRec.rValidForHistory + "," + zRec.rHidden + ",";
-            str = str + zRec.rClockOffset + "," + zRec.rDeepSum + "," + String.format("%.0f", zRec.rLightChangedToDeep_min * 2) + ",";
-            str = str + zRec.rCreated_timestamp + "," + zRec.rUpdated_timestamp + "," + zRec.rUploaded_timestamp + ",";
-            str = str + zRec.rStartOfNightMyZeo + "," + zRec.rStartOfNightOrig + "," + zRec.rDisplayHypnogramStartTime + ",";
-            str = str + zRec.rInsufficientData + "," + zRec.rInsufficientDataStartTime;
+            sb.append(',').append(zRec.rVoltageBattery).append(',').append(zRec.rSleepValid).append(',').append(zRec.rValid).append(',').append(zRec.rValidForHistory).append(',').append(zRec.rHidden).append(',');
+            sb.append(zRec.rClockOffset).append(',').append(zRec.rDeepSum).append(','); appendFixed(sb, zRec.rLightChangedToDeep_min * 2, 0); sb.append(',');
+            sb.append(zRec.rCreated_timestamp).append(',').append(zRec.rUpdated_timestamp).append(',').append(zRec.rUploaded_timestamp).append(',');
+            sb.append(zRec.rStartOfNightMyZeo).append(',').append(zRec.rStartOfNightOrig).append(',').append(zRec.rDisplayHypnogramStartTime).append(',');
+            sb.append(zRec.rInsufficientData).append(',').append(zRec.rInsufficientDataStartTime);
         }
-        return str;
     }
 
     // build the headers line for the export file, either as ZeoMobile raw or myZeo
@@ -340,7 +423,13 @@ public class CSVexporter {
 
     // build one export data line for one integrated record during a myZeo formatted export
     public String buildOneLine(JournalDataCoordinator.IntegratedHistoryRec iRec, int shareWhat) {
-        String str = "";
+        StringBuilder sb = new StringBuilder(LINE_INITIAL_CAPACITY);
+        appendOneLine(sb, iRec, shareWhat);
+        return sb.toString();
+    }
+
+    // append one export data line for one integrated record during a myZeo formatted export; note there is no line ending
+    private void appendOneLine(StringBuilder sb, JournalDataCoordinator.IntegratedHistoryRec iRec, int shareWhat) {
         boolean includeValueText = mIncludeValueText;
         boolean includeHypnogramSpaces = false;
         boolean asEpochs = false;
@@ -360,6 +449,8 @@ public class CSVexporter {
             fakeTheRiseTime = true;
             alterStartOfNight = true;
         }
+        SimpleDateFormat sdfDateTime = mSDF2;
+        if (includeSeconds) { sdfDateTime = mSDF2s; }
 
         // preparations; does the integrated record contain amended information?
         boolean isAmended = false;
@@ -371,108 +462,93 @@ public class CSVexporter {
         long dated = 0;
         if (iRec.theZAH_SleepRecord != null) { dated = iRec.theZAH_SleepRecord.rStartOfNight; }
         if (iRec.theCSErecord != null && (dated == 0.0 || iRec.theCSErecord.rStartOfRecord_Timestamp < dated)) { dated = iRec.theCSErecord.rStartOfRecord_Timestamp; }
-        str = str + mSDF1.format(new Date(dated)) + ",";
+        appendDate(sb, mSDF1, dated); sb.append(',');
 
         // sleep record subsection including start and end date/times
         if (iRec.theZAH_SleepRecord != null) {
             // Zeo App record is present; a matching CSE record may also be present
-            if (isAmended && mAmendedPlaceFirst) { str = str + buildAmendedSleepRecord(iRec, asEpochs); }
-            else { str = str + buildZeoSleepRecord(iRec, asEpochs); }
+            if (isAmended && mAmendedPlaceFirst) { appendAmendedSleepRecord(sb, iRec, asEpochs); }
+            else { appendZeoSleepRecord(sb, iRec, asEpochs); }
 
             if (alterStartOfNight && iRec.theZAH_SleepRecord.mHasExtended && iRec.theZAH_SleepRecord.rDisplayHypnogramStartTime > 0) {
-                if (includeSeconds) { str = str + "," + mSDF2s.format(new Date(iRec.theZAH_SleepRecord.rDisplayHypnogramStartTime)) + ","; }
-                else { str = str + "," + mSDF2.format(new Date(iRec.theZAH_SleepRecord.rDisplayHypnogramStartTime)) + ","; }
+                sb.append(','); appendDate(sb, sdfDateTime, iRec.theZAH_SleepRecord.rDisplayHypnogramStartTime); sb.append(',');
             } else if (iRec.theZAH_SleepRecord.rStartOfNight > 0) {
-                if (includeSeconds) { str = str + "," + mSDF2s.format(new Date(iRec.theZAH_SleepRecord.rStartOfNight)) + ","; }
-                else { str = str + "," + mSDF2.format(new Date(iRec.theZAH_SleepRecord.rStartOfNight)) + ","; }
-            } else { str = str + ","; }
+                sb.append(','); appendDate(sb, sdfDateTime, iRec.theZAH_SleepRecord.rStartOfNight); sb.append(',');
+            } else { sb.append(','); }
 
             if (iRec.theZAH_SleepRecord.rEndOfNight > 0) {
-                if (includeSeconds) { str = str + mSDF2s.format(new Date(iRec.theZAH_SleepRecord.rEndOfNight)) + ","; }
-                else { str = str + mSDF2.format(new Date(iRec.theZAH_SleepRecord.rEndOfNight)) + ","; }
-            } else { str = str + ","; }
+                appendDate(sb, sdfDateTime, iRec.theZAH_SleepRecord.rEndOfNight); sb.append(',');
+            } else { sb.append(','); }
 
             if (fakeTheRiseTime && iRec.theZAH_SleepRecord.rEndOfNight > 0) {
                 // this is the "Rise Time" field which SleepyHead software requires to be present
-                if (includeSeconds) { str = str + mSDF2s.format(new Date(iRec.theZAH_SleepRecord.rEndOfNight)) + ","; }
-                else { str = str + mSDF2.format(new Date(iRec.theZAH_SleepRecord.rEndOfNight)) + ","; }
-            } else { str = str + ","; }
+                appendDate(sb, sdfDateTime, iRec.theZAH_SleepRecord.rEndOfNight); sb.append(',');
+            } else { sb.append(','); }
         } else if (iRec.theCSErecord != null) {
             // CSE record without a matching Zeo record; cannot contain amended information; only limited information is available
             long starting = iRec.theCSErecord.rEvent_TryingToSleep_Timestamp;
             if (starting == 0) { starting = iRec.theCSErecord.rEvent_GotIntoBed_Timestamp; }
             long ending = iRec.theCSErecord.rEvent_OutOfBedDoneSleeping_Timestamp;
 
-            str = str + ",";    // no ZQ score
+            sb.append(',');    // no ZQ score
 
             if (starting > 0 && ending > 0) {
                 long dur = (ending - starting) / 60000L;
-                str = str + dur + ",";  // effective Total Z duration
+                sb.append(dur).append(',');  // effective Total Z duration
             } else {
-                str = str + ",";        // otherwise no Total Z duration known
+                sb.append(',');        // otherwise no Total Z duration known
             }
 
-            str = str + ",,,,,,"; // no sleep stage totals
+            sb.append(",,,,,,"); // no sleep stage totals
 
             if (starting > 0) {
-                if (includeSeconds) { str = str + mSDF2s.format(new Date(starting)) + ","; }
-                else { str = str + mSDF2.format(new Date(starting)) + ","; }
-            }  else { str = str + ","; }
+                appendDate(sb, sdfDateTime, starting); sb.append(',');
+            }  else { sb.append(','); }
 
             if (ending > 0) {
-                if (includeSeconds) { str = str + mSDF2s.format(new Date(ending)) + ","; }
-                else { str = str + mSDF2.format(new Date(ending)) + ","; }
-            } else { str = str + ","; }
+                appendDate(sb, sdfDateTime, ending); sb.append(',');
+            } else { sb.append(','); }
 
             if (fakeTheRiseTime && ending > 0) {
                 // this is the "Rise Time" field which SleepyHead software requires to be present
-                if (includeSeconds) { str = str + mSDF2s.format(new Date(ending)) + ","; }
-                else { str = str + mSDF2.format(new Date(ending)) + ","; }
-            } else { str = str + ","; }
+                appendDate(sb, sdfDateTime, ending); sb.append(',');
+            } else { sb.append(','); }
 
-        } else { return str + "$ERROR$"; }  // this should not be possible
+        } else { sb.append("$ERROR$"); return; }  // this should not be possible
 
         // alarms subsection (not used except for the Rise Time which was previously handled)
-        str = str + ",,,,,,,,,,"; // no alarms
+        sb.append(",,,,,,,,,,"); // no alarms
 
         // attributes subsection
         if (iRec.theCSErecord != null) {
-            if (!includeValueText && iRec.theCSErecord.rAttributes_Fixed_CSV_string != null) { iRec.theCSErecord.unpackInfoCSVstrings(); }
-            if (iRec.theCSErecord.rAttributes_Fixed_CSV_string != null) {
-                if (!iRec.theCSErecord.rAttributes_Fixed_CSV_string.isEmpty()) {
-                    str = str + iRec.theCSErecord.rAttributes_Fixed_CSV_string;
-                    str = str + ",";
-                    //Log.d(_CTAG+".buildOneLine","Used mAttributes_Fixed_CSV_string");
-                } else {
-                    str = str + ",,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,";
-                }
-            } else if (iRec.theCSErecord.mAttribs_Fixed_array != null) {
+            if (iRec.theCSErecord.mAttribs_Fixed_array == null) {
+                // read directly from the packed form
+                CompanionSleepEpisodePackedCodec.appendFixedAttribsCSV(sb, iRec.theCSErecord.rAttributes_Fixed_packed, includeValueText);
+            } else {
                 //Log.d(_CTAG+".buildOneLine","Used mAttribs_Fixed_array");
                 for (CompanionSleepEpisodeInfoParsedRec piRec: iRec.theCSErecord.mAttribs_Fixed_array) {
                     if (piRec != null) {
-                        str = str + String.valueOf(piRec.rLikert);
-                        if (includeValueText && piRec.rValue != null) { str = str  + ";" + piRec.rValue; }
+                        sb.append(piRec.rLikert);
+                        if (includeValueText && piRec.rValue != null) { sb.append(';').append(piRec.rValue); }
                     }
-                    str = str + ",";
+                    sb.append(',');
                 }
-            } else {
-                str = str + ",,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,";
             }
         } else {
-            str = str + ",,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,";
+            sb.append(",,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,");
         }
 
         // hypnograms sub-section
         if (iRec.theZAH_SleepRecord != null) {
-            if (isAmended && mAmendedPlaceFirst) { str = str + buildAmendedHypnograms(iRec, includeHypnogramSpaces); }
-            else { str = str + buildZeoHypnograms(iRec, includeHypnogramSpaces); }
-            str = str + ",";
+            if (isAmended && mAmendedPlaceFirst) { appendAmendedHypnograms(sb, iRec, includeHypnogramSpaces); }
+            else { appendZeoHypnograms(sb, iRec, includeHypnogramSpaces); }
+            sb.append(',');
         } else {
-            str = str + ",,";
+            sb.append(",,");
         }
 
         // closing columns of the Original myZeo section
-        str = str + "unknown,ZC-V"+ BuildConfig.VERSION_NAME;
+        sb.append("unknown,ZC-V").append(BuildConfig.VERSION_NAME);
 
         // Extended Sleep Record section
         int battLow = 0;
@@ -490,160 +566,147 @@ public class CSVexporter {
                 }
             }
         }
-        if (isAmended && mAmendedPlaceFirst) { str = str + "," + mSDF2s.format(new Date(iRec.theCSErecord.rAmend_Display_Hypnogram_Starttime)) + ","; }
-        else if (iRec.theZAH_SleepRecord != null) { str = str + "," + mSDF2s.format(new Date(iRec.theZAH_SleepRecord.rDisplayHypnogramStartTime)) + ","; }
-        else { str = str + ",,"; }
+        if (isAmended && mAmendedPlaceFirst) { sb.append(','); appendDate(sb, mSDF2s, iRec.theCSErecord.rAmend_Display_Hypnogram_Starttime); sb.append(','); }
+        else if (iRec.theZAH_SleepRecord != null) { sb.append(','); appendDate(sb, mSDF2s, iRec.theZAH_SleepRecord.rDisplayHypnogramStartTime); sb.append(','); }
+        else { sb.append(",,"); }
 
         if (iRec.theZAH_SleepRecord != null) {
-            str = str + mSDF2s.format(new Date(iRec.theZAH_SleepRecord.rStartOfNightOrig)) + ",";
-        } else { str = str + ","; }
+            appendDate(sb, mSDF2s, iRec.theZAH_SleepRecord.rStartOfNightOrig); sb.append(',');
+        } else { sb.append(','); }
 
-        str = str + battHigh + "," + battLow + ",";
-        str = str + ",,";   // no impedance is available at this time
+        sb.append(battHigh).append(',').append(battLow).append(',');
+        sb.append(",,");   // no impedance is available at this time
 
-        if (isAmended && mAmendedPlaceFirst) { str = str + buildAmendedSleepExtended(iRec, asEpochs); }
-        else if (iRec.theZAH_SleepRecord != null) { str = str + buildZeoSleepExtended(iRec, asEpochs); }
-        else { str = str + ","; }
+        if (isAmended && mAmendedPlaceFirst) { appendAmendedSleepExtended(sb, iRec); }
+        else if (iRec.theZAH_SleepRecord != null) { appendZeoSleepExtended(sb, iRec); }
+        else { sb.append(','); }
 
         // the Amended Sleep Record section
         if (mIncludeAmended) {
             if (isAmended) {
                 if (mAmendedPlaceFirst) {
-                    str = str + "," + buildZeoSleepRecord(iRec, asEpochs);
-                    str = str + "," + buildZeoSleepExtended(iRec, asEpochs);
-                    str = str + "," + buildZeoHypnograms(iRec, includeHypnogramSpaces);
+                    sb.append(','); appendZeoSleepRecord(sb, iRec, asEpochs);
+                    sb.append(','); appendZeoSleepExtended(sb, iRec);
+                    sb.append(','); appendZeoHypnograms(sb, iRec, includeHypnogramSpaces);
                 } else {
-                    str = str + "," + buildAmendedSleepRecord(iRec, asEpochs);
-                    str = str + "," + buildAmendedSleepExtended(iRec, asEpochs);
-                    str = str + "," + buildAmendedHypnograms(iRec, includeHypnogramSpaces);
+                    sb.append(','); appendAmendedSleepRecord(sb, iRec, asEpochs);
+                    sb.append(','); appendAmendedSleepExtended(sb, iRec);
+                    sb.append(','); appendAmendedHypnograms(sb, iRec, includeHypnogramSpaces);
                 }
             } else {
-                str = str + ",,,,,,,,,,";
+                sb.append(",,,,,,,,,,");
             }
         }
 
-        // the Free-format Sleep Journal section
+        // the Free-format Sleep Journal section; it is only emitted if it has content
         if (iRec.theCSErecord != null) {
+            int sectionStart = sb.length();
+            sb.append(",$ZeoCompJournalAddtl,");
+            int contentStart = sb.length();
+
             // attributes subsection
-            String workStr = "";
-            if (iRec.theCSErecord.rAttributes_Vari_CSV_string != null) {
-                if (!iRec.theCSErecord.rAttributes_Vari_CSV_string.isEmpty()) {
-                    workStr = workStr + "$A," + iRec.theCSErecord.rAttributes_Vari_CSV_string;
-                    if (!iRec.theCSErecord.rAttributes_Vari_CSV_string.substring(iRec.theCSErecord.rAttributes_Vari_CSV_string.length() - 1).equals(",")) { workStr = workStr + ","; }
-                    workStr = workStr + "$/A,";
+            if (iRec.theCSErecord.mAttribs_Vari_array == null) {
+                // read directly from the packed form
+                if (CompanionSleepEpisodePackedCodec.getCount(iRec.theCSErecord.rAttributes_Vari_packed) > 0) {
+                    sb.append("$A,");
+                    CompanionSleepEpisodePackedCodec.appendVariAttribsCSV(sb, iRec.theCSErecord.rAttributes_Vari_packed);
+                    sb.append("$/A,");
                 }
-            } else if (iRec.theCSErecord.mAttribs_Vari_array != null) {
+            } else {
                 if (!iRec.theCSErecord.mAttribs_Vari_array.isEmpty()) {
-                    workStr = workStr + "$A,";
+                    sb.append("$A,");
                     for (CompanionSleepEpisodeInfoParsedRec piRec : iRec.theCSErecord.mAttribs_Vari_array) {
                         if (piRec.rAttributeExportName != null) {
-                            workStr = workStr + String.valueOf(piRec.rSleepStage) + ";" + piRec.rAttributeExportName + ";" + String.valueOf(piRec.rLikert) + ";";
-                            if (piRec.rValue != null) { workStr = workStr + piRec.rValue; }
+                            sb.append(piRec.rSleepStage).append(';').append(piRec.rAttributeExportName).append(';').append(piRec.rLikert).append(';');
+                            if (piRec.rValue != null) { sb.append(piRec.rValue); }
+                            sb.append(',');
                         }
                     }
-                    workStr = workStr + "$/A,";
+                    sb.append("$/A,");
                 }
             }
 
             // events subsection
-            if (iRec.theCSErecord.mEvents_array == null) { iRec.theCSErecord.unpackEventCSVstring(); }
+            if (iRec.theCSErecord.mEvents_array == null) { iRec.theCSErecord.unpackEvents(); }
             if (iRec.theCSErecord.mEvents_array != null) {
                 if (!iRec.theCSErecord.mEvents_array.isEmpty()) {
-                    workStr = workStr + "$E,";
+                    sb.append("$E,");
                     for (CompanionSleepEpisodeEventsParsedRec evtRec : iRec.theCSErecord.mEvents_array) {
-                        workStr = workStr + evtRec.getExportString(mSDF2s) + ",";
+                        sb.append(evtRec.getExportString(mSDF2s)).append(',');
                     }
-                    workStr = workStr + "$/E,";
+                    sb.append("$/E,");
                 }
             }
 
-            if (!workStr.isEmpty()) {
-                str = str + ",$ZeoCompJournalAddtl," + workStr + "$/ZeoCompJournalAddtl";
-            }
+            if (sb.length() > contentStart) { sb.append("$/ZeoCompJournalAddtl"); }
+            else { sb.setLength(sectionStart); }
         }
-        return str;
     }
 
-    // build a zeo-based sleep record subsection; note there is no final comma
-    private String buildZeoSleepRecord(JournalDataCoordinator.IntegratedHistoryRec iRec, boolean asEpochs) {
-        String str = iRec.theZAH_SleepRecord.rZQ_Score + ",";
+    // append a zeo-based sleep record subsection; note there is no final comma
+    private void appendZeoSleepRecord(StringBuilder sb, JournalDataCoordinator.IntegratedHistoryRec iRec, boolean asEpochs) {
+        ZAH_SleepRecord zRec = iRec.theZAH_SleepRecord;
+        sb.append(zRec.rZQ_Score).append(',');
         if (asEpochs) {
-            str = str + String.format("%.0f", iRec.theZAH_SleepRecord.rTime_Total_Z_min * 2.0) + ","  + String.format("%.0f", iRec.theZAH_SleepRecord.rTime_to_Z_min * 2.0) + ",";
-            str = str + String.format("%.0f", iRec.theZAH_SleepRecord.rTime_Awake_min * 2.0) + ","    + String.format("%.0f", iRec.theZAH_SleepRecord.rTime_REM_min * 2.0) + ",";
-            str = str + String.format("%.0f", iRec.theZAH_SleepRecord.rTime_Light_min * 2.0) + ","    + String.format("%.0f", iRec.theZAH_SleepRecord.rTime_Deep_min * 2.0) + ",";
+            appendFixed(sb, zRec.rTime_Total_Z_min * 2.0, 0); sb.append(','); appendFixed(sb, zRec.rTime_to_Z_min * 2.0, 0); sb.append(',');
+            appendFixed(sb, zRec.rTime_Awake_min * 2.0, 0); sb.append(','); appendFixed(sb, zRec.rTime_REM_min * 2.0, 0); sb.append(',');
+            appendFixed(sb, zRec.rTime_Light_min * 2.0, 0); sb.append(','); appendFixed(sb, zRec.rTime_Deep_min * 2.0, 0); sb.append(',');
         } else {
-            str = str + String.format("%.1f", iRec.theZAH_SleepRecord.rTime_Total_Z_min) + ","  + String.format("%.1f", iRec.theZAH_SleepRecord.rTime_to_Z_min) + ",";
-            str = str + String.format("%.1f", iRec.theZAH_SleepRecord.rTime_Awake_min) + ","    + String.format("%.1f", iRec.theZAH_SleepRecord.rTime_REM_min) + ",";
-            str = str + String.format("%.1f", iRec.theZAH_SleepRecord.rTime_Light_min) + ","    + String.format("%.1f", iRec.theZAH_SleepRecord.rTime_Deep_min) + ",";
+            appendFixed(sb, zRec.rTime_Total_Z_min, 1); sb.append(','); appendFixed(sb, zRec.rTime_to_Z_min, 1); sb.append(',');
+            appendFixed(sb, zRec.rTime_Awake_min, 1); sb.append(','); appendFixed(sb, zRec.rTime_REM_min, 1); sb.append(',');
+            appendFixed(sb, zRec.rTime_Light_min, 1); sb.append(','); appendFixed(sb, zRec.rTime_Deep_min, 1); sb.append(',');
         }
-        str = str + iRec.theZAH_SleepRecord.rCountAwakenings;
-        return str;
+        sb.append(zRec.rCountAwakenings);
     }
 
-    // build an amended-based sleep record subsection; note there is no final comma
-    private String buildAmendedSleepRecord(JournalDataCoordinator.IntegratedHistoryRec iRec, boolean asEpochs) {
-        String str = iRec.theCSErecord.rAmend_ZQ_Score + ",";
+    // append an amended-based sleep record subsection; note there is no final comma
+    private void appendAmendedSleepRecord(StringBuilder sb, JournalDataCoordinator.IntegratedHistoryRec iRec, boolean asEpochs) {
+        CompanionSleepEpisodesRec cRec = iRec.theCSErecord;
+        sb.append(cRec.rAmend_ZQ_Score).append(',');
         if (asEpochs) {
-            str = str + String.format("%.0f", iRec.theCSErecord.rAmend_Time_Total_Z_min * 2.0) + "," + String.format("%.0f", iRec.theCSErecord.rAmend_Time_to_Z_min * 2.0) + ",";
-            str = str + String.format("%.0f", iRec.theCSErecord.rAmend_Time_Awake_min * 2.0) + ","    + String.format("%.0f", iRec.theCSErecord.rAmend_Time_REM_min * 2.0) + ",";
-            str = str + String.format("%.0f", iRec.theCSErecord.rAmend_Time_Light_min * 2.0) + ","    + String.format("%.0f", iRec.theCSErecord.rAmend_Time_Deep_min * 2.0) + ",";
-
+            appendFixed(sb, cRec.rAmend_Time_Total_Z_min * 2.0, 0); sb.append(','); appendFixed(sb, cRec.rAmend_Time_to_Z_min * 2.0, 0); sb.append(',');
+            appendFixed(sb, cRec.rAmend_Time_Awake_min * 2.0, 0); sb.append(','); appendFixed(sb, cRec.rAmend_Time_REM_min * 2.0, 0); sb.append(',');
+            appendFixed(sb, cRec.rAmend_Time_Light_min * 2.0, 0); sb.append(','); appendFixed(sb, cRec.rAmend_Time_Deep_min * 2.0, 0); sb.append(',');
         } else {
-            str = str + String.format("%.1f", iRec.theCSErecord.rAmend_Time_Total_Z_min) + "," + String.format("%.1f", iRec.theCSErecord.rAmend_Time_to_Z_min) + ",";
-            str = str + String.format("%.1f", iRec.theCSErecord.rAmend_Time_Awake_min) + ","    + String.format("%.1f", iRec.theCSErecord.rAmend_Time_REM_min) + ",";
-            str = str + String.format("%.1f", iRec.theCSErecord.rAmend_Time_Light_min) + ","    + String.format("%.1f", iRec.theCSErecord.rAmend_Time_Deep_min) + ",";
+            appendFixed(sb, cRec.rAmend_Time_Total_Z_min, 1); sb.append(','); appendFixed(sb, cRec.rAmend_Time_to_Z_min, 1); sb.append(',');
+            appendFixed(sb, cRec.rAmend_Time_Awake_min, 1); sb.append(','); appendFixed(sb, cRec.rAmend_Time_REM_min, 1); sb.append(',');
+            appendFixed(sb, cRec.rAmend_Time_Light_min, 1); sb.append(','); appendFixed(sb, cRec.rAmend_Time_Deep_min, 1); sb.append(',');
         }
-        str = str + iRec.theCSErecord.rAmend_CountAwakenings;
-        return str;
+        sb.append(cRec.rAmend_CountAwakenings);
     }
 
-    // build an amended-based sleep extended record subsection; note there is no final comma
-    private String buildZeoSleepExtended(JournalDataCoordinator.IntegratedHistoryRec iRec, boolean asEpochs) {
-        return iRec.theZAH_SleepRecord.rLightChangedToDeep_min + "," + iRec.theZAH_SleepRecord.rDeepSum;
+    // append a zeo-based sleep extended record subsection; note there is no final comma
+    private void appendZeoSleepExtended(StringBuilder sb, JournalDataCoordinator.IntegratedHistoryRec iRec) {
+        sb.append(iRec.theZAH_SleepRecord.rLightChangedToDeep_min).append(',').append(iRec.theZAH_SleepRecord.rDeepSum);
     }
 
-    // build an amended-based sleep extended record subsection; note there is no final comma
-    private String buildAmendedSleepExtended(JournalDataCoordinator.IntegratedHistoryRec iRec, boolean asEpochs) {
-        return iRec.theCSErecord.rAmend_LightChangedToDeep_min + "," + iRec.theCSErecord.rAmend_DeepSum;
+    // append an amended-based sleep extended record subsection; note there is no final comma
+    private void appendAmendedSleepExtended(StringBuilder sb, JournalDataCoordinator.IntegratedHistoryRec iRec) {
+        sb.append(iRec.theCSErecord.rAmend_LightChangedToDeep_min).append(',').append(iRec.theCSErecord.rAmend_DeepSum);
     }
 
-    // build a zeo-based hypnograms subsection; note there is no final comma
-    private String buildZeoHypnograms (JournalDataCoordinator.IntegratedHistoryRec iRec, boolean includeHypnogramSpaces) {
-        String str = "";
-        for (int i = 0; i < iRec.theZAH_SleepRecord.rDisplay_Hypnogram.length; i++) {
-            str = str + Byte.toString(iRec.theZAH_SleepRecord.rDisplay_Hypnogram[i]);
-            if (includeHypnogramSpaces) { str = str + " "; }
-        }
-
-        int m = iRec.theZAH_SleepRecord.rBase_Hypnogram.length - 1;
-        while (m >= 0 && iRec.theZAH_SleepRecord.rBase_Hypnogram[m] == ZeoDataContract.SleepRecord.SLEEP_STAGE_UNDEFINED) { m--; }
-        m++;
+    // append a zeo-based hypnograms subsection; note there is no final comma
+    private void appendZeoHypnograms(StringBuilder sb, JournalDataCoordinator.IntegratedHistoryRec iRec, boolean includeHypnogramSpaces) {
+        appendHypnograms(sb, iRec.theZAH_SleepRecord.rDisplay_Hypnogram, iRec.theZAH_SleepRecord.rBase_Hypnogram, includeHypnogramSpaces);
+    }
 
-        str = str + ",";
-        for (int i = 0; i < m; i++) {
-            str = str + Byte.toString(iRec.theZAH_SleepRecord.rBase_Hypnogram[i]);
-            if (includeHypnogramSpaces) { str = str + " "; }
-        }
-        return str;
+    // append an amended-based hypnograms subsection; note there is no final comma
+    private void appendAmendedHypnograms(StringBuilder sb, JournalDataCoordinator.IntegratedHistoryRec iRec, boolean includeHypnogramSpaces) {
+        appendHypnograms(sb, iRec.theCSErecord.getAmendDisplayHypnogram(), iRec.theCSErecord.getAmendBaseHypnogram(), includeHypnogramSpaces);
     }
 
-    // build an amended-based hypnograms subsection; note there is no final comma
-    private String buildAmendedHypnograms (JournalDataCoordinator.IntegratedHistoryRec iRec, boolean includeHypnogramSpaces) {
-        String str = "";
-        for (int i = 0; i < iRec.theCSErecord.rAmend_Display_Hypnogram.length; i++) {
-            str = str + Byte.toString(iRec.theCSErecord.rAmend_Display_Hypnogram[i]);
-            if (includeHypnogramSpaces) { str = str + " "; }
-        }
+    // append a display hypnogram and a base hypnogram (less its trailing undefined stages) separated by a comma
+    private void appendHypnograms(StringBuilder sb, byte[] displayHypnogram, byte[] baseHypnogram, boolean includeHypnogramSpaces) {
+        CSVfieldFormatter.appendHypnograms(sb, displayHypnogram, baseHypnogram, includeHypnogramSpaces);
+    }
 
-        int m = iRec.theCSErecord.rAmend_Base_Hypnogram.length - 1;
-        while (m >= 0 && iRec.theCSErecord.rAmend_Base_Hypnogram[m] == ZeoDataContract.SleepRecord.SLEEP_STAGE_UNDEFINED) { m--; }
-        m++;
+    // append a timestamp formatted by the indicated date formatter; the Date and output buffer are re-used for every call
+    private void appendDate(StringBuilder sb, SimpleDateFormat sdf, long timestamp) {
+        mFormatter.appendDate(sb, sdf, timestamp);
+    }
 
-        str = str + ",";
-        for (int i = 0; i < m; i++) {
-            str = str + Byte.toString(iRec.theCSErecord.rAmend_Base_Hypnogram[i]);
-            if (includeHypnogramSpaces) { str = str + " "; }
-        }
-        return str;
+    // append a number exactly as String.format("%.0f") or String.format("%.1f") would in the default locale
+    private void appendFixed(StringBuilder sb, double value, int decimals) {
+        mFormatter.appendFixed(sb, value, decimals);
     }
 }
@@ -0,0 +1,77 @@
+package opensource.zeocompanion.utility;
+
+import com.myzeo.android.api.data.ZeoDataContract;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// formats the individual fields of the CSV export lines directly into a StringBuilder; it is kept apart from the CSVexporter
+// (which depends upon Android) so that its output and speed can be verified on the plain JVM; not thread-safe since the
+// Date and output buffer of the date formatting are re-used for every call
+public class CSVfieldFormatter {
+    // member variables
+    private Date mWorkDate = new Date(0L);
+    private StringBuffer mDateBuffer = new StringBuffer(32);
+    private FieldPosition mFieldPosition = new FieldPosition(0);
+    private char mDecimalSeparator = '.';
+    private boolean mPlainDigits = true;    // the default locale formats numbers with the ASCII digits
+
+    // member constants and other static content
+    private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+
+    // constructor; captures the number formatting of the default locale
+    public CSVfieldFormatter() {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        mDecimalSeparator = symbols.getDecimalSeparator();
+        mPlainDigits = (symbols.getZeroDigit() == '0');
+    }
+
+    // append a timestamp formatted by the indicated date formatter
+    public void appendDate(StringBuilder sb, SimpleDateFormat sdf, long timestamp) {
+        mWorkDate.setTime(timestamp);
+        mDateBuffer.setLength(0);
+        sdf.format(mWorkDate, mDateBuffer, mFieldPosition);
+        sb.append(mDateBuffer);
+    }
+
+    // append a number exactly as String.format("%.0f") or String.format("%.1f") would in the default locale; the sleep durations
+    // are always in half-minute multiples, which are formatted directly; any other value falls back to String.format itself
+    public void appendFixed(StringBuilder sb, double value, int decimals) {
+        if (mPlainDigits) {
+            double halves = value * 2.0;
+            if (halves == Math.rint(halves) && Math.abs(halves) < 1.0E15 && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+                long h = (long)halves;
+                if (h < 0) { sb.append('-'); h = -h; }
+                if (decimals == 0) {
+                    sb.append((h + 1) / 2);     // an exact half rounds away from zero (HALF_UP) as does String.format
+                } else {
+                    sb.append(h / 2).append(mDecimalSeparator);
+                    if ((h & 1) == 0) { sb.append('0'); }
+                    else { sb.append('5'); }
+                }
+                return;
+            }
+        }
+        if (decimals == 0) { sb.append(String.format("%.0f", value)); }
+        else { sb.append(String.format("%.1f", value)); }
+    }
+
+    // append a display hypnogram and a base hypnogram (less its trailing undefined stages) separated by a comma
+    public static void appendHypnograms(StringBuilder sb, byte[] displayHypnogram, byte[] baseHypnogram, boolean includeHypnogramSpaces) {
+        for (int i = 0; i < displayHypnogram.length; i++) {
+            sb.append((int)displayHypnogram[i]);
+            if (includeHypnogramSpaces) { sb.append(' '); }
+        }
+
+        int m = baseHypnogram.length - 1;
+        while (m >= 0 && baseHypnogram[m] == ZeoDataContract.SleepRecord.SLEEP_STAGE_UNDEFINED) { m--; }
+        m++;
+
+        sb.append(',');
+        for (int i = 0; i < m; i++) {
+            sb.append((int)baseHypnogram[i]);
+            if (includeHypnogramSpaces) { sb.append(' '); }
+        }
+    }
+}
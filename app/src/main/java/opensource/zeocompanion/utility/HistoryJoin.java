@@ -0,0 +1,252 @@
+package opensource.zeocompanion.utility;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// the join of the sleep journal's records with the Zeo App's and the replicated Zeo sleep records into integrated history records;
+// it is kept apart from the record classes (which depend upon Android) and works upon plain parallel arrays describing the records
+// so that it can be verified on the plain JVM; the journal records are indexed by their linked ZSE ID in a LongIntHashMap so each
+// Zeo record is matched in O(1) rather than by scanning the entire array; removed records are flagged and skipped during assembly
+public class HistoryJoin {
+    // member variables:  the results; one entry per integrated history record sorted newest to oldest
+    public int mQty = 0;
+    public int[] mJournalPos = null;    // position within the journal arrays or -1 if none
+    public int[] mZeoPos = null;        // position within the Zeo arrays or -1 if none
+    public long[] mTimestamp = null;
+    public long[] mZSEid = null;
+    public int[] mFound = null;         // 0x01 journal record present; 0x02 Zeo record present
+
+    // member variables:  the working arrays; one entry per integrated history record in the order created
+    private int mWorkQty = 0;
+    private int[] mWorkJournal = null;
+    private int[] mWorkZeo = null;
+    private long[] mWorkTimestamp = null;
+    private long[] mWorkZSEid = null;
+    private int[] mWorkFound = null;
+    private boolean[] mWorkRemoved = null;
+    private int[] mNextWithSameZSE = null;
+    private LongIntHashMap mZSEindex = null;
+
+    // constructor
+    private HistoryJoin(int capacity) {
+        mWorkJournal = new int[capacity];
+        mWorkZeo = new int[capacity];
+        mWorkTimestamp = new long[capacity];
+        mWorkZSEid = new long[capacity];
+        mWorkFound = new int[capacity];
+        mWorkRemoved = new boolean[capacity];
+    }
+
+    // join the records; the journal records are those already filtered of unlinked-and-dead records and sorted newest to oldest;
+    // the Zeo records are the Zeo App's records (positions 0 to zeoAppQty-1) followed by the replicated records (positions zeoAppQty to zeoQty-1),
+    // each sorted newest to oldest; a visible Zeo record is one with sleep (or any record if dead records are wanted); an integratable
+    // Zeo record is one that is visible or still active
+    public static HistoryJoin join(long[] journalZSEids, long[] journalTimestamps, boolean[] journalHasOnlyZeoContent, int journalQty,
+                                   long[] zeoZSEids, long[] zeoStartsOfNight, boolean[] zeoVisible, boolean[] zeoIntegratable, int zeoAppQty, int zeoQty,
+                                   boolean zeoOnly) {
+        if (zeoOnly) { journalQty = 0; }
+        HistoryJoin theJoin = new HistoryJoin(journalQty + zeoQty);
+        theJoin.doJoin(journalZSEids, journalTimestamps, journalHasOnlyZeoContent, journalQty, zeoZSEids, zeoStartsOfNight, zeoVisible, zeoIntegratable, zeoAppQty, zeoQty, zeoOnly);
+        return theJoin;
+    }
+
+    // perform the actual join
+    private void doJoin(long[] journalZSEids, long[] journalTimestamps, boolean[] journalHasOnlyZeoContent, int journalQty,
+                        long[] zeoZSEids, long[] zeoStartsOfNight, boolean[] zeoVisible, boolean[] zeoIntegratable, int zeoAppQty, int zeoQty,
+                        boolean zeoOnly) {
+        int journalCnt = 0;
+        int zeoCnt = 0;
+        int[] segmentStarts = new int[4];   // journal records, Zeo App records, replicated Zeo records, end-of-array
+
+        // first all the sleep journal records
+        for (int j = 0; j < journalQty; j++) {
+            appendWork(j, -1, journalTimestamps[j], journalZSEids[j], 0x01);
+            journalCnt++;
+        }
+
+        // index the journal records by their linked ZSE ID; journal records that share the same ZSE ID are chained in array order
+        // so that when the first one gets removed the next one becomes the match, just as a front-to-back scan of the array would find
+        mNextWithSameZSE = new int[mWorkQty];
+        mZSEindex = new LongIntHashMap(mWorkQty + 512);
+        for (int i = mWorkQty - 1; i >= 0; i--) {
+            mNextWithSameZSE[i] = mZSEindex.get(mWorkZSEid[i]);
+            mZSEindex.put(mWorkZSEid[i], i);
+        }
+
+        // next merge in all the Zeo Sleep Records; two passes to draw from both the Zeo App's database and any replication in the ZeoCompanion database
+        for (int pass = 0; pass <= 1; pass++) {
+            segmentStarts[pass + 1] = mWorkQty;
+            int zStart = 0;
+            int zEnd = zeoAppQty;
+            if (pass == 1) { zStart = zeoAppQty; zEnd = zeoQty; }
+
+            for (int z = zStart; z < zEnd; z++) {
+                long zseID = zeoZSEids[z];
+                int pos = mZSEindex.get(zseID);
+                if (zeoOnly) {
+                    // Zeo records only; no integrating needed; only the replicated pass needs to skip records already present
+                    if (zeoVisible[z]) {
+                        if (pass == 0 || pos == LongIntHashMap.NOT_FOUND) {
+                            appendZeoOnly(z, zeoStartsOfNight[z], zseID);
+                            zeoCnt++;
+                        }
+                    }
+                } else {
+                    // integration is necessary
+                    boolean found = false;
+                    if (pos != LongIntHashMap.NOT_FOUND) {
+                        // found the matching record
+                        if (pass == 0 || (mWorkFound[pos] & 0x02) == 0) {
+                            if (zeoIntegratable[z]) {
+                                // is a normal active or finished Zeo record or dead ZEO records are wanted; integrate it with its matching record
+                                integrateZeo(pos, z, zeoStartsOfNight[z], zseID);
+                                found = true;
+                            } else {
+                                // this is a hidden Zeo record usually because it is incomplete or had no actual sleep
+                                if (mWorkJournal[pos] >= 0) {
+                                    // it has a matching journal record
+                                    if (journalHasOnlyZeoContent[mWorkJournal[pos]]) {
+                                        // the journal record has Zeo-only content and the Zeo record would normally be hidden, so eliminate the entire integrated record
+                                        removeWork(pos);
+                                        journalCnt--;
+                                    } else {
+                                        // the journal record has content other than Zeo-only content, so do not hide the integrated combination
+                                        integrateZeo(pos, z, zeoStartsOfNight[z], zseID);
+                                        found = true;
+                                    }
+                                } else {
+                                    // not sure how this would happen; preexisting integrated rec without any journal content and a dead Zeo record
+                                    removeWork(pos);
+                                }
+                            }
+                        } else {
+                            // the replicated copy of a Zeo record already integrated from the Zeo App; nothing more to do
+                            found = true;
+                        }
+                    }
+                    if (!found) {
+                        // no matching record was found, so include it as-is
+                        if (zeoVisible[z]) {
+                            if (pass == 0 || mZSEindex.get(zseID) == LongIntHashMap.NOT_FOUND) {
+                                appendZeoOnly(z, zeoStartsOfNight[z], zseID);
+                                zeoCnt++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        segmentStarts[3] = mWorkQty;
+
+        // assemble the results
+        mJournalPos = new int[mWorkQty];
+        mZeoPos = new int[mWorkQty];
+        mTimestamp = new long[mWorkQty];
+        mZSEid = new long[mWorkQty];
+        mFound = new int[mWorkQty];
+        if (journalCnt > 0 && zeoCnt > 0) {
+            // because an actual merge occurred, need to order the results by descending timestamp
+            mergeSegmentsDescending(segmentStarts);
+        } else {
+            for (int i = 0; i < mWorkQty; i++) {
+                if (!mWorkRemoved[i]) { addResult(i); }
+            }
+        }
+    }
+
+    // append an entry to the working arrays
+    private void appendWork(int journalPos, int zeoPos, long timestamp, long zseID, int found) {
+        mWorkJournal[mWorkQty] = journalPos;
+        mWorkZeo[mWorkQty] = zeoPos;
+        mWorkTimestamp[mWorkQty] = timestamp;
+        mWorkZSEid[mWorkQty] = zseID;
+        mWorkFound[mWorkQty] = found;
+        mWorkQty++;
+    }
+
+    // append a new Zeo-only entry and index it if no other entry already has its ZSE ID
+    private void appendZeoOnly(int zeoPos, long startOfNight, long zseID) {
+        appendWork(-1, zeoPos, startOfNight, zseID, 0x02);
+        if (mZSEindex.get(zseID) == LongIntHashMap.NOT_FOUND) { mZSEindex.put(zseID, mWorkQty - 1); }
+    }
+
+    // integrate a Zeo record into an existing (usually journal-based) entry
+    private void integrateZeo(int pos, int zeoPos, long startOfNight, long zseID) {
+        mWorkZeo[pos] = zeoPos;
+        if (startOfNight < mWorkTimestamp[pos]) { mWorkTimestamp[pos] = startOfNight; }
+        mWorkZSEid[pos] = zseID;
+        mWorkFound[pos] = (mWorkFound[pos] | 0x02);
+    }
+
+    // remove an entry; since only the first entry of a ZSE ID is ever matched, the next journal entry (if any) sharing the same ZSE ID becomes the indexed one
+    private void removeWork(int pos) {
+        mWorkRemoved[pos] = true;
+        if (pos < mNextWithSameZSE.length) { mZSEindex.put(mWorkZSEid[pos], mNextWithSameZSE[pos]); }
+        else { mZSEindex.put(mWorkZSEid[pos], LongIntHashMap.NOT_FOUND); }
+    }
+
+    // copy a working entry into the next result
+    private void addResult(int i) {
+        mJournalPos[mQty] = mWorkJournal[i];
+        mZeoPos[mQty] = mWorkZeo[i];
+        mTimestamp[mQty] = mWorkTimestamp[i];
+        mZSEid[mQty] = mWorkZSEid[i];
+        mFound[mQty] = mWorkFound[i];
+        mQty++;
+    }
+
+    // assemble the results in descending timestamp order from the three segments of the working arrays (journal, Zeo App, replicated);
+    // each segment is normally already in descending order as-queried so a linear merge suffices; however integration can pull a
+    // journal record's timestamp earlier, so if any segment is out of order fallback to a full (stable) sort;
+    // ties are resolved in favor of the earlier segment which gives the identical result as the stable sort
+    private void mergeSegmentsDescending(int[] segmentStarts) {
+        int segments = segmentStarts.length - 1;
+        boolean allDescending = true;
+        for (int s = 0; s < segments && allDescending; s++) {
+            long prior = Long.MAX_VALUE;
+            for (int i = segmentStarts[s]; i < segmentStarts[s + 1]; i++) {
+                if (mWorkRemoved[i]) { continue; }
+                if (mWorkTimestamp[i] > prior) { allDescending = false; break; }
+                prior = mWorkTimestamp[i];
+            }
+        }
+
+        if (!allDescending) {
+            Integer[] order = new Integer[mWorkQty];
+            int qty = 0;
+            for (int i = 0; i < mWorkQty; i++) {
+                if (!mWorkRemoved[i]) { order[qty++] = i; }
+            }
+            Arrays.sort(order, 0, qty, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    // configured for DESCENDING sort order
+                    long t1 = mWorkTimestamp[o1];
+                    long t2 = mWorkTimestamp[o2];
+                    if (t1 < t2) { return 1; }
+                    if (t1 > t2) { return -1; }
+                    return 0;
+                }
+            });
+            for (int k = 0; k < qty; k++) { addResult(order[k]); }
+            return;
+        }
+
+        int[] cursors = new int[segments];
+        for (int s = 0; s < segments; s++) { cursors[s] = segmentStarts[s]; }
+        while (true) {
+            int bestSeg = -1;
+            int best = -1;
+            for (int s = 0; s < segments; s++) {
+                while (cursors[s] < segmentStarts[s + 1] && mWorkRemoved[cursors[s]]) { cursors[s]++; }
+                if (cursors[s] < segmentStarts[s + 1]) {
+                    int i = cursors[s];
+                    if (best < 0 || mWorkTimestamp[i] > mWorkTimestamp[best]) { bestSeg = s; best = i; }
+                }
+            }
+            if (best < 0) { break; }
+            addResult(best);
+            cursors[bestSeg]++;
+        }
+    }
+}
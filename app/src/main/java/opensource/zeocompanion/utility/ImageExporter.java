@@ -63,7 +63,7 @@ public class ImageExporter {
         // pre-determine what is available to be shown
         boolean isAmended = false;
         if (iRec.theCSErecord != null) {
-            iRec.theCSErecord.unpackEventCSVstring();
+            iRec.theCSErecord.unpackEvents();
             isAmended = ((iRec.theCSErecord.rAmendedFlags & CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_AMENDED_FLAGS_AMENDED) != 0);
         }
         int showWhat = showWhich(iRec, isAmended);
@@ -105,7 +105,7 @@ public class ImageExporter {
                 if (iRec.theCSErecord.rAmend_Display_Hypnogram_Starttime > 0) {
                     displayStart2 = iRec.theCSErecord.rAmend_Display_Hypnogram_Starttime;
                 }
-                theHypno.setDataset(displayStart2, 300, 300, iRec.theCSErecord.rAmend_Display_Hypnogram, false, iRec.theCSErecord.mEvents_array);
+                theHypno.setDataset(displayStart2, 300, 300, iRec.theCSErecord.getAmendDisplayHypnogram(), false, iRec.theCSErecord.mEvents_array);
                 break;
         }
         theHypno.doDraw(c1);        // draw once so it can determine all the text sizes
@@ -0,0 +1,364 @@
+package opensource.zeocompanion.utility;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import com.myzeo.android.api.data.ZeoDataContract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import opensource.zeocompanion.ZeoCompanionApplication;
+import opensource.zeocompanion.database.CompanionDatabase;
+import opensource.zeocompanion.database.CompanionSleepEpisodesRec;
+import opensource.zeocompanion.zeo.ZAH_SleepRecord;
+
+// this class retains the source records that are used to build Integrated History Records so that each History request does not
+// need to re-read (and re-transfer the hypnogram BLOBs of) every sleep record in both the ZeoCompanion and Zeo App databases;
+// each source is kept as a master list sorted newest to oldest and indexed by record ID; only records that have been invalidated or changed
+// are re-read, so a request costs only the re-reading of what changed plus the copying of the records it returns;
+// the master records are never handed out; callers always receive copies (including their arrays) they are free to alter, save, or destroy()
+public class IntegratedHistoryCache {
+    // member variables
+    private ArrayList<CompanionSleepEpisodesRec> mJournalRecs = null;   // null means not yet loaded
+    private HashMap<Long, CompanionSleepEpisodesRec> mJournalIndex = null;  // record ID to master record of mJournalRecs
+    private ArrayList<ZAH_SleepRecord> mZeoAppRecs = null;              // null means not yet loaded
+    private LongIntHashMap mZeoAppIndex = null;                         // record ID to position within mZeoAppRecs
+    private ArrayList<ZAH_SleepRecord> mReplicatedRecs = null;          // null means not yet loaded
+    private final HashSet<Long> mDirtyJournalIDs = new HashSet<Long>(); // guarded by itself rather than the cache lock
+    private volatile boolean mInvalidateAll = false;
+    private volatile boolean mInvalidateReplicated = false;
+    private volatile boolean mInvalidateZeoApp = true;
+
+    // member constants and other static content
+    private static final String _CTAG = "IHC";
+
+    // constructor
+    public IntegratedHistoryCache() {}
+
+    // discard all cached content; used when the entire ZeoCompanion database has been replaced
+    public void invalidateAll() {
+        mInvalidateAll = true;
+    }
+
+    // a journal record has been added, changed, or deleted; note this may be invoked from within a database transaction,
+    // so it must never wait upon the cache's lock (which may be held by a thread that is itself waiting upon the database)
+    public void invalidateJournalRec(long cse_id) {
+        synchronized (mDirtyJournalIDs) { mDirtyJournalIDs.add(cse_id); }
+    }
+
+    // the replicated Zeo sleep records table has been changed or purged
+    public void invalidateReplicated() {
+        mInvalidateReplicated = true;
+    }
+
+    // the Zeo App's sleep records may have changed (see ZeoAppHandler.probeAppState)
+    public void invalidateZeoApp() {
+        mInvalidateZeoApp = true;
+    }
+
+    // get copies of all journal records on or after the specified timestamp (0 means all); sorted newest to oldest
+    public synchronized void getJournalRecs(ArrayList<CompanionSleepEpisodesRec> theArray, long afterTimestamp) {
+        checkInvalidateAll();
+        refreshJournalRecs();
+        for (CompanionSleepEpisodesRec rec: mJournalRecs) {
+            if (afterTimestamp > 0 && rec.rStartOfRecord_Timestamp < afterTimestamp) { break; }
+            theArray.add(new CompanionSleepEpisodesRec(rec));
+        }
+    }
+
+    // get copies of all Zeo App sleep records on or after the specified timestamp (0 means all); sorted newest to oldest
+    public synchronized void getZeoAppRecs(ArrayList<ZAH_SleepRecord> theArray, long afterTimestamp) {
+        checkInvalidateAll();
+        refreshZeoAppRecs();
+        copyZeoRecs(mZeoAppRecs, theArray, afterTimestamp);
+    }
+
+    // get copies of all replicated Zeo sleep records on or after the specified timestamp (0 means all); sorted newest to oldest
+    public synchronized void getReplicatedRecs(ArrayList<ZAH_SleepRecord> theArray, long afterTimestamp) {
+        checkInvalidateAll();
+        refreshReplicatedRecs();
+        copyZeoRecs(mReplicatedRecs, theArray, afterTimestamp);
+    }
+
+    // get the timestamp of the Nth newest record older than beforeTimestamp of whichever source has the newest such record, so that a page
+    // ending there takes no more than N records from any one source; the journal is excluded if not requested; returns 0 if every source
+    // has fewer than N such records
+    public synchronized long getPageBoundary(long beforeTimestamp, int limit, boolean includeJournal) {
+        checkInvalidateAll();
+        if (limit < 1) { limit = 1; }
+        long boundary = 0L;
+        if (includeJournal) {
+            refreshJournalRecs();
+            int pos = findJournalOlderPos(beforeTimestamp) + limit - 1;
+            if (pos < mJournalRecs.size()) { boundary = mJournalRecs.get(pos).rStartOfRecord_Timestamp; }
+        }
+        refreshZeoAppRecs();
+        refreshReplicatedRecs();
+        int pos = findZeoOlderPos(mZeoAppRecs, beforeTimestamp) + limit - 1;
+        if (pos < mZeoAppRecs.size() && mZeoAppRecs.get(pos).rStartOfNight > boundary) { boundary = mZeoAppRecs.get(pos).rStartOfNight; }
+        pos = findZeoOlderPos(mReplicatedRecs, beforeTimestamp) + limit - 1;
+        if (pos < mReplicatedRecs.size() && mReplicatedRecs.get(pos).rStartOfNight > boundary) { boundary = mReplicatedRecs.get(pos).rStartOfNight; }
+        return boundary;
+    }
+
+    // get copies of the records of each source within the specified timestamp window (fromTimestamp inclusive, beforeTimestamp exclusive);
+    // each sorted newest to oldest; the journal is excluded if journalArray is null
+    public synchronized void getRecsInWindow(ArrayList<CompanionSleepEpisodesRec> journalArray, ArrayList<ZAH_SleepRecord> zeoAppArray,
+                                             ArrayList<ZAH_SleepRecord> replicatedArray, long fromTimestamp, long beforeTimestamp) {
+        checkInvalidateAll();
+        if (journalArray != null) {
+            refreshJournalRecs();
+            for (int pos = findJournalOlderPos(beforeTimestamp); pos < mJournalRecs.size(); pos++) {
+                CompanionSleepEpisodesRec rec = mJournalRecs.get(pos);
+                if (rec.rStartOfRecord_Timestamp < fromTimestamp) { break; }
+                journalArray.add(new CompanionSleepEpisodesRec(rec));
+            }
+        }
+        refreshZeoAppRecs();
+        copyZeoRecsInWindow(mZeoAppRecs, zeoAppArray, fromTimestamp, beforeTimestamp);
+        refreshReplicatedRecs();
+        copyZeoRecsInWindow(mReplicatedRecs, replicatedArray, fromTimestamp, beforeTimestamp);
+    }
+
+    // load the indicated unloaded columns of copies of journal records; the columns are loaded into the master records (so later copies
+    // already include them and they are not loaded again) and then copied into the provided copies; copies whose master is absent or is
+    // pending a re-read are loaded directly from the database
+    public synchronized void hydrateJournalRecs(ArrayList<CompanionSleepEpisodesRec> theCopies, int columnsMask) {
+        if ((columnsMask & CompanionSleepEpisodesRec.CSE_COLUMNS_AMENDED_HYPNOGRAMS) == 0) { return; }
+        HashSet<Long> dirtyIDs;
+        synchronized (mDirtyJournalIDs) { dirtyIDs = new HashSet<Long>(mDirtyJournalIDs); }
+        ArrayList<CompanionSleepEpisodesRec> theMasteredCopies = new ArrayList<CompanionSleepEpisodesRec>();
+        ArrayList<CompanionSleepEpisodesRec> theMasters = new ArrayList<CompanionSleepEpisodesRec>();
+        ArrayList<CompanionSleepEpisodesRec> theUnmasteredCopies = new ArrayList<CompanionSleepEpisodesRec>();
+        for (CompanionSleepEpisodesRec copy: theCopies) {
+            if (copy == null) { continue; }
+            if ((copy.mUnloadedColumns & CompanionSleepEpisodesRec.CSE_COLUMNS_AMENDED_HYPNOGRAMS) == 0) { continue; }
+            CompanionSleepEpisodesRec master = null;
+            if (mJournalIndex != null && !mInvalidateAll && !dirtyIDs.contains(copy.rID)) { master = mJournalIndex.get(copy.rID); }
+            if (master == null) {
+                theUnmasteredCopies.add(copy);
+            } else {
+                theMasteredCopies.add(copy);
+                theMasters.add(master);
+            }
+        }
+
+        CompanionSleepEpisodesRec.hydrateAll(theMasters, columnsMask);  // masters that are already loaded are skipped
+        for (int i = 0; i < theMasteredCopies.size(); i++) { theMasteredCopies.get(i).takeAmendHypnogramsFrom(theMasters.get(i)); }
+        CompanionSleepEpisodesRec.hydrateAll(theUnmasteredCopies, columnsMask);
+    }
+
+    // discard everything if a full invalidate was requested
+    private void checkInvalidateAll() {
+        if (!mInvalidateAll) { return; }
+        mInvalidateAll = false;
+        mJournalRecs = null;
+        mJournalIndex = null;
+        mZeoAppRecs = null;
+        mZeoAppIndex = null;
+        mReplicatedRecs = null;
+        synchronized (mDirtyJournalIDs) { mDirtyJournalIDs.clear(); }
+    }
+
+    // copy the Zeo records that are on or after the specified timestamp
+    private void copyZeoRecs(ArrayList<ZAH_SleepRecord> source, ArrayList<ZAH_SleepRecord> theArray, long afterTimestamp) {
+        for (ZAH_SleepRecord rec: source) {
+            if (afterTimestamp > 0 && rec.rStartOfNight < afterTimestamp) { break; }
+            theArray.add(new ZAH_SleepRecord(rec));
+        }
+    }
+
+    // copy the Zeo records that are within the specified timestamp window
+    private void copyZeoRecsInWindow(ArrayList<ZAH_SleepRecord> source, ArrayList<ZAH_SleepRecord> theArray, long fromTimestamp, long beforeTimestamp) {
+        for (int pos = findZeoOlderPos(source, beforeTimestamp); pos < source.size(); pos++) {
+            ZAH_SleepRecord rec = source.get(pos);
+            if (rec.rStartOfNight < fromTimestamp) { break; }
+            theArray.add(new ZAH_SleepRecord(rec));
+        }
+    }
+
+    // binary search for the position of the newest Zeo record that is older than the specified timestamp (the list's size if there is none)
+    private int findZeoOlderPos(ArrayList<ZAH_SleepRecord> source, long beforeTimestamp) {
+        int low = 0;
+        int high = source.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (source.get(mid).rStartOfNight >= beforeTimestamp) { low = mid + 1; }
+            else { high = mid; }
+        }
+        return low;
+    }
+
+    // load every Zeo record of the cursor into the list, then close the cursor
+    private void loadZeoRecs(Cursor cursor, ArrayList<ZAH_SleepRecord> theList) {
+        if (cursor == null) { return; }
+        if (cursor.moveToFirst()) {
+            ZAH_SleepRecord.ColumnIndexes cols = new ZAH_SleepRecord.ColumnIndexes(cursor);
+            do {
+                theList.add(new ZAH_SleepRecord(cursor, cols));
+            } while (cursor.moveToNext());
+        }
+        cursor.close();
+    }
+
+    // bring the journal records up-to-date; initially loads all of them, thereafter only re-reads those that have been invalidated
+    private void refreshJournalRecs() {
+        if (mJournalRecs == null) {
+            synchronized (mDirtyJournalIDs) { mDirtyJournalIDs.clear(); }
+            mJournalRecs = new ArrayList<CompanionSleepEpisodesRec>();
+            mJournalIndex = new HashMap<Long, CompanionSleepEpisodesRec>();
+            Cursor cursor = ZeoCompanionApplication.mDatabaseHandler.getAllCompanionSleepEpisodesRecs();
+            if (cursor != null) {
+                if (cursor.moveToFirst()) {
+                    do {
+                        CompanionSleepEpisodesRec rec = new CompanionSleepEpisodesRec(cursor);
+                        mJournalRecs.add(rec);
+                        mJournalIndex.put(rec.rID, rec);
+                    } while (cursor.moveToNext());
+                }
+                cursor.close();
+            }
+            return;
+        }
+
+        Long[] dirtyIDs;
+        synchronized (mDirtyJournalIDs) {
+            if (mDirtyJournalIDs.isEmpty()) { return; }
+            dirtyIDs = mDirtyJournalIDs.toArray(new Long[mDirtyJournalIDs.size()]);
+            mDirtyJournalIDs.clear();
+        }
+        for (Long id: dirtyIDs) {
+            // the master's sort key is never altered, so its position is found by binary search
+            CompanionSleepEpisodesRec oldRec = mJournalIndex.remove(id);
+            if (oldRec != null) { mJournalRecs.remove(findJournalInsertPos(oldRec)); }
+            CompanionSleepEpisodesRec rec = ZeoCompanionApplication.mDatabaseHandler.getSpecifiedCompanionSleepEpisodeRecOfID(id);
+            if (rec != null) {
+                mJournalRecs.add(findJournalInsertPos(rec), rec);
+                mJournalIndex.put(rec.rID, rec);
+            }
+        }
+    }
+
+    // binary search for the position of the newest journal record that is older than the specified timestamp (the list's size if there is none)
+    private int findJournalOlderPos(long beforeTimestamp) {
+        int low = 0;
+        int high = mJournalRecs.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mJournalRecs.get(mid).rStartOfRecord_Timestamp >= beforeTimestamp) { low = mid + 1; }
+            else { high = mid; }
+        }
+        return low;
+    }
+
+    // binary search for the position of a journal record within the master list (the record's own position if it is present);
+    // ordered newest to oldest, then by ascending record ID
+    private int findJournalInsertPos(CompanionSleepEpisodesRec rec) {
+        int low = 0;
+        int high = mJournalRecs.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            CompanionSleepEpisodesRec midRec = mJournalRecs.get(mid);
+            if (midRec.rStartOfRecord_Timestamp > rec.rStartOfRecord_Timestamp ||
+                    (midRec.rStartOfRecord_Timestamp == rec.rStartOfRecord_Timestamp && midRec.rID < rec.rID)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // bring the replicated Zeo sleep records up-to-date; they are only changed by a replication, after which all of them are re-read
+    private void refreshReplicatedRecs() {
+        if (!mInvalidateReplicated && mReplicatedRecs != null) { return; }
+        mInvalidateReplicated = false;
+        mReplicatedRecs = new ArrayList<ZAH_SleepRecord>();
+        loadZeoRecs(ZeoCompanionApplication.mDatabaseHandler.getAllZeoSleepRecsAfterDate(0L), mReplicatedRecs);
+    }
+
+    // bring the Zeo App records up-to-date; nothing is queried unless the ZeoAppHandler's probing has seen the Zeo App change (or it is not
+    // currently able to track the Zeo App's changes); then a light-weight query of only the record IDs and last-updated timestamps is performed,
+    // and only those records which are new or have changed are fully re-read
+    private void refreshZeoAppRecs() {
+        if (mZeoAppRecs != null && !mInvalidateZeoApp && ZeoCompanionApplication.mZeoAppHandler.isTrackingChanges()) { return; }
+        mInvalidateZeoApp = false;  // cleared before querying so an invalidation during the query is not lost
+        if (mZeoAppRecs == null) {
+            mZeoAppRecs = new ArrayList<ZAH_SleepRecord>();
+            loadZeoRecs(ZeoCompanionApplication.mZeoAppHandler.getAllSleepRecsAfterDate(0L), mZeoAppRecs);
+            indexZeoAppRecs();
+            return;
+        }
+
+        Cursor cursor = ZeoCompanionApplication.mZeoAppHandler.getAllSleepRecIDsAndUpdated();
+        if (cursor == null) { mZeoAppRecs.clear(); indexZeoAppRecs(); return; }    // Zeo App is not present or not accessible
+        int qty = cursor.getCount();
+        long[] ids = new long[qty];
+        long[] updateds = new long[qty];
+        int i = 0;
+        if (cursor.moveToFirst()) {
+            int idCol = cursor.getColumnIndex(ZeoDataContract.SleepRecord._ID);
+            int updatedCol = cursor.getColumnIndex(ZeoDataContract.SleepRecord.UPDATED_ON);
+            do {
+                ids[i] = cursor.getLong(idCol);
+                updateds[i] = cursor.getLong(updatedCol);
+                i++;
+            } while (i < qty && cursor.moveToNext());
+        }
+        cursor.close();
+        qty = i;
+
+        // determine which records are unchanged and which need to be re-read
+        LongIntHashMap existingIndex = mZeoAppIndex;
+        ZAH_SleepRecord[] newOrder = new ZAH_SleepRecord[qty];
+        long[] neededIDs = new long[qty];
+        int neededQty = 0;
+        for (int j = 0; j < qty; j++) {
+            int pos = existingIndex.get(ids[j]);
+            if (pos != LongIntHashMap.NOT_FOUND && mZeoAppRecs.get(pos).rUpdated_timestamp == updateds[j]) {
+                newOrder[j] = mZeoAppRecs.get(pos);
+            } else {
+                neededIDs[neededQty++] = ids[j];
+            }
+        }
+
+        // fetch the needed records in batches
+        if (neededQty > 0) {
+            ArrayList<ZAH_SleepRecord> fetched = new ArrayList<ZAH_SleepRecord>();
+            long[] batch = new long[Math.min(neededQty, CompanionDatabase.MAX_BOUND_VARIABLES_PER_QUERY)];
+            for (int start = 0; start < neededQty; start += CompanionDatabase.MAX_BOUND_VARIABLES_PER_QUERY) {
+                int batchQty = Math.min(neededQty - start, CompanionDatabase.MAX_BOUND_VARIABLES_PER_QUERY);
+                System.arraycopy(neededIDs, start, batch, 0, batchQty);
+                loadZeoRecs(ZeoCompanionApplication.mZeoAppHandler.getSleepRecsOfIDs(batch, batchQty), fetched);
+            }
+            LongIntHashMap fetchedIndex = new LongIntHashMap(fetched.size());
+            for (int j = 0; j < fetched.size(); j++) { fetchedIndex.put(fetched.get(j).rID, j); }
+            for (int j = 0; j < qty; j++) {
+                if (newOrder[j] == null) {
+                    int pos = fetchedIndex.get(ids[j]);
+                    if (pos == LongIntHashMap.NOT_FOUND) {
+                        // the Zeo App changed while we were reading it; just reload everything
+                        Log.d(_CTAG + ".refreshZeoApp", "Record ID " + ids[j] + " vanished during refresh; reloading all");
+                        mZeoAppRecs = null;
+                        mZeoAppIndex = null;
+                        refreshZeoAppRecs();
+                        return;
+                    }
+                    newOrder[j] = fetched.get(pos);
+                }
+            }
+        }
+
+        mZeoAppRecs.clear();
+        mZeoAppRecs.ensureCapacity(qty);
+        for (int j = 0; j < qty; j++) { mZeoAppRecs.add(newOrder[j]); }
+        indexZeoAppRecs();
+    }
+
+    // rebuild the record ID index of the Zeo App master list
+    private void indexZeoAppRecs() {
+        mZeoAppIndex = new LongIntHashMap(mZeoAppRecs.size());
+        for (int j = 0; j < mZeoAppRecs.size(); j++) { mZeoAppIndex.put(mZeoAppRecs.get(j).rID, j); }
+    }
+}
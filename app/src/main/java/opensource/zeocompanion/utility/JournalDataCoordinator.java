@@ -32,9 +32,11 @@ public class JournalDataCoordinator implements ZeoAppHandler.ZAH_Listener {
     private int mDaypoint = 0;
     private Handler mMainActivityHandler = null;
     private CompanionSleepEpisodesRec mDaypoint_CSEs[] = { null, null, null};
+    private IntegratedHistoryCache mHistoryCache = new IntegratedHistoryCache();
 
     // member constants and other static content
     private static final String _CTAG = "JDU";
+    private static final long HISTORY_PAGE_MARGIN_MS = 129600000L;     // 36 hours; journal and Zeo records of the same night are well within this
     SimpleDateFormat mJSB_sdf1 = new SimpleDateFormat("EEE HH:mm");
     SimpleDateFormat mJSB_sdf2 = new SimpleDateFormat("HH:mm");
 
@@ -945,6 +947,36 @@ public class JournalDataCoordinator implements ZeoAppHandler.ZAH_Listener {
         }
     }
 
+    // a CSE has been added, changed, or deleted in the database; may be invoked from any thread and from within a database transaction
+    public void informCSEchanged(long cse_id) {
+        mHistoryCache.invalidateJournalRec(cse_id);
+    }
+
+    // the replicated Zeo App sleep records have been changed or purged; may be invoked from any thread
+    public void informReplicatedZeoChanged() {
+        mHistoryCache.invalidateReplicated();
+    }
+
+    // the Zeo App's sleep records may have been changed; invoked by the ZeoAppHandler's probing
+    public void informZeoAppChanged() {
+        mHistoryCache.invalidateZeoApp();
+    }
+
+    // the entire ZeoCompanion database has been replaced (such as by a restore)
+    public void informDatabaseReplaced() {
+        mHistoryCache.invalidateAll();
+    }
+
+    // load the indicated unloaded columns of the journal records within the integrated history records in as few queries as possible;
+    // the history cache retains the loaded columns so later History pages and exports do not load them again
+    public void hydrateIntegratedHistoryRecs(ArrayList<IntegratedHistoryRec> theIRecs, int columnsMask) {
+        ArrayList<CompanionSleepEpisodesRec> theCSErecs = new ArrayList<CompanionSleepEpisodesRec>(theIRecs.size());
+        for (IntegratedHistoryRec iRec: theIRecs) {
+            if (iRec.theCSErecord != null) { theCSErecs.add(iRec.theCSErecord); }
+        }
+        mHistoryCache.hydrateJournalRecs(theCSErecs, columnsMask);
+    }
+
     // record an event within the Daypoint; will return false if the Daypoint will not allow a new event
     public boolean recordDaypointEvent(int sleepStage, int eventNo, String info) {
         Log.d(_CTAG+".recEvent","=====>EVENT="+eventNo);
@@ -1045,8 +1077,8 @@ public class JournalDataCoordinator implements ZeoAppHandler.ZAH_Listener {
                 theArray.add("Battery Lowest: "+theCSE.rZeoHeadbandBattery_Low);
             }
 
-            theCSE.unpackEventCSVstring();
-            theCSE.unpackInfoCSVstrings();
+            theCSE.unpackEvents();
+            theCSE.unpackInfos();
 
             if (theCSE.mEvents_array == null && theCSE.mAttribs_Vari_array == null && theCSE.mAttribs_Fixed_array == null) {
                 theArray.add("Nothing recorded yet");
@@ -1172,158 +1204,157 @@ public class JournalDataCoordinator implements ZeoAppHandler.ZAH_Listener {
         getAllIntegratedHistoryRecs_Internal(theArray, afterTimestamp, true, includeZeoDead);
     }
 
-    // internal method that performs the actual queries and integrations; sorted newest to oldest
+    // internal method that performs the actual queries and integrations; sorted newest to oldest;
+    // the source records are obtained (as copies) from the history cache which only re-reads records that have changed
     private void getAllIntegratedHistoryRecs_Internal(ArrayList<IntegratedHistoryRec> theArray, long afterTimestamp, boolean zeoOnly, boolean includeZeoDead) {
-        int journalCnt = 0;
-        int zeoCnt = 0;
-        theArray.clear();
+        ArrayList<CompanionSleepEpisodesRec> journalRecs = new ArrayList<CompanionSleepEpisodesRec>();
+        ArrayList<ZAH_SleepRecord> zeoAppRecs = new ArrayList<ZAH_SleepRecord>();
+        ArrayList<ZAH_SleepRecord> replicatedRecs = new ArrayList<ZAH_SleepRecord>();
+        if (!zeoOnly) { mHistoryCache.getJournalRecs(journalRecs, afterTimestamp); }
+        mHistoryCache.getZeoAppRecs(zeoAppRecs, afterTimestamp);
+        mHistoryCache.getReplicatedRecs(replicatedRecs, afterTimestamp);
+        integrateHistoryRecs(theArray, journalRecs, zeoAppRecs, replicatedRecs, zeoOnly, includeZeoDead);
+    }
 
-        // first get all desired sleep episode records from the sleep journal
-        if (!zeoOnly) {
-            Cursor cursor1 = null;
-            if (afterTimestamp > 0) { cursor1 = ZeoCompanionApplication.mDatabaseHandler.getAllCompanionSleepEpisodesRecsAfterDate(afterTimestamp); }
-            else { cursor1 = ZeoCompanionApplication.mDatabaseHandler.getAllCompanionSleepEpisodesRecs(); }
-            if (cursor1 != null) {
-                if (cursor1.moveToFirst()) {
-                    do {
-                        CompanionSleepEpisodesRec sRec1 = new CompanionSleepEpisodesRec(cursor1);
-                        if (!sRec1.isUnlinkedAndDead()) {
-                            IntegratedHistoryRec iRec1 = new IntegratedHistoryRec();
-                            iRec1.theZAH_SleepRecord = null;
-                            iRec1.theCSErecord = sRec1;
-                            iRec1.mTimestamp = sRec1.rStartOfRecord_Timestamp;
-                            iRec1.mCSEid = sRec1.rID;
-                            iRec1.mZSEid = sRec1.rZeoSleepEpisode_ID;
-                            iRec1.mFound = 0x01;
-                            theArray.add(iRec1);
-                            journalCnt++;
-                        }
-                    } while (cursor1.moveToNext());
+    // get all integrated Sleep Records for graphing; sorted newest to oldest; the Zeo records are summary-only (see ZAH_SleepRecord.mIsSummaryOnly)
+    // so they contain the timestamps and sleep totals but not the hypnograms, which therefore never need to be transferred from the databases
+    public void getAllIntegratedHistorySummaryRecs(ArrayList<IntegratedHistoryRec> theArray) {
+        ArrayList<CompanionSleepEpisodesRec> journalRecs = new ArrayList<CompanionSleepEpisodesRec>();
+        ArrayList<ZAH_SleepRecord> zeoAppRecs = new ArrayList<ZAH_SleepRecord>();
+        ArrayList<ZAH_SleepRecord> replicatedRecs = new ArrayList<ZAH_SleepRecord>();
+        mHistoryCache.getJournalRecs(journalRecs, 0);
+        readZeoSleepSummaryRecs(ZeoCompanionApplication.mZeoAppHandler.getAllSleepSummaryRecs(), zeoAppRecs);
+        readZeoSleepSummaryRecs(ZeoCompanionApplication.mDatabaseHandler.getAllZeoSleepSummaryRecs(), replicatedRecs);
+        integrateHistoryRecs(theArray, journalRecs, zeoAppRecs, replicatedRecs, false, false);
+    }
+
+    // get one page of integrated Sleep Records that are older than the specified timestamp (0 means start with the newest); sorted newest to oldest;
+    // returns the timestamp to pass as beforeTimestamp to obtain the next page, or 0 if there are no more pages;
+    // a page will contain approximately limit records (more if several records share the last timestamp); the source records are
+    // obtained (as copies) from the history cache, and only those needed for the page are copied and integrated
+    public long getIntegratedHistoryPage(ArrayList<IntegratedHistoryRec> theArray, long beforeTimestamp, int limit) {
+        return getIntegratedHistoryPage(theArray, beforeTimestamp, limit, 0L, false, false);
+    }
+
+    // as above, but only source records at or after afterTimestamp (0 means all) are included, just as getAllIntegratedHistoryRecsFromDate()
+    // and getAllZeoRecsFromDate() would select them; zeoOnly and includeZeoDead are the same as for getAllZeoRecsFromDate()
+    public long getIntegratedHistoryPage(ArrayList<IntegratedHistoryRec> theArray, long beforeTimestamp, int limit, long afterTimestamp, boolean zeoOnly, boolean includeZeoDead) {
+        theArray.clear();
+        if (beforeTimestamp <= 0) { beforeTimestamp = Long.MAX_VALUE; }
+        if (limit < 1) { limit = 1; }
+        if (afterTimestamp < 0) { afterTimestamp = 0L; }
+        ArrayList<CompanionSleepEpisodesRec> journalRecs = new ArrayList<CompanionSleepEpisodesRec>();
+        ArrayList<ZAH_SleepRecord> zeoAppRecs = new ArrayList<ZAH_SleepRecord>();
+        ArrayList<ZAH_SleepRecord> replicatedRecs = new ArrayList<ZAH_SleepRecord>();
+        ArrayList<IntegratedHistoryRec> windowArray = new ArrayList<IntegratedHistoryRec>();
+
+        while (theArray.isEmpty()) {
+            // determine the window of the page; it ends at the newest of the sources' Nth record so that no source contributes more than N records
+            long windowStart = mHistoryCache.getPageBoundary(beforeTimestamp, limit, !zeoOnly);
+            if (windowStart < afterTimestamp) { windowStart = afterTimestamp; }
+
+            // take the source records of the window plus a margin on both sides so that journal and Zeo records of the same night
+            // are integrated together even when they straddle the window's edges; each integrated record then belongs to exactly one page;
+            // no source record older than afterTimestamp is ever included
+            long readFrom = windowStart - HISTORY_PAGE_MARGIN_MS;
+            if (readFrom < afterTimestamp) { readFrom = afterTimestamp; }
+            long readBefore = beforeTimestamp;
+            if (readBefore < Long.MAX_VALUE - HISTORY_PAGE_MARGIN_MS) { readBefore = readBefore + HISTORY_PAGE_MARGIN_MS; }
+            mHistoryCache.getRecsInWindow((zeoOnly ? null : journalRecs), zeoAppRecs, replicatedRecs, readFrom, readBefore);
+            integrateHistoryRecs(windowArray, journalRecs, zeoAppRecs, replicatedRecs, zeoOnly, includeZeoDead);
+            journalRecs.clear();
+            zeoAppRecs.clear();
+            replicatedRecs.clear();
+
+            // keep only those integrated records that belong within the window, up to the limit plus any that share the last timestamp
+            long lastTimestamp = 0;
+            for (IntegratedHistoryRec iRec: windowArray) {
+                boolean keep = (iRec.mTimestamp < beforeTimestamp && iRec.mTimestamp >= windowStart);
+                if (keep && theArray.size() >= limit && iRec.mTimestamp != lastTimestamp) { keep = false; }
+                if (keep) {
+                    theArray.add(iRec);
+                    lastTimestamp = iRec.mTimestamp;
+                } else {
+                    iRec.destroy();
                 }
-                cursor1.close();
             }
+            windowArray.clear();
+
+            if (theArray.size() >= limit) { return lastTimestamp; }
+            if (windowStart <= afterTimestamp) { return 0; }     // all sources are exhausted (or the remainder precede afterTimestamp)
+            if (theArray.isEmpty()) { beforeTimestamp = windowStart; }    // every record in the window was hidden; move onto the next window
+            else { return windowStart; }
         }
+        return 0;
+    }
 
-        // next merge in all the desired Zeo Sleep Records; two passes to draw from both the Zeo App's database and any replication in the ZeoCompanion database
-        for (int pass = 0; pass <= 1; pass++) {
-            Cursor cursor2 = null;
-            if (pass == 1) { cursor2 = ZeoCompanionApplication.mDatabaseHandler.getAllZeoSleepRecsAfterDate(afterTimestamp); }
-            else { cursor2 = ZeoCompanionApplication.mZeoAppHandler.getAllSleepRecsAfterDate(afterTimestamp); }
+    // read all the summary-only Zeo Sleep records of the cursor into the list, then close the cursor
+    private void readZeoSleepSummaryRecs(Cursor cursor, ArrayList<ZAH_SleepRecord> theList) {
+        if (cursor == null) { return; }
+        if (cursor.moveToFirst()) {
+            ZAH_SleepRecord.SummaryColumnIndexes cols = new ZAH_SleepRecord.SummaryColumnIndexes(cursor);
+            do {
+                theList.add(new ZAH_SleepRecord(cursor, cols));
+            } while (cursor.moveToNext());
+        }
+        cursor.close();
+    }
 
-            if (cursor2 != null) {
-                if (cursor2.moveToFirst()) {
-                    do {
-                        ZAH_SleepRecord zRec1 = new ZAH_SleepRecord(cursor2);
-                        if (zeoOnly) {
-                            // Zeo records only; no integrating needed
-                            if (includeZeoDead || zRec1.rTime_Total_Z_min > 0.0) {
-                                boolean found = false;
-                                if (pass == 1) {
-                                    for (IntegratedHistoryRec existingIrec: theArray) {
-                                        if (existingIrec.mZSEid == zRec1.rSleepEpisodeID) {
-                                            found = true;
-                                            break;
-                                        }
-                                    }
-                                }
-                                if (!found) {
-                                    IntegratedHistoryRec iRec2 = new IntegratedHistoryRec();
-                                    iRec2.theCSErecord = null;
-                                    iRec2.theZAH_SleepRecord = zRec1;
-                                    iRec2.mTimestamp = zRec1.rStartOfNight;
-                                    iRec2.mZSEid = zRec1.rSleepEpisodeID;
-                                    iRec2.mFound = 0x02;
-                                    theArray.add(iRec2);
-                                    zeoCnt++;
-                                }
-                            }
-                        } else {
-                            // integration is necessary
-                            boolean found = false;
-                            for (IntegratedHistoryRec existingIrec: theArray) {
-                                if (existingIrec.mZSEid == zRec1.rSleepEpisodeID) {
-                                    // found the matching CSE record
-                                    if (pass == 0 || (existingIrec.mFound & 0x02) == 0) {
-                                        if (includeZeoDead || zRec1.rTime_Total_Z_min > 0.0 || zRec1.rEndReason == ZeoDataContract.SleepRecord.END_REASON_ACTIVE) {
-                                            // is a normal active or finished Zeo record or we want dead ZEO records; integrate it with its matching CSE
-                                            existingIrec.theZAH_SleepRecord = zRec1;
-                                            if (zRec1.rStartOfNight < existingIrec.mTimestamp) { existingIrec.mTimestamp = zRec1.rStartOfNight; }
-                                            existingIrec.mZSEid = zRec1.rSleepEpisodeID;
-                                            existingIrec.mFound = (existingIrec.mFound | 0x02);
-                                            found = true;
-                                        } else {
-                                            // this is a hidden Zeo record usually because it is incomplete or had no actual sleep
-                                            if (existingIrec.theCSErecord != null) {
-                                                // it has a matching CSE
-                                                if (existingIrec.theCSErecord.isZeoOnly()) {
-                                                    // the CSE record has Zeo-only content and the Zeo record would normally be hidden, so eliminate the entire integrated record
-                                                    //Log.d(_CTAG+".getIrecs","Removing CSE#"+existingIrec.mCSEid+" with ZSE#"+existingIrec.mZSEid);
-                                                    theArray.remove(existingIrec);
-                                                    journalCnt--;
-                                                } else {
-                                                    // the CSE record has content other than Zeo-only content, so do not hide the integrated combination
-                                                    existingIrec.theZAH_SleepRecord = zRec1;
-                                                    if (zRec1.rStartOfNight < existingIrec.mTimestamp) { existingIrec.mTimestamp = zRec1.rStartOfNight; }
-                                                    existingIrec.mZSEid = zRec1.rSleepEpisodeID;
-                                                    existingIrec.mFound = (existingIrec.mFound | 0x02);
-                                                    found = true;
-                                                }
-                                            } else {
-                                                // not sure how this would happen; preexisting integrated rec without any CSE content and a dead Zeo record
-                                                theArray.remove(existingIrec);
-                                                //Log.d(_CTAG+".getIrecs","Removing CSE#"+existingIrec.mCSEid+" with ZSE#"+existingIrec.mZSEid);
-                                            }
-                                        }
-                                    }
-                                    break;
-                                }
-                            }
-                            if (!found) {
-                                // no matching CSE was found, so include it as-is
-                                if (includeZeoDead || zRec1.rTime_Total_Z_min > 0.0) {
-                                    found = false;
-                                    if (pass == 1) {
-                                        for (IntegratedHistoryRec existingIrec: theArray) {
-                                            if (existingIrec.mZSEid == zRec1.rSleepEpisodeID) {
-                                                found = true;
-                                                break;
-                                            }
-                                        }
-                                    }
-                                    if (!found) {
-                                        IntegratedHistoryRec iRec2 = new IntegratedHistoryRec();
-                                        iRec2.theCSErecord = null;
-                                        iRec2.theZAH_SleepRecord = zRec1;
-                                        iRec2.mTimestamp = zRec1.rStartOfNight;
-                                        iRec2.mZSEid = zRec1.rSleepEpisodeID;
-                                        iRec2.mFound = 0x02;
-                                        theArray.add(iRec2);
-                                        zeoCnt++;
-                                    }
-                                }
-                            }
-                        }
-                    } while (cursor2.moveToNext());
-                }
-                cursor2.close();
+    // integrate the journal records with the Zeo records (each list sorted newest to oldest) into theArray; sorted newest to oldest;
+    // the join itself is performed by HistoryJoin upon plain arrays describing the records
+    private void integrateHistoryRecs(ArrayList<IntegratedHistoryRec> theArray, ArrayList<CompanionSleepEpisodesRec> journalRecs,
+                                      ArrayList<ZAH_SleepRecord> zeoAppRecs, ArrayList<ZAH_SleepRecord> replicatedRecs, boolean zeoOnly, boolean includeZeoDead) {
+        theArray.clear();
+
+        // describe all desired sleep episode records from the sleep journal
+        ArrayList<CompanionSleepEpisodesRec> keptJournalRecs = new ArrayList<CompanionSleepEpisodesRec>(journalRecs.size());
+        if (!zeoOnly) {
+            for (CompanionSleepEpisodesRec sRec1: journalRecs) {
+                if (!sRec1.isUnlinkedAndDead()) { keptJournalRecs.add(sRec1); }
             }
         }
+        int journalQty = keptJournalRecs.size();
+        long[] journalZSEids = new long[journalQty];
+        long[] journalTimestamps = new long[journalQty];
+        boolean[] journalHasOnlyZeoContent = new boolean[journalQty];
+        for (int j = 0; j < journalQty; j++) {
+            CompanionSleepEpisodesRec sRec1 = keptJournalRecs.get(j);
+            journalZSEids[j] = sRec1.rZeoSleepEpisode_ID;
+            journalTimestamps[j] = sRec1.rStartOfRecord_Timestamp;
+            journalHasOnlyZeoContent[j] = sRec1.isZeoOnly();
+        }
 
-        if (journalCnt > 0 && zeoCnt > 0) {
-            // because an actual merge occurred, need to sort theArray by descending timestamp
-            Collections.sort(theArray, new Comparator<IntegratedHistoryRec>() {
-                @Override
-                public int compare(IntegratedHistoryRec o1, IntegratedHistoryRec o2) {
-                    // configured for DESCENDING sort order
-                    if (o1.mTimestamp < o2.mTimestamp) {
-                        return 1;
-                    }
-                    if (o1.mTimestamp > o2.mTimestamp) {
-                        return -1;
-                    }
-                    return 0;
-                }
-            });
+        // describe all the Zeo Sleep Records; those from the Zeo App's database followed by any replicated in the ZeoCompanion database
+        int zeoAppQty = zeoAppRecs.size();
+        int zeoQty = zeoAppQty + replicatedRecs.size();
+        long[] zeoZSEids = new long[zeoQty];
+        long[] zeoStartsOfNight = new long[zeoQty];
+        boolean[] zeoVisible = new boolean[zeoQty];
+        boolean[] zeoIntegratable = new boolean[zeoQty];
+        for (int z = 0; z < zeoQty; z++) {
+            ZAH_SleepRecord zRec1 = (z < zeoAppQty ? zeoAppRecs.get(z) : replicatedRecs.get(z - zeoAppQty));
+            zeoZSEids[z] = zRec1.rSleepEpisodeID;
+            zeoStartsOfNight[z] = zRec1.rStartOfNight;
+            zeoVisible[z] = (includeZeoDead || zRec1.rTime_Total_Z_min > 0.0);
+            zeoIntegratable[z] = (zeoVisible[z] || zRec1.rEndReason == ZeoDataContract.SleepRecord.END_REASON_ACTIVE);
+        }
+
+        // join them, then build the integrated history records per the results
+        HistoryJoin theJoin = HistoryJoin.join(journalZSEids, journalTimestamps, journalHasOnlyZeoContent, journalQty,
+                zeoZSEids, zeoStartsOfNight, zeoVisible, zeoIntegratable, zeoAppQty, zeoQty, zeoOnly);
+        theArray.ensureCapacity(theJoin.mQty);
+        for (int i = 0; i < theJoin.mQty; i++) {
+            IntegratedHistoryRec iRec = new IntegratedHistoryRec();
+            if (theJoin.mJournalPos[i] >= 0) {
+                iRec.theCSErecord = keptJournalRecs.get(theJoin.mJournalPos[i]);
+                iRec.mCSEid = iRec.theCSErecord.rID;
+            }
+            int z = theJoin.mZeoPos[i];
+            if (z >= 0) { iRec.theZAH_SleepRecord = (z < zeoAppQty ? zeoAppRecs.get(z) : replicatedRecs.get(z - zeoAppQty)); }
+            iRec.mTimestamp = theJoin.mTimestamp[i];
+            iRec.mZSEid = theJoin.mZSEid[i];
+            iRec.mFound = theJoin.mFound[i];
+            theArray.add(iRec);
         }
     }
 
@@ -1404,7 +1435,8 @@ public class JournalDataCoordinator implements ZeoAppHandler.ZAH_Listener {
                 wasNotChecked = true;   // set this to true so the caller will save the modified CSE record with the checked flag
             }
             if (iRec.theZAH_SleepRecord.rTime_Total_Z_min == 0L) { return wasNotChecked; }  // Zeo sleep record has no data (is a hidden Zeo record)
-            iRec.theCSErecord.unpackEventCSVstring();
+            if (!iRec.theCSErecord.doEventsExist()) { return wasNotChecked; }               // no events were record, so nothing to amend (checked without unpacking)
+            iRec.theCSErecord.unpackEvents();
             if (iRec.theCSErecord.mEvents_array == null) { return wasNotChecked; }          // no events were record, so nothing to amend
             if (iRec.theCSErecord.mEvents_array.isEmpty()) { return wasNotChecked; }        // no events were record, so nothing to amend
 
@@ -1671,8 +1703,7 @@ public class JournalDataCoordinator implements ZeoAppHandler.ZAH_Listener {
             }
 
             // preserve the amended hypnograms
-            iRec.theCSErecord.rAmend_Display_Hypnogram = amendedDisplay;
-            iRec.theCSErecord.rAmend_Base_Hypnogram = amendedBase;
+            iRec.theCSErecord.setAmendHypnograms(amendedDisplay, amendedBase);
 
             // step through the amended base hypnogram and add up all the component sleep stages
             boolean doingTimeToZ = true;
@@ -1772,8 +1803,7 @@ public class JournalDataCoordinator implements ZeoAppHandler.ZAH_Listener {
                 iRec.theCSErecord.rAmend_Display_Hypnogram_Starttime = iRec.theZAH_SleepRecord.rDisplayHypnogramStartTime;
             }
             if ((iRec.theCSErecord.rAmendedFlags & CompanionDatabaseContract.CompanionSleepEpisodes.SLEEP_AMENDED_FLAGS_AMENDED) == 0) {
-                iRec.theCSErecord.rAmend_Display_Hypnogram = null;
-                iRec.theCSErecord.rAmend_Base_Hypnogram = null;
+                iRec.theCSErecord.setAmendHypnograms(null, null);
             }
             journalSleepIntervals.clear();
         } catch (Exception e) {
@@ -0,0 +1,94 @@
+package opensource.zeocompanion.utility;
+
+// a minimal open-addressing hash map of primitive long keys to primitive int values;
+// used where large quantities of record IDs need to be cross-referenced without boxing every key and value;
+// any key value (including zero) is permitted; values are expected to be >= 0 since NOT_FOUND is returned for missing keys
+public class LongIntHashMap {
+    // member variables
+    private long[] mKeys = null;
+    private int[] mValues = null;
+    private boolean[] mUsed = null;
+    private int mSize = 0;
+    private int mMask = 0;
+    private int mResizeAt = 0;
+
+    // member constants and other static content
+    public static final int NOT_FOUND = -1;
+
+    // constructor
+    public LongIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < expectedSize) { capacity = capacity << 1; }
+        allocate(capacity);
+    }
+
+    // quantity of keys present in the map
+    public int size() { return mSize; }
+
+    // remove all entries but retain the allocated capacity
+    public void clear() {
+        for (int i = 0; i < mUsed.length; i++) { mUsed[i] = false; }
+        mSize = 0;
+    }
+
+    // return the value for the key, or NOT_FOUND if the key is not present
+    public int get(long key) {
+        int slot = hash(key) & mMask;
+        while (mUsed[slot]) {
+            if (mKeys[slot] == key) { return mValues[slot]; }
+            slot = (slot + 1) & mMask;
+        }
+        return NOT_FOUND;
+    }
+
+    // does the map contain the key
+    public boolean containsKey(long key) {
+        int slot = hash(key) & mMask;
+        while (mUsed[slot]) {
+            if (mKeys[slot] == key) { return true; }
+            slot = (slot + 1) & mMask;
+        }
+        return false;
+    }
+
+    // insert or replace the value for the key
+    public void put(long key, int value) {
+        int slot = hash(key) & mMask;
+        while (mUsed[slot]) {
+            if (mKeys[slot] == key) { mValues[slot] = value; return; }
+            slot = (slot + 1) & mMask;
+        }
+        mUsed[slot] = true;
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        mSize++;
+        if (mSize >= mResizeAt) { rehash(mKeys.length << 1); }
+    }
+
+    // allocate the storage arrays; capacity must be a power of two
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        mUsed = new boolean[capacity];
+        mMask = capacity - 1;
+        mResizeAt = capacity * 3 / 4;
+    }
+
+    // grow the storage arrays and re-insert all existing entries
+    private void rehash(int newCapacity) {
+        long[] oldKeys = mKeys;
+        int[] oldValues = mValues;
+        boolean[] oldUsed = mUsed;
+        allocate(newCapacity);
+        mSize = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) { put(oldKeys[i], oldValues[i]); }
+        }
+    }
+
+    // spread the bits of the key so sequential record IDs do not cluster
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+}
@@ -35,10 +35,11 @@ import java.util.Date;
 import opensource.zeocompanion.ZeoCompanionApplication;
 import opensource.zeocompanion.database.CompanionDatabaseContract;
 import opensource.zeocompanion.database.CompanionSleepEpisodeEventsParsedRec;
+import opensource.zeocompanion.zeo.LiveHypnogram;
 import opensource.zeocompanion.zeo.ZAH_SleepRecord;
 
 // displays a hypnogram, or creates a bitmap of a hypnogram
-public class HypnogramView extends GraphView {
+public class HypnogramView extends GraphView implements LiveHypnogram.Listener {
     // member variables
     private byte[] mTheData = null;
     private ArrayList<CompanionSleepEpisodeEventsParsedRec> mTheEvents = null;
@@ -53,6 +54,9 @@ public class HypnogramView extends GraphView {
     private int mDataPoints_len = 0;
     private int mEpochInSec = 0;
     private double mScaledSpan = 10.167;
+    private boolean mFixAtStdSize = false;
+    private LiveHypnogram mLiveModel = null;
+    private int mLiveAlterToEpochInSec = 30;
 
     // member constants and other static content
     private static final String _CTAG = "HG";
@@ -153,6 +157,7 @@ public class HypnogramView extends GraphView {
                 }
             }
         });
+        render.setLabelCacheEnabled(true);    // the labels depend only upon the formatter's arguments and mDisplayStart_Timestamp
 
         Viewport viewport = this.getViewport();
         viewport.setBackgroundColor(Color.LTGRAY);
@@ -238,6 +243,7 @@ public class HypnogramView extends GraphView {
                 }
             }
         });
+        render.setLabelCacheEnabled(true);    // the labels depend only upon the formatter's arguments and mDisplayStart_Timestamp
 
         render.setVerticalLabelsDependentColor(new GridLabelRenderer.VerticalLabelsDependentColor() {
             @Override
@@ -351,6 +357,7 @@ public class HypnogramView extends GraphView {
                 }
             }
         });
+        render.setLabelCacheEnabled(true);    // the labels depend only upon the formatter's arguments and mDisplayStart_Timestamp
 
         // get device current orientation information
         WindowManager windowManager = (WindowManager)getContext().getSystemService(Context.WINDOW_SERVICE);
@@ -411,6 +418,7 @@ public class HypnogramView extends GraphView {
 
     // set the data for the hypnogram; theEvents can be null;
     public void setDataset(long displayStartTimestamp, int data_is_epoch_in_sec, int alter_to_epoch_in_sec, byte[] theData, boolean fixAtStdSize, ArrayList<CompanionSleepEpisodeEventsParsedRec> theEvents) {
+        mFixAtStdSize = fixAtStdSize;
         mTheData = theData;
         mTheData_len = theData.length;
         mTheEvents = theEvents;
@@ -596,6 +604,15 @@ public class HypnogramView extends GraphView {
             }
         }
 
+        sizeToData();
+    }
+
+    // size the axes and labels to the length of the hypnogram
+    private void sizeToData() {
+        Viewport viewport = this.getViewport();
+        GridLabelRenderer render = this.getGridLabelRenderer();
+        boolean fixAtStdSize = mFixAtStdSize;
+
         // determine length of the hypnogram
         double maxX = ((double)(mEpochInSec * mDataPoints_len) + ((double)(mEpochInSec / 2))) / 3600.0;
         switch (mShowAsMode) {
@@ -641,6 +658,102 @@ public class HypnogramView extends GraphView {
         }
     }
 
+    // follow the in-progress night of the live hypnogram model, appending its epochs as they arrive rather than reloading;
+    // setDataset should already have been called with the same night's 30-second data; alter_to_epoch_in_sec is as was given to setDataset
+    public void attachLiveHypnogram(LiveHypnogram theModel, int alter_to_epoch_in_sec) {
+        detachLiveHypnogram();
+        mLiveModel = theModel;
+        mLiveAlterToEpochInSec = alter_to_epoch_in_sec;
+        mLiveModel.addListener(this);
+        appendFromLiveModel(mDataPoints_len);    // catch up on anything newer than what setDataset was given
+    }
+
+    // stop following the live hypnogram model; the currently shown data remains
+    public void detachLiveHypnogram() {
+        if (mLiveModel == null) { return; }
+        mLiveModel.removeListener(this);
+        mLiveModel = null;
+    }
+
+    // callback from the live hypnogram model; may occur upon any thread
+    @Override
+    public void onLiveHypnogramChanged(final LiveHypnogram theModel, final int firstChangedIndex, final boolean isNewNight) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                if (theModel != mLiveModel) { return; }     // detached in the meantime
+                if (isNewNight) {
+                    // a new night; the cached X-axis labels were for the prior night's start time
+                    mDisplayStart_Timestamp = theModel.getStartOfNight();
+                    getGridLabelRenderer().invalidateLabelCache();
+                    reloadFromLiveModel();
+                    return;
+                }
+                appendFromLiveModel(firstChangedIndex);
+            }
+        });
+    }
+
+    // completely reload from the live hypnogram model
+    private void reloadFromLiveModel() {
+        byte[] theData = mLiveModel.getEpochsCopy();
+        if (theData.length == 0) { theData = new byte[1]; }     // setDataset requires at least one (undefined) epoch
+        setDataset(mDisplayStart_Timestamp, LiveHypnogram.EPOCH_SEC, mLiveAlterToEpochInSec, theData, mFixAtStdSize, mTheEvents);
+    }
+
+    // append only the new epochs; falls back to a reload if already shown epochs were altered, or bars are being combined
+    private void appendFromLiveModel(int firstChangedIndex) {
+        if (mLiveModel == null) { return; }
+        int newLen = mLiveModel.getEpochsCount();
+        if (mHypnoSeries == null || mEpochInSec != LiveHypnogram.EPOCH_SEC || firstChangedIndex < mDataPoints_len) {
+            reloadFromLiveModel();
+            return;
+        }
+        if (newLen <= mDataPoints_len) { return; }
+
+        // grow the retained data and index map as needed; both are kept with spare capacity so most appends do not re-allocate
+        if (newLen > mTheData.length || newLen > mBarsGraphIndexMap.length) {
+            int newCapacity = Math.max(newLen, mTheData.length * 2);
+            byte[] newData = new byte[newCapacity];
+            System.arraycopy(mTheData, 0, newData, 0, mDataPoints_len);
+            mTheData = newData;
+            int[] newMap = new int[newCapacity];
+            System.arraycopy(mBarsGraphIndexMap, 0, newMap, 0, mDataPoints_len);
+            mBarsGraphIndexMap = newMap;
+        }
+        int first = mDataPoints_len;
+        mLiveModel.getEpochs(first, mTheData, first, newLen - first);
+
+        double hoursCvtr = (double)LiveHypnogram.EPOCH_SEC / 3600.0;
+        double offset = hoursCvtr / 2.0;
+        for (int i = first; i < newLen; i++) {
+            mBarsGraphIndexMap[i] = i;
+            mDataPoints_len = i + 1;
+            mTheData_len = i + 1;
+            mHypnoSeries.appendData(new DataPoint(i, (hoursCvtr * (double)i) + offset, stageToY(mTheData[i])), false, Integer.MAX_VALUE);
+        }
+        sizeToData();
+        invalidate();
+    }
+
+    // the bar height of a sleep stage
+    private static double stageToY(byte theStage) {
+        switch (theStage) {
+            case ZAH_SleepRecord.ZAH_HYPNOGRAM_WAKE:
+                return 4.0;
+            case ZAH_SleepRecord.ZAH_HYPNOGRAM_REM:
+                return 3.0;
+            case ZAH_SleepRecord.ZAH_HYPNOGRAM_LIGHT:
+                return 2.0;
+            case ZAH_SleepRecord.ZAH_HYPNOGRAM_LIGHT_TO_DEEP:
+                return 1.5;
+            case ZAH_SleepRecord.ZAH_HYPNOGRAM_DEEP:
+                return 1.0;
+            default:
+                return 0.0;
+        }
+    }
+
 
     // set a scrolling and scaling callback listener
     public void setScrollScaleListener(long callbackNumber, Viewport.ScrollScaleListener listener) {
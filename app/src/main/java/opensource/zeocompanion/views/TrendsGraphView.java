@@ -6,7 +6,6 @@ import android.graphics.Color;
 import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.Point;
-import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
@@ -19,6 +18,7 @@ import com.jjoe64.graphview.Viewport;
 import com.jjoe64.graphview.helper.DateAsXAxisLabelFormatter;
 import com.jjoe64.graphview.helper.StaticLabelsFormatter;
 import com.jjoe64.graphview.series.DataPoint;
+import com.jjoe64.graphview.series.DoubleArraySeries;
 import com.jjoe64.graphview.series.LineGraphSeries;
 import com.jjoe64.graphview.series.MultiSeries;
 import com.jjoe64.graphview.series.Series;
@@ -58,6 +58,7 @@ public class TrendsGraphView extends GraphView {
     LineGraphSeries<DataPoint> mLineSeries_Goal = null;
     LineGraphSeries<DataPoint> mLineSeries_Trend = null;
     StackedBarGraphSeries<DataPoint> mStackedBarSeries = null;
+    private DoubleArraySeries[] mFieldArrays = new DoubleArraySeries[MAXFIELDS];   // built once per dataset; re-used across refreshes
 
     public boolean mShowBarsAndLines = false;
     public boolean mShowGoalLine = false;
@@ -97,8 +98,10 @@ public class TrendsGraphView extends GraphView {
             }
 
             mPaint.setTextSize(mStyles.textSize);
+            // indexed loop and the base class's re-used drawing objects so that drawing does not allocate
             List<Series> mainSeries = mGraphView.getSeries();
-            for (Series s : mainSeries) {
+            for (int i = 0; i < mainSeries.size(); i++) {
+                Series s = mainSeries.get(i);
                 if (s.getQtySubseries() <= -1) {
                     // this series has no subseries
                     String title = s.getTitle();
@@ -136,15 +139,14 @@ public class TrendsGraphView extends GraphView {
                 legendWidth = cachedLegendWidth;
                 if (legendWidth == 0) {
                     mPaint.setTextSize(mStyles.textSize);
-                    Rect textBounds = new Rect();
-                    mPaint.getTextBounds("Time2Z%", 0, 7, textBounds);
-                    legendWidth = Math.max(legendWidth, textBounds.width());
+                    mPaint.getTextBounds("Time2Z%", 0, 7, mTextBounds);
+                    legendWidth = Math.max(legendWidth, mTextBounds.width());
                     List<Series> mainSeries = mGraphView.getSeries();
-                    for (Series s : mainSeries) {
-                        String title = s.getTitle();
+                    for (int i = 0; i < mainSeries.size(); i++) {
+                        String title = mainSeries.get(i).getTitle();
                         if (title != null) {
-                            mPaint.getTextBounds(title, 0, title.length(), textBounds);
-                            legendWidth = Math.max(legendWidth, textBounds.width());
+                            mPaint.getTextBounds(title, 0, title.length(), mTextBounds);
+                            legendWidth = Math.max(legendWidth, mTextBounds.width());
                         }
                     }
                     if (legendWidth > 0) {
@@ -385,6 +387,7 @@ public class TrendsGraphView extends GraphView {
     public void releaseDataset() {
         mOrigDataSet = null;
         mDatasetLen = 0;
+        for (int i = 0; i < MAXFIELDS; i++) { mFieldArrays[i] = null; }
         resetSeries();
     }
 
@@ -425,6 +428,7 @@ public class TrendsGraphView extends GraphView {
         mOrigDataSet = theData;
         mDatasetLen = theData.size();
         if (mShowAsMode == 1 && mDatasetLen > 7) { mDatasetLen = 7; }
+        for (int i = 0; i < MAXFIELDS; i++) { mFieldArrays[i] = null; }
 
         if (mDatasetLen > 0) {
             SleepDatasetRec item = mOrigDataSet.get(mDatasetLen - 1);
@@ -482,12 +486,12 @@ public class TrendsGraphView extends GraphView {
         // first up are those series that can be also be shown as a stackedBar
         int qtyFieldsShown = 0;
         double maxY = 0.0;
-        DataPoint[] theDataPoints = null;
+        DoubleArraySeries theDataPoints = null;
         if (mShowBarsAndLines) {
             if (mShowDeep || mShowLight || mShowREM || mShowAwake || mShowTimeToZ) {
                 mStackedBarSeries = new StackedBarGraphSeries<DataPoint>();
                 if (mShowDeep) {
-                    theDataPoints = buildDataPoints(5);
+                    theDataPoints = getFieldDataPoints(5);
                     if (theDataPoints != null) {
                         mStackedBarSeries.addSubseries(theDataPoints);
                         int subseriesNo = mStackedBarSeries.getQtySubseries() - 1;
@@ -497,7 +501,7 @@ public class TrendsGraphView extends GraphView {
                     }
                 }
                 if (mShowLight) {
-                    theDataPoints = buildDataPoints(4);
+                    theDataPoints = getFieldDataPoints(4);
                     if (theDataPoints != null) {
                         mStackedBarSeries.addSubseries(theDataPoints);
                         int subseriesNo = mStackedBarSeries.getQtySubseries() - 1;
@@ -507,7 +511,7 @@ public class TrendsGraphView extends GraphView {
                     }
                 }
                 if (mShowREM) {
-                    theDataPoints = buildDataPoints(3);
+                    theDataPoints = getFieldDataPoints(3);
                     if (theDataPoints != null) {
                         mStackedBarSeries.addSubseries(theDataPoints);
                         int subseriesNo = mStackedBarSeries.getQtySubseries() - 1;
@@ -517,7 +521,7 @@ public class TrendsGraphView extends GraphView {
                     }
                 }
                 if (mShowAwake) {
-                    theDataPoints = buildDataPoints(2);
+                    theDataPoints = getFieldDataPoints(2);
                     if (theDataPoints != null) {
                         mStackedBarSeries.addSubseries(theDataPoints);
                         int subseriesNo = mStackedBarSeries.getQtySubseries() - 1;
@@ -527,7 +531,7 @@ public class TrendsGraphView extends GraphView {
                     }
                 }
                 if (mShowTimeToZ) {
-                    theDataPoints = buildDataPoints(0);
+                    theDataPoints = getFieldDataPoints(0);
                     if (theDataPoints != null) {
                         mStackedBarSeries.addSubseries(theDataPoints);
                         int subseriesNo = mStackedBarSeries.getQtySubseries() - 1;
@@ -546,7 +550,7 @@ public class TrendsGraphView extends GraphView {
             }
         } else {
             if (mShowDeep) {
-                theDataPoints = buildDataPoints(5);
+                theDataPoints = getFieldDataPoints(5);
                 if (theDataPoints != null) {
                     mLineSeries_Deep = new LineGraphSeries<DataPoint>(theDataPoints);
                     double y = mLineSeries_Deep.getHighestValueY();
@@ -564,7 +568,7 @@ public class TrendsGraphView extends GraphView {
                 }
             }
             if (mShowLight) {
-                theDataPoints = buildDataPoints(4);
+                theDataPoints = getFieldDataPoints(4);
                 if (theDataPoints != null) {
                     mLineSeries_Light = new LineGraphSeries<DataPoint>(theDataPoints);
                     double y = mLineSeries_Light.getHighestValueY();
@@ -581,7 +585,7 @@ public class TrendsGraphView extends GraphView {
                 }
             }
             if (mShowREM) {
-                theDataPoints = buildDataPoints(3);
+                theDataPoints = getFieldDataPoints(3);
                 if (theDataPoints != null) {
                     mLineSeries_REM = new LineGraphSeries<DataPoint>(theDataPoints);
                     double y = mLineSeries_REM.getHighestValueY();
@@ -598,7 +602,7 @@ public class TrendsGraphView extends GraphView {
                 }
             }
             if (mShowAwake) {
-                theDataPoints = buildDataPoints(2);
+                theDataPoints = getFieldDataPoints(2);
                 if (theDataPoints != null) {
                     mLineSeries_Awake = new LineGraphSeries<DataPoint>(theDataPoints);
                     double y = mLineSeries_Awake.getHighestValueY();
@@ -615,7 +619,7 @@ public class TrendsGraphView extends GraphView {
                 }
             }
             if (mShowTimeToZ) {
-                theDataPoints = buildDataPoints(0);
+                theDataPoints = getFieldDataPoints(0);
                 if (theDataPoints != null) {
                     mLineSeries_TimeToZ = new LineGraphSeries<DataPoint>(theDataPoints);
                     double y = mLineSeries_TimeToZ.getHighestValueY();
@@ -635,7 +639,7 @@ public class TrendsGraphView extends GraphView {
 
         // now those series that are always lines
         if (mShowTotalSleep) {
-            theDataPoints = buildDataPoints(1);
+            theDataPoints = getFieldDataPoints(1);
             if (theDataPoints != null) {
                 mLineSeries_TotalSleep = new LineGraphSeries<DataPoint>(theDataPoints);
                 double y = mLineSeries_TotalSleep.getHighestValueY();
@@ -652,7 +656,7 @@ public class TrendsGraphView extends GraphView {
             }
         }
         /*if (mShowAwakenings) {
-            theDataPoints = buildDataPoints(6);
+            theDataPoints = getFieldDataPoints(6);
             if (theDataPoints != null) {
                 mSeries_Awakenings = new LineGraphSeries<DataPoint>(theDataPoints);
                 double y = mSeries_Awakenings.getHighestValueY();
@@ -668,7 +672,7 @@ public class TrendsGraphView extends GraphView {
             }
         }*/
         if (mShowZQscore) {
-            theDataPoints = buildDataPoints(7);
+            theDataPoints = getFieldDataPoints(7);
             if (theDataPoints != null) {
                 mLineSeries_ZQscore = new LineGraphSeries<DataPoint>(theDataPoints);
                 double y = mLineSeries_ZQscore.getHighestValueY();
@@ -693,13 +697,13 @@ public class TrendsGraphView extends GraphView {
             if (qtyFieldsShown == 1) {
                 tps = calculateTrendlines(theDataPoints);
             } else if (mShowBarsAndLines && mStackedBarSeries != null && qtyFieldsShown > 1 && mQtySeries == 1) {
-                tps = calculateTrendlines(mStackedBarSeries.toArray());
+                tps = calculateTrendlines(mStackedBarSeries.getSummedSubseries());
             }
             if (tps != null) {
                 for (int i = 0; i < tps.length; i++) {
-                    DataPoint[] trendDataPoints = new DataPoint[2];
-                    trendDataPoints[0] = new DataPoint(0, tps[i].mStartValueX, tps[i].mStartValueY);
-                    trendDataPoints[1] = new DataPoint(1, tps[i].mEndValueX, tps[i].mEndValueY);
+                    DoubleArraySeries trendDataPoints = new DoubleArraySeries(2);
+                    trendDataPoints.append(0, tps[i].mStartValueX, tps[i].mStartValueY);
+                    trendDataPoints.append(1, tps[i].mEndValueX, tps[i].mEndValueY);
                     mLineSeries_Trend = new LineGraphSeries<DataPoint>(trendDataPoints);
                     double y = mLineSeries_Trend.getHighestValueY();
                     if (y > maxY) { maxY = y; }
@@ -718,9 +722,9 @@ public class TrendsGraphView extends GraphView {
         if (mShowGoalLine && mDatasetLen > 0) {
             double goal = getGoal(qtyFieldsShown);
             if (goal > 0.0) {
-                DataPoint[] goalDataPoints = new DataPoint[2];
-                goalDataPoints[0] = new DataPoint(0, lowestDate, goal);
-                goalDataPoints[1] = new DataPoint(1, highestDate, goal);
+                DoubleArraySeries goalDataPoints = new DoubleArraySeries(2);
+                goalDataPoints.append(0, lowestDate, goal);
+                goalDataPoints.append(1, highestDate, goal);
                 mLineSeries_Goal = new LineGraphSeries<DataPoint>(goalDataPoints);
                 double y = mLineSeries_Goal.getHighestValueY();
                 if (y > maxY) { maxY = y; }
@@ -793,10 +797,20 @@ public class TrendsGraphView extends GraphView {
         }
     }
 
+    // get the data points for a single data field; these are built once per dataset and then re-used whenever the shown fields are toggled;
+    // the series adopt the arrays but never alter them
+    private DoubleArraySeries getFieldDataPoints(int dataArrayIndex) {
+        if (mDatasetLen <= 0) { return null; }
+        if (mFieldArrays[dataArrayIndex] == null) { mFieldArrays[dataArrayIndex] = buildDataPoints(dataArrayIndex); }
+        return mFieldArrays[dataArrayIndex];
+    }
+
     // build the data points for a single data field; note the X-values are in descending order but GraphView must have them in ascending order
-    private DataPoint[] buildDataPoints(int dataArrayIndex) {
+    private DoubleArraySeries buildDataPoints(int dataArrayIndex) {
         if (mDatasetLen <= 0) { return null; }
-        DataPoint[] theDataPoints = new DataPoint[mDatasetLen];
+        double[] theXs = new double[mDatasetLen];
+        double[] theYs = new double[mDatasetLen];
+        int[] theIndexes = new int[mDatasetLen];
         int j = 0;
         for (int i = mDatasetLen - 1; i >= 0; i--) {
             SleepDatasetRec item = mOrigDataSet.get(i);
@@ -824,11 +838,12 @@ public class TrendsGraphView extends GraphView {
                     y = item.rDataArray[dataArrayIndex];
                     break;
             }
-            double x = (double)((item.rTimestamp - mLowestTimestamp)/60000L);
-            theDataPoints[j] = new DataPoint(i, x, y);
+            theXs[j] = (double)((item.rTimestamp - mLowestTimestamp)/60000L);
+            theYs[j] = y;
+            theIndexes[j] = i;
             j++;
         }
-        return theDataPoints;
+        return new DoubleArraySeries(theXs, theYs, theIndexes, mDatasetLen);
     }
 
     // data points record for showing trendlines
@@ -840,11 +855,11 @@ public class TrendsGraphView extends GraphView {
     }
 
     // calculate one trend line
-    private TrendlinePoints calculateOneTrendline(DataPoint[] theDataPoints, int startInx, int endInx) {
+    private TrendlinePoints calculateOneTrendline(DoubleArraySeries theDataPoints, int startInx, int endInx) {
         if (endInx - startInx  < 1) { return null; }
         SimpleRegression sr = new SimpleRegression(true);
         for (int i = startInx; i <= endInx; i++) {
-            sr.addData(theDataPoints[i].getX(), theDataPoints[i].getY());
+            sr.addData(theDataPoints.getX(i), theDataPoints.getY(i));
         }
         if (!sr.hasIntercept()) { return null; }
 
@@ -852,16 +867,16 @@ public class TrendsGraphView extends GraphView {
         double ValueYatXzero = sr.getIntercept();
 
         TrendlinePoints results = new TrendlinePoints();
-        results.mStartValueX = theDataPoints[startInx].getX();
+        results.mStartValueX = theDataPoints.getX(startInx);
         results.mStartValueY = ValueYatXzero + results.mStartValueX * slope;
 
-        results.mEndValueX = theDataPoints[endInx].getX();
+        results.mEndValueX = theDataPoints.getX(endInx);
         results.mEndValueY = ValueYatXzero + results.mEndValueX * slope;
         return results;
     }
 
     // calculate one or more trend lines depending on dataset size and time-gaps in the dataset
-    private TrendlinePoints[] calculateTrendlines(DataPoint[] theDataPoints) {
+    private TrendlinePoints[] calculateTrendlines(DoubleArraySeries theDataPoints) {
         if (theDataPoints == null) { return null; }
         if (mDatasetLen <= 1) { return null; }
         if (mDatasetLen <= 7) {
@@ -879,7 +894,7 @@ public class TrendsGraphView extends GraphView {
         int endI = 0;
         double priorX = 0.0;
         while (endI < mDatasetLen) {
-            double endX = theDataPoints[endI].getX();
+            double endX = theDataPoints.getX(endI);
             if (endX - priorX > 10080.0) {     // 7 days in minutes
                 // greater than 7 days since prior sleep session
                 if ((endI - 1) - startI > 0) {
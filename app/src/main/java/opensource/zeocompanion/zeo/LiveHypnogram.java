@@ -0,0 +1,170 @@
+package opensource.zeocompanion.zeo;
+
+import java.util.ArrayList;
+
+// an incremental in-memory model of the in-progress night's 30-second base hypnogram;
+// it is fed either by the polled Zeo App sleep record of the active sleep episode (ZeoAppHandler) or by headband sleep reports,
+// and only ever notifies its listeners of the epochs that are new or have changed, so that views can append rather than reload;
+// listeners are invoked upon whichever thread fed the model and must re-post to the UI thread themselves if needed
+public class LiveHypnogram {
+    // member variables
+    private byte[] mEpochs = new byte[INITIAL_CAPACITY];    // guarded by synchronized(this)
+    private int mEpochsCount = 0;
+    private long mSleepEpisodeID = 0L;
+    private long mStartOfNight = 0L;
+    private long mLastUpdate_Timestamp = 0L;
+    private long mHeadbandStartOfNight = 0L;        // the headband's own start-of-night of the current night, once a sleep report has been bound to it
+    private long mPriorHeadbandStartOfNight = 0L;   // the headband's start-of-night of the prior night; late reports of it are ignored
+    private long mSupersededSleepEpisodeID = 0L;    // the Zeo App sleep episode that a headband-reported new night replaced; its polls are ignored
+    private final ArrayList<Listener> mListeners = new ArrayList<Listener>();    // guarded by itself
+
+    // member constants and other static content
+    public static final int EPOCH_SEC = 30;
+    private static final int INITIAL_CAPACITY = 1280;   // ~10.7 hours of 30-second epochs
+
+    // callback interface for those that wish to be informed of the model's changes
+    public interface Listener {
+        // epochs from firstChangedIndex onward are new or altered; isNewNight indicates the model has started over upon a different night
+        // (or upon a new identification of the night) with a new start-of-night, so everything previously obtained from it is stale
+        void onLiveHypnogramChanged(LiveHypnogram theModel, int firstChangedIndex, boolean isNewNight);
+    }
+
+    // constructor
+    public LiveHypnogram() {}
+
+    public void addListener(Listener theListener) {
+        synchronized (mListeners) { if (!mListeners.contains(theListener)) { mListeners.add(theListener); } }
+    }
+
+    public void removeListener(Listener theListener) {
+        synchronized (mListeners) { mListeners.remove(theListener); }
+    }
+
+    // accessors
+    public synchronized long getSleepEpisodeID() { return mSleepEpisodeID; }
+    public synchronized long getStartOfNight() { return mStartOfNight; }
+    public synchronized long getLastUpdateTimestamp() { return mLastUpdate_Timestamp; }
+    public synchronized int getEpochsCount() { return mEpochsCount; }
+
+    // copy epochs into the caller's array; returns the quantity copied
+    public synchronized int getEpochs(int fromIndex, byte[] theArray, int theArrayOffset, int maxQty) {
+        if (fromIndex >= mEpochsCount) { return 0; }
+        int qty = Math.min(maxQty, mEpochsCount - fromIndex);
+        System.arraycopy(mEpochs, fromIndex, theArray, theArrayOffset, qty);
+        return qty;
+    }
+
+    // get a copy of all the epochs
+    public synchronized byte[] getEpochsCopy() {
+        byte[] theCopy = new byte[mEpochsCount];
+        System.arraycopy(mEpochs, 0, theCopy, 0, mEpochsCount);
+        return theCopy;
+    }
+
+    // feed the full base hypnogram of the active sleep episode (as polled from the Zeo App);
+    // only the portion that differs from what is already known is reported to the listeners
+    public void updateFromPolledRecord(long sleepEpisodeID, long startOfNight, byte[] baseHypnogram) {
+        if (baseHypnogram == null) { return; }
+        int firstChanged;
+        boolean isNewNight;
+        synchronized (this) {
+            if (isSuperseded(sleepEpisodeID)) { return; }
+            isNewNight = startNightOfEpisode(sleepEpisodeID, startOfNight);
+            if (isNewNight) {
+                firstChanged = 0;
+            } else {
+                // the same night; find the first epoch that differs from those already known
+                int common = Math.min(mEpochsCount, baseHypnogram.length);
+                firstChanged = 0;
+                while (firstChanged < common && mEpochs[firstChanged] == baseHypnogram[firstChanged]) { firstChanged++; }
+                if (firstChanged == mEpochsCount && firstChanged == baseHypnogram.length) { return; }   // nothing new
+            }
+            ensureCapacity(baseHypnogram.length);
+            System.arraycopy(baseHypnogram, firstChanged, mEpochs, firstChanged, baseHypnogram.length - firstChanged);
+            mEpochsCount = baseHypnogram.length;
+            mLastUpdate_Timestamp = System.currentTimeMillis();
+        }
+        notifyListeners(firstChanged, isNewNight);
+    }
+
+    // append newly reported epochs; firstEpochIndex is the epoch number (since the start of night) of the first supplied epoch
+    public void appendEpochs(long sleepEpisodeID, long startOfNight, int firstEpochIndex, byte[] theStages, int theOffset, int theQty) {
+        if (theQty <= 0 || firstEpochIndex < 0) { return; }
+        int firstChanged;
+        boolean isNewNight;
+        synchronized (this) {
+            if (isSuperseded(sleepEpisodeID)) { return; }
+            isNewNight = startNightOfEpisode(sleepEpisodeID, startOfNight);
+            int newCount = Math.max(mEpochsCount, firstEpochIndex + theQty);
+            ensureCapacity(newCount);
+            for (int i = mEpochsCount; i < firstEpochIndex; i++) { mEpochs[i] = ZAH_SleepRecord.ZAH_HYPNOGRAM_UNDEFINED; }  // fill any gap
+            firstChanged = Math.min(mEpochsCount, firstEpochIndex);
+            System.arraycopy(theStages, theOffset, mEpochs, firstEpochIndex, theQty);
+            mEpochsCount = newCount;
+            mLastUpdate_Timestamp = System.currentTimeMillis();
+        }
+        notifyListeners(firstChanged, isNewNight);
+    }
+
+    // the headband has reported on its sleep night; the headband's start-of-night (in the headband's own clock) identifies its night,
+    // but is never compared against the Zeo App's start-of-night since the two clocks may be offset by any amount; instead the first report
+    // is bound to the Zeo App sleep episode being shown, and only a report of a different headband night starts a new night;
+    // the sleep report's hypnogram content is not yet decoded so epochs themselves continue to arrive from the polled sleep records
+    public void updateFromHeadbandSleepReport(long startOfNight) {
+        if (startOfNight <= 0L) { return; }
+        synchronized (this) {
+            if (startOfNight == mHeadbandStartOfNight || startOfNight == mPriorHeadbandStartOfNight) { return; }  // a night already known
+            if (mHeadbandStartOfNight == 0L) { mHeadbandStartOfNight = startOfNight; return; }  // the current night's first report
+            // the headband has begun a different night; the Zeo App's sleep episode of the prior night is superseded until
+            // the Zeo App's sleep episode of the new night is polled
+            mPriorHeadbandStartOfNight = mHeadbandStartOfNight;
+            mHeadbandStartOfNight = startOfNight;
+            if (mSleepEpisodeID != 0L) { mSupersededSleepEpisodeID = mSleepEpisodeID; }
+            mSleepEpisodeID = 0L;
+            mStartOfNight = startOfNight;
+            mEpochsCount = 0;
+            mLastUpdate_Timestamp = System.currentTimeMillis();
+        }
+        notifyListeners(0, true);
+    }
+
+    // has a headband-reported new night replaced the Zeo App sleep episode; must be called while synchronized
+    private boolean isSuperseded(long sleepEpisodeID) {
+        return (sleepEpisodeID != 0L && sleepEpisodeID == mSupersededSleepEpisodeID);
+    }
+
+    // start over if the Zeo App sleep episode differs from the current one; returns whether the model started over; must be called while synchronized;
+    // when the current night came from a headband report, its Zeo App sleep episode is adopted and remains bound to that headband night
+    private boolean startNightOfEpisode(long sleepEpisodeID, long startOfNight) {
+        if (sleepEpisodeID == mSleepEpisodeID) { return false; }
+        if (mSleepEpisodeID != 0L || mHeadbandStartOfNight == 0L) {
+            // a different night than the one bound to the headband's reports (if any); the next headband report will be bound to it
+            if (mHeadbandStartOfNight != 0L) { mPriorHeadbandStartOfNight = mHeadbandStartOfNight; }
+            mHeadbandStartOfNight = 0L;
+        }
+        mSleepEpisodeID = sleepEpisodeID;
+        mStartOfNight = startOfNight;
+        mEpochsCount = 0;
+        return true;
+    }
+
+    // grow the epochs array as needed
+    private void ensureCapacity(int needed) {
+        if (needed <= mEpochs.length) { return; }
+        int newCapacity = mEpochs.length;
+        while (newCapacity < needed) { newCapacity = newCapacity << 1; }
+        byte[] newEpochs = new byte[newCapacity];
+        System.arraycopy(mEpochs, 0, newEpochs, 0, mEpochsCount);
+        mEpochs = newEpochs;
+    }
+
+    // inform all listeners; done outside the model's lock
+    private void notifyListeners(int firstChangedIndex, boolean isNewNight) {
+        Listener[] listeners;
+        synchronized (mListeners) {
+            if (mListeners.isEmpty()) { return; }
+            listeners = mListeners.toArray(new Listener[mListeners.size()]);
+        }
+        for (Listener theListener: listeners) { theListener.onLiveHypnogramChanged(this, firstChangedIndex, isNewNight); }
+    }
+}
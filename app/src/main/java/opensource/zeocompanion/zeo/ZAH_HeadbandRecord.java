@@ -96,6 +96,15 @@ public class ZAH_HeadbandRecord {
             ZeoDataContract.Headband.SW_VERSION
     };
 
+    // only those columns needed to detect the Zeo App's state (see ZeoAppHandler.probeAppState); VOLTAGE is an extended column
+    public static final String[] ZAH_HEADBANDREC_PROBE_COLS = new String[] {
+            ZeoDataContract.Headband.ALGORITHM_MODE,
+            ZeoDataContract.Headband.BONDED,
+            ZeoDataContract.Headband.CONNECTED,
+            ZeoDataContract.Headband.DOCKED,
+            VOLTAGE
+    };
+
     public static final String[] ZAH_HEADBANDREC_EXTENDED_COLS = new String[] {
             ZeoDataContract.Headband._ID,
             ZeoDataContract.Headband.CREATED_ON,
@@ -139,108 +148,191 @@ public class ZAH_HeadbandRecord {
             WAS_CHARGED
     };
 
+    // the column indexes of one cursor queried with ZAH_HEADBANDREC_COLS or ZAH_HEADBANDREC_EXTENDED_COLS (or from the replicated table);
+    // resolve this once per query and then pass it for every row, so no column names are looked up per row;
+    // any extended column not present in the cursor has an index of -1
+    public static class ColumnIndexes {
+        public int mID;
+        public int mCreated;
+        public int mUpdated;
+        public int mAlgorithmMode;
+        public int mClockOffset;
+        public int mBonded;
+        public int mConnected;
+        public int mDocked;
+        public int mOnHead;
+        public int mBluetoothAddress;
+        public int mBluetoothFriendlyName;
+        public int mSwVersion;
+
+        public boolean mHasExtended;
+        public int mHardwareVersion;
+        public int mModel;
+        public int mSerialNumber;
+        public int mActiveForced;
+        public int mBluetoothLocked;
+        public int mDemoMode;
+        public int mNeedClockOffset;
+        public int mNeedTimeSync;
+        public int mRequiresPin;
+        public int mWasCharged;
+        public int mLastBatteryDiedTimestamp;
+        public int mLastBondTimestamp;
+        public int mLastConnectedTimestamp;
+        public int mLastDisconnectedTimestamp;
+        public int mLastDockedTimestamp;
+        public int mLastFactoryResetTimestamp;
+        public int mLastOffheadTimestamp;
+        public int mLastOnheadTimestamp;
+        public int mLastSensorUseResetTimestamp;
+        public int mLastUnbondedTimestamp;
+        public int mLastUndockedTimestamp;
+        public int mFlashCalibUpdates;
+        public int mFlashSavedDataUpdates;
+        public int mFlashSleepBackupUpdates;
+        public int mLastAlarmReason;
+        public int mSensorUsed;
+        public int mVoltage;
+        public int mVoltageStatus;
+
+        public ColumnIndexes(Cursor cursor) {
+            mID = cursor.getColumnIndex(ZeoDataContract.Headband._ID);
+            mCreated = cursor.getColumnIndex(ZeoDataContract.Headband.CREATED_ON);
+            mUpdated = cursor.getColumnIndex(ZeoDataContract.Headband.UPDATED_ON);
+            mAlgorithmMode = cursor.getColumnIndex(ZeoDataContract.Headband.ALGORITHM_MODE);
+            mClockOffset = cursor.getColumnIndex(ZeoDataContract.Headband.CLOCK_OFFSET);
+            mBonded = cursor.getColumnIndex(ZeoDataContract.Headband.BONDED);
+            mConnected = cursor.getColumnIndex(ZeoDataContract.Headband.CONNECTED);
+            mDocked = cursor.getColumnIndex(ZeoDataContract.Headband.DOCKED);
+            mOnHead = cursor.getColumnIndex(ZeoDataContract.Headband.ON_HEAD);
+            mBluetoothAddress = cursor.getColumnIndex(ZeoDataContract.Headband.BLUETOOTH_ADDRESS);
+            mBluetoothFriendlyName = cursor.getColumnIndex(ZeoDataContract.Headband.BLUETOOTH_FRIENDLY_NAME);
+            mSwVersion = cursor.getColumnIndex(ZeoDataContract.Headband.SW_VERSION);
+
+            // the following fields are accessible regardless of the ZeoDataContract
+            mHardwareVersion = cursor.getColumnIndex(HARDWARE_VERSION);
+            mModel = cursor.getColumnIndex(MODEL);
+            mSerialNumber = cursor.getColumnIndex(SERIAL_NUMBER);
+            mActiveForced = cursor.getColumnIndex(ACTIVE_FORCED);
+            mBluetoothLocked = cursor.getColumnIndex(BLUETOOTH_LOCKED);
+            mDemoMode = cursor.getColumnIndex(DEMO_MODE);
+            mNeedClockOffset = cursor.getColumnIndex(NEED_CLOCK_OFFSET);
+            mNeedTimeSync = cursor.getColumnIndex(NEED_TIME_SYNC);
+            mRequiresPin = cursor.getColumnIndex(REQUIRES_PIN);
+            mWasCharged = cursor.getColumnIndex(WAS_CHARGED);
+            mLastBatteryDiedTimestamp = cursor.getColumnIndex(LAST_BATTERY_DIED_TIMESTAMP);
+            mLastBondTimestamp = cursor.getColumnIndex(LAST_BOND_TIMESTAMP);
+            mLastConnectedTimestamp = cursor.getColumnIndex(LAST_CONNECTED_TIMESTAMP);
+            mLastDisconnectedTimestamp = cursor.getColumnIndex(LAST_DISCONNECTED_TIMESTAMP);
+            mLastDockedTimestamp = cursor.getColumnIndex(LAST_DOCKED_TIMESTAMP);
+            mLastFactoryResetTimestamp = cursor.getColumnIndex(LAST_FACTORY_RESET_TIMESTAMP);
+            mLastOffheadTimestamp = cursor.getColumnIndex(LAST_OFFEHAD_TIMESTAMP);
+            mLastOnheadTimestamp = cursor.getColumnIndex(LAST_ONHEAD_TIMESTAMP);
+            mLastSensorUseResetTimestamp = cursor.getColumnIndex(LAST_SENSOR_USE_RESET_TIMESTAMP);
+            mLastUnbondedTimestamp = cursor.getColumnIndex(LAST_UNBONDED_TIMESTAMP);
+            mLastUndockedTimestamp = cursor.getColumnIndex(LAST_UNDOCKED_TIMESTAMP);
+            mFlashCalibUpdates = cursor.getColumnIndex(FLASH_CALIB_UPDATES);
+            mFlashSavedDataUpdates = cursor.getColumnIndex(FLASH_SAVED_DATA_UPDATES);
+            mFlashSleepBackupUpdates = cursor.getColumnIndex(FLASH_SLEEP_BACKUP_UPDATES);
+            mLastAlarmReason = cursor.getColumnIndex(LAST_ALARM_REASON);
+            mSensorUsed = cursor.getColumnIndex(SENSOR_USED);
+            mVoltage = cursor.getColumnIndex(VOLTAGE);
+            mVoltageStatus = cursor.getColumnIndex(VOLTAGE_STATUS);
+            mHasExtended = (mHardwareVersion >= 0 || mModel >= 0 || mSerialNumber >= 0 || mActiveForced >= 0 || mBluetoothLocked >= 0 ||
+                    mDemoMode >= 0 || mNeedClockOffset >= 0 || mNeedTimeSync >= 0 || mRequiresPin >= 0 || mWasCharged >= 0 ||
+                    mLastBatteryDiedTimestamp >= 0 || mLastBondTimestamp >= 0 || mLastConnectedTimestamp >= 0 || mLastDisconnectedTimestamp >= 0 || mLastDockedTimestamp >= 0 ||
+                    mLastFactoryResetTimestamp >= 0 || mLastOffheadTimestamp >= 0 || mLastOnheadTimestamp >= 0 || mLastSensorUseResetTimestamp >= 0 || mLastUnbondedTimestamp >= 0 ||
+                    mLastUndockedTimestamp >= 0 || mFlashCalibUpdates >= 0 || mFlashSavedDataUpdates >= 0 || mFlashSleepBackupUpdates >= 0 || mLastAlarmReason >= 0 ||
+                    mSensorUsed >= 0 || mVoltage >= 0 || mVoltageStatus >= 0);
+        }
+    }
+
     // constructor
     public ZAH_HeadbandRecord(Cursor cursor) {
-        rID = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.Headband._ID));
-        rCreated_timestamp = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.Headband.CREATED_ON));
-        rUpdated_timestamp = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.Headband.UPDATED_ON));
-        rAlgorithm_mode = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.Headband.ALGORITHM_MODE));
-        rClock_offset = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.Headband.CLOCK_OFFSET));
-        rBonded_to_device = (cursor.getInt(cursor.getColumnIndex(ZeoDataContract.Headband.BONDED)) != 0);
-        rConnected_to_device = (cursor.getInt(cursor.getColumnIndex(ZeoDataContract.Headband.CONNECTED)) != 0);
-        rDocked = (cursor.getInt(cursor.getColumnIndex(ZeoDataContract.Headband.DOCKED)) != 0);
-        rOnHead = (cursor.getInt(cursor.getColumnIndex(ZeoDataContract.Headband.ON_HEAD)) != 0);
-        rBluetooth_address = cursor.getString(cursor.getColumnIndex(ZeoDataContract.Headband.BLUETOOTH_ADDRESS));
-        rBluetooth_friendly_name = cursor.getString(cursor.getColumnIndex(ZeoDataContract.Headband.BLUETOOTH_FRIENDLY_NAME));
-        rSoftware_version = cursor.getString(cursor.getColumnIndex(ZeoDataContract.Headband.SW_VERSION));
+        fill(cursor, new ColumnIndexes(cursor));
+    }
+
+    // constructor for bulk reads; the column indexes are pre-resolved by the caller once for the entire cursor
+    public ZAH_HeadbandRecord(Cursor cursor, ColumnIndexes cols) {
+        fill(cursor, cols);
+    }
+
+    // empty constructor; used as a re-usable flyweight via fill()
+    public ZAH_HeadbandRecord() {}
+
+    // (re-)populate this record from the cursor's current row; every field is overwritten so a single instance can be re-used
+    // across all the rows of a scan
+    public void fill(Cursor cursor, ColumnIndexes cols) {
+        mHasExtended = cols.mHasExtended;
+        rID = cursor.getInt(cols.mID);
+        rCreated_timestamp = cursor.getInt(cols.mCreated);
+        rUpdated_timestamp = cursor.getInt(cols.mUpdated);
+        rAlgorithm_mode = cursor.getInt(cols.mAlgorithmMode);
+        rClock_offset = cursor.getLong(cols.mClockOffset);
+        rBonded_to_device = (cursor.getInt(cols.mBonded) != 0);
+        rConnected_to_device = (cursor.getInt(cols.mConnected) != 0);
+        rDocked = (cursor.getInt(cols.mDocked) != 0);
+        rOnHead = (cursor.getInt(cols.mOnHead) != 0);
+        rBluetooth_address = cursor.getString(cols.mBluetoothAddress);
+        rBluetooth_friendly_name = cursor.getString(cols.mBluetoothFriendlyName);
+        rSoftware_version = cursor.getString(cols.mSwVersion);
 
         // the following fields are accessible regardless of the ZeoDataContract
-        int i = cursor.getColumnIndex(HARDWARE_VERSION);
-        if (i >= 0) { rHardware_version = cursor.getString(i); mHasExtended = true; }
+        if (cols.mHardwareVersion >= 0) { rHardware_version = cursor.getString(cols.mHardwareVersion); }
         else { rHardware_version = null; }
-        i = cursor.getColumnIndex(MODEL);
-        if (i >= 0) { rModel = cursor.getString(i); mHasExtended = true; }
+        if (cols.mModel >= 0) { rModel = cursor.getString(cols.mModel); }
         else { rModel = null; }
-        i = cursor.getColumnIndex(SERIAL_NUMBER);
-        if (i >= 0) { rSerial = cursor.getString(i); mHasExtended = true; }
+        if (cols.mSerialNumber >= 0) { rSerial = cursor.getString(cols.mSerialNumber); }
         else { rSerial = null; }
-
-        i = cursor.getColumnIndex(ACTIVE_FORCED);
-        if (i >= 0) { rActive_forced = (cursor.getInt(i) != 0); mHasExtended = true; }
+        if (cols.mActiveForced >= 0) { rActive_forced = (cursor.getInt(cols.mActiveForced) != 0); }
         else { rActive_forced = false; }
-        i = cursor.getColumnIndex(BLUETOOTH_LOCKED);
-        if (i >= 0) { rBluetooth_locked = (cursor.getInt(i) != 0); mHasExtended = true; }
+        if (cols.mBluetoothLocked >= 0) { rBluetooth_locked = (cursor.getInt(cols.mBluetoothLocked) != 0); }
         else { rBluetooth_locked = false; }
-        i = cursor.getColumnIndex(DEMO_MODE);
-        if (i >= 0) { rDemo_mode = (cursor.getInt(i) != 0); mHasExtended = true; }
+        if (cols.mDemoMode >= 0) { rDemo_mode = (cursor.getInt(cols.mDemoMode) != 0); }
         else { rDemo_mode = false; }
-        i = cursor.getColumnIndex(NEED_CLOCK_OFFSET);
-        if (i >= 0) { rNeed_clock_offset = (cursor.getInt(i) != 0); mHasExtended = true; }
+        if (cols.mNeedClockOffset >= 0) { rNeed_clock_offset = (cursor.getInt(cols.mNeedClockOffset) != 0); }
         else { rNeed_clock_offset = false; }
-        i = cursor.getColumnIndex(NEED_TIME_SYNC);
-        if (i >= 0) { rNeed_time_sync = (cursor.getInt(i) != 0); mHasExtended = true; }
+        if (cols.mNeedTimeSync >= 0) { rNeed_time_sync = (cursor.getInt(cols.mNeedTimeSync) != 0); }
         else { rNeed_time_sync = false; }
-        i = cursor.getColumnIndex(REQUIRES_PIN);
-        if (i >= 0) { rRequires_pin = (cursor.getInt(i) != 0); mHasExtended = true; }
+        if (cols.mRequiresPin >= 0) { rRequires_pin = (cursor.getInt(cols.mRequiresPin) != 0); }
         else { rRequires_pin = false; }
-        i = cursor.getColumnIndex(WAS_CHARGED);
-        if (i >= 0) { rWas_charged = (cursor.getInt(i) != 0); mHasExtended = true; }
+        if (cols.mWasCharged >= 0) { rWas_charged = (cursor.getInt(cols.mWasCharged) != 0); }
         else { rWas_charged = false; }
-
-        i = cursor.getColumnIndex(LAST_BATTERY_DIED_TIMESTAMP);
-        if (i >= 0) { rLast_battery_died_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastBatteryDiedTimestamp >= 0) { rLast_battery_died_timestamp = cursor.getLong(cols.mLastBatteryDiedTimestamp); }
         else { rLast_battery_died_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_BOND_TIMESTAMP);
-        if (i >= 0) { rLast_bond_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastBondTimestamp >= 0) { rLast_bond_timestamp = cursor.getLong(cols.mLastBondTimestamp); }
         else { rLast_bond_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_CONNECTED_TIMESTAMP);
-        if (i >= 0) { rLast_connected_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastConnectedTimestamp >= 0) { rLast_connected_timestamp = cursor.getLong(cols.mLastConnectedTimestamp); }
         else { rLast_connected_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_DISCONNECTED_TIMESTAMP);
-        if (i >= 0) { rLast_disconnected_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastDisconnectedTimestamp >= 0) { rLast_disconnected_timestamp = cursor.getLong(cols.mLastDisconnectedTimestamp); }
         else { rLast_disconnected_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_DOCKED_TIMESTAMP);
-        if (i >= 0) { rLast_docked_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastDockedTimestamp >= 0) { rLast_docked_timestamp = cursor.getLong(cols.mLastDockedTimestamp); }
         else { rLast_docked_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_FACTORY_RESET_TIMESTAMP);
-        if (i >= 0) { rLast_factory_reset_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastFactoryResetTimestamp >= 0) { rLast_factory_reset_timestamp = cursor.getLong(cols.mLastFactoryResetTimestamp); }
         else { rLast_factory_reset_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_OFFEHAD_TIMESTAMP);
-        if (i >= 0) { rLast_offhead_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastOffheadTimestamp >= 0) { rLast_offhead_timestamp = cursor.getLong(cols.mLastOffheadTimestamp); }
         else { rLast_offhead_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_ONHEAD_TIMESTAMP);
-        if (i >= 0) { rLast_onhead_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastOnheadTimestamp >= 0) { rLast_onhead_timestamp = cursor.getLong(cols.mLastOnheadTimestamp); }
         else { rLast_onhead_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_SENSOR_USE_RESET_TIMESTAMP);
-        if (i >= 0) { rLast_sensor_use_reset_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastSensorUseResetTimestamp >= 0) { rLast_sensor_use_reset_timestamp = cursor.getLong(cols.mLastSensorUseResetTimestamp); }
         else { rLast_sensor_use_reset_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_UNBONDED_TIMESTAMP);
-        if (i >= 0) { rLast_unbonded_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastUnbondedTimestamp >= 0) { rLast_unbonded_timestamp = cursor.getLong(cols.mLastUnbondedTimestamp); }
         else { rLast_unbonded_timestamp = 0L; }
-        i = cursor.getColumnIndex(LAST_UNDOCKED_TIMESTAMP);
-        if (i >= 0) { rLast_undocked_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mLastUndockedTimestamp >= 0) { rLast_undocked_timestamp = cursor.getLong(cols.mLastUndockedTimestamp); }
         else { rLast_undocked_timestamp = 0L; }
-
-        i = cursor.getColumnIndex(FLASH_CALIB_UPDATES);
-        if (i >= 0) { rFlash_calibration_updates = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mFlashCalibUpdates >= 0) { rFlash_calibration_updates = cursor.getInt(cols.mFlashCalibUpdates); }
         else { rFlash_calibration_updates = 0; }
-        i = cursor.getColumnIndex(FLASH_SAVED_DATA_UPDATES);
-        if (i >= 0) { rFlash_saved_data_updates = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mFlashSavedDataUpdates >= 0) { rFlash_saved_data_updates = cursor.getInt(cols.mFlashSavedDataUpdates); }
         else { rFlash_saved_data_updates = 0; }
-        i = cursor.getColumnIndex(FLASH_SLEEP_BACKUP_UPDATES);
-        if (i >= 0) { rFlash_sleep_backup_updates = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mFlashSleepBackupUpdates >= 0) { rFlash_sleep_backup_updates = cursor.getInt(cols.mFlashSleepBackupUpdates); }
         else { rFlash_sleep_backup_updates = 0; }
-        i = cursor.getColumnIndex(LAST_ALARM_REASON);
-        if (i >= 0) { rLast_alarm_reason = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mLastAlarmReason >= 0) { rLast_alarm_reason = cursor.getInt(cols.mLastAlarmReason); }
         else { rLast_alarm_reason = 0; }
-        i = cursor.getColumnIndex(SENSOR_USED);
-        if (i >= 0) { rSensor_used = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mSensorUsed >= 0) { rSensor_used = cursor.getLong(cols.mSensorUsed); }
         else { rSensor_used = 0L; }
-        i = cursor.getColumnIndex(VOLTAGE);
-        if (i >= 0) { rVoltage = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mVoltage >= 0) { rVoltage = cursor.getInt(cols.mVoltage); }
         else { rVoltage = 0; }
-        i = cursor.getColumnIndex(VOLTAGE_STATUS);
-        if (i >= 0) { rVoltage_status = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mVoltageStatus >= 0) { rVoltage_status = cursor.getInt(cols.mVoltageStatus); }
         else { rVoltage_status = 0; }
     }
 
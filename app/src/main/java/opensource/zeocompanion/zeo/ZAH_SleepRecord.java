@@ -32,6 +32,7 @@ public class ZAH_SleepRecord {
 
     // the following fields are part of the "extended" and full sleep record stored in the Zep App database
     public boolean mHasExtended = false;
+    public boolean mIsSummaryOnly = false;  // only the timestamps and totals are present; there are no hypnograms nor extended fields
     public long rUploaded_timestamp = 0;
     public long rClockOffset = 0;
     public boolean rHidden = false;
@@ -128,6 +129,60 @@ public class ZAH_SleepRecord {
             VOLTAGE_BATTERY
     };
 
+    // only those columns needed for integrating and graphing the sleep totals; excludes the large hypnogram BLOBs;
+    // these column names are identical in both the Zeo App's database and the ZeoCompanion's replicated table
+    public static final String[] ZAH_SLEEPREC_SUMMARY_COLS = new String[] {
+            ZeoDataContract.SleepRecord._ID,
+            ZeoDataContract.SleepRecord.UPDATED_ON,
+            ZeoDataContract.SleepRecord.SLEEP_EPISODE_ID,
+            ZeoDataContract.SleepRecord.START_OF_NIGHT,
+            ZeoDataContract.SleepRecord.END_OF_NIGHT,
+            ZeoDataContract.SleepRecord.END_REASON,
+            ZeoDataContract.SleepRecord.ZQ_SCORE,
+            ZeoDataContract.SleepRecord.AWAKENINGS,
+            ZeoDataContract.SleepRecord.TIME_IN_DEEP,
+            ZeoDataContract.SleepRecord.TIME_IN_LIGHT,
+            ZeoDataContract.SleepRecord.TIME_IN_REM,
+            ZeoDataContract.SleepRecord.TIME_IN_WAKE,
+            ZeoDataContract.SleepRecord.TIME_TO_Z,
+            ZeoDataContract.SleepRecord.TOTAL_Z
+    };
+
+    // the column indexes of a cursor queried with ZAH_SLEEPREC_SUMMARY_COLS; resolve these once per cursor rather than once per row
+    public static class SummaryColumnIndexes {
+        public int mID;
+        public int mUpdated;
+        public int mSleepEpisodeID;
+        public int mStartOfNight;
+        public int mEndOfNight;
+        public int mEndReason;
+        public int mZQ_Score;
+        public int mAwakenings;
+        public int mTime_Deep;
+        public int mTime_Light;
+        public int mTime_REM;
+        public int mTime_Awake;
+        public int mTime_to_Z;
+        public int mTime_Total_Z;
+
+        public SummaryColumnIndexes(Cursor cursor) {
+            mID = cursor.getColumnIndex(ZeoDataContract.SleepRecord._ID);
+            mUpdated = cursor.getColumnIndex(ZeoDataContract.SleepRecord.UPDATED_ON);
+            mSleepEpisodeID = cursor.getColumnIndex(ZeoDataContract.SleepRecord.SLEEP_EPISODE_ID);
+            mStartOfNight = cursor.getColumnIndex(ZeoDataContract.SleepRecord.START_OF_NIGHT);
+            mEndOfNight = cursor.getColumnIndex(ZeoDataContract.SleepRecord.END_OF_NIGHT);
+            mEndReason = cursor.getColumnIndex(ZeoDataContract.SleepRecord.END_REASON);
+            mZQ_Score = cursor.getColumnIndex(ZeoDataContract.SleepRecord.ZQ_SCORE);
+            mAwakenings = cursor.getColumnIndex(ZeoDataContract.SleepRecord.AWAKENINGS);
+            mTime_Deep = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_DEEP);
+            mTime_Light = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_LIGHT);
+            mTime_REM = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_REM);
+            mTime_Awake = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_WAKE);
+            mTime_to_Z = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_TO_Z);
+            mTime_Total_Z = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TOTAL_Z);
+        }
+    }
+
     public static final int ZAH_ENDREASON_COMPLETE = 0;
     public static final int ZAH_ENDREASON_STILL_ACTIVE = 1;
     public static final int ZAH_ENDREASON_BATTERY_DIED = 2;
@@ -141,78 +196,234 @@ public class ZAH_SleepRecord {
     public static final int ZAH_HYPNOGRAM_DEEP = 4;
     public static final int ZAH_HYPNOGRAM_LIGHT_TO_DEEP = 6;
 
+    // the column indexes of one cursor queried with ZAH_SLEEPREC_COLS or ZAH_SLEEPREC_EXTENDED_COLS (or from the replicated table);
+    // resolve this once per query and then pass it for every row, so no column names are looked up per row;
+    // any extended column not present in the cursor has an index of -1
+    public static class ColumnIndexes {
+        public int mID;
+        public int mCreated;
+        public int mUpdated;
+        public int mSleepEpisodeID;
+        public int mLocalizedStartOfNight;
+        public int mStartOfNight;
+        public int mEndOfNight;
+        public int mTimezone;
+        public int mEndReason;
+        public int mHeadbandID;
+        public int mAwakenings;
+        public int mTime_Deep;
+        public int mTime_Light;
+        public int mTime_REM;
+        public int mTime_Awake;
+        public int mTime_to_Z;
+        public int mTime_Total_Z;
+        public int mZQ_Score;
+        public int mSource;
+        public int mDisplay_Hypnogram_Count;
+        public int mBase_Hypnogram_Count;
+        public int mDisplay_Hypnogram;
+        public int mBase_Hypnogram;
+
+        public boolean mHasExtended;
+        public int mUploaded;
+        public int mClockOffset;
+        public int mHidden;
+        public int mDeepSum;
+        public int mDisplayHypnogramStartTime;
+        public int mInsufficientData;
+        public int mInsufficientDataStartTime;
+        public int mLightChangedToDeep;
+        public int mSleepValid;
+        public int mStartOfNightMyZeo;
+        public int mStartOfNightOrig;
+        public int mValid;
+        public int mValidForHistory;
+        public int mVoltageBattery;
+
+        public ColumnIndexes(Cursor cursor) {
+            mID = cursor.getColumnIndex(ZeoDataContract.SleepRecord._ID);
+            mCreated = cursor.getColumnIndex(ZeoDataContract.SleepRecord.CREATED_ON);
+            mUpdated = cursor.getColumnIndex(ZeoDataContract.SleepRecord.UPDATED_ON);
+            mSleepEpisodeID = cursor.getColumnIndex(ZeoDataContract.SleepRecord.SLEEP_EPISODE_ID);
+            mLocalizedStartOfNight = cursor.getColumnIndex(ZeoDataContract.SleepRecord.LOCALIZED_START_OF_NIGHT);
+            mStartOfNight = cursor.getColumnIndex(ZeoDataContract.SleepRecord.START_OF_NIGHT);
+            mEndOfNight = cursor.getColumnIndex(ZeoDataContract.SleepRecord.END_OF_NIGHT);
+            mTimezone = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIMEZONE);
+            mEndReason = cursor.getColumnIndex(ZeoDataContract.SleepRecord.END_REASON);
+            mHeadbandID = cursor.getColumnIndex(ZeoDataContract.SleepRecord.HEADBAND_ID);
+            mAwakenings = cursor.getColumnIndex(ZeoDataContract.SleepRecord.AWAKENINGS);
+            mTime_Deep = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_DEEP);
+            mTime_Light = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_LIGHT);
+            mTime_REM = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_REM);
+            mTime_Awake = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_WAKE);
+            mTime_to_Z = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_TO_Z);
+            mTime_Total_Z = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TOTAL_Z);
+            mZQ_Score = cursor.getColumnIndex(ZeoDataContract.SleepRecord.ZQ_SCORE);
+            mSource = cursor.getColumnIndex(ZeoDataContract.SleepRecord.SOURCE);
+            mDisplay_Hypnogram_Count = cursor.getColumnIndex(ZeoDataContract.SleepRecord.DISPLAY_HYPNOGRAM_COUNT);
+            mBase_Hypnogram_Count = cursor.getColumnIndex(ZeoDataContract.SleepRecord.BASE_HYPNOGRAM_COUNT);
+            mDisplay_Hypnogram = cursor.getColumnIndex(ZeoDataContract.SleepRecord.DISPLAY_HYPNOGRAM);
+            mBase_Hypnogram = cursor.getColumnIndex(ZeoDataContract.SleepRecord.BASE_HYPNOGRAM);
+
+            // the following fields are accessible regardless of the ZeoDataContract
+            mUploaded = cursor.getColumnIndex(UPLOADED_ON);
+            mClockOffset = cursor.getColumnIndex(CLOCK_OFFSET);
+            mHidden = cursor.getColumnIndex(HIDDEN);
+            mDeepSum = cursor.getColumnIndex(DEEP_SUM);
+            mDisplayHypnogramStartTime = cursor.getColumnIndex(DISPLAY_HYPNOGRAM_STARTTIME);
+            mInsufficientData = cursor.getColumnIndex(INSUFFICIENT_DATA);
+            mInsufficientDataStartTime = cursor.getColumnIndex(INSUFFICIENT_DATA_STARTIME);
+            mLightChangedToDeep = cursor.getColumnIndex(LIGHT_CHANGED_TO_DEEP);
+            mSleepValid = cursor.getColumnIndex(SLEEP_VALID);
+            mStartOfNightMyZeo = cursor.getColumnIndex(START_OF_NIGHT_MYZEO);
+            mStartOfNightOrig = cursor.getColumnIndex(START_OF_NIGHT_ORIG);
+            mValid = cursor.getColumnIndex(VALID);
+            mValidForHistory = cursor.getColumnIndex(VALID_FOR_HISTORY);
+            mVoltageBattery = cursor.getColumnIndex(VOLTAGE_BATTERY);
+            mHasExtended = (mUploaded >= 0 || mClockOffset >= 0 || mHidden >= 0 || mDeepSum >= 0 || mDisplayHypnogramStartTime >= 0 ||
+                    mInsufficientData >= 0 || mInsufficientDataStartTime >= 0 || mLightChangedToDeep >= 0 || mSleepValid >= 0 ||
+                    mStartOfNightMyZeo >= 0 || mStartOfNightOrig >= 0 || mValid >= 0 || mValidForHistory >= 0 || mVoltageBattery >= 0);
+        }
+    }
+
     // constructor
     public ZAH_SleepRecord(Cursor cursor) {
-        mHasExtended = false;
-        rID = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord._ID));
-        rCreated_timestamp = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.CREATED_ON));
-        rUpdated_timestamp = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.UPDATED_ON));
-        rSleepEpisodeID = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.SLEEP_EPISODE_ID));
-        rLocalizedStartOfNight =cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.LOCALIZED_START_OF_NIGHT));
-        rStartOfNight = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.START_OF_NIGHT));
-        rEndOfNight = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.END_OF_NIGHT));
-        rTimezone = cursor.getString(cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIMEZONE));
-        rEndReason = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.END_REASON));
-        rHeadbandID = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.HEADBAND_ID));
-        rCountAwakenings = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.AWAKENINGS));
-        rTime_Deep_min = ((double)cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_DEEP))) / 2.0;
-        rTime_Light_min = ((double)cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_LIGHT))) / 2.0;
-        rTime_REM_min = ((double)cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_REM))) / 2.0;
-        rTime_Awake_min = ((double)cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_IN_WAKE))) / 2.0;
-        rTime_to_Z_min = ((double)cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.TIME_TO_Z))) / 2.0;
-        rTime_Total_Z_min = ((double)cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.TOTAL_Z))) / 2.0;
-        rZQ_Score = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.ZQ_SCORE));
-        rDataSource = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.SOURCE));
-        rDisplay_Hypnogram_Count = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.DISPLAY_HYPNOGRAM_COUNT));
-        rBase_Hypnogram_Count = cursor.getInt(cursor.getColumnIndex(ZeoDataContract.SleepRecord.BASE_HYPNOGRAM_COUNT));
-        rDisplay_Hypnogram = cursor.getBlob(cursor.getColumnIndex(ZeoDataContract.SleepRecord.DISPLAY_HYPNOGRAM));
-        rBase_Hypnogram = cursor.getBlob(cursor.getColumnIndex(ZeoDataContract.SleepRecord.BASE_HYPNOGRAM));
+        fill(cursor, new ColumnIndexes(cursor));
+    }
+
+    // constructor for bulk reads; the column indexes are pre-resolved by the caller once for the entire cursor
+    public ZAH_SleepRecord(Cursor cursor, ColumnIndexes cols) {
+        fill(cursor, cols);
+    }
+
+    // empty constructor; used as a re-usable flyweight via fill()
+    public ZAH_SleepRecord() {}
+
+    // (re-)populate this record from the cursor's current row; every field is overwritten so a single instance can be re-used
+    // across all the rows of a scan; note the hypnogram arrays are always freshly obtained from the cursor
+    public void fill(Cursor cursor, ColumnIndexes cols) {
+        mHasExtended = cols.mHasExtended;
+        mIsSummaryOnly = false;
+        rID = cursor.getInt(cols.mID);
+        rCreated_timestamp = cursor.getLong(cols.mCreated);
+        rUpdated_timestamp = cursor.getLong(cols.mUpdated);
+        rSleepEpisodeID = cursor.getLong(cols.mSleepEpisodeID);
+        rLocalizedStartOfNight = cursor.getLong(cols.mLocalizedStartOfNight);
+        rStartOfNight = cursor.getLong(cols.mStartOfNight);
+        rEndOfNight = cursor.getLong(cols.mEndOfNight);
+        rTimezone = cursor.getString(cols.mTimezone);
+        rEndReason = cursor.getInt(cols.mEndReason);
+        rHeadbandID = cursor.getLong(cols.mHeadbandID);
+        rCountAwakenings = cursor.getInt(cols.mAwakenings);
+        rTime_Deep_min = ((double)cursor.getInt(cols.mTime_Deep)) / 2.0;
+        rTime_Light_min = ((double)cursor.getInt(cols.mTime_Light)) / 2.0;
+        rTime_REM_min = ((double)cursor.getInt(cols.mTime_REM)) / 2.0;
+        rTime_Awake_min = ((double)cursor.getInt(cols.mTime_Awake)) / 2.0;
+        rTime_to_Z_min = ((double)cursor.getInt(cols.mTime_to_Z)) / 2.0;
+        rTime_Total_Z_min = ((double)cursor.getInt(cols.mTime_Total_Z)) / 2.0;
+        rZQ_Score = cursor.getInt(cols.mZQ_Score);
+        rDataSource = cursor.getInt(cols.mSource);
+        rDisplay_Hypnogram_Count = cursor.getInt(cols.mDisplay_Hypnogram_Count);
+        rBase_Hypnogram_Count = cursor.getInt(cols.mBase_Hypnogram_Count);
+        rDisplay_Hypnogram = cursor.getBlob(cols.mDisplay_Hypnogram);
+        rBase_Hypnogram = cursor.getBlob(cols.mBase_Hypnogram);
 
         // the following fields are accessible regardless of the ZeoDataContract
-        int i = cursor.getColumnIndex(UPLOADED_ON);
-        if (i >= 0) { rUploaded_timestamp = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mUploaded >= 0) { rUploaded_timestamp = cursor.getLong(cols.mUploaded); }
         else { rUploaded_timestamp = -1; }
-        i = cursor.getColumnIndex(CLOCK_OFFSET);
-        if (i >= 0) { rClockOffset = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mClockOffset >= 0) { rClockOffset = cursor.getInt(cols.mClockOffset); }
         else { rClockOffset = 0; }
-        i = cursor.getColumnIndex(HIDDEN);
-        if (i >= 0) { rHidden = (cursor.getInt(i) != 0); mHasExtended = true; }
+        if (cols.mHidden >= 0) { rHidden = (cursor.getInt(cols.mHidden) != 0); }
         else { rHidden = false; }
-        i = cursor.getColumnIndex(DEEP_SUM);
-        if (i >= 0) { rDeepSum = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mDeepSum >= 0) { rDeepSum = cursor.getLong(cols.mDeepSum); }
         else { rDeepSum = 0L; }
-        i = cursor.getColumnIndex(DISPLAY_HYPNOGRAM_STARTTIME);
-        if (i >= 0) { rDisplayHypnogramStartTime = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mDisplayHypnogramStartTime >= 0) { rDisplayHypnogramStartTime = cursor.getLong(cols.mDisplayHypnogramStartTime); }
         else { rDisplayHypnogramStartTime = 0L; }
-        i = cursor.getColumnIndex(INSUFFICIENT_DATA);
-        if (i >= 0) { rInsufficientData = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mInsufficientData >= 0) { rInsufficientData = cursor.getInt(cols.mInsufficientData); }
         else { rInsufficientData = 0; }
-        i = cursor.getColumnIndex(INSUFFICIENT_DATA_STARTIME);
-        if (i >= 0) { rInsufficientDataStartTime = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mInsufficientDataStartTime >= 0) { rInsufficientDataStartTime = cursor.getLong(cols.mInsufficientDataStartTime); }
         else { rInsufficientDataStartTime = 0L; }
-        i = cursor.getColumnIndex(LIGHT_CHANGED_TO_DEEP);
-        if (i >= 0) { rLightChangedToDeep_min = ((double)cursor.getInt(i)) / 2.0; mHasExtended = true; }
+        if (cols.mLightChangedToDeep >= 0) { rLightChangedToDeep_min = ((double)cursor.getInt(cols.mLightChangedToDeep)) / 2.0; }
         else { rLightChangedToDeep_min = 0.0; }
-        i = cursor.getColumnIndex(SLEEP_VALID);
-        if (i >= 0) { rSleepValid = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mSleepValid >= 0) { rSleepValid = cursor.getInt(cols.mSleepValid); }
         else { rSleepValid = 0; }
-        i = cursor.getColumnIndex(START_OF_NIGHT_MYZEO);
-        if (i >= 0) { rStartOfNightMyZeo = cursor.getLong(i) * 1000L; mHasExtended = true; }
+        if (cols.mStartOfNightMyZeo >= 0) { rStartOfNightMyZeo = cursor.getLong(cols.mStartOfNightMyZeo) * 1000L; }
         else { rStartOfNightMyZeo = 0L; }
-        i = cursor.getColumnIndex(START_OF_NIGHT_ORIG);
-        if (i >= 0) { rStartOfNightOrig = cursor.getLong(i); mHasExtended = true; }
+        if (cols.mStartOfNightOrig >= 0) { rStartOfNightOrig = cursor.getLong(cols.mStartOfNightOrig); }
         else { rStartOfNightOrig = 0L; }
-        i = cursor.getColumnIndex(VALID);
-        if (i >= 0) { rValid = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mValid >= 0) { rValid = cursor.getInt(cols.mValid); }
         else { rValid = 0; }
-        i = cursor.getColumnIndex(VALID_FOR_HISTORY);
-        if (i >= 0) { rValidForHistory = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mValidForHistory >= 0) { rValidForHistory = cursor.getInt(cols.mValidForHistory); }
         else { rValidForHistory = 0; }
-        i = cursor.getColumnIndex(VOLTAGE_BATTERY);
-        if (i >= 0) { rVoltageBattery = cursor.getInt(i); mHasExtended = true; }
+        if (cols.mVoltageBattery >= 0) { rVoltageBattery = cursor.getInt(cols.mVoltageBattery); }
         else { rVoltageBattery = 0; }
     }
 
+    // summary-only constructor for a cursor queried with ZAH_SLEEPREC_SUMMARY_COLS; the column indexes are pre-resolved by the caller
+    public ZAH_SleepRecord(Cursor cursor, SummaryColumnIndexes cols) {
+        mHasExtended = false;
+        mIsSummaryOnly = true;
+        rID = cursor.getInt(cols.mID);
+        rUpdated_timestamp = cursor.getLong(cols.mUpdated);
+        rSleepEpisodeID = cursor.getLong(cols.mSleepEpisodeID);
+        rStartOfNight = cursor.getLong(cols.mStartOfNight);
+        rEndOfNight = cursor.getLong(cols.mEndOfNight);
+        rEndReason = cursor.getInt(cols.mEndReason);
+        rCountAwakenings = cursor.getInt(cols.mAwakenings);
+        rTime_Deep_min = ((double)cursor.getInt(cols.mTime_Deep)) / 2.0;
+        rTime_Light_min = ((double)cursor.getInt(cols.mTime_Light)) / 2.0;
+        rTime_REM_min = ((double)cursor.getInt(cols.mTime_REM)) / 2.0;
+        rTime_Awake_min = ((double)cursor.getInt(cols.mTime_Awake)) / 2.0;
+        rTime_to_Z_min = ((double)cursor.getInt(cols.mTime_to_Z)) / 2.0;
+        rTime_Total_Z_min = ((double)cursor.getInt(cols.mTime_Total_Z)) / 2.0;
+        rZQ_Score = cursor.getInt(cols.mZQ_Score);
+    }
+
+    // copy constructor; the hypnogram arrays are duplicated so that nothing the receiver does to them can reach the source record;
+    // used by the history cache to hand out records that the receiver is free to destroy()
+    public ZAH_SleepRecord(ZAH_SleepRecord source) {
+        rID = source.rID;
+        rCreated_timestamp = source.rCreated_timestamp;
+        rUpdated_timestamp = source.rUpdated_timestamp;
+        rSleepEpisodeID = source.rSleepEpisodeID;
+        rLocalizedStartOfNight = source.rLocalizedStartOfNight;
+        rStartOfNight = source.rStartOfNight;
+        rEndOfNight = source.rEndOfNight;
+        rTimezone = source.rTimezone;
+        rEndReason = source.rEndReason;
+        rHeadbandID = source.rHeadbandID;
+        rCountAwakenings = source.rCountAwakenings;
+        rTime_Deep_min = source.rTime_Deep_min;
+        rTime_Light_min = source.rTime_Light_min;
+        rTime_REM_min = source.rTime_REM_min;
+        rTime_Awake_min = source.rTime_Awake_min;
+        rTime_to_Z_min = source.rTime_to_Z_min;
+        rTime_Total_Z_min = source.rTime_Total_Z_min;
+        rZQ_Score = source.rZQ_Score;
+        rDataSource = source.rDataSource;
+        rDisplay_Hypnogram_Count = source.rDisplay_Hypnogram_Count;
+        rBase_Hypnogram_Count = source.rBase_Hypnogram_Count;
+        if (source.rDisplay_Hypnogram != null) { rDisplay_Hypnogram = source.rDisplay_Hypnogram.clone(); }
+        if (source.rBase_Hypnogram != null) { rBase_Hypnogram = source.rBase_Hypnogram.clone(); }
+
+        mHasExtended = source.mHasExtended;
+        mIsSummaryOnly = source.mIsSummaryOnly;
+        rUploaded_timestamp = source.rUploaded_timestamp;
+        rClockOffset = source.rClockOffset;
+        rHidden = source.rHidden;
+        rDeepSum = source.rDeepSum;
+        rDisplayHypnogramStartTime = source.rDisplayHypnogramStartTime;
+        rInsufficientData = source.rInsufficientData;
+        rInsufficientDataStartTime = source.rInsufficientDataStartTime;
+        rLightChangedToDeep_min = source.rLightChangedToDeep_min;
+        rSleepValid = source.rSleepValid;
+        rStartOfNightMyZeo = source.rStartOfNightMyZeo;
+        rStartOfNightOrig = source.rStartOfNightOrig;
+        rValid = source.rValid;
+        rValidForHistory = source.rValidForHistory;
+        rVoltageBattery = source.rVoltageBattery;
+    }
+
     // destructor to assist garbage collection when held in large multi-nested ListArrays
     public void destroy() {
         rTimezone = null;
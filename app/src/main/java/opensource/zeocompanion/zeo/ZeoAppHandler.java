@@ -5,6 +5,7 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.net.Uri;
@@ -16,6 +17,13 @@ import android.support.v4.content.ContextCompat;
 import android.util.Log;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.myzeo.android.api.data.ZeoDataContract;
 import com.myzeo.android.api.data.ZeoDataContract.Headband;
@@ -31,6 +39,7 @@ public class ZeoAppHandler {
     // member variables
     public String mZeoApp_Prior_5min_Stages = "";
     public String mZeoApp_Latest_5min_Stages = "";
+    public final LiveHypnogram mLiveHypnogram = new LiveHypnogram();
     public int mZeoApp_Prior_State = ZAH_ZEOAPP_STATE_UNKNOWN;
     public int mZeoApp_State = ZAH_ZEOAPP_STATE_UNKNOWN;
     public long mZeoApp_State_timestamp = 0L;
@@ -46,12 +55,26 @@ public class ZeoAppHandler {
     private boolean mAtNonJournal = false;
     private long mZeoAppProbeDelayMS = DEFAULT_ZEOAPP_PROBE_DELAY_MS;
     private long mCurrProbeRunnableIndex = 0L;
+    private volatile ZeoAppObserver mZeoAppObserver = null;     // non-null while registered upon the Zeo App's provider
+    private volatile boolean mObserverDelivers = false;         // the Zeo App's provider has been seen to send change notifications
+    private long mObserverNotifyCnt_lastProbe = 0L;             // mObserverNotifyCnt as of the prior probe
+    private boolean mObserverProbePending = false;
+    public long mProbeCnt_total = 0L;                   // probe statistics; all are only altered upon the main thread
+    public long mProbeCnt_timer = 0L;
+    public long mProbeCnt_observer = 0L;
+    public long mObserverNotifyCnt = 0L;
+    public long mProbeLatency_total_ns = 0L;
+    public long mProbeLatency_max_ns = 0L;
+    public long mProbeStats_start_timestamp = System.currentTimeMillis();
     private long mTypicalSleepDurationMin = 465L;
     private long mTimestampLastPollKnownSleepRecordID = 0L;
     private ArrayList<ZAH_Listener> mListeners = null;
     private Uri mBaseContentURI = null;
     private Uri mHeadbandsContentURI = null;
     private Uri mSleepRecordsContentURI = null;
+    private ExecutorService mReplicationExecutor = null;    // non-null while a replication is in-progress; guarded by synchronized(this)
+    private AtomicBoolean mReplicationCancelled = null;     // cancellation flag of the in-progress replication; guarded by synchronized(this)
+    private ArrayList<Runnable> mReplicationStoppedRunnables = null;   // posted to the main thread once a cancelled replication has stopped; guarded by synchronized(this)
 
     // member constants and other static content
     private static final String _CTAG = "ZAH";
@@ -59,6 +82,14 @@ public class ZeoAppHandler {
     public static final Uri SIM_BASE_CONTENT_URI = Uri.parse("content://" + SIM_CONTENT_AUTHORITY);
     private static final long DEFAULT_ZEOAPP_PROBE_DELAY_MS = 14000L;    // 15 seconds less the 1 second that will get auto-added before the delay call
     private static final long QUICK_ZEOAPP_PROBE_DELAY_MS = 4000L;    // 5 seconds less the 1 second that will get auto-added before the delay call
+    private static final long MAX_ZEOAPP_PROBE_DELAY_MS = 3600000L;    // one hour
+    private static final long OBSERVED_PROBE_BACKOFF_FACTOR = 4L;      // fallback polls are this much rarer once the Zeo App's provider is known to send change notifications
+    private static final long OBSERVER_COALESCE_MS = 1000L;            // a burst of change notifications results in only one probe
+    private static final int PROBE_TRIGGER_TIMER = 0;
+    private static final int PROBE_TRIGGER_OBSERVER = 1;
+    private static final long ZEO_FULL_RECONCILE_INTERVAL_MS = 604800000L;  // 7 days; between these only new or updated Zeo App records are queried
+    private static final int REPLICATION_THREADS = 3;  // Zeo App tables that may be concurrently read; the writes are always serialized
+    private static final long REPLICATION_MAX_RUN_MS = 1800000L;   // 30 minutes; a replication still running after this is cancelled
 
     public static final int ZAH_ERROR_NONE = 0;
     public static final int ZAH_ERROR_NOT_INSTALLED = 1;
@@ -105,7 +136,8 @@ public class ZeoAppHandler {
     // Tread Context: Probe Thread
     // internal Runnable "timer" to periodically check whether the ZeoApp's state has changed;
     // this runs in the main thread via the messaging stack; however the flag mContinueZeoAppProbing can be set by
-    // any external Utility or Activity even separate threads, so need to constantly re-check the state of the flag
+    // any external Utility or Activity even separate threads, so need to constantly re-check the state of the flag;
+    // once the Zeo App's provider is seen to send change notifications this becomes only a much rarer fallback
     private class ProbeRunnable implements Runnable {
         private long mIndex = 0;
         private ProbeRunnable(long index) {
@@ -113,21 +145,49 @@ public class ZeoAppHandler {
         }
         @Override
         public void run() {
-            if (!mContinueZeoAppProbing_foreground && mContinueZeoAppProbing_broadcast == 0) { return; }    // need to immediately stop probing?
+            if (!mContinueZeoAppProbing_foreground && mContinueZeoAppProbing_broadcast == 0) { stopObserving(); return; }    // need to immediately stop probing?
             if (mIndex < mCurrProbeRunnableIndex) { return; }   // has a new probe superseded this one?
 
-            // detect a change if any
-            boolean changed = probeAppState();
-
-            // send this message to the main thread for further dissemination to any listeners
-            Message msg1 = new Message();
-            if (changed) { msg1.what = ZeoCompanionApplication.MESSAGE_ZAH_ZEO_STATE_CHANGED; }
-            else { msg1.what = ZeoCompanionApplication.MESSAGE_ZAH_ZEO_PROBED_NO_CHANGE; }
-            mZeoAppMonitorHandler.sendMessage(msg1);
+            // detect a change if any, and inform the listeners
+            probeAndNotify(PROBE_TRIGGER_TIMER);
 
             // schedule the next probe unless probing is to end
             determineNextProbeDelay();
-            if (mContinueZeoAppProbing_foreground || mContinueZeoAppProbing_broadcast > 0) { mZeoAppMonitorHandler.postDelayed(this, mZeoAppProbeDelayMS); }
+            if (mContinueZeoAppProbing_foreground || mContinueZeoAppProbing_broadcast > 0) { mZeoAppMonitorHandler.postDelayed(this, getFallbackProbeDelay()); }
+            else { stopObserving(); }
+        }
+    };
+
+    // Tread Context: Main Thread
+    // observer of the Zeo App's headband and sleep record tables; a change notification triggers a probe (after coalescing any burst of them),
+    // and then restarts the fallback polling interval from that probe
+    private class ZeoAppObserver extends ContentObserver {
+        private ZeoAppObserver() {
+            super(mZeoAppMonitorHandler);
+        }
+        @Override
+        public void onChange(boolean selfChange) {
+            mObserverNotifyCnt++;
+            mObserverDelivers = true;
+            informZeoAppChanged();
+            if (mObserverProbePending) { return; }
+            mObserverProbePending = true;
+            mZeoAppMonitorHandler.postDelayed(mObserverProbeRunnable, OBSERVER_COALESCE_MS);
+        }
+    }
+
+    // Tread Context: Main Thread
+    // the coalesced probe after Zeo App provider change notification(s)
+    private Runnable mObserverProbeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mObserverProbePending = false;
+            if (!mContinueZeoAppProbing_foreground && mContinueZeoAppProbing_broadcast == 0) { return; }
+            probeAndNotify(PROBE_TRIGGER_OBSERVER);
+
+            // the fallback poll is now measured from this probe
+            mCurrProbeRunnableIndex++;
+            mZeoAppMonitorHandler.postDelayed(new ProbeRunnable(mCurrProbeRunnableIndex), getFallbackProbeDelay());
         }
     };
 
@@ -245,8 +305,10 @@ public class ZeoAppHandler {
         if (cursor1 != null) {
             if (cursor1.moveToFirst()) {
                 mZeoApp_State = ZAH_ZEOAPP_STATE_IDLE;
+                ZAH_HeadbandRecord.ColumnIndexes cols1 = new ZAH_HeadbandRecord.ColumnIndexes(cursor1);
+                ZAH_HeadbandRecord rec = new ZAH_HeadbandRecord();    // flyweight re-filled for each row
                 do {
-                    ZAH_HeadbandRecord rec = new ZAH_HeadbandRecord(cursor1);
+                    rec.fill(cursor1, cols1);
                     if (rec.rBonded_to_device && rec.rConnected_to_device) {
                         mZeoApp_State = rec.rAlgorithm_mode;
                         mZeoHeadband_battery_lastProbed = rec.rVoltage;
@@ -269,8 +331,10 @@ public class ZeoAppHandler {
                     sort);  // sort order
             if (cursor2 != null) {
                 if (cursor2.moveToFirst()) {
+                    ZAH_SleepRecord.ColumnIndexes cols2 = new ZAH_SleepRecord.ColumnIndexes(cursor2);
+                    ZAH_SleepRecord rec = new ZAH_SleepRecord();    // flyweight re-filled for each row
                     do {
-                        ZAH_SleepRecord rec = new ZAH_SleepRecord(cursor2);
+                        rec.fill(cursor2, cols2);
                         if (rec.rEndReason  == ZAH_SleepRecord.ZAH_ENDREASON_STILL_ACTIVE) {
                             mZeoApp_active_SleepEpisode_ID = rec.rSleepEpisodeID;
                             break;
@@ -393,6 +457,7 @@ public class ZeoAppHandler {
         if (mContinueZeoAppProbing_foreground) { return; } // already enabled
 
         mContinueZeoAppProbing_foreground = true;
+        startObserving();
         mCurrProbeRunnableIndex++;
         mZeoAppMonitorHandler.post(new ProbeRunnable(mCurrProbeRunnableIndex));
         //Log.d(_CTAG+".probeActivate","Allocated new ProbeRunnable #"+mCurrProbeRunnableIndex);
@@ -400,7 +465,65 @@ public class ZeoAppHandler {
 
     // MainActivity is indicating to stop probing; likely the App is being sent to the background or to one of the App's child Activities
     public void terminateProbing() {
+        if (mContinueZeoAppProbing_foreground) { Log.i(_CTAG+".terminateProbing", getProbeStatsString()); }
         mContinueZeoAppProbing_foreground = false;
+        if (mContinueZeoAppProbing_broadcast == 0) { stopObserving(); }
+    }
+
+    // start observing the Zeo App's provider for changes; any failure just leaves the fallback polling in-place
+    private void startObserving() {
+        if (mZeoAppObserver != null) { return; }
+        ZeoAppObserver observer = new ZeoAppObserver();
+        try {
+            mContext.getContentResolver().registerContentObserver(mHeadbandsContentURI, true, observer);
+            mContext.getContentResolver().registerContentObserver(mSleepRecordsContentURI, true, observer);
+        } catch (SecurityException e) {
+            mContext.getContentResolver().unregisterContentObserver(observer);
+            Log.w(_CTAG+".startObserving", "Cannot observe the ZeoApp; will only poll: "+e.toString());
+            return;
+        }
+        mZeoAppObserver = observer;
+        informZeoAppChanged();  // any changes while not observing were missed
+    }
+
+    // stop observing the Zeo App's provider
+    private void stopObserving() {
+        if (mZeoAppObserver == null) { return; }
+        mContext.getContentResolver().unregisterContentObserver(mZeoAppObserver);
+        mZeoAppObserver = null;
+        mZeoAppMonitorHandler.removeCallbacks(mObserverProbeRunnable);
+        mObserverProbePending = false;
+    }
+
+    // the delay until the next fallback poll; rapid polling around state transitions and after broadcasts is kept regardless,
+    // but otherwise polling is made much rarer if the Zeo App's provider is known to notify of its changes
+    private long getFallbackProbeDelay() {
+        if (mZeoAppObserver == null || !mObserverDelivers || mContinueZeoAppProbing_broadcast > 0 ||
+                mZeoApp_State == ZAH_ZEOAPP_STATE_STARTING || mZeoApp_State == ZAH_ZEOAPP_STATE_ENDING) {
+            return mZeoAppProbeDelayMS;
+        }
+        return Math.min(mZeoAppProbeDelayMS * OBSERVED_PROBE_BACKOFF_FACTOR, MAX_ZEOAPP_PROBE_DELAY_MS);
+    }
+
+    // probe and then send the outcome to the main thread for further dissemination to any listeners
+    private void probeAndNotify(int trigger) {
+        if (trigger == PROBE_TRIGGER_OBSERVER) { mProbeCnt_observer++; }
+        else { mProbeCnt_timer++; }
+        boolean changed = probeAppState();
+        Message msg1 = new Message();
+        if (changed) { msg1.what = ZeoCompanionApplication.MESSAGE_ZAH_ZEO_STATE_CHANGED; }
+        else { msg1.what = ZeoCompanionApplication.MESSAGE_ZAH_ZEO_PROBED_NO_CHANGE; }
+        mZeoAppMonitorHandler.sendMessage(msg1);
+    }
+
+    // summary of the probing statistics since startup
+    public String getProbeStatsString() {
+        long probes = mProbeCnt_total;
+        long avg_us = 0L;
+        if (probes > 0) { avg_us = mProbeLatency_total_ns / probes / 1000L; }
+        long hours = (System.currentTimeMillis() - mProbeStats_start_timestamp) / 3600000L;
+        return "ZeoApp probes over " + hours + " hrs: " + probes + " (timer=" + mProbeCnt_timer + ", observer=" + mProbeCnt_observer + ", other=" + (probes - mProbeCnt_timer - mProbeCnt_observer) +
+                "); change notifications=" + mObserverNotifyCnt + "; latency avg=" + avg_us + " us, max=" + (mProbeLatency_max_ns / 1000L) + " us; observing=" + (mZeoAppObserver != null);
     }
 
     // MainActivity or JDC is indicating human interaction with the Sleep Journal tabs
@@ -409,6 +532,7 @@ public class ZeoAppHandler {
         long wasDelay = mZeoAppProbeDelayMS;
         mZeoAppProbeDelayMS = DEFAULT_ZEOAPP_PROBE_DELAY_MS;
         if (wasDelay > 30000L) {
+            startObserving();
             mCurrProbeRunnableIndex++;
             mZeoAppMonitorHandler.post(new ProbeRunnable(mCurrProbeRunnableIndex));
             //Log.d(_CTAG+".probeJT","Allocated new ProbeRunnable #"+mCurrProbeRunnableIndex);
@@ -421,6 +545,7 @@ public class ZeoAppHandler {
         long wasDelay = mZeoAppProbeDelayMS;
         mZeoAppProbeDelayMS = DEFAULT_ZEOAPP_PROBE_DELAY_MS * 2;
         if (wasDelay > 60000L) {
+            startObserving();
             mCurrProbeRunnableIndex++;
             mZeoAppMonitorHandler.post(new ProbeRunnable(mCurrProbeRunnableIndex));
             //Log.d(_CTAG+".probeNJT","Allocated new ProbeRunnable #"+mCurrProbeRunnableIndex);
@@ -472,7 +597,7 @@ public class ZeoAppHandler {
                 if (mContinueZeoAppProbing_broadcast > 0) { mContinueZeoAppProbing_broadcast--; }
                 if (mContinueZeoAppProbing_broadcast > 0) {
                     mZeoAppProbeDelayMS = QUICK_ZEOAPP_PROBE_DELAY_MS;              // 5 second polling
-                } else if (mZeoAppProbeDelayMS < 3600000L) {                // maximum one hour per poll
+                } else if (mZeoAppProbeDelayMS < MAX_ZEOAPP_PROBE_DELAY_MS) {       // maximum one hour per poll
                     mZeoAppProbeDelayMS = mZeoAppProbeDelayMS + 900000L;            // add 15 minutes each poll
                 }
                 break;
@@ -492,6 +617,7 @@ public class ZeoAppHandler {
                 // headband has just been undocked from the charger; Zeo App should be changing to Starting very soon if not already
                 mContinueZeoAppProbing_broadcast = 60;  // probe quickly for five minutes since shift to Recording state can take some time
                 mZeoAppProbeDelayMS = QUICK_ZEOAPP_PROBE_DELAY_MS;
+                startObserving();
                 mCurrProbeRunnableIndex++;
                 mZeoAppMonitorHandler.post(new ProbeRunnable(mCurrProbeRunnableIndex));
             }
@@ -500,6 +626,7 @@ public class ZeoAppHandler {
                 // headband has just been docked into the charger; Zeo App should be changing to Ending very soon if not already
                 mContinueZeoAppProbing_broadcast = 24;  // probe quickly for two minutes for Ending and Idle states
                 mZeoAppProbeDelayMS = QUICK_ZEOAPP_PROBE_DELAY_MS;
+                startObserving();
                 mCurrProbeRunnableIndex++;
                 mZeoAppMonitorHandler.post(new ProbeRunnable(mCurrProbeRunnableIndex));
             }
@@ -514,11 +641,36 @@ public class ZeoAppHandler {
         }
     }
 
-    // probe the Zeo App's state and detect changes;
+    // probe the Zeo App's state and detect changes, accumulating the probe statistics;
     // returns true if the ZeoApp's state has changed;
     // polling will not occur if the ZeoCompanion App is in the background except for triggers from the Zeo App's broadcasts;
     // polling does not occur at all if the Sleep Journal is disabled
     public boolean probeAppState() {
+        long start_ns = System.nanoTime();
+        long notifyCnt = mObserverNotifyCnt;
+        boolean theReturn = probeAppState_internal();
+        long elapsed_ns = System.nanoTime() - start_ns;
+        mProbeCnt_total++;
+        mProbeLatency_total_ns = mProbeLatency_total_ns + elapsed_ns;
+        if (elapsed_ns > mProbeLatency_max_ns) { mProbeLatency_max_ns = elapsed_ns; }
+
+        // the history cache only re-reads the Zeo App's sleep records once a probe has seen a state change or a change notification
+        if (theReturn || notifyCnt != mObserverNotifyCnt_lastProbe) { informZeoAppChanged(); }
+        mObserverNotifyCnt_lastProbe = notifyCnt;
+        return theReturn;
+    }
+
+    // can the Zeo App's changes currently be tracked by its change notifications; if not the history cache must check the Zeo App itself upon each use
+    // Thread context: any
+    public boolean isTrackingChanges() {
+        return (mZeoAppObserver != null && mObserverDelivers);
+    }
+
+    private void informZeoAppChanged() {
+        if (ZeoCompanionApplication.mCoordinator != null) { ZeoCompanionApplication.mCoordinator.informZeoAppChanged(); }
+    }
+
+    private boolean probeAppState_internal() {
         boolean theReturn = false;
         Log.d(_CTAG+".probeAppState", "-->Probing the ZeoApp");
         mZeoApp_Prior_State = mZeoApp_State;
@@ -527,25 +679,28 @@ public class ZeoAppHandler {
 
         // first obtain the active headband record (it must be paired and connected); that record contains the ZeoApp's current state;
         // there may be more than one Zeo Headband record if the App has been paired with other headbands in the past
+        // only the few needed columns are fetched, and read directly rather than constructing a full ZAH_HeadbandRecord per row
         final Cursor cursor1 = mContext.getContentResolver().query(
                 mHeadbandsContentURI,   // data manager, database and table name
-                ZAH_HeadbandRecord.ZAH_HEADBANDREC_EXTENDED_COLS,    // columns
+                ZAH_HeadbandRecord.ZAH_HEADBANDREC_PROBE_COLS,    // columns
                 null,   // where clause
                 null,   // values
                 null);  // sort order
         if (cursor1 != null) {
             if (cursor1.moveToFirst()) {
-                ZAH_HeadbandRecord hRec = null;
+                int iMode = cursor1.getColumnIndex(Headband.ALGORITHM_MODE);
+                int iBonded = cursor1.getColumnIndex(Headband.BONDED);
+                int iConnected = cursor1.getColumnIndex(Headband.CONNECTED);
+                int iDocked = cursor1.getColumnIndex(Headband.DOCKED);
+                int iVoltage = cursor1.getColumnIndex(ZAH_HeadbandRecord.VOLTAGE);
                 newState = ZAH_ZEOAPP_STATE_IDLE;
                 do {
-                    hRec = new ZAH_HeadbandRecord(cursor1);
-                    if (hRec.rBonded_to_device && hRec.rConnected_to_device) {
-                        newState = hRec.rAlgorithm_mode;
-                        if (hRec.rDocked) { newState = ZAH_ZEOAPP_STATE_IDLE; }  // sometimes the headband gets stuck on Ending state even when its on the charger
-                        mZeoHeadband_battery_lastProbed = hRec.rVoltage;
+                    if (cursor1.getInt(iBonded) != 0 && cursor1.getInt(iConnected) != 0) {
+                        newState = cursor1.getInt(iMode);
+                        if (cursor1.getInt(iDocked) != 0) { newState = ZAH_ZEOAPP_STATE_IDLE; }  // sometimes the headband gets stuck on Ending state even when its on the charger
+                        if (iVoltage >= 0) { mZeoHeadband_battery_lastProbed = cursor1.getInt(iVoltage); }
                         break;
                     }
-                    hRec = null;  // help with garbage collection
                 } while (cursor1.moveToNext());
             } else { Log.e(_CTAG + ".probeAppState", "The ZeoApp Headband Table is empty"); }
             cursor1.close();
@@ -607,8 +762,9 @@ public class ZeoAppHandler {
                         sort);  // sort order
                 if (cursor2 != null) {
                     if (cursor2.moveToFirst()) {
+                        ZAH_SleepRecord.ColumnIndexes cols2 = new ZAH_SleepRecord.ColumnIndexes(cursor2);
                         do {
-                            ZAH_SleepRecord zRec = new ZAH_SleepRecord(cursor2);
+                            ZAH_SleepRecord zRec = new ZAH_SleepRecord(cursor2, cols2);
                             if (mZeoApp_active_SleepEpisode_ID == 0) {
                                 // sleep record is unknown; found a potentially active one
                                 if (zRec.rEndReason  == ZAH_SleepRecord.ZAH_ENDREASON_STILL_ACTIVE &&
@@ -671,8 +827,10 @@ public class ZeoAppHandler {
         return theReturn;
     }
 
-    // get the last 5 minutes of sleep stages from the sleep record and broadcast changes
+    // get the last 5 minutes of sleep stages from the sleep record and broadcast changes; also feed the live hypnogram
     private void getLast5Min(ZAH_SleepRecord zRec) {
+        mLiveHypnogram.updateFromPolledRecord(zRec.rSleepEpisodeID, zRec.rStartOfNight, zRec.rBase_Hypnogram);
+
         // extract the last 5 minutes of sleep stages (will be 10 entries as each entry is 30 seconds)
         mZeoApp_Prior_5min_Stages = mZeoApp_Latest_5min_Stages;
         mZeoApp_Latest_5min_Stages = "";
@@ -708,25 +866,24 @@ public class ZeoAppHandler {
         if (cursor == null) { return null; }
         if (!cursor.moveToFirst()) { cursor.close(); return null; }
 
-        // first pass; get the connected headband
-        ZAH_HeadbandRecord rec = null;
+        // first pass; get the connected headband; a single record is re-filled for each row and only returned once chosen
+        ZAH_HeadbandRecord.ColumnIndexes cols = new ZAH_HeadbandRecord.ColumnIndexes(cursor);
+        ZAH_HeadbandRecord rec = new ZAH_HeadbandRecord();
         do {
-            rec = new ZAH_HeadbandRecord(cursor);
+            rec.fill(cursor, cols);
             if (rec.rBonded_to_device && rec.rConnected_to_device) { cursor.close(); return rec; }
-            rec = null;  // help with garbage collection
         } while (cursor.moveToNext());
 
         // second pass; get the first bonded/paired headband found in the DB
         cursor.moveToFirst();
         do {
-            rec = new ZAH_HeadbandRecord(cursor);
+            rec.fill(cursor, cols);
             if (rec.rBonded_to_device) { cursor.close(); return rec; }
-            rec = null;  // help with garbage collection
         } while (cursor.moveToNext());
 
         // otherwise just return the first record in the Zeo's DB
         cursor.moveToFirst();
-        rec = new ZAH_HeadbandRecord(cursor);
+        rec.fill(cursor, cols);
         cursor.close();
         return rec;
     }
@@ -844,6 +1001,73 @@ public class ZeoAppHandler {
         return cursor;
     }
 
+    // get the summary-only columns (ZAH_SLEEPREC_SUMMARY_COLS) of all the Zeo Sleep records within the Zeo App's database, sorted newest to oldest;
+    // the hypnogram BLOBs are not transferred; note this method DOES NOT draw from any replicate data in the ZeoCompanion database
+    public Cursor getAllSleepSummaryRecs() {
+        String sortOrder = ZeoDataContract.SleepRecord.START_OF_NIGHT + " DESC";
+        Cursor cursor = null;
+        try {
+            cursor = mContext.getContentResolver().query(
+                    mSleepRecordsContentURI,    // data manager, database and table name
+                    ZAH_SleepRecord.ZAH_SLEEPREC_SUMMARY_COLS,          // columns to get
+                    null,       // columns for optional WHERE clause
+                    null,         // values for optional WHERE clause
+                    sortOrder); // sort order
+        } catch (Exception e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".getAllSleepSummaryRecs", e);   // automatically posts a Log.e
+            if (cursor != null) { cursor.close(); cursor = null; }
+        }
+        return cursor;
+    }
+
+    // get only the ID and last-updated timestamp of all the Zeo Sleep records in the Zeo App's database, sorted the same as getAllSleepRecsAfterDate();
+    // this avoids transferring the hypnogram BLOBs across the content provider when only a change-check is needed;
+    // note this method DOES NOT draw from any replicate data in the ZeoCompanion database
+    public Cursor getAllSleepRecIDsAndUpdated() {
+        String sortOrder = ZeoDataContract.SleepRecord.START_OF_NIGHT + " DESC";
+        String[] cols = { ZeoDataContract.SleepRecord._ID, ZeoDataContract.SleepRecord.UPDATED_ON };
+        Cursor cursor = null;
+        try {
+            cursor = mContext.getContentResolver().query(
+                    mSleepRecordsContentURI,    // data manager, database and table name
+                    cols,          // columns to get
+                    null,       // columns for optional WHERE clause
+                    null,         // values for optional WHERE clause
+                    sortOrder); // sort order
+        } catch (Exception e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".getAllSleepRecIDsAndUpdated", e);   // automatically posts a Log.e
+            if (cursor != null) { cursor.close(); cursor = null; }
+        }
+        return cursor;
+    }
+
+    // get the full Zeo Sleep records of the specified record IDs (not Sleep Episode IDs) from the Zeo App's database; no particular order;
+    // the caller must limit the quantity of IDs to stay below SQLite's bound-variable limit
+    public Cursor getSleepRecsOfIDs(long[] ids, int qty) {
+        if (qty <= 0) { return null; }
+        StringBuilder where = new StringBuilder(ZeoDataContract.SleepRecord._ID + " IN (?");
+        String[] values = new String[qty];
+        values[0] = String.valueOf(ids[0]);
+        for (int i = 1; i < qty; i++) {
+            where.append(",?");
+            values[i] = String.valueOf(ids[i]);
+        }
+        where.append(")");
+        Cursor cursor = null;
+        try {
+            cursor = mContext.getContentResolver().query(
+                    mSleepRecordsContentURI,    // data manager, database and table name
+                    ZAH_SleepRecord.ZAH_SLEEPREC_EXTENDED_COLS,          // columns to get
+                    where.toString(),       // columns for optional WHERE clause
+                    values,         // values for optional WHERE clause
+                    null); // sort order
+        } catch (Exception e) {
+            ZeoCompanionApplication.postToErrorLog(_CTAG + ".getSleepRecsOfIDs", e, "Qty IDs="+qty);   // automatically posts a Log.e
+            if (cursor != null) { cursor.close(); cursor = null; }
+        }
+        return cursor;
+    }
+
     // evaluate the Zeo App Sleep Rrecods to find the end-users average sleep duration
     public Long getObservedTypicalSleepDurationMin() {
         String sortOrder = ZeoDataContract.SleepRecord.START_OF_NIGHT + " DESC";
@@ -862,18 +1086,9 @@ public class ZeoAppHandler {
                     sortOrder);    // sort order
             if (cursor == null) { return null; }
             if (cursor.moveToFirst()) {
-                do {
-                    long totZ = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.TOTAL_Z));
-                    if (totZ > 0) {
-                        long son = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.START_OF_NIGHT));
-                        long eon = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.END_OF_NIGHT));
-                        if (son > 0L && eon > 0L) {
-                            long durMin = (eon - son) / 60000L;
-                            sumDurMin = sumDurMin + durMin;
-                            qtyDurMin++;
-                        }
-                    }
-                } while (cursor.moveToNext());
+                long[] sumAndQty = sumSleepDurations(cursor);
+                sumDurMin = sumDurMin + sumAndQty[0];
+                qtyDurMin = qtyDurMin + (int)sumAndQty[1];
             }
         } catch (SQLException e) {
             ZeoCompanionApplication.postToErrorLog(_CTAG + ".getObservedTypicalSleepDurationMin", e);   // automatically posts a Log.e
@@ -884,18 +1099,9 @@ public class ZeoAppHandler {
         cursor = ZeoCompanionApplication.mDatabaseHandler.getAllZeoSleepRecs();
         if (cursor != null) {
             if (cursor.moveToFirst()) {
-                do {
-                    long totZ = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.TOTAL_Z));
-                    if (totZ > 0) {
-                        long son = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.START_OF_NIGHT));
-                        long eon = cursor.getLong(cursor.getColumnIndex(ZeoDataContract.SleepRecord.END_OF_NIGHT));
-                        if (son > 0L && eon > 0L) {
-                            long durMin = (eon - son) / 60000L;
-                            sumDurMin = sumDurMin + durMin;
-                            qtyDurMin++;
-                        }
-                    }
-                } while (cursor.moveToNext());
+                long[] sumAndQty = sumSleepDurations(cursor);
+                sumDurMin = sumDurMin + sumAndQty[0];
+                qtyDurMin = qtyDurMin + (int)sumAndQty[1];
             }
             cursor.close();
         }
@@ -905,6 +1111,30 @@ public class ZeoAppHandler {
         return avgDur;
     }
 
+    // sum the durations of all the rows of the cursor (already positioned at its first row) that have some sleep;
+    // the column indexes are resolved once and each row is read directly so nothing is allocated per row;
+    // returns the sum of minutes and the quantity of nights summed
+    private long[] sumSleepDurations(Cursor cursor) {
+        int iTotZ = cursor.getColumnIndex(ZeoDataContract.SleepRecord.TOTAL_Z);
+        int iSon = cursor.getColumnIndex(ZeoDataContract.SleepRecord.START_OF_NIGHT);
+        int iEon = cursor.getColumnIndex(ZeoDataContract.SleepRecord.END_OF_NIGHT);
+        long sumDurMin = 0L;
+        long qtyDurMin = 0L;
+        do {
+            long totZ = cursor.getLong(iTotZ);
+            if (totZ > 0) {
+                long son = cursor.getLong(iSon);
+                long eon = cursor.getLong(iEon);
+                if (son > 0L && eon > 0L) {
+                    long durMin = (eon - son) / 60000L;
+                    sumDurMin = sumDurMin + durMin;
+                    qtyDurMin++;
+                }
+            }
+        } while (cursor.moveToNext());
+        return new long[] { sumDurMin, qtyDurMin };
+    }
+
     //////////////////////////////////////////////////////////////////////
     // All the below methods are utilized for Zeo App Database replication;
     // Many of these methods run in a separate thread as indicated
@@ -912,10 +1142,16 @@ public class ZeoAppHandler {
 
     // Thread context: main thread
     // purge all the replicated data be deleting only the Zeo App data tables;
-    // trigger re-replication if still enabled
+    // trigger re-replication if still enabled; if a replication is in-progress the purge is deferred until it has stopped
     public void purgeAllReplicated() {
-        ZeoCompanionApplication.mDatabaseHandler.purgeAllZeoTables();
-        dailyCheck();
+        cancelReplication(new Runnable() {
+            @Override
+            public void run() {
+                ZeoCompanionApplication.mDatabaseHandler.purgeAllZeoTables();
+                if (ZeoCompanionApplication.mCoordinator != null) { ZeoCompanionApplication.mCoordinator.informReplicatedZeoChanged(); }
+                dailyCheck();
+            }
+        });
     }
 
     // Thread context: main thread
@@ -927,10 +1163,57 @@ public class ZeoAppHandler {
         boolean enabled = prefs.getBoolean("database_replicate_zeo", false);
         if (!enabled) { return; }
 
-        // activate a replication process in a separate thread
-        Thread thrd = new Thread(new ReplicateZeoDatabaseThread());
-        thrd.setName("ReplicateZeoDatabase via "+_CTAG+".dailyCheck");
-        thrd.start();
+        // activate a replication process upon its own bounded executor; one of its threads coordinates the replication while the others replicate tables
+        ReplicateZeoDatabaseThread replication;
+        synchronized (this) {
+            if (mReplicationExecutor != null) {
+                Log.d(_CTAG+".dailyCheck","A replication is already in-progress");
+                return;
+            }
+            replication = new ReplicateZeoDatabaseThread(Executors.newFixedThreadPool(REPLICATION_THREADS + 1, new ThreadFactory() {
+                private final AtomicInteger mThreadNo = new AtomicInteger(0);
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thrd = new Thread(r);
+                    thrd.setName("ReplicateZeoDatabase-" + mThreadNo.incrementAndGet() + " via " + _CTAG + ".dailyCheck");
+                    return thrd;
+                }
+            }));
+            mReplicationExecutor = replication.mExecutor;
+            mReplicationCancelled = replication.mCancelled;
+            mReplicationStoppedRunnables = new ArrayList<Runnable>();
+        }
+        replication.mExecutor.execute(replication);
+    }
+
+    // the progress of a replication as posted to ZeoCompanionApplication.mAppHandler:  the outcome of one table, or the summary once all have finished
+    public static class ReplicationProgress {
+        public final String rTableName;     // null for the summary
+        public final String rOutcome;       // "completed", "cancelled" or "failed"
+        public final int rRowsWritten;      // only for a table
+        public final long rElapsedMs;
+        public final int rTablesCompleted;
+        public final int rTablesCancelled;
+        public final int rTablesFailed;
+        public final int rTablesTotal;
+
+        public ReplicationProgress(String tableName, String outcome, int rowsWritten, long elapsedMs, int tablesCompleted, int tablesCancelled, int tablesFailed, int tablesTotal) {
+            rTableName = tableName;
+            rOutcome = outcome;
+            rRowsWritten = rowsWritten;
+            rElapsedMs = elapsedMs;
+            rTablesCompleted = tablesCompleted;
+            rTablesCancelled = tablesCancelled;
+            rTablesFailed = tablesFailed;
+            rTablesTotal = tablesTotal;
+        }
+
+        @Override
+        public String toString() {
+            String counts = rTablesCompleted + " of " + rTablesTotal + " tables completed, " + rTablesCancelled + " cancelled, " + rTablesFailed + " failed";
+            if (rTableName == null) { return "Replication " + rOutcome + ": " + counts + "; in " + rElapsedMs + " ms"; }
+            return "Table " + rTableName + " " + rOutcome + ": wrote " + rRowsWritten + " rows; took " + rElapsedMs + " ms (" + counts + ")";
+        }
     }
 
     // Thread context: main or ReplicateZeoDatabase threads
@@ -949,15 +1232,69 @@ public class ZeoAppHandler {
         ZeoCompanionApplication.mAppHandler.sendMessage(msg);
     }
 
+    // Thread context: main thread
+    // signal any in-progress replication to cancel; does not wait for its tables to stop (tables not yet started stop immediately); already committed batches of rows are retained,
+    // but the cancelled tables' checkpoints are not advanced so the next replication will pick up where this one stopped;
+    // returns true if a replication was in-progress (and is still stopping)
+    public boolean cancelReplication() {
+        return cancelReplication(null);
+    }
+
+    // Thread context: main thread
+    // as above, but also run afterStopped in the main thread once the replication has actually stopped (or immediately if none was in-progress)
+    public boolean cancelReplication(Runnable afterStopped) {
+        ExecutorService executor = null;
+        synchronized (this) {
+            if (mReplicationExecutor != null) {
+                mReplicationCancelled.set(true);
+                executor = mReplicationExecutor;
+                if (afterStopped != null) { mReplicationStoppedRunnables.add(afterStopped); }
+            }
+        }
+        if (executor == null) {
+            if (afterStopped != null) { afterStopped.run(); }
+            return false;
+        }
+        Log.d(_CTAG+".cancelReplication","Cancelling in-progress replication");
+        return true;
+    }
+
     // Thread context: ReplicateZeoDatabase thread
-    // class that implements the separate that performs the Zeo App database replication
+    // class that coordinates the Zeo App database replication upon its bounded executor; the tables are independent of one another
+    // so they are replicated concurrently by the executor's other threads, each querying the Zeo App in parallel; however all writes into the
+    // ZeoCompanion database are funnelled one batch at a time through mWriteLock since SQLite permits only one writer anyway;
+    // the Zeo App rows are read into batches outside of mWriteLock so that only the batch's write transaction holds it;
+    // each table's outcome (completed, cancelled or failed) and timing, and the overall summary, are logged and posted to ZeoCompanionApplication.mAppHandler;
+    // cancellation is only via mCancelled, so every table (even one not yet started) always runs and reports its outcome exactly once
     private class ReplicateZeoDatabaseThread implements Runnable {
+        // member variables
+        private final ExecutorService mExecutor;
+        private final AtomicBoolean mCancelled = new AtomicBoolean(false);
+        private final Object mWriteLock = new Object();
+        private final AtomicInteger mTablesCompleted = new AtomicInteger(0);
+        private final AtomicInteger mTablesCancelled = new AtomicInteger(0);
+        private final AtomicInteger mTablesFailed = new AtomicInteger(0);
+        private int mTablesTotal = 0;
+        private CountDownLatch mTablesPending = null;
+
+        // constructor
+        public ReplicateZeoDatabaseThread(ExecutorService executor) {
+            mExecutor = executor;
+        }
+
+        // member constants and other static content
+        private static final int TABLE_COMPLETED = 0;
+        private static final int TABLE_CANCELLED = 1;
+        private static final int TABLE_FAILED = 2;
+
         // Thread context: ReplicateZeoDatabase thread
         @Override
         public void run() {
             Log.d(_CTAG + ".dailyCheck.run", "Starting replication thread");
             Thread.setDefaultUncaughtExceptionHandler(ZeoCompanionApplication.mMasterAbortHandler); // set the master abort handler for this thread
-            String[] existingTables = ZeoCompanionApplication.mDatabaseHandler.getAllZeoTables();   // can be null
+            long startMs = System.currentTimeMillis();
+
+            final String[] existingTables = ZeoCompanionApplication.mDatabaseHandler.getAllZeoTables();   // can be null
             if (existingTables == null) {
                 Log.d(_CTAG+".ReplZeoDB.run","Existing Zeo tables=null");
             } else {
@@ -967,183 +1304,321 @@ public class ZeoAppHandler {
 
             }
 
-            replicate_ZeoHeadbands(existingTables);
-            replicate_ZeoSleepEvents(existingTables);
-            replicate_ZeoSleepRecords(existingTables);
-            replicate_ZeoAlarmAlertEvents(existingTables);
-            replicate_ZeoAlarmTimeoutEvents(existingTables);
-            replicate_ZeoAlarmSnoozeEvents(existingTables);
-            replicate_ZeoActigraphyRecords(existingTables);
-            replicate_ZeoAlarms(existingTables);
-            replicate_ZeoHeadbandAsserts(existingTables);
-            replicate_ZeoHeadbandResets(existingTables);
+            Runnable[] tables = {
+                new Runnable() { @Override public void run() { replicate_ZeoHeadbands(existingTables); } },
+                new Runnable() { @Override public void run() { replicate_ZeoSleepEvents(existingTables); } },
+                new Runnable() { @Override public void run() { replicate_ZeoSleepRecords(existingTables); } },
+                new Runnable() { @Override public void run() { replicate_ZeoAlarmAlertEvents(existingTables); } },
+                new Runnable() { @Override public void run() { replicate_ZeoAlarmTimeoutEvents(existingTables); } },
+                new Runnable() { @Override public void run() { replicate_ZeoAlarmSnoozeEvents(existingTables); } },
+                new Runnable() { @Override public void run() { replicate_ZeoActigraphyRecords(existingTables); } },
+                new Runnable() { @Override public void run() { replicate_ZeoAlarms(existingTables); } },
+                new Runnable() { @Override public void run() { replicate_ZeoHeadbandAsserts(existingTables); } },
+                new Runnable() { @Override public void run() { replicate_ZeoHeadbandResets(existingTables); } }
+            };
+            mTablesTotal = tables.length;
+            mTablesPending = new CountDownLatch(mTablesTotal);
+            for (Runnable table: tables) { mExecutor.execute(table); }
+            try {
+                if (!mTablesPending.await(REPLICATION_MAX_RUN_MS, TimeUnit.MILLISECONDS)) {
+                    Log.w(_CTAG+".ReplZeoDB.run","Replication exceeded " + REPLICATION_MAX_RUN_MS + " ms; cancelling");
+                    mCancelled.set(true);   // the tables check mCancelled between rows; one stuck within a Zeo App query is not waited for
+                }
+            } catch (InterruptedException e) {
+                mCancelled.set(true);
+            }
+            mExecutor.shutdown();   // no further tasks; its threads exit once any still-running tables finish
+
+            // the replication has stopped; release it and hand any deferred post-cancel work to the main thread
+            ArrayList<Runnable> stoppedRunnables = null;
+            synchronized (ZeoAppHandler.this) {
+                if (mReplicationExecutor == mExecutor) {
+                    stoppedRunnables = mReplicationStoppedRunnables;
+                    mReplicationExecutor = null;
+                    mReplicationCancelled = null;
+                    mReplicationStoppedRunnables = null;
+                }
+            }
+            if (stoppedRunnables != null) {
+                for (Runnable r: stoppedRunnables) { ZeoCompanionApplication.mAppHandler.post(r); }
+            }
+            ReplicationProgress summary = new ReplicationProgress(null, (mCancelled.get() ? "cancelled" : "completed"), 0, System.currentTimeMillis() - startMs,
+                    mTablesCompleted.get(), mTablesCancelled.get(), mTablesFailed.get(), mTablesTotal);
+            Log.i(_CTAG + ".ReplZeoDB.run", summary.toString());
+            ZeoCompanionApplication.mAppHandler.obtainMessage(ZeoCompanionApplication.MESSAGE_APP_REPLICATION_DONE, summary.rTablesCompleted, mTablesTotal, summary).sendToTarget();
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
+        // record, log and post the outcome of one table; only a completed table has its checkpoint advanced
+        private void reportTableOutcome(String neededTable, int outcome, int rowsWritten, long elapsedMs) {
+            String outcomeStr;
+            switch (outcome) {
+                case TABLE_COMPLETED:
+                    outcomeStr = "completed";
+                    mTablesCompleted.incrementAndGet();
+                    break;
+                case TABLE_CANCELLED:
+                    outcomeStr = "cancelled";
+                    mTablesCancelled.incrementAndGet();
+                    break;
+                default:
+                    outcomeStr = "failed";
+                    mTablesFailed.incrementAndGet();
+                    break;
+            }
+            ReplicationProgress progress = new ReplicationProgress(neededTable, outcomeStr, rowsWritten, elapsedMs,
+                    mTablesCompleted.get(), mTablesCancelled.get(), mTablesFailed.get(), mTablesTotal);
+            Log.i(_CTAG + ".ReplZeoDB.done", progress.toString());
+            ZeoCompanionApplication.mAppHandler.obtainMessage(ZeoCompanionApplication.MESSAGE_APP_REPLICATION_PROGRESS,
+                    progress.rTablesCompleted + progress.rTablesCancelled + progress.rTablesFailed, mTablesTotal, progress).sendToTarget();
+            mTablesPending.countDown();
+        }
+
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the Headband Zeo App table
         private void replicate_ZeoHeadbands(String[] existingTables) {
-            String sortOrder = ZeoDataContract.Headband._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             doReplicateOneTable(mHeadbandsContentURI, CompanionDatabaseContract.ZeoHeadbands.TABLE_NAME,
                     CompanionDatabaseContract.ZeoHeadbands.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoHeadbands.SQL_DEFINITION, existingTables);
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the SleepEpisode Zeo App table
         private void replicate_ZeoSleepEvents(String[] existingTables) {
-            String sortOrder = ZeoDataContract.SleepEpisode._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             doReplicateOneTable(mBaseContentURI.buildUpon().appendPath("sleep_events").build(), CompanionDatabaseContract.ZeoSleepEvents.TABLE_NAME,
                     CompanionDatabaseContract.ZeoSleepEvents.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoSleepEvents.SQL_DEFINITION, existingTables);
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the SleepRecord Zeo App table
         private void replicate_ZeoSleepRecords(String[] existingTables) {
-            String sortOrder = ZeoDataContract.SleepRecord._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             doReplicateOneTable(mSleepRecordsContentURI, CompanionDatabaseContract.ZeoSleepRecords.TABLE_NAME,
                     CompanionDatabaseContract.ZeoSleepRecords.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoSleepRecords.SQL_DEFINITION, existingTables);
+            if (ZeoCompanionApplication.mCoordinator != null) { ZeoCompanionApplication.mCoordinator.informReplicatedZeoChanged(); }
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the AlarmAlertEvent Zeo App table
         private void replicate_ZeoAlarmAlertEvents(String[] existingTables) {
-            String sortOrder = ZeoDataContract.AlarmAlertEvent._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             doReplicateOneTable(mBaseContentURI.buildUpon().appendPath("alarm_events").build(), CompanionDatabaseContract.ZeoAlarmAlertEvents.TABLE_NAME,
                     CompanionDatabaseContract.ZeoAlarmAlertEvents.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoAlarmAlertEvents.SQL_DEFINITION, existingTables);
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the AlarmTimeoutEvent Zeo App table
         private void replicate_ZeoAlarmTimeoutEvents(String[] existingTables) {
-            String sortOrder = ZeoDataContract.AlarmTimeoutEvent._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             doReplicateOneTable(mBaseContentURI.buildUpon().appendPath("alarm_timeout_events").build(), CompanionDatabaseContract.ZeoAlarmTimeoutEvents.TABLE_NAME,
                     CompanionDatabaseContract.ZeoAlarmTimeoutEvents.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoAlarmTimeoutEvents.SQL_DEFINITION, existingTables);
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the AlarmSnoozeEvent Zeo App table
         private void replicate_ZeoAlarmSnoozeEvents(String[] existingTables) {
-            String sortOrder = ZeoDataContract.AlarmSnoozeEvent._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             doReplicateOneTable(mBaseContentURI.buildUpon().appendPath("alarm_snooze_events").build(), CompanionDatabaseContract.ZeoAlarmSnoozeEvents.TABLE_NAME,
                     CompanionDatabaseContract.ZeoAlarmSnoozeEvents.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoAlarmSnoozeEvents.SQL_DEFINITION, existingTables);
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the ActigraphyRecords Zeo App table
         private void replicate_ZeoActigraphyRecords(String[] existingTables) {
-            String sortOrder = CompanionDatabaseContract.ZeoActigraphyRecords._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             Uri contentURI = mBaseContentURI.buildUpon().appendPath("actigraphy_records").build();
             doReplicateOneTable(contentURI,  CompanionDatabaseContract.ZeoActigraphyRecords.TABLE_NAME,
                     CompanionDatabaseContract.ZeoActigraphyRecords.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoActigraphyRecords.SQL_DEFINITION, existingTables);
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the Alarms Zeo App table
         private void replicate_ZeoAlarms(String[] existingTables) {
-            String sortOrder = CompanionDatabaseContract.ZeoAlarms._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             Uri contentURI = mBaseContentURI.buildUpon().appendPath("alarms").build();
             doReplicateOneTable(contentURI,  CompanionDatabaseContract.ZeoAlarms.TABLE_NAME,
                     CompanionDatabaseContract.ZeoAlarms.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoAlarms.SQL_DEFINITION, existingTables);
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the HeadbandAsserts Zeo App table
         private void replicate_ZeoHeadbandAsserts(String[] existingTables) {
-            String sortOrder = CompanionDatabaseContract.ZeoHeadbandAsserts._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             Uri contentURI = mBaseContentURI.buildUpon().appendPath("headband_asserts").build();
             doReplicateOneTable(contentURI,  CompanionDatabaseContract.ZeoHeadbandAsserts.TABLE_NAME,
                     CompanionDatabaseContract.ZeoHeadbandAsserts.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoHeadbandAsserts.SQL_DEFINITION, existingTables);
         }
 
-        // Thread context: ReplicateZeoDatabase thread
+        // Thread context: ReplicateZeoDatabase executor thread
         // replicate the HeadbandResets Zeo App table
         private void replicate_ZeoHeadbandResets(String[] existingTables) {
-            String sortOrder = CompanionDatabaseContract.ZeoHeadbandResets._ID + " ASC ";
+            String sortOrder = CompanionDatabase.ZEO_REPLICATION_SORT_ORDER;
             Uri contentURI = mBaseContentURI.buildUpon().appendPath("headband_resets").build();
             doReplicateOneTable(contentURI,  CompanionDatabaseContract.ZeoHeadbandResets.TABLE_NAME,
                     CompanionDatabaseContract.ZeoHeadbandResets.PROJECTION_FULL, sortOrder, CompanionDatabaseContract.ZeoHeadbandResets.SQL_DEFINITION, existingTables);
         }
 
-        // Thread context: ReplicateZeoDatabase thread
-        // replicate the indicated table's contents from the Zeo App to the ZeoCompanion's database; existingTables can be null
+        // Thread context: ReplicateZeoDatabase executor thread
+        // replicate the indicated table's contents from the Zeo App to the ZeoCompanion's database; existingTables can be null;
+        // each table keeps a checkpoint of its highest replicated _ID and updated_on, so normally only the Zeo App records beyond
+        // those are queried (a no-op replication is then just a few tiny queries); a full reconcile of all records is performed
+        // whenever there is no checkpoint, the replicated table is missing, or ZEO_FULL_RECONCILE_INTERVAL_MS has elapsed
         private void doReplicateOneTable(Uri zeoContentURI, String neededTable, String[] projection, String sortOrder, String sqlDefinition, String[] existingTables) {
+            long startMs = System.currentTimeMillis();
+            if (mCancelled.get()) {
+                reportTableOutcome(neededTable, TABLE_CANCELLED, 0, 0L);
+                return;
+            }
+            int outcome = TABLE_CANCELLED;
+            int rowsWritten = 0;
             Cursor cursorZeo = null;
+            CompanionDatabase.ZeoTableWriter writer = null;
             try {
+                // does the replicated table already exist in our database?
+                boolean found = false;
+                if (existingTables != null) {
+                    for (String tableName: existingTables) {
+                        if (neededTable.equals(tableName)) {
+                            found = true;
+                            break;
+                        }
+                    }
+                }
+
+                // determine whether a delta or a full reconcile is needed
+                long now = System.currentTimeMillis();
+                CompanionDatabase.ZeoReplicationCheckpoint checkpoint = null;
+                if (found) { checkpoint = ZeoCompanionApplication.mDatabaseHandler.getZeoReplicationCheckpoint(neededTable); }   // can be null
+                boolean isDelta = (checkpoint != null && now - checkpoint.rLastFullReconcile < ZEO_FULL_RECONCILE_INTERVAL_MS && checkpoint.rLastFullReconcile <= now);
+                String selection = null;
+                String[] selectionArgs = null;
+                if (isDelta) {
+                    selection = CompanionDatabase.ZEO_REPLICATION_DELTA_SELECTION;
+                    selectionArgs = new String[] { String.valueOf(checkpoint.rMaxID), String.valueOf(checkpoint.rMaxUpdatedOn) };
+                }
+
                 // are there any Zeo App records?
                 cursorZeo = mContext.getContentResolver().query(
                         zeoContentURI,    // data manager, database and table name
                         projection,          // columns to get
-                        null,       // columns for optional WHERE clause
-                        null,         // values for optional WHERE clause
+                        selection,       // columns for optional WHERE clause
+                        selectionArgs,         // values for optional WHERE clause
                         sortOrder); // sort order
                 if (cursorZeo == null) {
                     Log.d(_CTAG + ".doRepl1Tbl", "Table " + neededTable + " returned null for query");
+                    outcome = TABLE_COMPLETED;
                     return;
                 }  // nope
                 if (!cursorZeo.moveToFirst()) {  // nope
-                    Log.d(_CTAG + ".doRepl1Tbl", "Table " + neededTable + " has no records");
-                    cursorZeo.close();
+                    if (isDelta) { Log.d(_CTAG + ".doRepl1Tbl", "Table " + neededTable + " has no new or updated records since its checkpoint"); }
+                    else { Log.d(_CTAG + ".doRepl1Tbl", "Table " + neededTable + " has no records"); }
+                    outcome = TABLE_COMPLETED;
                     return;
                 }
 
-                // yes; ensure the replicated table exists in our database
-                boolean found = false;
-                if (existingTables != null) {
-                    for (String tableName: existingTables) {
-                        if (neededTable.equals(tableName)) {
-                            found = true;
-                            break;
-                        }
-                    }
-                }
-                if (!found) {
-                    // Zeo database table does not exist so create it
-                    boolean result = ZeoCompanionApplication.mDatabaseHandler.createZeoTable(sqlDefinition);
-                    if (!result) { return; }
+                // perform the replication of any new records not already copied or recently modified; the writes are batched into transactions;
+                // for a delta every queried record is either new or modified; for a full reconcile the Zeo App records are merged against the
+                // already replicated IDs (both in ascending ID order) in a single linear pass;
+                // replicated records no longer present in the Zeo App are only counted and are intentionally retained as the backup copy
+                ZeoReplicationDiff diff = null;
+                if (!isDelta) {
+                    CompanionDatabase.IDsAndUpdateds companionIDsAndUpdateds = ZeoCompanionApplication.mDatabaseHandler.getAllRecIDsZeoTable(neededTable);    // can be null
+                    if (companionIDsAndUpdateds == null) { diff = new ZeoReplicationDiff(null, null, 0); }
+                    else { diff = new ZeoReplicationDiff(companionIDsAndUpdateds.rIDs, companionIDsAndUpdateds.rUpdatedOns, companionIDsAndUpdateds.rQty); }
                 }
-
-                // perform the replication of any new records not already copied
+                long maxID = 0L;
+                long maxUpdatedOn = 0L;
                 int addCntr = 0;
                 int updateCntr = 0;
-                CompanionDatabase.IDandUpdated[] companionIDandUpdateds = ZeoCompanionApplication.mDatabaseHandler.getAllRecIDsZeoTable(neededTable, sortOrder);    // can be null
-                if (companionIDandUpdateds == null) {
-                    // there are no pre-existing replicated records; so replicate all records
-                    do {
-                        ZeoCompanionApplication.mDatabaseHandler.putRecIntoZeoTable(neededTable, cursorZeo);
-                        addCntr++;
-                    } while (cursorZeo.moveToNext());
-                    Log.d(_CTAG + ".doRepl1Tbl", "Added " + addCntr + " first-time records for table " + neededTable);
-                } else {
-                    // there are one or more pre-existing records; replicate new ones or recently modified ones
-                    int colId = cursorZeo.getColumnIndex(BaseColumns._ID);
-                    int colUpdatedOn = cursorZeo.getColumnIndex("updated_on");
-                    do {
-                        long id = cursorZeo.getLong(colId);
-                        found = false;
-                        boolean isModified = false;
-                        for (CompanionDatabase.IDandUpdated anIDandUpdatedOn: companionIDandUpdateds) {
-                            if (id == anIDandUpdatedOn.rID) {
-                                found = true;
-                                long updatedOn = cursorZeo.getLong(colUpdatedOn);
-                                if (updatedOn != anIDandUpdatedOn.rUpdatedOn) {
-                                    isModified = true;
+                if (isDelta) {
+                    maxID = checkpoint.rMaxID;
+                    maxUpdatedOn = checkpoint.rMaxUpdatedOn;
+                }
+
+                // read the rows into batches without holding the write lock; only the writing of each filled batch into our database
+                // is serialized with the other tables
+                CompanionDatabase.ZeoRowBatch batch = new CompanionDatabase.ZeoRowBatch(cursorZeo);
+                int colId = cursorZeo.getColumnIndex(BaseColumns._ID);
+                int colUpdatedOn = cursorZeo.getColumnIndex("updated_on");
+                boolean more = true;
+                while (more) {
+                    if (mCancelled.get()) { break; }
+                    long id = cursorZeo.getLong(colId);
+                    long updatedOn = cursorZeo.getLong(colUpdatedOn);
+                    if (id > maxID) { maxID = id; }
+                    if (updatedOn > maxUpdatedOn) { maxUpdatedOn = updatedOn; }
+                    if (isDelta) {
+                        batch.add(cursorZeo);
+                        if (id > checkpoint.rMaxID) { addCntr++; }
+                        else { updateCntr++; }
+                    } else if (diff.classify(id, updatedOn) != ZeoReplicationDiff.ZRD_UNCHANGED) {
+                        batch.add(cursorZeo);
+                    }
+                    more = cursorZeo.moveToNext();
+                    if (batch.isFull() || (!more && batch.size() > 0)) {
+                        synchronized (mWriteLock) {
+                            if (mCancelled.get()) { break; }
+                            if (writer == null) {
+                                // ensure the replicated table exists in our database
+                                if (!found) {
+                                    // Zeo database table does not exist so create it
+                                    boolean result = ZeoCompanionApplication.mDatabaseHandler.createZeoTable(sqlDefinition);
+                                    if (!result) { outcome = TABLE_FAILED; return; }
+                                    found = true;
                                 }
-                                break;  // end the for loop
+                                writer = ZeoCompanionApplication.mDatabaseHandler.startZeoTableWriter(neededTable, batch);
+                                if (writer == null) { outcome = TABLE_FAILED; return; }
                             }
+                            writer.writeBatch(batch);
                         }
-                        if (!found || isModified) {
-                            ZeoCompanionApplication.mDatabaseHandler.putRecIntoZeoTable(neededTable, cursorZeo);
-                            if (isModified) { updateCntr++; }
-                            else { addCntr++; }
-                        }
-                    } while (cursorZeo.moveToNext());
-                    Log.d(_CTAG + ".doRepl1Tbl", "Added " + addCntr + " records and updated " + updateCntr + " records for table " + neededTable);
+                        batch.clear();
+                    }
+                }
+                if (mCancelled.get()) {
+                    if (writer != null) {
+                        writer.abort();
+                        rowsWritten = writer.mRowsWritten;
+                    }
+                    writer = null;
+                    Log.d(_CTAG + ".doRepl1Tbl", "Table " + neededTable + " replication cancelled");
+                    return;
+                }
+
+                // all rows are written; advance the checkpoint
+                synchronized (mWriteLock) {
+                    if (!found) {
+                        // no rows needed writing yet the table must still exist for the checkpoint
+                        boolean result = ZeoCompanionApplication.mDatabaseHandler.createZeoTable(sqlDefinition);
+                        if (!result) { outcome = TABLE_FAILED; return; }
+                    }
+                    if (writer != null) {
+                        writer.finish();
+                        Log.i(_CTAG + ".doRepl1Tbl", "Table " + neededTable + ": wrote " + writer.mRowsWritten + " rows in " + writer.mElapsedMs + " ms (" + writer.getRowsPerSecond() + " rows/sec)");
+                        rowsWritten = writer.mRowsWritten;
+                        writer = null;
+                    }
+                    if (isDelta) {
+                        Log.d(_CTAG + ".doRepl1Tbl", "Table " + neededTable + " (delta): added " + addCntr + ", updated " + updateCntr);
+                        ZeoCompanionApplication.mDatabaseHandler.saveZeoReplicationCheckpoint(neededTable, maxID, maxUpdatedOn, checkpoint.rLastFullReconcile);
+                    } else {
+                        diff.finish();
+                        Log.d(_CTAG + ".doRepl1Tbl", "Table " + neededTable + " (full): added " + diff.mAddedCnt + ", updated " + diff.mUpdatedCnt + ", unchanged " + diff.mUnchangedCnt + ", deleted from Zeo App (retained) " + diff.mDeletedCnt);
+                        ZeoCompanionApplication.mDatabaseHandler.saveZeoReplicationCheckpoint(neededTable, maxID, maxUpdatedOn, now);
+                    }
+                    outcome = TABLE_COMPLETED;
                 }
 
             } catch (Exception e) {
+                if (writer != null) { writer.abort(); }
+                outcome = TABLE_FAILED;
                 disableReplication();
+                mCancelled.set(true);   // replication is now disabled so stop the other tables too
                 ZeoCompanionApplication.postToErrorLog(_CTAG+".doReplicateOneTable", e, "For DB Table: "+neededTable);    // automatically posts a Log.e
+            } finally {
+                if (cursorZeo != null) { cursorZeo.close(); }
+                reportTableOutcome(neededTable, outcome, rowsWritten, System.currentTimeMillis() - startMs);
             }
-            cursorZeo.close();
         }
     }
 }
@@ -0,0 +1,70 @@
+package opensource.zeocompanion.zeo;
+
+// determines which Zeo App records need to be replicated into the ZeoCompanion database by comparing each Zeo App record
+// against the already replicated records' IDs and updated_on timestamps;
+// both sides are expected in ascending _ID order so a single forward-moving pointer through the replicated IDs suffices (linear overall);
+// should the Zeo App records ever arrive out of order, it falls back to a binary search of the (always sorted) replicated IDs
+public class ZeoReplicationDiff {
+    // member variables
+    private long[] mLocalIDs = null;
+    private long[] mLocalUpdatedOns = null;
+    private int mLocalQty = 0;
+    private int mPos = 0;
+    private long mPriorSourceID = Long.MIN_VALUE;
+    private boolean mSourceInOrder = true;
+    public int mAddedCnt = 0;
+    public int mUpdatedCnt = 0;
+    public int mUnchangedCnt = 0;
+    public int mDeletedCnt = 0;     // replicated records no longer present in the Zeo App; valid only after finish()
+
+    // member constants and other static content
+    public static final int ZRD_UNCHANGED = 0;
+    public static final int ZRD_ADDED = 1;
+    public static final int ZRD_UPDATED = 2;
+
+    // constructor; the replicated IDs must be in ascending order and the arrays may be null if there are no replicated records
+    public ZeoReplicationDiff(long[] localIDs, long[] localUpdatedOns, int localQty) {
+        mLocalIDs = localIDs;
+        mLocalUpdatedOns = localUpdatedOns;
+        mLocalQty = localQty;
+        if (mLocalIDs == null) { mLocalQty = 0; }
+    }
+
+    // classify one Zeo App record as needing to be added, updated, or left unchanged
+    public int classify(long sourceID, long sourceUpdatedOn) {
+        int found = -1;
+        if (mSourceInOrder && sourceID <= mPriorSourceID) { mSourceInOrder = false; }
+        mPriorSourceID = sourceID;
+        if (mSourceInOrder) {
+            while (mPos < mLocalQty && mLocalIDs[mPos] < sourceID) { mPos++; }
+            if (mPos < mLocalQty && mLocalIDs[mPos] == sourceID) { found = mPos; }
+        } else {
+            found = binarySearch(sourceID);
+        }
+
+        if (found < 0) { mAddedCnt++; return ZRD_ADDED; }
+        if (mLocalUpdatedOns[found] != sourceUpdatedOn) { mUpdatedCnt++; return ZRD_UPDATED; }
+        mUnchangedCnt++;
+        return ZRD_UNCHANGED;
+    }
+
+    // all Zeo App records have been classified; any replicated records that were never matched are no longer in the Zeo App
+    public void finish() {
+        mDeletedCnt = mLocalQty - mUpdatedCnt - mUnchangedCnt;
+        if (mDeletedCnt < 0) { mDeletedCnt = 0; }
+    }
+
+    // locate the ID within the replicated IDs; returns -1 if not present
+    private int binarySearch(long id) {
+        int low = 0;
+        int high = mLocalQty - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midID = mLocalIDs[mid];
+            if (midID < id) { low = mid + 1; }
+            else if (midID > id) { high = mid - 1; }
+            else { return mid; }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,128 @@
+package com.jjoe64.graphview.series;
+
+import android.graphics.Canvas;
+
+import com.jjoe64.graphview.GraphView;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM microbenchmark of the viewport windowing of BaseSeries.getValues():  pans a narrow viewport across 10k-point series
+ * (both list and primitive-array storage); that each window matches the original linear-scan windowing is a regular test,
+ * while the timing is an ignored benchmark to be run manually (it fails, with the timings, should either storage's windowing
+ * be slower than the original linear scan)
+ */
+public class BaseSeriesViewportBenchmark {
+    private static final int QTY_POINTS = 10000;
+    private static final int QTY_PANS = 20;
+    private static final double VIEWPORT_WIDTH = 50.0;
+    private static final double PAN_STEP = 7.5;
+
+    // a series that does not draw; only its data windowing is exercised
+    private static class TestSeries extends BaseSeries<DataPoint> {
+        TestSeries(DataPoint[] data) { super(data); }
+        TestSeries(DoubleArraySeries data) { super(data); }
+        @Override
+        public void draw(GraphView graphView, Canvas canvas, boolean isSecondScale) {}
+        @Override
+        public float getDrawY(GraphView graphView, int position) { return 0f; }
+        @Override
+        public int getQtySubseries() { return -1; }
+    }
+
+    private static DataPoint[] buildDataPoints() {
+        DataPoint[] theDataPoints = new DataPoint[QTY_POINTS];
+        for (int i = 0; i < QTY_POINTS; i++) { theDataPoints[i] = new DataPoint(i, i * 1.5, Math.sin(i / 100.0)); }
+        return theDataPoints;
+    }
+
+    // the original windowing of getValues():  step from the first data point to one before the first at or above from,
+    // then through to the first data point beyond until; returns the positions as {first, last}, or {0, -1} if empty
+    private static int[] linearWindow(DataPoint[] theDataPoints, double from, double until) {
+        int pos = 0;
+        while (pos < theDataPoints.length && theDataPoints[pos].getX() < from) { pos++; }
+        if (pos >= theDataPoints.length) { return new int[] {0, -1}; }
+        int first = (pos > 0 ? pos - 1 : 0);
+        int last = first;
+        while (last < theDataPoints.length - 1 && theDataPoints[last].getX() <= until) { last++; }
+        return new int[] {first, last};
+    }
+
+    // pan the viewport across the series; returns a checksum so the work cannot be optimized away
+    private static double pan(Series<DataPoint> theSeries, double lowestX, double highestX) {
+        double checksum = 0.0;
+        for (double from = lowestX - VIEWPORT_WIDTH; from <= highestX; from += PAN_STEP) {
+            Iterator<DataPoint> values = theSeries.getValues(from, from + VIEWPORT_WIDTH);
+            while (values.hasNext()) { checksum += values.next().getY(); }
+        }
+        return checksum;
+    }
+
+    @Test
+    public void windowsMatchLinearScan() throws Exception {
+        DataPoint[] theDataPoints = buildDataPoints();
+        TestSeries listSeries = new TestSeries(theDataPoints);
+        TestSeries arraySeries = new TestSeries(new DoubleArraySeries(theDataPoints));
+        double highestX = theDataPoints[QTY_POINTS - 1].getX();
+        for (double from = -VIEWPORT_WIDTH; from <= highestX + VIEWPORT_WIDTH; from += PAN_STEP) {
+            double until = from + VIEWPORT_WIDTH;
+            int[] expected = linearWindow(theDataPoints, from, until);
+            for (TestSeries s : new TestSeries[] {listSeries, arraySeries}) {
+                int pos = expected[0];
+                Iterator<DataPoint> values = s.getValues(from, until);
+                while (values.hasNext()) {
+                    DataPoint dp = values.next();
+                    assertTrue("window too long at from=" + from, pos <= expected[1]);
+                    assertEquals(theDataPoints[pos].getIndex(), dp.getIndex());
+                    assertEquals(theDataPoints[pos].getX(), dp.getX(), 0.0);
+                    pos++;
+                }
+                assertEquals("window too short at from=" + from, expected[1] + 1, pos);
+            }
+        }
+    }
+
+    // pan the viewport across the data points using the original linear-scan windowing; returns a checksum
+    private static double panLinear(DataPoint[] theDataPoints, double lowestX, double highestX) {
+        double checksum = 0.0;
+        for (double from = lowestX - VIEWPORT_WIDTH; from <= highestX; from += PAN_STEP) {
+            int[] window = linearWindow(theDataPoints, from, from + VIEWPORT_WIDTH);
+            for (int pos = window[0]; pos <= window[1]; pos++) { checksum += theDataPoints[pos].getY(); }
+        }
+        return checksum;
+    }
+
+    @Ignore("timing benchmark; run manually")
+    @Test
+    public void panAcrossSeries() throws Exception {
+        DataPoint[] theDataPoints = buildDataPoints();
+        TestSeries listSeries = new TestSeries(theDataPoints);
+        TestSeries arraySeries = new TestSeries(new DoubleArraySeries(theDataPoints));
+        double lowestX = theDataPoints[0].getX();
+        double highestX = theDataPoints[QTY_POINTS - 1].getX();
+        int stepsPerPan = (int)((highestX - lowestX + VIEWPORT_WIDTH) / PAN_STEP) + 1;
+
+        // warm up the JIT, then time
+        double checksum = 0.0;
+        for (int i = 0; i < QTY_PANS; i++) { checksum += panLinear(theDataPoints, lowestX, highestX) + pan(listSeries, lowestX, highestX) + pan(arraySeries, lowestX, highestX); }
+        long start_ns = System.nanoTime();
+        for (int i = 0; i < QTY_PANS; i++) { checksum += panLinear(theDataPoints, lowestX, highestX); }
+        long linear_ns = System.nanoTime() - start_ns;
+        start_ns = System.nanoTime();
+        for (int i = 0; i < QTY_PANS; i++) { checksum += pan(listSeries, lowestX, highestX); }
+        long list_ns = System.nanoTime() - start_ns;
+        start_ns = System.nanoTime();
+        for (int i = 0; i < QTY_PANS; i++) { checksum += pan(arraySeries, lowestX, highestX); }
+        long array_ns = System.nanoTime() - start_ns;
+
+        long viewports = (long)QTY_PANS * stepsPerPan;
+        String timings = QTY_POINTS + " points, per viewport: linear scan " + (linear_ns / viewports) + " ns; list storage " + (list_ns / viewports) +
+                " ns; array storage " + (array_ns / viewports) + " ns (checksum " + checksum + ")";
+        assertTrue(timings, list_ns <= linear_ns && array_ns <= linear_ns);
+    }
+}
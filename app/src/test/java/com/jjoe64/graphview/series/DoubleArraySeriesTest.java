@@ -0,0 +1,82 @@
+package com.jjoe64.graphview.series;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM test of DoubleArraySeries as a series capped at a maximum quantity of data points uses it (removeFirst() then append()
+ * upon every new data point):  the positions, values, index#s and binary searches must match a plain list kept the same way,
+ * across the head advancing, the arrays compacting, and the arrays growing
+ */
+public class DoubleArraySeriesTest {
+    private static void assertSame(String context, ArrayList<DataPoint> expected, DoubleArraySeries actual) {
+        assertEquals(context + " size", expected.size(), actual.size());
+        for (int pos = 0; pos < expected.size(); pos++) {
+            DataPoint dp = expected.get(pos);
+            assertEquals(context + " x at " + pos, dp.getX(), actual.getX(pos), 0.0);
+            assertEquals(context + " y at " + pos, dp.getY(), actual.getY(pos), 0.0);
+            assertEquals(context + " index# at " + pos, dp.getIndex(), actual.getIndex(pos));
+        }
+        if (!expected.isEmpty()) {
+            assertEquals(context + " lowest x", expected.get(0).getX(), actual.getLowestX(), 0.0);
+            assertEquals(context + " highest x", expected.get(expected.size() - 1).getX(), actual.getHighestX(), 0.0);
+            double probe = expected.get(expected.size() / 2).getX();
+            int lower = 0;
+            while (lower < expected.size() && expected.get(lower).getX() < probe) { lower++; }
+            assertEquals(context + " lower bound", lower, actual.lowerBound(probe));
+        }
+    }
+
+    @Test
+    public void cappedAppendsMatchList() throws Exception {
+        for (int cap = 1; cap <= 9; cap++) {
+            DoubleArraySeries series = new DoubleArraySeries(2);
+            ArrayList<DataPoint> expected = new ArrayList<DataPoint>();
+            for (int i = 0; i < 200; i++) {
+                if (expected.size() >= cap) {
+                    series.removeFirst();
+                    expected.remove(0);
+                }
+                DataPoint dp = new DataPoint(i, i * 0.5, (i * 7) % 11);
+                series.append(dp.getIndex(), dp.getX(), dp.getY());
+                expected.add(dp);
+                assertSame("cap " + cap + " append " + i, expected, series);
+            }
+        }
+    }
+
+    @Test
+    public void indexNumbersNotFollowingPositions() throws Exception {
+        DoubleArraySeries series = new DoubleArraySeries(4);
+        ArrayList<DataPoint> expected = new ArrayList<DataPoint>();
+        for (int i = 0; i < 60; i++) {
+            if (expected.size() >= 5) {
+                series.removeFirst();
+                expected.remove(0);
+            }
+            int index = (i < 20 ? i : i * 3);     // the index#s stop following the positions part way through
+            DataPoint dp = new DataPoint(index, i, -i);
+            series.append(dp.getIndex(), dp.getX(), dp.getY());
+            expected.add(dp);
+            assertSame("append " + i, expected, series);
+        }
+
+        // a summed-Y copy keeps the X-values and index#s of the remaining data points
+        DoubleArraySeries copy = DoubleArraySeries.zeroedCopyOf(series);
+        assertEquals(series.size(), copy.size());
+        for (int pos = 0; pos < series.size(); pos++) {
+            assertEquals(series.getX(pos), copy.getX(pos), 0.0);
+            assertEquals(series.getIndex(pos), copy.getIndex(pos));
+            assertEquals(0.0, copy.getY(pos), 0.0);
+        }
+
+        series.clear();
+        assertEquals(0, series.size());
+        series.append(0, 1.0, 1.0);
+        assertEquals(0, series.getIndex(0));
+        assertEquals(1.0, series.getX(0), 0.0);
+    }
+}
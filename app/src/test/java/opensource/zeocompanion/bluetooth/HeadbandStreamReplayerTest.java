@@ -0,0 +1,181 @@
+package opensource.zeocompanion.bluetooth;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import opensource.zeocompanion.utility.CRC16;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM test of replaying a recorded headband stream through ZeoMobileHB_Receiver:  a capture file in the HeadbandStreamRecorder
+ * layout holding PDUs split and coalesced across RFCOMM-sized packets (one with a corrupted CRC) is replayed as fast as possible
+ * and at a paced speed, and every PDU must reach the message sink intact and in order
+ */
+public class HeadbandStreamReplayerTest {
+    private static final int QTY_PDUS = 300;
+    private static final int PACKET_SIZE = 1024;    // the buffer size of BluetoothIOThread
+    private static final int CORRUPTED_PDU = 123;
+
+    // collects the decoded messages as the BluetoothHandler would receive them
+    private static class CollectingSink implements ZeoMobileHB_Receiver.MsgSink {
+        ArrayList<ZeoMobileHB_Msg> mMsgs = new ArrayList<ZeoMobileHB_Msg>();
+        public void msg_received(ZeoMobileHB_Msg theMsg) { mMsgs.add(theMsg); }
+    }
+
+    // a fixed sequence of cumulative allocation counts
+    private static class SteppingCounter implements HeadbandStreamReplayer.AllocationCounter {
+        long mValue = 1000L;
+        public long getAllocatedBytes() { long v = mValue; mValue = mValue + 4096L; return v; }
+    }
+
+    // one PDU of a generic (untyped) message type with a valid CRC
+    private static byte[] buildPdu(Random rnd, int seqNo, int payloadLen) {
+        byte[] pdu = new byte[12 + payloadLen];
+        pdu[0] = 0x48; pdu[1] = 0x4d; pdu[2] = 0x53; pdu[3] = 0x47;     // "HMSG"
+        pdu[6] = 2;                                                     // protocol version
+        pdu[7] = (byte)ZeoMobileHB_Msg.ZEOMOB_HB_MSG_STATE_REPORT;
+        pdu[9] = (byte)seqNo;
+        pdu[10] = (byte)(payloadLen & 0xFF);
+        pdu[11] = (byte)((payloadLen >> 8) & 0xFF);
+        for (int i = 12; i < pdu.length; i++) { pdu[i] = (byte)rnd.nextInt(256); }
+        int crc = CRC16.compute(pdu, 6, pdu.length - 6);
+        pdu[4] = (byte)(crc & 0xFF);
+        pdu[5] = (byte)((crc >> 8) & 0xFF);
+        return pdu;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int)((value & 0x7F) | 0x80));
+            value = value >>> 7;
+        }
+        out.write((int)value);
+    }
+
+    // write the stream as a capture file in the HeadbandStreamRecorder layout, cut into packets of at most PACKET_SIZE bytes
+    // each delta_ms apart; returns the quantity of packets
+    private static int writeCapture(File theFile, byte[] stream, Random rnd, long delta_ms, byte[] trailingPartial) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(HeadbandStreamRecorder.FILE_MAGIC, 0, HeadbandStreamRecorder.FILE_MAGIC.length);
+        out.write(HeadbandStreamRecorder.FILE_VERSION);
+        long start = 1462060800000L;
+        for (int shift = 56; shift >= 0; shift -= 8) { out.write((int)(start >>> shift) & 0xFF); }
+        int packets = 0;
+        int pos = 0;
+        while (pos < stream.length) {
+            int len = Math.min(1 + rnd.nextInt(PACKET_SIZE), stream.length - pos);
+            writeVarint(out, (packets == 0 ? 0 : delta_ms));
+            writeVarint(out, len);
+            out.write(stream, pos, len);
+            pos = pos + len;
+            packets++;
+        }
+        if (trailingPartial != null) { out.write(trailingPartial, 0, trailingPartial.length); }
+        FileOutputStream fos = new FileOutputStream(theFile);
+        try { out.writeTo(fos); } finally { fos.close(); }
+        return packets;
+    }
+
+    private static ArrayList<byte[]> buildPdus(Random rnd) {
+        ArrayList<byte[]> pdus = new ArrayList<byte[]>();
+        for (int i = 0; i < QTY_PDUS; i++) {
+            int payloadLen = (i % 10 == 0 ? 1144 : rnd.nextInt(200));     // every tenth is sleep-report sized, spanning packets
+            pdus.add(buildPdu(rnd, i & 0xFF, payloadLen));
+        }
+        pdus.get(CORRUPTED_PDU)[20] ^= 0x01;
+        return pdus;
+    }
+
+    private static byte[] concat(ArrayList<byte[]> parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part: parts) { out.write(part, 0, part.length); }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void replayAtMaxSpeedDeliversEveryPdu() throws Exception {
+        Random rnd = new Random(15L);
+        ArrayList<byte[]> pdus = buildPdus(rnd);
+        byte[] stream = concat(pdus);
+        File theFile = File.createTempFile("ZeoCompanion_HBcapture_test", HeadbandStreamRecorder.FILE_EXTENSION);
+        try {
+            // a capture not properly closed ends with a partial packet record, which replay ignores
+            int packets = writeCapture(theFile, stream, rnd, 7L, new byte[] { 0x05, (byte)0x80, 0x01, 0x48, 0x4d });
+
+            CollectingSink theSink = new CollectingSink();
+            ZeoMobileHB_Receiver theReceiver = new ZeoMobileHB_Receiver(theSink);
+            HeadbandStreamReplayer.ReplayResults results = HeadbandStreamReplayer.replay(theFile, theReceiver, HeadbandStreamReplayer.SPEED_MAX, new SteppingCounter());
+
+            assertEquals(packets, results.rPackets);
+            assertEquals((long)stream.length, results.rBytes);
+            assertEquals((long)(QTY_PDUS - 1), results.rPdus);
+            assertEquals(7L * (packets - 1), results.rCaptured_ms);
+            assertEquals(4096L, results.rAllocBytes);
+            assertTrue(results.toString(), results.toString().contains("process allocated 4096 bytes"));
+
+            // every PDU reaches the sink in order; the corrupted one only as a marked untyped message
+            assertEquals(QTY_PDUS, theSink.mMsgs.size());
+            for (int i = 0; i < QTY_PDUS; i++) {
+                ZeoMobileHB_Msg theMsg = theSink.mMsgs.get(i);
+                assertArrayEquals("PDU " + i, pdus.get(i), Arrays.copyOf(theMsg.rBytes, theMsg.mRecLen));
+                assertEquals("PDU " + i, (short)(i & 0xFF), theMsg.rSeqNo);
+                assertEquals("PDU " + i, (i != CORRUPTED_PDU), theMsg.mCRCvalid);
+            }
+            assertEquals(1L, theReceiver.getBadCRCPduCount());
+            assertEquals(0L, theReceiver.getInvalidPduCount());
+            assertEquals(0L, theReceiver.getGarbageByteCount());
+            assertEquals(0L, theReceiver.getOverflowByteCount());
+        } finally {
+            theFile.delete();
+        }
+    }
+
+    @Test
+    public void pacedReplayFollowsTheCapturedTiming() throws Exception {
+        Random rnd = new Random(16L);
+        ArrayList<byte[]> pdus = new ArrayList<byte[]>();
+        for (int i = 0; i < 40; i++) { pdus.add(buildPdu(rnd, i, 100)); }
+        byte[] stream = concat(pdus);
+        File theFile = File.createTempFile("ZeoCompanion_HBcapture_test", HeadbandStreamRecorder.FILE_EXTENSION);
+        try {
+            int packets = writeCapture(theFile, stream, rnd, 100L, null);
+            long captured_ms = 100L * (packets - 1);
+
+            CollectingSink theSink = new CollectingSink();
+            HeadbandStreamReplayer.ReplayResults results = HeadbandStreamReplayer.replay(theFile, new ZeoMobileHB_Receiver(theSink), 10.0, null);
+            assertEquals(40, theSink.mMsgs.size());
+            assertEquals(captured_ms, results.rCaptured_ms);
+            assertTrue("replay at 10x took " + (results.rElapsed_ns / 1000000L) + " ms of a " + captured_ms + " ms capture",
+                    results.rElapsed_ns / 1000000L >= captured_ms / 10L - 2L);
+            assertTrue(results.rAllocBytes < 0);
+            assertTrue(results.toString(), results.toString().contains("allocations not measured"));
+        } finally {
+            theFile.delete();
+        }
+    }
+
+    @Test
+    public void nonCaptureFileIsRejected() throws Exception {
+        File theFile = File.createTempFile("ZeoCompanion_HBcapture_test", HeadbandStreamRecorder.FILE_EXTENSION);
+        try {
+            FileOutputStream fos = new FileOutputStream(theFile);
+            try { fos.write("HMSG not a capture".getBytes("US-ASCII")); } finally { fos.close(); }
+            try {
+                HeadbandStreamReplayer.replay(theFile, new ZeoMobileHB_Receiver(new CollectingSink()), HeadbandStreamReplayer.SPEED_MAX, null);
+                fail("a file without the capture magic was replayed");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Not a headband capture file"));
+            }
+        } finally {
+            theFile.delete();
+        }
+    }
+}
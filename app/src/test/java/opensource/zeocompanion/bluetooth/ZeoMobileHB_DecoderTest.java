@@ -0,0 +1,133 @@
+package opensource.zeocompanion.bluetooth;
+
+import org.junit.Test;
+
+import opensource.zeocompanion.utility.CRC16;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM test of ZeoMobileHB_Decoder:  the fields of a SleepReportEvent are taken from their documented offsets (record time 12,
+ * stage durations 18-28, ZQ 30, end of night 60, start of night 184) of a reference 1156-byte sleep report PDU; a PDU failing its
+ * CRC is counted and returned only untyped and marked, and a structurally invalid PDU is counted and dropped
+ */
+public class ZeoMobileHB_DecoderTest {
+    private static final int SLEEP_REPORT_LEN = 1156;
+
+    // the reference sleep report's values
+    private static final long RECORD_SECS = 1462093500L;        // 2016-05-01 09:05:00 UTC
+    private static final long END_OF_NIGHT_SECS = 1462092600L;  // 2016-05-01 08:50:00 UTC
+    private static final long START_OF_NIGHT_SECS = 1462060800L;// 2016-05-01 00:00:00 UTC
+    private static final int DEEP = 150;
+    private static final int LIGHT = 410;
+    private static final int REM = 190;
+    private static final int WAKE = 30;
+    private static final int TIME_TO_Z = 24;
+    private static final int TOTAL = 750;
+    private static final int ZQ = 98;
+
+    private static void putUInt16(byte[] pdu, int pos, int val) {
+        pdu[pos] = (byte)(val & 0xFF);
+        pdu[pos + 1] = (byte)((val >> 8) & 0xFF);
+    }
+
+    private static void putUInt32(byte[] pdu, int pos, long val) {
+        for (int i = 0; i < 4; i++) { pdu[pos + i] = (byte)((val >> (8 * i)) & 0xFF); }
+    }
+
+    // a sleep report PDU with the reference values at their offsets, the remainder of the report filled with a pattern, and a valid CRC
+    private static byte[] buildSleepReport(int theLen) {
+        byte[] pdu = new byte[theLen];
+        pdu[0] = 0x48; pdu[1] = 0x4d; pdu[2] = 0x53; pdu[3] = 0x47;     // "HMSG"
+        pdu[6] = 2;                                                     // protocol version
+        pdu[7] = (byte)ZeoMobileHB_Msg.ZEOMOB_HB_MSG_REPORT_SLEEP;
+        pdu[9] = 0x2A;                                                  // sequence number
+        putUInt16(pdu, 10, theLen - 12);
+        for (int i = 12; i < theLen; i++) { pdu[i] = (byte)(i * 7); }
+        putUInt32(pdu, 12, RECORD_SECS);
+        putUInt16(pdu, 18, DEEP);
+        putUInt16(pdu, 20, LIGHT);
+        putUInt16(pdu, 22, REM);
+        putUInt16(pdu, 24, WAKE);
+        putUInt16(pdu, 26, TIME_TO_Z);
+        putUInt16(pdu, 28, TOTAL);
+        putUInt16(pdu, 30, ZQ);
+        putUInt32(pdu, 60, END_OF_NIGHT_SECS);
+        putUInt32(pdu, 184, START_OF_NIGHT_SECS);
+        putUInt16(pdu, 4, CRC16.compute(pdu, 6, theLen - 6));
+        return pdu;
+    }
+
+    @Test
+    public void sleepReportFieldsAreDecodedFromTheirOffsets() throws Exception {
+        byte[] pdu = buildSleepReport(SLEEP_REPORT_LEN);
+
+        // present the PDU as a view within a larger buffer as the reassembler does
+        byte[] view = new byte[SLEEP_REPORT_LEN + 100];
+        System.arraycopy(pdu, 0, view, 37, SLEEP_REPORT_LEN);
+        ZeoMobileHB_Decoder theDecoder = new ZeoMobileHB_Decoder();
+        ZeoMobileHB_Msg theMsg = theDecoder.decode(view, 37, SLEEP_REPORT_LEN);
+
+        assertNotNull(theMsg);
+        assertTrue(theMsg instanceof ZeoMobileHB_Decoder.SleepReportEvent);
+        assertTrue(theMsg.mIsValid);
+        assertTrue(theMsg.mCRCvalid);
+        assertEquals(0x2A, theMsg.rSeqNo);
+        ZeoMobileHB_Decoder.SleepReportEvent theReport = (ZeoMobileHB_Decoder.SleepReportEvent)theMsg;
+        assertEquals(RECORD_SECS * 1000L, theReport.rRecord_Timestamp);
+        assertEquals(END_OF_NIGHT_SECS * 1000L, theReport.rEndOfNight_Timestamp);
+        assertEquals(START_OF_NIGHT_SECS * 1000L, theReport.rStartOfNight_Timestamp);
+        assertEquals(DEEP, theReport.rTimeInDeep);
+        assertEquals(LIGHT, theReport.rTimeInLight);
+        assertEquals(REM, theReport.rTimeInREM);
+        assertEquals(WAKE, theReport.rTimeInWake);
+        assertEquals(TIME_TO_Z, theReport.rTimeToZ);
+        assertEquals(TOTAL, theReport.rTotalSleep);
+        assertEquals(ZQ, theReport.rZQ_Score);
+
+        // the typed fields agree with the original display string's parse of the same bytes
+        String display = theReport.getDisplayString();
+        assertTrue(display, display.contains("TimeIn(z/ts={a,r,l,d})=" + TIME_TO_Z + "/" + TOTAL + "={" + WAKE + "," + REM + "," + LIGHT + "," + DEEP + "}"));
+        assertTrue(display, display.contains("ZQ=" + ZQ));
+        assertEquals(1L, theDecoder.mDecodedCnt);
+        assertEquals(0L, theDecoder.mBadCRCCnt);
+    }
+
+    @Test
+    public void badCRCisCountedAndMarkedButNotTyped() throws Exception {
+        byte[] pdu = buildSleepReport(SLEEP_REPORT_LEN);
+        pdu[30] = (byte)(pdu[30] ^ 0x01);      // corrupt the ZQ after the CRC was computed
+        ZeoMobileHB_Decoder theDecoder = new ZeoMobileHB_Decoder();
+        ZeoMobileHB_Msg theMsg = theDecoder.decode(pdu, 0, pdu.length);
+
+        assertNotNull("a CRC failure must remain visible for diagnosis", theMsg);
+        assertFalse(theMsg instanceof ZeoMobileHB_Decoder.SleepReportEvent);
+        assertFalse(theMsg.mCRCvalid);
+        assertTrue(theMsg.getDisplayString(), theMsg.getDisplayString().startsWith("*BAD CRC*"));
+        assertEquals(1L, theDecoder.mBadCRCCnt);
+        assertEquals(0L, theDecoder.mDecodedCnt);
+    }
+
+    @Test
+    public void replayedMessageIsMarkedAfterDecoding() throws Exception {
+        // the decoder builds the display string on the receiving thread, before the handler learns the message was replayed
+        byte[] pdu = buildSleepReport(SLEEP_REPORT_LEN);
+        ZeoMobileHB_Msg theMsg = new ZeoMobileHB_Decoder().decode(pdu, 0, pdu.length);
+        assertFalse(theMsg.mWasReplayed);
+        String live = theMsg.getDisplayString();
+        theMsg.markReplayed();
+        assertTrue(theMsg.mWasReplayed);
+        assertEquals("*REPLAY* " + live, theMsg.getDisplayString());
+    }
+
+    @Test
+    public void wrongLengthSleepReportIsDropped() throws Exception {
+        byte[] pdu = buildSleepReport(SLEEP_REPORT_LEN - 4);
+        ZeoMobileHB_Decoder theDecoder = new ZeoMobileHB_Decoder();
+        assertNull(theDecoder.decode(pdu, 0, pdu.length));
+        assertEquals(1L, theDecoder.mInvalidCnt);
+        assertNull(theDecoder.decode(pdu, 0, 11));
+        assertEquals(2L, theDecoder.mInvalidCnt);
+        assertEquals(0L, theDecoder.mDecodedCnt);
+    }
+}
@@ -0,0 +1,188 @@
+package opensource.zeocompanion.bluetooth;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM test of ZeoMobileHB_Reassembler:  PDUs fragmented across packets, coalesced into one packet, preceded by garbage
+ * (including false headers), wrapping around the end of the circular buffer, and overflowing it
+ */
+public class ZeoMobileHB_ReassemblerTest {
+    // build one PDU:  the "HMSG" header, six header bytes, the little-endian payload length, then the payload
+    private static byte[] buildPdu(Random rnd, int payloadLen) {
+        byte[] pdu = new byte[ZeoMobileHB_Reassembler.BASE_PDU_LEN + payloadLen];
+        pdu[0] = 0x48; pdu[1] = 0x4d; pdu[2] = 0x53; pdu[3] = 0x47;
+        for (int i = 4; i < 10; i++) { pdu[i] = (byte)rnd.nextInt(256); }
+        pdu[10] = (byte)(payloadLen & 0xFF);
+        pdu[11] = (byte)((payloadLen >> 8) & 0xFF);
+        for (int i = 12; i < pdu.length; i++) { pdu[i] = (byte)rnd.nextInt(256); }
+        return pdu;
+    }
+
+    private static ArrayList<byte[]> buildPdus(Random rnd, int qty, int maxPayloadLen) {
+        ArrayList<byte[]> pdus = new ArrayList<byte[]>();
+        for (int i = 0; i < qty; i++) { pdus.add(buildPdu(rnd, rnd.nextInt(maxPayloadLen + 1))); }
+        return pdus;
+    }
+
+    private static byte[] concat(ArrayList<byte[]> parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part: parts) { out.write(part, 0, part.length); }
+        return out.toByteArray();
+    }
+
+    // drain all currently complete PDUs, copying each out of the reassembler's view
+    private static void drain(ZeoMobileHB_Reassembler theReassembler, ArrayList<byte[]> found) {
+        while (theReassembler.nextPdu()) {
+            found.add(Arrays.copyOfRange(theReassembler.getPduBuffer(), theReassembler.getPduOffset(), theReassembler.getPduOffset() + theReassembler.getPduLength()));
+        }
+    }
+
+    // feed the stream in packets of the given sizes (cycled), draining after every packet
+    private static ArrayList<byte[]> feed(ZeoMobileHB_Reassembler theReassembler, byte[] stream, int[] packetSizes) {
+        ArrayList<byte[]> found = new ArrayList<byte[]>();
+        int pos = 0;
+        int p = 0;
+        while (pos < stream.length) {
+            int len = Math.min(packetSizes[p % packetSizes.length], stream.length - pos);
+            theReassembler.append(stream, pos, len);
+            drain(theReassembler, found);
+            pos = pos + len;
+            p++;
+        }
+        return found;
+    }
+
+    private static void assertSamePdus(ArrayList<byte[]> expected, ArrayList<byte[]> actual) {
+        assertEquals("quantity of PDUs", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) { assertArrayEquals("PDU " + i, expected.get(i), actual.get(i)); }
+    }
+
+    @Test
+    public void singlePduInOnePacket() throws Exception {
+        Random rnd = new Random(1L);
+        byte[] pdu = buildPdu(rnd, 20);
+        ZeoMobileHB_Reassembler theReassembler = new ZeoMobileHB_Reassembler();
+        theReassembler.append(pdu, 0, pdu.length);
+        assertTrue(theReassembler.nextPdu());
+        assertEquals(pdu.length, theReassembler.getPduLength());
+        assertArrayEquals(pdu, Arrays.copyOfRange(theReassembler.getPduBuffer(), theReassembler.getPduOffset(), theReassembler.getPduOffset() + pdu.length));
+        assertFalse(theReassembler.nextPdu());
+        assertEquals(0, theReassembler.available());
+        assertEquals(1L, theReassembler.mPdusFound);
+        assertEquals(0L, theReassembler.mGarbageBytes);
+    }
+
+    @Test
+    public void fragmentedPdusAreReassembled() throws Exception {
+        Random rnd = new Random(2L);
+        ArrayList<byte[]> pdus = buildPdus(rnd, 200, 300);
+        byte[] stream = concat(pdus);
+
+        // one byte at a time, so every header and every length field is split
+        assertSamePdus(pdus, feed(new ZeoMobileHB_Reassembler(), stream, new int[] { 1 }));
+
+        // splits just short of the base PDU and at assorted other sizes
+        assertSamePdus(pdus, feed(new ZeoMobileHB_Reassembler(), stream, new int[] { 3, 11, 13, 7, 64, 2 }));
+
+        // random packet sizes as RFCOMM delivers them
+        int[] sizes = new int[100];
+        for (int i = 0; i < sizes.length; i++) { sizes[i] = 1 + rnd.nextInt(700); }
+        ZeoMobileHB_Reassembler theReassembler = new ZeoMobileHB_Reassembler();
+        assertSamePdus(pdus, feed(theReassembler, stream, sizes));
+        assertEquals(0L, theReassembler.mGarbageBytes);
+        assertEquals(0L, theReassembler.mOverflowBytes);
+        assertEquals(0, theReassembler.available());
+    }
+
+    @Test
+    public void coalescedPdusAreSeparated() throws Exception {
+        Random rnd = new Random(3L);
+        ArrayList<byte[]> pdus = buildPdus(rnd, 50, 40);
+        byte[] stream = concat(pdus);
+        ZeoMobileHB_Reassembler theReassembler = new ZeoMobileHB_Reassembler();
+        theReassembler.append(stream, 0, stream.length);
+        ArrayList<byte[]> found = new ArrayList<byte[]>();
+        drain(theReassembler, found);
+        assertSamePdus(pdus, found);
+        assertEquals(50L, theReassembler.mPdusFound);
+
+        // a packet that ends one PDU and starts the next
+        ArrayList<byte[]> pair = buildPdus(rnd, 2, 40);
+        byte[] pairStream = concat(pair);
+        int split = pair.get(0).length + 5;
+        theReassembler = new ZeoMobileHB_Reassembler();
+        found.clear();
+        theReassembler.append(pairStream, 0, split);
+        drain(theReassembler, found);
+        assertEquals(1, found.size());
+        assertEquals(5, theReassembler.available());
+        theReassembler.append(pairStream, split, pairStream.length - split);
+        drain(theReassembler, found);
+        assertSamePdus(pair, found);
+    }
+
+    @Test
+    public void garbageBeforeAndBetweenPdusIsSkipped() throws Exception {
+        Random rnd = new Random(4L);
+        ArrayList<byte[]> pdus = buildPdus(rnd, 30, 60);
+
+        // garbage without any 'H' so none of it can start a header, partial headers, and a false header claiming an unbelievable length
+        byte[] garbage = new byte[] { 0x00, 0x13, 0x48, 0x4d, 0x53, 0x7f, 0x48, 0x4d, 0x01 };
+        byte[] falseHeader = new byte[] { 0x48, 0x4d, 0x53, 0x47, 0, 0, 0, 0, 0, 0, (byte)0xFF, (byte)0xFF };
+        ArrayList<byte[]> parts = new ArrayList<byte[]>();
+        long expectedGarbage = 0L;
+        for (int i = 0; i < pdus.size(); i++) {
+            if (i % 3 == 0) { parts.add(garbage); expectedGarbage = expectedGarbage + garbage.length; }
+            if (i % 5 == 1) { parts.add(falseHeader); expectedGarbage = expectedGarbage + falseHeader.length; }
+            parts.add(pdus.get(i));
+        }
+        byte[] stream = concat(parts);
+
+        ZeoMobileHB_Reassembler theReassembler = new ZeoMobileHB_Reassembler();
+        assertSamePdus(pdus, feed(theReassembler, stream, new int[] { 17, 1, 250, 4 }));
+        assertEquals(expectedGarbage, theReassembler.mGarbageBytes);
+        assertEquals((long)pdus.size(), theReassembler.mPdusFound);
+    }
+
+    @Test
+    public void pdusWrappingTheCircularBufferAreIntact() throws Exception {
+        Random rnd = new Random(5L);
+        ArrayList<byte[]> pdus = buildPdus(rnd, 400, 1000);     // several times the default capacity, so many PDUs straddle the wrap
+        byte[] stream = concat(pdus);
+        ZeoMobileHB_Reassembler theReassembler = new ZeoMobileHB_Reassembler();
+        assertTrue(stream.length > ZeoMobileHB_Reassembler.DEFAULT_CAPACITY * 4);
+        assertSamePdus(pdus, feed(theReassembler, stream, new int[] { 997, 1500, 333 }));
+        assertEquals(0L, theReassembler.mOverflowBytes);
+    }
+
+    @Test
+    public void overflowDiscardsOldestBytes() throws Exception {
+        Random rnd = new Random(6L);
+        ZeoMobileHB_Reassembler theReassembler = new ZeoMobileHB_Reassembler();
+        byte[] junk = new byte[ZeoMobileHB_Reassembler.DEFAULT_CAPACITY];   // the default capacity is already a power of two
+        byte[] pdu = buildPdu(rnd, 100);
+        theReassembler.append(junk, 0, junk.length);
+        int dropped = theReassembler.append(pdu, 0, pdu.length);
+        assertEquals(pdu.length, dropped);
+        assertEquals((long)pdu.length, theReassembler.mOverflowBytes);
+        assertTrue(theReassembler.nextPdu());
+        assertEquals(pdu.length, theReassembler.getPduLength());
+        assertEquals((long)(junk.length - pdu.length), theReassembler.mGarbageBytes);
+
+        // a single packet larger than the entire buffer keeps only its newest bytes
+        theReassembler.reset();
+        byte[] huge = new byte[ZeoMobileHB_Reassembler.DEFAULT_CAPACITY + 500];
+        System.arraycopy(pdu, 0, huge, huge.length - pdu.length, pdu.length);
+        theReassembler.append(huge, 0, huge.length);
+        assertEquals(ZeoMobileHB_Reassembler.DEFAULT_CAPACITY, theReassembler.available());
+        assertTrue(theReassembler.nextPdu());
+        assertArrayEquals(pdu, Arrays.copyOfRange(theReassembler.getPduBuffer(), theReassembler.getPduOffset(), theReassembler.getPduOffset() + pdu.length));
+    }
+}
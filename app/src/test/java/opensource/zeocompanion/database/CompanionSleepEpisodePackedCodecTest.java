@@ -0,0 +1,235 @@
+package opensource.zeocompanion.database;
+
+import com.myzeo.android.api.data.MyZeoExportDataContract;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM test of CompanionSleepEpisodePackedCodec:  the old-style CSV storage strings of events, fixed-slot attributes and custom
+ * attributes are converted to the packed form and back (as the database upgrade and the fallback CSV columns do) without loss,
+ * including empty values, event info strings, and custom attributes lacking an export name; also pins that the packed form keeps an
+ * empty string distinct from null, and that a string too long for its 2-byte length is rejected rather than corrupting the BLOB
+ */
+public class CompanionSleepEpisodePackedCodecTest {
+    private static final int SLOTS = MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL;
+
+    // join the per-slot fields into a fixed attributes CSV string (one field per slot, no trailing comma)
+    private static String fixedCSV(String[] slots) {
+        StringBuilder sb = new StringBuilder();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (slot > 0) { sb.append(','); }
+            if (slot < slots.length && slots[slot] != null) { sb.append(slots[slot]); }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void eventsRoundTrip() throws Exception {
+        // an event without info, one with info, one with non-ASCII info, and a non-event code
+        String csv = "1;1462060800000;10;,2;1462061000000;20;woken by the dog,3;1462062000000;22;r\u00eave \u00e9trange,0;1462090000000;30;";
+        byte[] packed = CompanionSleepEpisodePackedCodec.encodeEventsFromCSV(csv);
+        assertEquals(4, CompanionSleepEpisodePackedCodec.getCount(packed));
+        assertEquals(csv, CompanionSleepEpisodePackedCodec.toEventsCSV(packed));
+
+        // zero-parse accessors
+        assertEquals(1462061000000L, CompanionSleepEpisodePackedCodec.getEventTimestamp(packed, 1));
+        assertEquals(20, CompanionSleepEpisodePackedCodec.getEventNo(packed, 1));
+        assertEquals(2, CompanionSleepEpisodePackedCodec.getEventSleepStage(packed, 1));
+        assertEquals("woken by the dog", CompanionSleepEpisodePackedCodec.getEventInfo(packed, 1));
+        assertNull(CompanionSleepEpisodePackedCodec.getEventInfo(packed, 0));
+        assertEquals("r\u00eave \u00e9trange", CompanionSleepEpisodePackedCodec.getEventInfo(packed, 2));
+
+        // decoding yields the same records as parsing the CSV
+        ArrayList<CompanionSleepEpisodeEventsParsedRec> theEvents = new ArrayList<CompanionSleepEpisodeEventsParsedRec>();
+        CompanionSleepEpisodePackedCodec.decodeEvents(packed, theEvents);
+        assertEquals(4, theEvents.size());
+        String[] fields = csv.split(",", -1);
+        for (int i = 0; i < fields.length; i++) {
+            CompanionSleepEpisodeEventsParsedRec expected = new CompanionSleepEpisodeEventsParsedRec(fields[i]);
+            assertEquals(expected.getStorageString(), theEvents.get(i).getStorageString());
+        }
+    }
+
+    @Test
+    public void emptyEventsAreNull() throws Exception {
+        assertNull(CompanionSleepEpisodePackedCodec.encodeEventsFromCSV(null));
+        assertNull(CompanionSleepEpisodePackedCodec.encodeEventsFromCSV(""));
+        assertNull(CompanionSleepEpisodePackedCodec.toEventsCSV(null));
+        assertEquals(0, CompanionSleepEpisodePackedCodec.getCount(null));
+
+        // empty fields between events are ignored
+        byte[] packed = CompanionSleepEpisodePackedCodec.encodeEventsFromCSV(",1;1462060800000;10;,,");
+        assertEquals("1;1462060800000;10;", CompanionSleepEpisodePackedCodec.toEventsCSV(packed));
+    }
+
+    @Test
+    public void fixedAttributesRoundTrip() throws Exception {
+        String[] slots = new String[SLOTS];
+        slots[0] = "3.0;Refreshed";
+        slots[2] = "2.5;";                  // likert without a value
+        slots[4] = "0.0;Coffee";            // value without a likert
+        slots[SLOTS - 1] = "1.0;last slot";
+        String csv = fixedCSV(slots);
+        byte[] packed = CompanionSleepEpisodePackedCodec.encodeFixedAttribsFromCSV(csv);
+        assertEquals(csv, CompanionSleepEpisodePackedCodec.toFixedAttribsCSV(packed));
+
+        assertTrue(CompanionSleepEpisodePackedCodec.isFixedSlotPresent(packed, 0));
+        assertFalse(CompanionSleepEpisodePackedCodec.isFixedSlotPresent(packed, 1));
+        assertEquals(2.5f, CompanionSleepEpisodePackedCodec.getFixedLikert(packed, 2), 0.0f);
+        assertNull(CompanionSleepEpisodePackedCodec.getFixedValue(packed, 2));
+        assertEquals("Coffee", CompanionSleepEpisodePackedCodec.getFixedValue(packed, 4));
+        assertEquals("last slot", CompanionSleepEpisodePackedCodec.getFixedValue(packed, SLOTS - 1));
+
+        // the export form has every slot followed by a comma, with or without the values
+        StringBuilder sb = new StringBuilder();
+        CompanionSleepEpisodePackedCodec.appendFixedAttribsCSV(sb, packed, true);
+        assertEquals(csv.replace("2.5;", "2.5") + ",", sb.toString());
+    }
+
+    @Test
+    public void emptyFixedAttributesAreNormalized() throws Exception {
+        // a slot with neither likert nor value is empty, as the old unpacking treated it; a short string leaves the remaining slots empty
+        String[] slots = new String[SLOTS];
+        slots[1] = "0.0;";
+        slots[3] = "4.0;Great";
+        byte[] packed = CompanionSleepEpisodePackedCodec.encodeFixedAttribsFromCSV(fixedCSV(slots));
+        assertFalse(CompanionSleepEpisodePackedCodec.isFixedSlotPresent(packed, 1));
+        slots[1] = null;
+        assertEquals(fixedCSV(slots), CompanionSleepEpisodePackedCodec.toFixedAttribsCSV(packed));
+        assertEquals(fixedCSV(slots), CompanionSleepEpisodePackedCodec.toFixedAttribsCSV(CompanionSleepEpisodePackedCodec.encodeFixedAttribsFromCSV(",0.0;,,4.0;Great")));
+
+        assertNull(CompanionSleepEpisodePackedCodec.encodeFixedAttribsFromCSV(null));
+        assertNull(CompanionSleepEpisodePackedCodec.encodeFixedAttribsFromCSV(fixedCSV(new String[0])));
+        assertNull(CompanionSleepEpisodePackedCodec.toFixedAttribsCSV(null));
+    }
+
+    @Test
+    public void variAttributesRoundTripIncludingEmptyExportNames() throws Exception {
+        String csv = "1;Alcohol;2.0;Beer,0;;3.0;nameless,2;NoContent;0.0;,0;Dream;0.0;Flying,4;;0.0;";
+        byte[] packed = CompanionSleepEpisodePackedCodec.encodeVariAttribsFromCSV(csv);
+        assertEquals(5, CompanionSleepEpisodePackedCodec.getCount(packed));
+        assertEquals(csv, CompanionSleepEpisodePackedCodec.toVariAttribsCSV(packed));
+
+        // the export form keeps every entry, each followed by a comma, with an absent export name left empty
+        StringBuilder sb = new StringBuilder();
+        CompanionSleepEpisodePackedCodec.appendVariAttribsCSV(sb, packed);
+        assertEquals(csv + ",", sb.toString());
+
+        assertNull(CompanionSleepEpisodePackedCodec.getVariExportName(packed, 1));
+        assertEquals("nameless", CompanionSleepEpisodePackedCodec.getVariValue(packed, 1));
+        assertEquals(3, CompanionSleepEpisodePackedCodec.findVari(packed, "Dream"));
+        assertEquals(-1, CompanionSleepEpisodePackedCodec.findVari(packed, ""));
+        assertEquals(-1, CompanionSleepEpisodePackedCodec.findVari(packed, "Dreams"));
+
+        // the decoded array omits the entries lacking an export name or any content, as the old unpacking did
+        ArrayList<CompanionSleepEpisodeInfoParsedRec> theAttribs = CompanionSleepEpisodePackedCodec.decodeVariAttribs(packed);
+        assertEquals(2, theAttribs.size());
+        assertEquals("Alcohol", theAttribs.get(0).rAttributeExportName);
+        assertEquals("Beer", theAttribs.get(0).rValue);
+        assertEquals(1, theAttribs.get(0).rSleepStage);
+        assertEquals("Dream", theAttribs.get(1).rAttributeExportName);
+        assertEquals(0.0f, theAttribs.get(1).rLikert, 0.0f);
+
+        // re-packing a decoded array stores what it contains; null entries are skipped
+        theAttribs.add(null);
+        assertEquals("1;Alcohol;2.0;Beer,0;Dream;0.0;Flying", CompanionSleepEpisodePackedCodec.toVariAttribsCSV(CompanionSleepEpisodePackedCodec.encodeVariAttribs(theAttribs)));
+    }
+
+    @Test
+    public void emptyVariAttributesAreNull() throws Exception {
+        assertNull(CompanionSleepEpisodePackedCodec.encodeVariAttribsFromCSV(null));
+        assertNull(CompanionSleepEpisodePackedCodec.encodeVariAttribsFromCSV(""));
+        assertNull(CompanionSleepEpisodePackedCodec.encodeVariAttribs(new ArrayList<CompanionSleepEpisodeInfoParsedRec>()));
+        assertNull(CompanionSleepEpisodePackedCodec.toVariAttribsCSV(null));
+        assertEquals(0, CompanionSleepEpisodePackedCodec.decodeVariAttribs(null).size());
+    }
+
+    // a string of the given quantity of repeats of the given char
+    private static String repeated(char c, int qty) {
+        StringBuilder sb = new StringBuilder(qty);
+        for (int i = 0; i < qty; i++) { sb.append(c); }
+        return sb.toString();
+    }
+
+    @Test
+    public void emptyStringsStayDistinctFromNull() throws Exception {
+        ArrayList<CompanionSleepEpisodeEventsParsedRec> theEvents = new ArrayList<CompanionSleepEpisodeEventsParsedRec>();
+        theEvents.add(new CompanionSleepEpisodeEventsParsedRec(1, 1462060800000L, 10, null));
+        CompanionSleepEpisodeEventsParsedRec emptyInfo = new CompanionSleepEpisodeEventsParsedRec(2, 1462061000000L, 20, null);
+        emptyInfo.rEventInfo = "";
+        theEvents.add(emptyInfo);
+        byte[] packed = CompanionSleepEpisodePackedCodec.encodeEvents(theEvents);
+        assertNull(CompanionSleepEpisodePackedCodec.getEventInfo(packed, 0));
+        assertEquals("", CompanionSleepEpisodePackedCodec.getEventInfo(packed, 1));
+
+        // fixed-slot values
+        ArrayList<CompanionSleepEpisodeInfoParsedRec> theSlots = new ArrayList<CompanionSleepEpisodeInfoParsedRec>();
+        theSlots.add(new CompanionSleepEpisodeInfoParsedRec(0, 0, "Morning", "", 2.0f));
+        theSlots.add(null);
+        theSlots.add(new CompanionSleepEpisodeInfoParsedRec(2, 0, "Evening", "Tired", 1.0f));
+        packed = CompanionSleepEpisodePackedCodec.encodeFixedAttribs(theSlots);
+        assertTrue(CompanionSleepEpisodePackedCodec.isFixedSlotPresent(packed, 0));
+        assertEquals("", CompanionSleepEpisodePackedCodec.getFixedValue(packed, 0));
+        assertNull(CompanionSleepEpisodePackedCodec.getFixedValue(packed, 1));
+        assertEquals("Tired", CompanionSleepEpisodePackedCodec.getFixedValue(packed, 2));
+
+        // custom attributes; an empty export name is stored, but the decoded array still omits it just as a missing export name
+        ArrayList<CompanionSleepEpisodeInfoParsedRec> theAttribs = new ArrayList<CompanionSleepEpisodeInfoParsedRec>();
+        theAttribs.add(new CompanionSleepEpisodeInfoParsedRec(-1, 1, "Alcohol", "", 2.0f));
+        theAttribs.add(new CompanionSleepEpisodeInfoParsedRec(-1, 1, "", "nameless", 3.0f));
+        packed = CompanionSleepEpisodePackedCodec.encodeVariAttribs(theAttribs);
+        assertEquals("", CompanionSleepEpisodePackedCodec.getVariValue(packed, 0));
+        assertEquals("", CompanionSleepEpisodePackedCodec.getVariExportName(packed, 1));
+        assertEquals(1, CompanionSleepEpisodePackedCodec.findVari(packed, ""));
+        ArrayList<CompanionSleepEpisodeInfoParsedRec> decoded = CompanionSleepEpisodePackedCodec.decodeVariAttribs(packed);
+        assertEquals(1, decoded.size());
+        assertEquals("Alcohol", decoded.get(0).rAttributeExportName);
+        assertEquals("", decoded.get(0).rValue);
+    }
+
+    @Test
+    public void oversizedStringsAreRejected() throws Exception {
+        String longest = repeated('a', CompanionSleepEpisodePackedCodec.MAX_STRING_BYTES);
+        String tooLong = repeated('a', CompanionSleepEpisodePackedCodec.MAX_STRING_BYTES + 1);
+        String tooLongMultibyte = repeated('\u20ac', CompanionSleepEpisodePackedCodec.MAX_STRING_BYTES / 3 + 1);    // 3 UTF-8 bytes per char
+        assertTrue(CompanionSleepEpisodePackedCodec.isStringStorable(null));
+        assertTrue(CompanionSleepEpisodePackedCodec.isStringStorable(longest));
+        assertFalse(CompanionSleepEpisodePackedCodec.isStringStorable(tooLong));
+        assertFalse(CompanionSleepEpisodePackedCodec.isStringStorable(tooLongMultibyte));
+
+        // the longest storable string round-trips, and the entry after it is intact
+        ArrayList<CompanionSleepEpisodeInfoParsedRec> theAttribs = new ArrayList<CompanionSleepEpisodeInfoParsedRec>();
+        theAttribs.add(new CompanionSleepEpisodeInfoParsedRec(-1, 1, "Notes", longest, 1.0f));
+        theAttribs.add(new CompanionSleepEpisodeInfoParsedRec(-1, 2, "Dream", "Flying", 2.0f));
+        byte[] packed = CompanionSleepEpisodePackedCodec.encodeVariAttribs(theAttribs);
+        assertEquals(longest, CompanionSleepEpisodePackedCodec.getVariValue(packed, 0));
+        assertEquals("Dream", CompanionSleepEpisodePackedCodec.getVariExportName(packed, 1));
+        assertEquals("Flying", CompanionSleepEpisodePackedCodec.getVariValue(packed, 1));
+
+        // the encoders refuse a longer string rather than writing a wrapped-around length
+        CompanionSleepEpisodeInfoParsedRec oversized = new CompanionSleepEpisodeInfoParsedRec(-1, 1, "Notes", "", 1.0f);
+        oversized.rValue = tooLongMultibyte;
+        theAttribs.set(0, oversized);
+        try {
+            CompanionSleepEpisodePackedCodec.encodeVariAttribs(theAttribs);
+            fail("an oversized string was encoded");
+        } catch (IllegalArgumentException expected) {}
+        ArrayList<CompanionSleepEpisodeEventsParsedRec> theEvents = new ArrayList<CompanionSleepEpisodeEventsParsedRec>();
+        CompanionSleepEpisodeEventsParsedRec oversizedEvent = new CompanionSleepEpisodeEventsParsedRec(1, 1462060800000L, 10, null);
+        oversizedEvent.rEventInfo = tooLong;
+        theEvents.add(oversizedEvent);
+        try {
+            CompanionSleepEpisodePackedCodec.encodeEvents(theEvents);
+            fail("an oversized string was encoded");
+        } catch (IllegalArgumentException expected) {}
+
+        // the records built from end-user entries do not keep such a string at all
+        assertNull(new CompanionSleepEpisodeEventsParsedRec(1, 1462060800000L, 10, tooLong).rEventInfo);
+        assertNull(new CompanionSleepEpisodeInfoParsedRec(-1, 1, "Notes", tooLong, 1.0f).rValue);
+        assertEquals("Notes", new CompanionSleepEpisodeInfoParsedRec(-1, 1, "Notes", tooLong, 1.0f).rAttributeExportName);
+    }
+}
@@ -0,0 +1,75 @@
+package opensource.zeocompanion.utility;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM microbenchmark of CRC16:  the sliced computation versus the byte-at-a-time computation over buffers from 16 bytes
+ * (a short command PDU) to 4 KB (the largest believable PDU); their agreement is a regular test, while the timing is an ignored
+ * benchmark to be run manually (it fails, with the timings of every size, should the sliced computation be the slower from 64 bytes)
+ */
+public class CRC16Benchmark {
+    private static final int[] SIZES = { 16, 64, 256, 1156, 4096 };     // 1156 bytes is a sleep report PDU
+    private static final int QTY_BUFFERS = 64;
+    private static final long BYTES_PER_RUN = 16L * 1024L * 1024L;
+
+    // compute the CRC of every buffer repeatedly until about BYTES_PER_RUN bytes have been processed; returns a checksum
+    private static long run(byte[][] buffers, int size, boolean sliced) {
+        long checksum = 0L;
+        long rounds = BYTES_PER_RUN / ((long)size * buffers.length);
+        for (long r = 0; r < rounds; r++) {
+            for (byte[] buffer: buffers) {
+                if (sliced) { checksum += CRC16.compute(buffer, 0, size); }
+                else { checksum += CRC16.updateBytewise(CRC16.INIT_CCITT, buffer, 0, size); }
+            }
+        }
+        return checksum;
+    }
+
+    private static byte[][] buildBuffers(Random rnd, int size) {
+        byte[][] buffers = new byte[QTY_BUFFERS][size];
+        for (byte[] buffer: buffers) { rnd.nextBytes(buffer); }
+        return buffers;
+    }
+
+    @Test
+    public void slicedMatchesBytewiseAcrossBufferSizes() throws Exception {
+        Random rnd = new Random(16L);
+        for (int size: SIZES) {
+            byte[][] buffers = buildBuffers(rnd, size);
+            for (int b = 0; b < buffers.length; b++) {
+                assertEquals(size + " bytes, buffer " + b, CRC16.updateBytewise(CRC16.INIT_CCITT, buffers[b], 0, size), CRC16.compute(buffers[b], 0, size));
+            }
+        }
+    }
+
+    @Ignore("timing benchmark; run manually")
+    @Test
+    public void computeAcrossBufferSizes() throws Exception {
+        Random rnd = new Random(16L);
+        StringBuilder timings = new StringBuilder();
+        boolean slicedSlower = false;
+        for (int size: SIZES) {
+            byte[][] buffers = buildBuffers(rnd, size);
+
+            // warm up the JIT, then time
+            long checksum = run(buffers, size, false) + run(buffers, size, true);
+            long start_ns = System.nanoTime();
+            checksum += run(buffers, size, false);
+            long bytewise_ns = System.nanoTime() - start_ns;
+            start_ns = System.nanoTime();
+            checksum += run(buffers, size, true);
+            long sliced_ns = System.nanoTime() - start_ns;
+
+            long buffersPerRun = (BYTES_PER_RUN / ((long)size * QTY_BUFFERS)) * QTY_BUFFERS;
+            timings.append(size).append(" bytes: bytewise ").append(bytewise_ns / buffersPerRun).append(" ns, sliced ")
+                    .append(sliced_ns / buffersPerRun).append(" ns per buffer (checksum ").append(checksum).append("); ");
+            if (size >= 64 && sliced_ns > bytewise_ns) { slicedSlower = true; }   // a 16 byte PDU is too short for the slicing to pay off
+        }
+        assertFalse(timings.toString(), slicedSlower);
+    }
+}
@@ -0,0 +1,131 @@
+package opensource.zeocompanion.utility;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM test of CRC16:  the standard CRC-16/CCITT check value, the CRCs of headband PDUs as built by the App, and the sliced
+ * computation against the original byte-at-a-time table computation of ZeoMobileHB_Msg and a table-free bit-at-a-time
+ * computation upon random windows of random buffers
+ */
+public class CRC16Test {
+    // the table and byte-at-a-time loop ZeoMobileHB_Msg used before CRC16 existed; kept verbatim as the reference the headband accepted
+    private static final int[] CRC16_TABLE = {
+            0, 4129, 8258, 12387, 16516, 20645, 24774, 28903, 33032, 37161, 41290, 45419, 49548, 53677, 57806, 61935,
+            4657, 528, 12915, 8786, 21173, 17044, 29431, 25302, 37689, 33560, 45947, 41818, 54205, 50076, 62463, 58334,
+            9314, 13379, 1056, 5121, 25830, 29895, 17572, 21637, 42346, 46411, 34088, 38153, 58862, 62927, 50604, 54669,
+            13907, 9842, 5649, 1584, 30423, 26358, 22165, 18100, 46939, 42874, 38681, 34616, 63455, 59390, 55197, 51132,
+            18628, 22757, 26758, 30887, 2112, 6241, 10242, 14371, 51660, 55789, 59790, 63919, 35144, 39273, 43274, 47403,
+            23285, 19156, 31415, 27286, 6769, 2640, 14899, 10770, 56317, 52188, 64447, 60318, 39801, 35672, 47931, 43802,
+            27814, 31879, 19684, 23749, 11298, 15363, 3168, 7233, 60846, 64911, 52716, 56781, 44330, 48395, 36200, 40265,
+            32407, 28342, 24277, 20212, 15891, 11826, 7761, 3696, 65439, 61374, 57309, 53244, 48923, 44858, 40793, 36728,
+            37256, 33193, 45514, 41451, 53516, 49453, 61774, 57711, 4224, 161, 12482, 8419, 20484, 16421, 28742, 24679,
+            33721, 37784, 41979, 46042, 49981, 54044, 58239, 62302, 689, 4752, 8947, 13010, 16949, 21012, 25207, 29270,
+            46570, 42443, 38312, 34185, 62830, 58703, 54572, 50445, 13538, 9411, 5280, 1153, 29798, 25671, 21540, 17413,
+            42971, 47098, 34713, 38840, 59231, 63358, 50973, 55100, 9939, 14066, 1681, 5808, 26199, 30326, 17941, 22068,
+            55628, 51565, 63758, 59695, 39368, 35305, 47498, 43435, 22596, 18533, 30726, 26663, 6336, 2273, 14466, 10403,
+            52093, 56156, 60223, 64286, 35833, 39896, 43963, 48026, 19061, 23124, 27191, 31254, 2801, 6864, 10931, 14994,
+            64814, 60687, 56684, 52557, 48554, 44427, 40424, 36297, 31782, 27655, 23652, 19525, 15522, 11395, 7392, 3265,
+            61215, 65342, 53085, 57212, 44955, 49082, 36825, 40952, 28183, 32310, 20053, 24180, 11923, 16050, 3793, 7920
+    };
+
+    private static int referenceUpdate(int seed, byte[] buffer, int offset, int length) {
+        int i = seed;
+        for (int pos = offset; pos < offset + length; pos++) {
+            int k = buffer[pos];
+            i = i << 8 & 0xFFFF ^ CRC16_TABLE[(i >> 8 ^ k & 0xFF)];
+        }
+        return i;
+    }
+
+    // headband PDUs as ZeoMobileHB_Msg builds them ("HMSG", CRC little-endian at bytes 4-5 over bytes 6 onward, protocol version,
+    // message type, ack-request, sequence number, data length, payload); the CRCs are those the original implementation put on the wire
+    private static final byte[] PDU_QUERY_STATE = { // COMMAND_REQ, ack requested, seq 0x01, HB_COMMAND_QUERY_STATE
+            0x48, 0x4D, 0x53, 0x47, 0x1A, 0x0A, 0x02, 0x01, 0x01, 0x01, 0x04, 0x00, 0x06, 0x00, 0x00, 0x00 };
+    private static final byte[] PDU_SLEEP_SEND = { // COMMAND_REQ, ack requested, seq 0x2A, HB_COMMAND_SLEEP_SEND
+            0x48, 0x4D, 0x53, 0x47, (byte)0x99, (byte)0x8D, 0x02, 0x01, 0x01, 0x2A, 0x04, 0x00, 0x08, 0x00, 0x00, 0x00 };
+    private static final byte[] PDU_TIME_QUERY = { // TIME_QUERY, seq 0x07, 1462093500 seconds and 250 milliseconds
+            0x48, 0x4D, 0x53, 0x47, 0x11, 0x33, 0x02, 0x0A, 0x00, 0x07, 0x08, 0x00, (byte)0xBC, (byte)0xC6, 0x25, 0x57, (byte)0xFA, 0x00, 0x00, 0x00 };
+    private static final byte[] PDU_TEST_LED_ON = { // TEST_LED, seq 0x10, on
+            0x48, 0x4D, 0x53, 0x47, (byte)0xD7, 0x4D, 0x02, (byte)0xA3, 0x00, 0x10, 0x04, 0x00, 0x01, 0x00, 0x00, 0x00 };
+
+    // table-free reference:  polynomial 0x1021, most-significant bit first
+    private static int updateBitwise(int seed, byte[] buffer, int offset, int length) {
+        int crc = seed & 0xFFFF;
+        for (int pos = offset; pos < offset + length; pos++) {
+            crc = crc ^ ((buffer[pos] & 0xFF) << 8);
+            for (int bit = 0; bit < 8; bit++) {
+                if ((crc & 0x8000) != 0) { crc = ((crc << 1) ^ 0x1021) & 0xFFFF; }
+                else { crc = (crc << 1) & 0xFFFF; }
+            }
+        }
+        return crc;
+    }
+
+    @Test
+    public void checkValue() throws Exception {
+        byte[] check = "123456789".getBytes("US-ASCII");
+        assertEquals(0x29B1, CRC16.compute(check, 0, check.length));
+        assertEquals(0x29B1, CRC16.updateBytewise(CRC16.INIT_CCITT, check, 0, check.length));
+        assertEquals(0x29B1, updateBitwise(CRC16.INIT_CCITT, check, 0, check.length));
+        assertEquals(0x29B1, referenceUpdate(CRC16.INIT_CCITT, check, 0, check.length));
+
+        // the same bytes as a window within a larger buffer
+        byte[] padded = new byte[check.length + 20];
+        System.arraycopy(check, 0, padded, 13, check.length);
+        assertEquals(0x29B1, CRC16.compute(padded, 13, check.length));
+    }
+
+    private static void assertPDUcrc(String name, int expected, byte[] pdu) {
+        int stored = (pdu[4] & 0xFF) | ((pdu[5] & 0xFF) << 8);
+        assertEquals(name + " stored CRC", expected, stored);
+        assertEquals(name + " reference CRC", expected, referenceUpdate(CRC16.INIT_CCITT, pdu, 6, pdu.length - 6));
+        assertEquals(name + " CRC", expected, CRC16.compute(pdu, 6, pdu.length - 6));
+    }
+
+    @Test
+    public void headbandPDUcrcs() throws Exception {
+        assertPDUcrc("query state", 0x0A1A, PDU_QUERY_STATE);
+        assertPDUcrc("sleep send", 0x8D99, PDU_SLEEP_SEND);
+        assertPDUcrc("time query", 0x3311, PDU_TIME_QUERY);
+        assertPDUcrc("test LED on", 0x4DD7, PDU_TEST_LED_ON);
+    }
+
+    @Test
+    public void emptyWindowReturnsSeed() throws Exception {
+        byte[] buffer = new byte[10];
+        assertEquals(CRC16.INIT_CCITT, CRC16.compute(buffer, 5, 0));
+        assertEquals(0x1234, CRC16.update(0x1234, buffer, 3, 0));
+    }
+
+    @Test
+    public void slicedMatchesBytewiseOnRandomBuffers() throws Exception {
+        Random rnd = new Random(14L);
+        for (int trial = 0; trial < 5000; trial++) {
+            byte[] buffer = new byte[1 + rnd.nextInt(4200)];
+            rnd.nextBytes(buffer);
+            int offset = rnd.nextInt(buffer.length);
+            int length = rnd.nextInt(buffer.length - offset + 1);
+            int seed = (trial % 3 == 0 ? CRC16.INIT_CCITT : rnd.nextInt(0x10000));
+            int expected = referenceUpdate(seed, buffer, offset, length);
+            assertEquals("bytewise trial " + trial, expected, CRC16.updateBytewise(seed, buffer, offset, length));
+            assertEquals("trial " + trial + " offset " + offset + " length " + length, expected, CRC16.update(seed, buffer, offset, length));
+            if (trial % 50 == 0) { assertEquals("bitwise trial " + trial, updateBitwise(seed, buffer, offset, length), expected); }
+        }
+    }
+
+    @Test
+    public void chainedUpdatesMatchOneComputation() throws Exception {
+        Random rnd = new Random(15L);
+        byte[] buffer = new byte[3000];
+        rnd.nextBytes(buffer);
+        for (int split = 0; split <= 40; split++) {
+            int crc = CRC16.update(CRC16.INIT_CCITT, buffer, 0, split);
+            crc = CRC16.update(crc, buffer, split, buffer.length - split);
+            assertEquals("split " + split, CRC16.compute(buffer, 0, buffer.length), crc);
+        }
+    }
+}
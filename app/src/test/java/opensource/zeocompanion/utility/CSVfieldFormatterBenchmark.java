@@ -0,0 +1,272 @@
+package opensource.zeocompanion.utility;
+
+import com.myzeo.android.api.data.MyZeoExportDataContract;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Random;
+
+import opensource.zeocompanion.database.CompanionSleepEpisodeEventsParsedRec;
+import opensource.zeocompanion.database.CompanionSleepEpisodeInfoParsedRec;
+import opensource.zeocompanion.database.CompanionSleepEpisodePackedCodec;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM microbenchmark of the CSV export field formatting over 5,000 synthetic nights:  the original String-concatenation
+ * formatting (String.format, SimpleDateFormat.format(new Date()), Byte.toString, and the journal's attributes and events parsed
+ * from their old-style CSV storage strings) versus CSVfieldFormatter and CompanionSleepEpisodePackedCodec appending into one
+ * re-used StringBuilder from the packed journal BLOBs; the equivalence of both for every night is a regular test, while the
+ * timing is an ignored benchmark to be run manually (it fails, with both timings, should the new formatting be the slower)
+ */
+public class CSVfieldFormatterBenchmark {
+    private static final int QTY_NIGHTS = 5000;
+    private static final int QTY_RUNS = 5;
+
+    // the fields of one night that the export formats
+    private static class Night {
+        long startOfNight;
+        long endOfNight;
+        int zq;
+        double[] durations_min = new double[6];
+        byte[] displayHypnogram;
+        byte[] baseHypnogram;
+
+        // the journal's attributes and events as the old-style CSV storage strings (null if none), and as the packed BLOBs
+        String fixedAttribsCSV;
+        String variAttribsCSV;
+        String eventsCSV;
+        byte[] fixedAttribsPacked;
+        byte[] variAttribsPacked;
+        byte[] eventsPacked;
+    }
+
+    private static final String[] VALUES = { "Refreshed", "Coffee", "r\u00eave \u00e9trange", "late dinner", "x" };
+    private static final int[] EVENT_NOS = { 10, 20, 22, 30 };
+
+    private final SimpleDateFormat mSDF1 = new SimpleDateFormat("MM/dd/yyyy");
+    private final SimpleDateFormat mSDF2s = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
+
+    private static Night[] buildNights() {
+        Random rnd = new Random(10L);
+        Night[] nights = new Night[QTY_NIGHTS];
+        long start = 1300000000000L;
+        for (int n = 0; n < QTY_NIGHTS; n++) {
+            Night night = new Night();
+            night.startOfNight = start + n * 86400000L + rnd.nextInt(7200000);
+            night.endOfNight = night.startOfNight + 25200000L + rnd.nextInt(7200000);
+            night.zq = 40 + rnd.nextInt(80);
+            for (int d = 0; d < night.durations_min.length; d++) { night.durations_min[d] = rnd.nextInt(1000) / 2.0; }   // half-minute multiples as the Zeo records
+            night.displayHypnogram = new byte[90 + rnd.nextInt(30)];
+            for (int i = 0; i < night.displayHypnogram.length; i++) { night.displayHypnogram[i] = (byte)(1 + rnd.nextInt(4)); }
+            night.baseHypnogram = new byte[960];
+            int used = 800 + rnd.nextInt(160);
+            for (int i = 0; i < used; i++) { night.baseHypnogram[i] = (byte)(1 + rnd.nextInt(4)); }     // the rest remain undefined (0)
+            if (n % 4 != 0) { buildJournal(rnd, night); }      // every fourth night has no journal entries at all
+            nights[n] = night;
+        }
+        return nights;
+    }
+
+    // fill in a random mix of fixed-slot attributes (with and without likerts and values, including all-empty slots), custom
+    // attributes (including ones lacking an export name), and events with and without info, in their old-style storage forms
+    private static void buildJournal(Random rnd, Night night) {
+        if (rnd.nextInt(3) != 0) {
+            StringBuilder sb = new StringBuilder();
+            for (int slot = 0; slot < MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL; slot++) {
+                if (slot > 0) { sb.append(','); }
+                if (rnd.nextInt(4) != 0) { continue; }
+                sb.append(rnd.nextInt(11) / 2.0f).append(';');
+                if (rnd.nextBoolean()) { sb.append(VALUES[rnd.nextInt(VALUES.length)]); }
+            }
+            night.fixedAttribsCSV = sb.toString();
+        }
+        int qtyVari = rnd.nextInt(4);
+        if (qtyVari > 0) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < qtyVari; i++) {
+                if (i > 0) { sb.append(','); }
+                sb.append(rnd.nextInt(5)).append(';');
+                if (rnd.nextInt(5) != 0) { sb.append("Attrib").append(rnd.nextInt(20)); }
+                sb.append(';').append(rnd.nextInt(11) / 2.0f).append(';');
+                if (rnd.nextBoolean()) { sb.append(VALUES[rnd.nextInt(VALUES.length)]); }
+            }
+            night.variAttribsCSV = sb.toString();
+        }
+        int qtyEvents = rnd.nextInt(5);
+        if (qtyEvents > 0) {
+            StringBuilder sb = new StringBuilder();
+            long timestamp = night.startOfNight;
+            for (int i = 0; i < qtyEvents; i++) {
+                if (i > 0) { sb.append(','); }
+                timestamp = timestamp + 60000L + rnd.nextInt(3600000);
+                sb.append(rnd.nextInt(5)).append(';').append(timestamp).append(';').append(EVENT_NOS[rnd.nextInt(EVENT_NOS.length)]).append(';');
+                if (rnd.nextBoolean()) { sb.append(VALUES[rnd.nextInt(VALUES.length)]); }
+            }
+            night.eventsCSV = sb.toString();
+        }
+        night.fixedAttribsPacked = CompanionSleepEpisodePackedCodec.encodeFixedAttribsFromCSV(night.fixedAttribsCSV);
+        night.variAttribsPacked = CompanionSleepEpisodePackedCodec.encodeVariAttribsFromCSV(night.variAttribsCSV);
+        night.eventsPacked = CompanionSleepEpisodePackedCodec.encodeEventsFromCSV(night.eventsCSV);
+    }
+
+    // the original formatting of these fields as it was performed before CSVfieldFormatter
+    private String formatOriginal(Night night, boolean asEpochs, boolean includeHypnogramSpaces, boolean includeValueText) {
+        String str = mSDF1.format(new Date(night.startOfNight)) + ",";
+        str = str + night.zq + ",";
+        for (double d: night.durations_min) {
+            if (asEpochs) { str = str + String.format("%.0f", d * 2.0) + ","; }
+            else { str = str + String.format("%.1f", d) + ","; }
+        }
+        str = str + mSDF2s.format(new Date(night.startOfNight)) + "," + mSDF2s.format(new Date(night.endOfNight)) + ",";
+        for (int i = 0; i < night.displayHypnogram.length; i++) {
+            str = str + Byte.toString(night.displayHypnogram[i]);
+            if (includeHypnogramSpaces) { str = str + " "; }
+        }
+        int m = night.baseHypnogram.length - 1;
+        while (m >= 0 && night.baseHypnogram[m] == 0) { m--; }
+        m++;
+        str = str + ",";
+        for (int i = 0; i < m; i++) {
+            str = str + Byte.toString(night.baseHypnogram[i]);
+            if (includeHypnogramSpaces) { str = str + " "; }
+        }
+        str = str + ",";
+        return str + formatOriginalJournal(night, includeValueText);
+    }
+
+    // the original formatting of the attributes column and the journal section, from the storage strings unpacked as
+    // CompanionSleepEpisodesRec.unpackInfoCSVstrings and unpackEventCSVstring did; the fixed-slot attributes are those of an
+    // unpacked record (a never-unpacked record had its raw storage string copied, which left a ';' after a likert lacking a value)
+    private String formatOriginalJournal(Night night, boolean includeValueText) {
+        String str = "";
+        if (night.fixedAttribsCSV == null) {
+            str = str + ",,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,";
+        } else {
+            String parsedStrings[] = night.fixedAttribsCSV.split(",", -1);
+            for (int slot = 0; slot < MyZeoExportDataContract.EXPORT_FIELD_SLOTS_TOTAL; slot++) {
+                CompanionSleepEpisodeInfoParsedRec piRec = null;
+                if (slot < parsedStrings.length && !parsedStrings[slot].isEmpty()) {
+                    piRec = new CompanionSleepEpisodeInfoParsedRec(slot, parsedStrings[slot]);
+                    if (piRec.rLikert == 0.0 && piRec.rValue == null) { piRec = null; }
+                }
+                if (piRec != null) {
+                    str = str + String.valueOf(piRec.rLikert);
+                    if (includeValueText && piRec.rValue != null) { str = str  + ";" + piRec.rValue; }
+                }
+                str = str + ",";
+            }
+        }
+
+        String workStr = "";
+        if (night.variAttribsCSV != null) {
+            workStr = workStr + "$A," + night.variAttribsCSV;
+            if (!night.variAttribsCSV.substring(night.variAttribsCSV.length() - 1).equals(",")) { workStr = workStr + ","; }
+            workStr = workStr + "$/A,";
+        }
+        if (night.eventsCSV != null) {
+            workStr = workStr + "$E,";
+            for (String field: night.eventsCSV.split(",", -1)) {
+                workStr = workStr + new CompanionSleepEpisodeEventsParsedRec(field).getExportString(mSDF2s) + ",";
+            }
+            workStr = workStr + "$/E,";
+        }
+        if (!workStr.isEmpty()) { str = str + ",$ZeoCompJournalAddtl," + workStr + "$/ZeoCompJournalAddtl"; }
+        return str;
+    }
+
+    // the same fields formatted by CSVfieldFormatter into the re-used StringBuilder
+    private static void formatNew(StringBuilder sb, CSVfieldFormatter formatter, SimpleDateFormat sdf1, SimpleDateFormat sdf2s, Night night, boolean asEpochs, boolean includeHypnogramSpaces, boolean includeValueText) {
+        sb.setLength(0);
+        formatter.appendDate(sb, sdf1, night.startOfNight); sb.append(',');
+        sb.append(night.zq).append(',');
+        for (double d: night.durations_min) {
+            if (asEpochs) { formatter.appendFixed(sb, d * 2.0, 0); }
+            else { formatter.appendFixed(sb, d, 1); }
+            sb.append(',');
+        }
+        formatter.appendDate(sb, sdf2s, night.startOfNight); sb.append(',');
+        formatter.appendDate(sb, sdf2s, night.endOfNight); sb.append(',');
+        CSVfieldFormatter.appendHypnograms(sb, night.displayHypnogram, night.baseHypnogram, includeHypnogramSpaces);
+        sb.append(',');
+        formatNewJournal(sb, sdf2s, night, includeValueText);
+    }
+
+    // the attributes column and the journal section as CSVexporter now formats them, directly from the packed BLOBs
+    private static void formatNewJournal(StringBuilder sb, SimpleDateFormat sdf2s, Night night, boolean includeValueText) {
+        CompanionSleepEpisodePackedCodec.appendFixedAttribsCSV(sb, night.fixedAttribsPacked, includeValueText);
+
+        int sectionStart = sb.length();
+        sb.append(",$ZeoCompJournalAddtl,");
+        int contentStart = sb.length();
+        if (CompanionSleepEpisodePackedCodec.getCount(night.variAttribsPacked) > 0) {
+            sb.append("$A,");
+            CompanionSleepEpisodePackedCodec.appendVariAttribsCSV(sb, night.variAttribsPacked);
+            sb.append("$/A,");
+        }
+        if (CompanionSleepEpisodePackedCodec.getCount(night.eventsPacked) > 0) {
+            ArrayList<CompanionSleepEpisodeEventsParsedRec> theEvents = new ArrayList<CompanionSleepEpisodeEventsParsedRec>();
+            CompanionSleepEpisodePackedCodec.decodeEvents(night.eventsPacked, theEvents);
+            sb.append("$E,");
+            for (CompanionSleepEpisodeEventsParsedRec evtRec: theEvents) { sb.append(evtRec.getExportString(sdf2s)).append(','); }
+            sb.append("$/E,");
+        }
+        if (sb.length() > contentStart) { sb.append("$/ZeoCompJournalAddtl"); }
+        else { sb.setLength(sectionStart); }
+    }
+
+    @Test
+    public void formattingMatchesOriginal() throws Exception {
+        Night[] nights = buildNights();
+        CSVfieldFormatter formatter = new CSVfieldFormatter();
+        StringBuilder sb = new StringBuilder(4096);
+        for (int n = 0; n < QTY_NIGHTS; n++) {
+            for (int variant = 0; variant < 8; variant++) {
+                boolean asEpochs = ((variant & 1) != 0);
+                boolean includeHypnogramSpaces = ((variant & 2) != 0);
+                boolean includeValueText = ((variant & 4) != 0);
+                formatNew(sb, formatter, mSDF1, mSDF2s, nights[n], asEpochs, includeHypnogramSpaces, includeValueText);
+                assertEquals("night " + n + " variant " + variant, formatOriginal(nights[n], asEpochs, includeHypnogramSpaces, includeValueText), sb.toString());
+            }
+        }
+    }
+
+    @Ignore("timing benchmark; run manually")
+    @Test
+    public void formatFiveThousandNights() throws Exception {
+        Night[] nights = buildNights();
+        CSVfieldFormatter formatter = new CSVfieldFormatter();
+        StringBuilder sb = new StringBuilder(4096);
+
+        // warm up the JIT, then time
+        long checksum = 0L;
+        for (int n = 0; n < QTY_NIGHTS; n++) {
+            checksum += formatOriginal(nights[n], false, true, true).length();
+            formatNew(sb, formatter, mSDF1, mSDF2s, nights[n], false, true, true);
+            checksum += sb.length();
+        }
+
+        long original_ns = Long.MAX_VALUE;
+        long new_ns = Long.MAX_VALUE;
+        for (int run = 0; run < QTY_RUNS; run++) {
+            long start_ns = System.nanoTime();
+            for (int n = 0; n < QTY_NIGHTS; n++) { checksum += formatOriginal(nights[n], false, true, true).length(); }
+            long elapsed_ns = System.nanoTime() - start_ns;
+            if (elapsed_ns < original_ns) { original_ns = elapsed_ns; }
+
+            start_ns = System.nanoTime();
+            for (int n = 0; n < QTY_NIGHTS; n++) {
+                formatNew(sb, formatter, mSDF1, mSDF2s, nights[n], false, true, true);
+                checksum += sb.length();
+            }
+            elapsed_ns = System.nanoTime() - start_ns;
+            if (elapsed_ns < new_ns) { new_ns = elapsed_ns; }
+        }
+        assertTrue(QTY_NIGHTS + " nights: original formatting " + (original_ns / QTY_NIGHTS) + " ns per night; CSVfieldFormatter " +
+                (new_ns / QTY_NIGHTS) + " ns per night (checksum " + checksum + ")", new_ns <= original_ns);
+    }
+}
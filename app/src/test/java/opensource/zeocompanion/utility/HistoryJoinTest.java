@@ -0,0 +1,226 @@
+package opensource.zeocompanion.utility;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM equivalence test of HistoryJoin against the original nested-scan integration of JournalDataCoordinator,
+ * upon randomized synthetic datasets (including 10k-night ones) with shared, duplicated, unlinked and dead records
+ */
+public class HistoryJoinTest {
+    // a synthetic dataset described the same way JournalDataCoordinator describes its records to HistoryJoin
+    private static class Dataset {
+        int journalQty;
+        long[] journalZSEids;
+        long[] journalTimestamps;
+        boolean[] journalHasOnlyZeoContent;
+        int zeoAppQty;
+        int zeoQty;
+        long[] zeoZSEids;
+        long[] zeoStartsOfNight;
+        boolean[] zeoVisible;
+        boolean[] zeoIntegratable;
+    }
+
+    // an integrated record of the reference implementation
+    private static class RefRec {
+        int journalPos = -1;
+        int zeoPos = -1;
+        long timestamp = 0;
+        long zseID = 0;
+        int found = 0;
+    }
+
+    private static Dataset buildDataset(Random rnd, int nights) {
+        Dataset d = new Dataset();
+        long night = 1450000000000L + nights * 86400000L;
+
+        // journal records:  most are linked to a Zeo record, some unlinked (ZSE ID zero), a few share a ZSE ID
+        d.journalQty = nights;
+        d.journalZSEids = new long[nights];
+        d.journalTimestamps = new long[nights];
+        d.journalHasOnlyZeoContent = new boolean[nights];
+        for (int j = 0; j < nights; j++) {
+            int r = rnd.nextInt(20);
+            if (r == 0) { d.journalZSEids[j] = 0L; }
+            else if (r == 1 && j > 0) { d.journalZSEids[j] = d.journalZSEids[j - 1]; }
+            else { d.journalZSEids[j] = nights - j; }
+            d.journalTimestamps[j] = night - j * 86400000L + rnd.nextInt(3600000);
+            d.journalHasOnlyZeoContent[j] = rnd.nextBoolean();
+        }
+
+        // Zeo App records then replicated records; the replicated ones mostly duplicate the Zeo App ones plus older nights
+        d.zeoAppQty = nights;
+        d.zeoQty = nights * 2;
+        d.zeoZSEids = new long[d.zeoQty];
+        d.zeoStartsOfNight = new long[d.zeoQty];
+        d.zeoVisible = new boolean[d.zeoQty];
+        d.zeoIntegratable = new boolean[d.zeoQty];
+        for (int z = 0; z < d.zeoQty; z++) {
+            int n = (z < d.zeoAppQty ? z : (z - d.zeoAppQty) + rnd.nextInt(2));
+            d.zeoZSEids[z] = (rnd.nextInt(15) == 0 ? nights + 1 + z : nights - n);
+            d.zeoStartsOfNight[z] = night - n * 86400000L + rnd.nextInt(7200000) - 3600000;
+            d.zeoVisible[z] = (rnd.nextInt(6) != 0);
+            d.zeoIntegratable[z] = (d.zeoVisible[z] || rnd.nextInt(4) == 0);
+        }
+        return d;
+    }
+
+    // the original algorithm:  for every Zeo record scan the whole array for the first record of the same ZSE ID
+    private static ArrayList<RefRec> referenceJoin(Dataset d, boolean zeoOnly) {
+        int journalCnt = 0;
+        int zeoCnt = 0;
+        ArrayList<RefRec> theArray = new ArrayList<RefRec>();
+        if (!zeoOnly) {
+            for (int j = 0; j < d.journalQty; j++) {
+                RefRec iRec1 = new RefRec();
+                iRec1.journalPos = j;
+                iRec1.timestamp = d.journalTimestamps[j];
+                iRec1.zseID = d.journalZSEids[j];
+                iRec1.found = 0x01;
+                theArray.add(iRec1);
+                journalCnt++;
+            }
+        }
+        for (int pass = 0; pass <= 1; pass++) {
+            int zStart = (pass == 0 ? 0 : d.zeoAppQty);
+            int zEnd = (pass == 0 ? d.zeoAppQty : d.zeoQty);
+            for (int z = zStart; z < zEnd; z++) {
+                if (zeoOnly) {
+                    if (d.zeoVisible[z]) {
+                        boolean found = false;
+                        if (pass == 1) {
+                            for (RefRec existingIrec: theArray) {
+                                if (existingIrec.zseID == d.zeoZSEids[z]) { found = true; break; }
+                            }
+                        }
+                        if (!found) { theArray.add(newZeoRec(d, z)); zeoCnt++; }
+                    }
+                } else {
+                    boolean found = false;
+                    for (RefRec existingIrec: theArray) {
+                        if (existingIrec.zseID == d.zeoZSEids[z]) {
+                            if (pass == 0 || (existingIrec.found & 0x02) == 0) {
+                                if (d.zeoIntegratable[z]) {
+                                    integrate(existingIrec, d, z);
+                                    found = true;
+                                } else {
+                                    if (existingIrec.journalPos >= 0) {
+                                        if (d.journalHasOnlyZeoContent[existingIrec.journalPos]) {
+                                            theArray.remove(existingIrec);
+                                            journalCnt--;
+                                        } else {
+                                            integrate(existingIrec, d, z);
+                                            found = true;
+                                        }
+                                    } else {
+                                        theArray.remove(existingIrec);
+                                    }
+                                }
+                            }
+                            break;
+                        }
+                    }
+                    if (!found) {
+                        if (d.zeoVisible[z]) {
+                            found = false;
+                            if (pass == 1) {
+                                for (RefRec existingIrec: theArray) {
+                                    if (existingIrec.zseID == d.zeoZSEids[z]) { found = true; break; }
+                                }
+                            }
+                            if (!found) { theArray.add(newZeoRec(d, z)); zeoCnt++; }
+                        }
+                    }
+                }
+            }
+        }
+        if (journalCnt > 0 && zeoCnt > 0) {
+            Collections.sort(theArray, new Comparator<RefRec>() {
+                @Override
+                public int compare(RefRec o1, RefRec o2) {
+                    if (o1.timestamp < o2.timestamp) { return 1; }
+                    if (o1.timestamp > o2.timestamp) { return -1; }
+                    return 0;
+                }
+            });
+        }
+        return theArray;
+    }
+
+    private static RefRec newZeoRec(Dataset d, int z) {
+        RefRec iRec2 = new RefRec();
+        iRec2.zeoPos = z;
+        iRec2.timestamp = d.zeoStartsOfNight[z];
+        iRec2.zseID = d.zeoZSEids[z];
+        iRec2.found = 0x02;
+        return iRec2;
+    }
+
+    private static void integrate(RefRec existingIrec, Dataset d, int z) {
+        existingIrec.zeoPos = z;
+        if (d.zeoStartsOfNight[z] < existingIrec.timestamp) { existingIrec.timestamp = d.zeoStartsOfNight[z]; }
+        existingIrec.zseID = d.zeoZSEids[z];
+        existingIrec.found = (existingIrec.found | 0x02);
+    }
+
+    private static void assertSameJoin(Dataset d, boolean zeoOnly, String context) {
+        ArrayList<RefRec> expected = referenceJoin(d, zeoOnly);
+        HistoryJoin actual = HistoryJoin.join(d.journalZSEids, d.journalTimestamps, d.journalHasOnlyZeoContent, d.journalQty,
+                d.zeoZSEids, d.zeoStartsOfNight, d.zeoVisible, d.zeoIntegratable, d.zeoAppQty, d.zeoQty, zeoOnly);
+        assertEquals(context + " quantity", expected.size(), actual.mQty);
+        for (int i = 0; i < actual.mQty; i++) {
+            RefRec e = expected.get(i);
+            assertEquals(context + " journal pos at " + i, e.journalPos, actual.mJournalPos[i]);
+            assertEquals(context + " zeo pos at " + i, e.zeoPos, actual.mZeoPos[i]);
+            assertEquals(context + " timestamp at " + i, e.timestamp, actual.mTimestamp[i]);
+            assertEquals(context + " ZSE ID at " + i, e.zseID, actual.mZSEid[i]);
+            assertEquals(context + " found at " + i, e.found, actual.mFound[i]);
+        }
+    }
+
+    @Test
+    public void smallDatasetsMatchNestedScan() throws Exception {
+        Random rnd = new Random(1L);
+        for (int trial = 0; trial < 500; trial++) {
+            Dataset d = buildDataset(rnd, 1 + rnd.nextInt(40));
+            assertSameJoin(d, false, "trial " + trial);
+            assertSameJoin(d, true, "zeo-only trial " + trial);
+        }
+    }
+
+    @Test
+    public void emptySourcesMatchNestedScan() throws Exception {
+        Random rnd = new Random(2L);
+        Dataset d = buildDataset(rnd, 30);
+        d.zeoAppQty = 0;
+        d.zeoQty = 0;
+        assertSameJoin(d, false, "no Zeo records");
+        d = buildDataset(rnd, 30);
+        d.journalQty = 0;
+        assertSameJoin(d, false, "no journal records");
+    }
+
+    @Test
+    public void tenThousandNightsMatchNestedScan() throws Exception {
+        Random rnd = new Random(3L);
+        Dataset d = buildDataset(rnd, 10000);
+        long start_ns = System.nanoTime();
+        assertSameJoin(d, false, "10k nights");
+        long elapsed_ns = System.nanoTime() - start_ns;
+        assertSameJoin(d, true, "10k nights zeo-only");
+
+        start_ns = System.nanoTime();
+        HistoryJoin theJoin = HistoryJoin.join(d.journalZSEids, d.journalTimestamps, d.journalHasOnlyZeoContent, d.journalQty,
+                d.zeoZSEids, d.zeoStartsOfNight, d.zeoVisible, d.zeoIntegratable, d.zeoAppQty, d.zeoQty, false);
+        long join_ns = System.nanoTime() - start_ns;
+        System.out.println("10k nights: " + theJoin.mQty + " integrated records; hash join " + (join_ns / 1000000L) +
+                " ms; nested scan plus hash join " + (elapsed_ns / 1000000L) + " ms");
+    }
+}